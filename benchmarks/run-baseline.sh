@@ -0,0 +1,43 @@
+#!/bin/sh
+#
+# 在当前机器上测得登录热点路径的基准结果，写出到 results/<name>.json，并在 results/<name>.env 记录测量环境。
+#
+# 用法：
+#   ./run-baseline.sh                    # 全部基准，写出 results/baseline.json
+#   ./run-baseline.sh after-change       # 写出 results/after-change.json，用于与基线对比
+#   ./run-baseline.sh baseline -p apps=100 DingTalkAppCredentialRegistryBenchmark   # 其余参数原样传给 JMH
+#
+# 需要能解析 Starter 及 JMH 依赖的 Maven 仓库；测量期间不要在同一机器上运行其他负载。
+set -e
+
+cd "$(dirname "$0")"
+NAME=${1:-baseline}
+[ $# -gt 0 ] && shift
+RESULT="results/$NAME.json"
+ENV_FILE="results/$NAME.env"
+
+# 1、安装 Starter 到本地仓库并打包基准测试
+(cd .. && mvn -B -q -DskipTests install)
+mvn -B -q package
+
+# 2、记录测量环境，提交结果时一并提交
+{
+	echo "date: $(date -u +%Y-%m-%dT%H:%M:%SZ)"
+	echo "commit: $(git rev-parse --short HEAD 2>/dev/null || echo unknown)"
+	echo "os: $(uname -srm)"
+	if [ -r /proc/cpuinfo ]; then
+		echo "cpu: $(grep -m1 'model name' /proc/cpuinfo | cut -d: -f2 | sed 's/^ *//') x $(grep -c '^processor' /proc/cpuinfo)"
+		echo "memory: $(grep -m1 MemTotal /proc/meminfo | awk '{print $2 " kB"}')"
+	else
+		echo "cpu: $(sysctl -n machdep.cpu.brand_string 2>/dev/null) x $(sysctl -n hw.ncpu 2>/dev/null)"
+		echo "memory: $(sysctl -n hw.memsize 2>/dev/null) bytes"
+	fi
+	echo "jdk: $(java -version 2>&1 | head -1)"
+	echo "jvm args: ${JAVA_OPTS:-default}"
+} > "$ENV_FILE"
+
+# 3、运行基准，未指定 -prof 时入口类默认加上 GC 分析器
+# shellcheck disable=SC2086
+java $JAVA_OPTS -jar target/benchmarks.jar -rf json -rff "$RESULT" "$@"
+
+echo "Results written to $RESULT, environment to $ENV_FILE"
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.objenesis.ObjenesisStd;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredential;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+
+/**
+ * {@link DingTalkAppCredentialRegistry} 按配置的应用建立索引后的查询：指定 corpId 的应用、不限 corpId 的应用与未配置的 appKey；
+ * 建立索引后查询不再访问 {@link DingTalkTemplate}，因此以不经构造函数创建的实例占位。
+ * 另测未配置应用时，首次登录后记住的 {@link DingTalkTemplate} 应用
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DingTalkAppCredentialRegistryBenchmark {
+
+	private static final String ANY_CORP_APP_KEY = "dingoanycorpappkey00";
+	private static final String UNKNOWN_APP_KEY = "dingounknownappkey00";
+
+	/** 配置的指定 corpId 的应用数量，另有一个不限 corpId 的应用 */
+	@Param({ "1", "100" })
+	public int apps;
+
+	private DingTalkAppCredentialRegistry registry;
+	private DingTalkAppCredentialRegistry templateRegistry;
+
+	/**
+	 * 只认识基准应用的 {@link DingTalkTemplate}
+	 */
+	public static class FixtureDingTalkTemplate extends DingTalkTemplate {
+
+		@Override
+		public boolean hasAppKey(String appKey) {
+			return DingTalkBenchmarkFixtures.APP_KEY.equals(appKey);
+		}
+
+		@Override
+		public String getAppSecret(String corpId, String appKey) {
+			return this.hasAppKey(appKey) ? DingTalkBenchmarkFixtures.APP_SECRET : null;
+		}
+
+	}
+
+	@Setup
+	public void setup() {
+		List<DingTalkAppCredential> credentials = new ArrayList<>(apps + 1);
+		for (int i = 1; i < apps; i++) {
+			credentials.add(new DingTalkAppCredential(DingTalkBenchmarkFixtures.CORP_ID, "dingoapp" + i, DingTalkBenchmarkFixtures.APP_SECRET));
+		}
+		credentials.add(new DingTalkAppCredential(DingTalkBenchmarkFixtures.CORP_ID, DingTalkBenchmarkFixtures.APP_KEY,
+				DingTalkBenchmarkFixtures.APP_SECRET));
+		credentials.add(new DingTalkAppCredential(null, ANY_CORP_APP_KEY, DingTalkBenchmarkFixtures.APP_SECRET));
+		DingTalkTemplate dingTalkTemplate = new ObjenesisStd().newInstance(DingTalkTemplate.class);
+		registry = DingTalkAppCredentialRegistry.of(dingTalkTemplate, credentials, 10000, Duration.ofSeconds(60));
+		templateRegistry = DingTalkAppCredentialRegistry.of(new ObjenesisStd().newInstance(FixtureDingTalkTemplate.class),
+				new ArrayList<>(), 10000, Duration.ofSeconds(60));
+		templateRegistry.getAppSecret(DingTalkBenchmarkFixtures.CORP_ID, DingTalkBenchmarkFixtures.APP_KEY);
+	}
+
+	@Benchmark
+	public String corpApp() {
+		return registry.getAppSecret(DingTalkBenchmarkFixtures.CORP_ID, DingTalkBenchmarkFixtures.APP_KEY);
+	}
+
+	@Benchmark
+	public String anyCorpApp() {
+		return registry.getAppSecret(DingTalkBenchmarkFixtures.CORP_ID, ANY_CORP_APP_KEY);
+	}
+
+	@Benchmark
+	public String templateApp() {
+		return templateRegistry.getAppSecret(DingTalkBenchmarkFixtures.CORP_ID, DingTalkBenchmarkFixtures.APP_KEY);
+	}
+
+	@Benchmark
+	public boolean unknownApp() {
+		return registry.hasAppKey(DingTalkBenchmarkFixtures.CORP_ID, UNKNOWN_APP_KEY);
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.boot.biz.userdetails.UserDetailsServiceAdapter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaLoginRequest;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeLoginRequest;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeLoginRequest;
+import org.springframework.security.boot.dingtalk.benchmark.DingTalkBenchmarkFixtures.StubMaAuthenticationProvider;
+import org.springframework.security.boot.dingtalk.benchmark.DingTalkBenchmarkFixtures.StubScanCodeAuthenticationProvider;
+import org.springframework.security.boot.dingtalk.benchmark.DingTalkBenchmarkFixtures.StubTmpCodeAuthenticationProvider;
+import org.springframework.security.boot.dingtalk.benchmark.DingTalkBenchmarkFixtures.StubUserDetailsService;
+import org.springframework.security.core.Authentication;
+
+/**
+ * 认证提供者的 authenticate：DingTalk 接口与 {@link UserDetailsServiceAdapter} 均为立即返回的桩实现，
+ * 测得的是校验 appKey、观测、用户状态检查与构建认证结果的开销
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DingTalkAuthenticationProviderBenchmark {
+
+	@Param({ DingTalkBenchmarkFixtures.FLOW_MA, DingTalkBenchmarkFixtures.FLOW_SCAN_CODE, DingTalkBenchmarkFixtures.FLOW_TMP_CODE })
+	public String flow;
+
+	private AuthenticationProvider authenticationProvider;
+	private Supplier<Authentication> authenticationRequest;
+
+	@Setup
+	public void setup() {
+		UserDetailsServiceAdapter userDetailsService = new StubUserDetailsService(DingTalkBenchmarkFixtures.userDetails());
+		String corpId = DingTalkBenchmarkFixtures.CORP_ID;
+		String appKey = DingTalkBenchmarkFixtures.APP_KEY;
+		String code = DingTalkBenchmarkFixtures.CODE;
+		switch (flow) {
+		case DingTalkBenchmarkFixtures.FLOW_MA:
+			authenticationProvider = new StubMaAuthenticationProvider(userDetailsService);
+			authenticationRequest = () -> new DingTalkMaAuthenticationToken(new DingTalkMaLoginRequest(corpId, appKey, null, code));
+			break;
+		case DingTalkBenchmarkFixtures.FLOW_SCAN_CODE:
+			authenticationProvider = new StubScanCodeAuthenticationProvider(userDetailsService);
+			authenticationRequest = () -> new DingTalkScanCodeAuthenticationToken(new DingTalkScanCodeLoginRequest(corpId, appKey, null, code));
+			break;
+		case DingTalkBenchmarkFixtures.FLOW_TMP_CODE:
+			authenticationProvider = new StubTmpCodeAuthenticationProvider(userDetailsService);
+			authenticationRequest = () -> new DingTalkTmpCodeAuthenticationToken(new DingTalkTmpCodeLoginRequest(corpId, appKey, null, code));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown flow " + flow);
+		}
+	}
+
+	@Benchmark
+	public Authentication authenticate() {
+		// 每次一个新的认证请求，与登录过滤器一致
+		return authenticationProvider.authenticate(authenticationRequest.get());
+	}
+
+}
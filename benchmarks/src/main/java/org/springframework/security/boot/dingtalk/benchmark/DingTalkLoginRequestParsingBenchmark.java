@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaAuthenticationProcessingFilter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationProcessingFilter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeAuthenticationProcessingFilter;
+import org.springframework.security.core.Authentication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 登录过滤器的请求解析：JSON 请求体与表单参数，到构建出认证 Token 为止；AuthenticationManager 原样返回认证 Token，
+ * 不计入认证提供者的开销（见 {@link DingTalkAuthenticationProviderBenchmark}）
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class DingTalkLoginRequestParsingBenchmark {
+
+	/**
+	 * 登录过滤器的一次认证尝试
+	 */
+	@FunctionalInterface
+	interface LoginAttempt {
+
+		Authentication attempt(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException;
+
+	}
+
+	@Param({ DingTalkBenchmarkFixtures.FLOW_MA, DingTalkBenchmarkFixtures.FLOW_SCAN_CODE, DingTalkBenchmarkFixtures.FLOW_TMP_CODE })
+	public String flow;
+
+	@Param({ "json", "form" })
+	public String format;
+
+	private LoginAttempt loginAttempt;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+	private byte[] body;
+
+	@Setup
+	public void setup() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		AuthenticationManager authenticationManager = authentication -> authentication;
+		String codeParameter;
+		String cropIdParameter;
+		String keyParameter;
+		switch (flow) {
+		case DingTalkBenchmarkFixtures.FLOW_MA:
+			DingTalkMaAuthenticationProcessingFilter maFilter = new DingTalkMaAuthenticationProcessingFilter(objectMapper);
+			maFilter.setAuthenticationManager(authenticationManager);
+			loginAttempt = maFilter::doAttemptAuthentication;
+			codeParameter = DingTalkMaAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CODE_KEY;
+			cropIdParameter = DingTalkMaAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CROPID_KEY;
+			keyParameter = DingTalkMaAuthenticationProcessingFilter.SPRING_SECURITY_FORM_APP_KEY;
+			break;
+		case DingTalkBenchmarkFixtures.FLOW_SCAN_CODE:
+			DingTalkScanCodeAuthenticationProcessingFilter scanCodeFilter = new DingTalkScanCodeAuthenticationProcessingFilter(objectMapper);
+			scanCodeFilter.setAuthenticationManager(authenticationManager);
+			loginAttempt = scanCodeFilter::attemptAuthentication;
+			codeParameter = DingTalkScanCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_TMPCODE_KEY;
+			cropIdParameter = DingTalkScanCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CROPID_KEY;
+			keyParameter = DingTalkScanCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_APP_KEY;
+			break;
+		case DingTalkBenchmarkFixtures.FLOW_TMP_CODE:
+			DingTalkTmpCodeAuthenticationProcessingFilter tmpCodeFilter = new DingTalkTmpCodeAuthenticationProcessingFilter(objectMapper);
+			tmpCodeFilter.setAuthenticationManager(authenticationManager);
+			loginAttempt = tmpCodeFilter::attemptAuthentication;
+			codeParameter = DingTalkTmpCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CODE_KEY;
+			cropIdParameter = DingTalkTmpCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CROPID_KEY;
+			keyParameter = DingTalkTmpCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_APP_KEY;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown flow " + flow);
+		}
+		request = new MockHttpServletRequest("POST", "/login/dingtalk/" + flow);
+		response = new MockHttpServletResponse();
+		if ("json".equals(format)) {
+			request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			body = DingTalkBenchmarkFixtures.loginRequestJson(codeParameter);
+		} else {
+			request.setContentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+			request.addParameter(cropIdParameter, DingTalkBenchmarkFixtures.CORP_ID);
+			request.addParameter(keyParameter, DingTalkBenchmarkFixtures.APP_KEY);
+			request.addParameter(codeParameter, DingTalkBenchmarkFixtures.CODE);
+		}
+	}
+
+	@Benchmark
+	public Authentication attemptAuthentication() throws IOException, ServletException {
+		if (body != null) {
+			// 重新设置请求体，每次都从头读取
+			request.setContent(body);
+		}
+		return loginAttempt.attempt(request, response);
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.benchmark;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.boot.biz.SpringSecurityBizMessageSource;
+import org.springframework.security.boot.biz.userdetails.UserProfilePayload;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkAuthenticationResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkFastjsonResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkJacksonResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMatchedAuthenticationSuccessJwtHandler;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link DingTalkMatchedAuthenticationSuccessJwtHandler} 的响应渲染与写出，分别使用 fastjson 与 Jackson；
+ * JwtPayloadRepository 为固定返回用户信息载体的桩实现，不计入签发 JWT 的开销
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DingTalkSuccessJwtHandlerBenchmark {
+
+	@Param({ "fastjson", "jackson" })
+	public String writer;
+
+	private UserProfilePayload profilePayload;
+	private DingTalkAuthenticationResponseWriter responseWriter;
+	private DingTalkMatchedAuthenticationSuccessJwtHandler successHandler;
+	private MockHttpServletRequest request;
+	private Authentication authentication;
+
+	@Setup
+	public void setup() {
+		MessageSourceAccessor messages = SpringSecurityBizMessageSource.getAccessor();
+		profilePayload = DingTalkBenchmarkFixtures.profilePayload();
+		responseWriter = "jackson".equals(writer) ? new DingTalkJacksonResponseWriter(messages, new ObjectMapper())
+				: new DingTalkFastjsonResponseWriter(messages);
+		successHandler = new DingTalkMatchedAuthenticationSuccessJwtHandler(DingTalkBenchmarkFixtures.payloadRepository(profilePayload),
+				responseWriter);
+		request = new MockHttpServletRequest("POST", "/login/dingtalk/scancode");
+		UserDetails userDetails = DingTalkBenchmarkFixtures.userDetails();
+		authentication = new DingTalkScanCodeAuthenticationToken(userDetails.getUsername(), userDetails.getPassword(),
+				userDetails.getAuthorities());
+	}
+
+	@Benchmark
+	public byte[] renderSuccess() {
+		return responseWriter.renderSuccess(Locale.SIMPLIFIED_CHINESE, profilePayload);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse onAuthenticationSuccess() throws IOException, ServletException {
+		// 每次一个新的响应，写出的响应体不会累积
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		successHandler.onAuthenticationSuccess(request, response, authentication);
+		return response;
+	}
+
+}
@@ -1,12 +1,54 @@
 package org.springframework.security.boot;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkAuthenticationResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkFailureResponseCache;
 import org.springframework.security.boot.dingtalk.authentication.DingTalkMatchedAuthenticationEntryPoint;
 import org.springframework.security.boot.dingtalk.authentication.DingTalkMatchedAuthenticationFailureHandler;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredential;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.springframework.security.boot.dingtalk.observation.DingTalkCompositeLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkFlightRecorderLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCredentialProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkFailureProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkReplayProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkTokenStoreProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkUserDetailsCacheProperties;
+import org.springframework.security.boot.dingtalk.replay.DingTalkCodeReplayGuard;
+import org.springframework.security.boot.dingtalk.replay.DingTalkConsumedCodeStore;
+import org.springframework.security.boot.dingtalk.replay.DingTalkInMemoryConsumedCodeStore;
+import org.springframework.security.boot.dingtalk.support.DingTalkAuthenticationExecutor;
+import org.springframework.security.boot.dingtalk.support.DingTalkWarmup;
+import org.springframework.security.boot.dingtalk.token.DingTalkAccessTokenCache;
+import org.springframework.security.boot.dingtalk.token.DingTalkAccessTokenStore;
+import org.springframework.security.boot.dingtalk.token.DingTalkInMemoryAccessTokenStore;
+import org.springframework.security.boot.dingtalk.token.DingTalkJdbcAccessTokenStore;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkQuotaGovernor;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkRetryTemplate;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkUpstreamInvoker;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkLoopbackInvalidationBus;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkSharedUserDetailsCache;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkUserDetailsCache;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkUserDetailsInvalidationBus;
+import org.springframework.util.Assert;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Configuration
 @AutoConfigureBefore({ SecurityFilterAutoConfiguration.class })
@@ -19,8 +61,198 @@ public class SecurityDingTalkAutoConfiguration {
 	}
 	
 	@Bean
-	public DingTalkMatchedAuthenticationFailureHandler dingtalkMatchedAuthenticationFailureHandler() {
-		return new DingTalkMatchedAuthenticationFailureHandler();
+	public DingTalkMatchedAuthenticationFailureHandler dingtalkMatchedAuthenticationFailureHandler(
+			SecurityDingTalkProperties dingtalkProperties) {
+		DingTalkMatchedAuthenticationFailureHandler failureHandler = new DingTalkMatchedAuthenticationFailureHandler();
+		// 轻量模式：失败响应预先渲染，异常不采集堆栈由 DingTalkStacklessExceptionsInitializer 设置
+		SecurityDingTalkFailureProperties failure = dingtalkProperties.getFailure();
+		if (failure.isLightweight()) {
+			failureHandler.setResponseCache(new DingTalkFailureResponseCache(failure.getMaxCachedResponses()));
+		}
+		return failureHandler;
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX, value = "enabled", havingValue = "true")
+	static class DingTalkClientConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public DingTalkAppCredentialRegistry dingTalkAppCredentialRegistry(
+				ObjectProvider<DingTalkTemplate> dingtalkTemplateProvider,
+				SecurityDingTalkProperties dingtalkProperties) {
+			SecurityDingTalkCredentialProperties credential = dingtalkProperties.getCredential();
+			List<DingTalkAppCredential> apps = credential.getApps().stream()
+					.map(app -> new DingTalkAppCredential(app.getCorpId(), app.getAppKey(), app.getAppSecret()))
+					.collect(Collectors.toList());
+			return DingTalkAppCredentialRegistry.of(dingtalkTemplateProvider.getIfAvailable(), apps,
+					credential.getUnknownCacheSize(), credential.getUnknownCacheTtl());
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".token-cache", value = "enabled", havingValue = "true", matchIfMissing = true)
+		public DingTalkAccessTokenCache dingTalkAccessTokenCache(
+				ObjectProvider<DingTalkTemplate> dingtalkTemplateProvider,
+				ObjectProvider<DingTalkAccessTokenStore> tokenStoreProvider,
+				DingTalkAppCredentialRegistry credentialRegistry,
+				DingTalkUpstreamInvoker upstreamInvoker,
+				SecurityDingTalkProperties dingtalkProperties) {
+			DingTalkAccessTokenCache accessTokenCache = new DingTalkAccessTokenCache(dingtalkTemplateProvider.getIfAvailable(), dingtalkProperties.getTokenCache());
+			accessTokenCache.setCredentialRegistry(credentialRegistry);
+			accessTokenCache.setUpstreamInvoker(upstreamInvoker);
+			accessTokenCache.setTokenStore(tokenStoreProvider.getIfAvailable());
+			accessTokenCache.setLeaseTime(dingtalkProperties.getTokenCache().getStore().getLeaseTime());
+			return accessTokenCache;
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".token-cache.store", value = "type", havingValue = "memory")
+		public DingTalkAccessTokenStore dingTalkAccessTokenStore() {
+			return new DingTalkInMemoryAccessTokenStore();
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".retry", value = "enabled", havingValue = "true")
+		public DingTalkRetryTemplate dingTalkRetryTemplate(SecurityDingTalkProperties dingtalkProperties) {
+			return new DingTalkRetryTemplate(dingtalkProperties.getRetry());
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".quota", value = "enabled", havingValue = "true")
+		public DingTalkQuotaGovernor dingTalkQuotaGovernor(SecurityDingTalkProperties dingtalkProperties) {
+			return new DingTalkQuotaGovernor(dingtalkProperties.getQuota());
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public DingTalkUpstreamInvoker dingTalkUpstreamInvoker(
+				ObjectProvider<DingTalkRetryTemplate> retryTemplateProvider,
+				ObjectProvider<DingTalkQuotaGovernor> quotaGovernorProvider,
+				SecurityDingTalkProperties dingtalkProperties) {
+			DingTalkUpstreamInvoker upstreamInvoker = new DingTalkUpstreamInvoker(dingtalkProperties.getCircuitBreaker(), dingtalkProperties.getBulkhead());
+			upstreamInvoker.setRetryTemplate(retryTemplateProvider.getIfAvailable());
+			upstreamInvoker.setTransientErrcodes(dingtalkProperties.getRetry().getRetryableErrcodes());
+			upstreamInvoker.setQuotaGovernor(quotaGovernorProvider.getIfAvailable());
+			return upstreamInvoker;
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".replay", value = "enabled", havingValue = "true", matchIfMissing = true)
+		public DingTalkConsumedCodeStore dingTalkConsumedCodeStore(SecurityDingTalkProperties dingtalkProperties) {
+			SecurityDingTalkReplayProperties replay = dingtalkProperties.getReplay();
+			return new DingTalkInMemoryConsumedCodeStore(replay.getMaximumSize(), replay.getTickDuration(), replay.getTicksPerWheel());
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".replay", value = "enabled", havingValue = "true", matchIfMissing = true)
+		public DingTalkCodeReplayGuard dingTalkCodeReplayGuard(
+				DingTalkConsumedCodeStore consumedCodeStore,
+				SecurityDingTalkProperties dingtalkProperties) {
+			DingTalkCodeReplayGuard replayGuard = new DingTalkCodeReplayGuard(consumedCodeStore, dingtalkProperties.getReplay().getConsumedTtl());
+			replayGuard.setInFlightTimeout(dingtalkProperties.getReplay().getInFlightTimeout());
+			return replayGuard;
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".user-details-cache", value = "enabled", havingValue = "true")
+		public DingTalkUserDetailsCache dingTalkUserDetailsCache(
+				ObjectProvider<DingTalkSharedUserDetailsCache> sharedCacheProvider,
+				ObjectProvider<DingTalkUserDetailsInvalidationBus> invalidationBusProvider,
+				SecurityDingTalkProperties dingtalkProperties) {
+			SecurityDingTalkUserDetailsCacheProperties userDetailsCache = dingtalkProperties.getUserDetailsCache();
+			DingTalkUserDetailsCache cache = new DingTalkUserDetailsCache(userDetailsCache.getMaximumSize(), userDetailsCache.getTtl());
+			cache.setSharedCache(sharedCacheProvider.getIfAvailable());
+			if (userDetailsCache.getSharedTtl() != null) {
+				cache.setSharedTtl(userDetailsCache.getSharedTtl());
+			}
+			cache.setInvalidationBus(invalidationBusProvider.getIfAvailable());
+			cache.setCopyOnRead(userDetailsCache.isCopyOnRead());
+			return cache;
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".user-details-cache", value = "invalidation-bus", havingValue = "loopback")
+		public DingTalkUserDetailsInvalidationBus dingTalkUserDetailsInvalidationBus() {
+			return new DingTalkLoopbackInvalidationBus();
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".warmup", value = "enabled", havingValue = "true")
+		public DingTalkWarmup dingTalkWarmup(
+				ObjectProvider<ObjectMapper> objectMapperProvider,
+				ObjectProvider<DingTalkAccessTokenCache> accessTokenCacheProvider,
+				ObjectProvider<DingTalkAuthenticationResponseWriter> responseWriterProvider,
+				DingTalkAppCredentialRegistry credentialRegistry,
+				SecurityDingTalkProperties dingtalkProperties) {
+			DingTalkWarmup warmup = new DingTalkWarmup(dingtalkProperties.getWarmup(), objectMapperProvider.getIfAvailable(ObjectMapper::new));
+			warmup.setCredentialRegistry(credentialRegistry);
+			warmup.setAccessTokenCache(accessTokenCacheProvider.getIfAvailable());
+			// 登录请求解析器与认证成功处理器由各登录配置在创建时注册
+			responseWriterProvider.orderedStream().forEach(warmup::addResponseWriter);
+			return warmup;
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public DingTalkAuthenticationExecutor dingTalkAuthenticationExecutor(SecurityDingTalkProperties dingtalkProperties,
+				ObjectProvider<DingTalkLoginObserver> loginObserverProvider) {
+			DingTalkAuthenticationExecutor authenticationExecutor = new DingTalkAuthenticationExecutor(dingtalkProperties.getExecutor());
+			// 将提交线程的追踪上下文传递到认证线程，没有追踪实现时不装饰任务
+			DingTalkLoginObserver loginObserver = DingTalkCompositeLoginObserver.of(loginObserverProvider.orderedStream().collect(Collectors.toList()));
+			if (loginObserver.isContextPropagating()) {
+				authenticationExecutor.setTaskDecorator(loginObserver::wrap);
+			}
+			return authenticationExecutor;
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnClass(name = "jdk.jfr.Event")
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".flight-recorder", value = "enabled", havingValue = "true")
+	static class DingTalkFlightRecorderConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public DingTalkFlightRecorderLoginObserver dingTalkFlightRecorderLoginObserver() {
+			return new DingTalkFlightRecorderLoginObserver();
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.jdbc.core.JdbcTemplate")
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".token-cache.store", value = "type", havingValue = "jdbc")
+	static class DingTalkJdbcTokenStoreConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public DingTalkAccessTokenStore dingTalkAccessTokenStore(
+				ObjectProvider<JdbcTemplate> jdbcTemplateProvider,
+				ObjectProvider<DataSource> dataSourceProvider,
+				SecurityDingTalkProperties dingtalkProperties) {
+			JdbcTemplate jdbcTemplate = jdbcTemplateProvider.getIfAvailable(() -> {
+				DataSource dataSource = dataSourceProvider.getIfAvailable();
+				Assert.state(dataSource != null, "A DataSource is required by the jdbc access_token store");
+				return new JdbcTemplate(dataSource);
+			});
+			SecurityDingTalkTokenStoreProperties store = dingtalkProperties.getTokenCache().getStore();
+			DingTalkJdbcAccessTokenStore tokenStore = new DingTalkJdbcAccessTokenStore(jdbcTemplate, store.getTableName());
+			if (store.isInitializeSchema()) {
+				tokenStore.initializeSchema();
+			}
+			return tokenStore;
+		}
+
 	}
 
 }
@@ -0,0 +1,119 @@
+package org.springframework.security.boot;
+
+import java.util.LinkedHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.biz.web.servlet.i18n.LocaleContextFilter;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkLoginDispatcherFilter;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.RedirectStrategy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.DelegatingAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.security.web.authentication.logout.LogoutSuccessHandler;
+import org.springframework.security.web.savedrequest.RequestCache;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * 合并模式（spring.security.dingtalk.consolidated-chain=true）：扫码、临时授权码、小程序三种登录方式共用一个
+ * {@link SecurityFilterChain}，由 {@link DingTalkLoginDispatcherFilter} 按请求路径精确查找对应的认证过滤器，
+ * 非登录请求只需一次路径查找即可跳过，不再逐个匹配三个过滤器链。
+ * <p>各登录方式的认证过滤器仍由各自的配置构建，关闭的登录方式不会注册。</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX, name = { "enabled", "consolidated-chain" }, havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@AutoConfigureAfter({ SecurityDingTalkScanCodeFilterConfiguration.class, SecurityDingTalkTmpCodeFilterConfiguration.class, SecurityDingTalkMaFilterConfiguration.class })
+@AutoConfigureBefore({ SecurityFilterAutoConfiguration.class })
+@EnableConfigurationProperties({ SecurityBizProperties.class, SecurityDingTalkProperties.class })
+public class SecurityDingTalkConsolidatedFilterConfiguration extends SecurityFilterChainConfigurer {
+
+	private final SecurityBizProperties bizProperties;
+	private final ObjectProvider<LocaleContextFilter> localeContextProvider;
+	private final ObjectProvider<LogoutHandler> logoutHandlerProvider;
+	private final ObjectProvider<LogoutSuccessHandler> logoutSuccessHandlerProvider;
+
+	public SecurityDingTalkConsolidatedFilterConfiguration(
+			SecurityBizProperties bizProperties,
+			ObjectProvider<LocaleContextFilter> localeContextProvider,
+			ObjectProvider<LogoutHandler> logoutHandlerProvider,
+			ObjectProvider<LogoutSuccessHandler> logoutSuccessHandlerProvider,
+			ObjectProvider<RedirectStrategy> redirectStrategyProvider,
+			ObjectProvider<RequestCache> requestCacheProvider) {
+		super(bizProperties, redirectStrategyProvider.getIfAvailable(), requestCacheProvider.getIfAvailable());
+		this.bizProperties = bizProperties;
+		this.localeContextProvider = localeContextProvider;
+		this.logoutHandlerProvider = logoutHandlerProvider;
+		this.logoutSuccessHandlerProvider = logoutSuccessHandlerProvider;
+	}
+
+	@Bean
+	@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 11)
+	public SecurityFilterChain dingTalkSecurityFilterChain(HttpSecurity http,
+			ObjectProvider<SecurityDingTalkScanCodeFilterConfiguration.DingTalkScanCodeWebSecurityConfigurerAdapter> scanCodeProvider,
+			ObjectProvider<SecurityDingTalkTmpCodeFilterConfiguration.DingTalkTmpCodeWebSecurityConfigurerAdapter> tmpCodeProvider,
+			ObjectProvider<SecurityDingTalkMaFilterConfiguration.DingTalkMaWebSecurityConfigurerAdapter> maProvider) throws Exception {
+
+		DingTalkLoginDispatcherFilter dispatcherFilter = new DingTalkLoginDispatcherFilter();
+		// 各登录地址对应的认证入口
+		LinkedHashMap<RequestMatcher, AuthenticationEntryPoint> entryPoints = new LinkedHashMap<>();
+
+		SecurityDingTalkScanCodeFilterConfiguration.DingTalkScanCodeWebSecurityConfigurerAdapter scanCode = scanCodeProvider.getIfAvailable();
+		if (scanCode != null) {
+			dispatcherFilter.addRoute(scanCode.getPathPattern(), scanCode.authenticationProcessingFilter());
+			entryPoints.put(new AntPathRequestMatcher(scanCode.getPathPattern()), scanCode.getAuthenticationEntryPoint());
+		}
+		SecurityDingTalkTmpCodeFilterConfiguration.DingTalkTmpCodeWebSecurityConfigurerAdapter tmpCode = tmpCodeProvider.getIfAvailable();
+		if (tmpCode != null) {
+			dispatcherFilter.addRoute(tmpCode.getPathPattern(), tmpCode.authenticationProcessingFilter());
+			entryPoints.put(new AntPathRequestMatcher(tmpCode.getPathPattern()), tmpCode.getAuthenticationEntryPoint());
+		}
+		SecurityDingTalkMaFilterConfiguration.DingTalkMaWebSecurityConfigurerAdapter ma = maProvider.getIfAvailable();
+		if (ma != null) {
+			dispatcherFilter.addRoute(ma.getPathPattern(), ma.authenticationProcessingFilter());
+			entryPoints.put(new AntPathRequestMatcher(ma.getPathPattern()), ma.getAuthenticationEntryPoint());
+		}
+
+		http.requestMatcher(dispatcherFilter.getRequestMatcher())
+				// 请求鉴权配置
+				.authorizeRequests(this.authorizeRequestsCustomizer())
+				// 异常处理
+				.exceptionHandling((configurer) -> {
+					if (!entryPoints.isEmpty()) {
+						DelegatingAuthenticationEntryPoint entryPoint = new DelegatingAuthenticationEntryPoint(entryPoints);
+						entryPoint.setDefaultEntryPoint(entryPoints.values().iterator().next());
+						configurer.authenticationEntryPoint(entryPoint);
+					}
+				})
+				// 请求头配置
+				.headers(this.headersCustomizer(bizProperties.getHeaders()))
+				// Request 缓存配置
+				.requestCache(this.requestCacheCustomizer())
+				// Session 注销配置
+				.logout(this.logoutCustomizer(bizProperties.getLogout(),
+						super.logoutHandler(logoutHandlerProvider.stream().collect(Collectors.toList())),
+						logoutSuccessHandlerProvider.getIfAvailable()))
+				// 禁用 Http Basic
+				.httpBasic((basic) -> basic.disable())
+				// Filter 配置
+				.addFilterBefore(localeContextProvider.getIfAvailable(), UsernamePasswordAuthenticationFilter.class)
+				.addFilterBefore(dispatcherFilter, UsernamePasswordAuthenticationFilter.class);
+
+		return http.build();
+	}
+
+}
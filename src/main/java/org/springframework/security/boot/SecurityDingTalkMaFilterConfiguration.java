@@ -7,6 +7,7 @@ import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.biz.web.servlet.i18n.LocaleContextFilter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.security.SecurityProperties;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -23,6 +24,18 @@ import org.springframework.security.boot.biz.authentication.nested.MatchedAuthen
 import org.springframework.security.boot.biz.property.SecuritySessionMgtProperties;
 import org.springframework.security.boot.biz.userdetails.UserDetailsServiceAdapter;
 import org.springframework.security.boot.dingtalk.authentication.*;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.springframework.security.boot.dingtalk.observation.DingTalkCompositeLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkLoginRequestProperties;
+import org.springframework.security.boot.dingtalk.support.DingTalkAuthenticationExecutor;
+import org.springframework.security.boot.dingtalk.support.DingTalkLoginRequestReader;
+import org.springframework.security.boot.dingtalk.support.DingTalkWarmup;
+import org.springframework.security.boot.dingtalk.ratelimit.DingTalkLoginRateLimiter;
+import org.springframework.security.boot.dingtalk.replay.DingTalkCodeReplayGuard;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkUpstreamInvoker;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkUserDetailsCache;
+import org.springframework.security.boot.dingtalk.token.DingTalkAccessTokenCache;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.RedirectStrategy;
@@ -38,6 +51,7 @@ import org.springframework.security.web.authentication.session.SessionAuthentica
 import com.dingtalk.spring.boot.DingTalkTemplate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.security.web.savedrequest.RequestCache;
+import org.springframework.util.function.SingletonSupplier;
 
 @Configuration
 @ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX, value = "enabled", havingValue = "true")
@@ -46,35 +60,56 @@ import org.springframework.security.web.savedrequest.RequestCache;
 public class SecurityDingTalkMaFilterConfiguration {
 
 	@Bean
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".ma", value = "enabled", havingValue = "true", matchIfMissing = true)
 	public DingTalkMaAuthenticationProvider dingTalkMaAuthenticationProvider(
 			ObjectProvider<UserDetailsServiceAdapter> userDetailsServiceProvider,
-			ObjectProvider<DingTalkTemplate> dingtalkTemplateProvider) {
-		return new DingTalkMaAuthenticationProvider(userDetailsServiceProvider.getIfAvailable(), dingtalkTemplateProvider.getIfAvailable());
+			ObjectProvider<DingTalkTemplate> dingtalkTemplateProvider,
+			ObjectProvider<DingTalkAccessTokenCache> accessTokenCacheProvider,
+			ObjectProvider<DingTalkAppCredentialRegistry> credentialRegistryProvider,
+			ObjectProvider<DingTalkUpstreamInvoker> upstreamInvokerProvider,
+			ObjectProvider<DingTalkCodeReplayGuard> replayGuardProvider,
+			ObjectProvider<DingTalkUserDetailsCache> userDetailsCacheProvider,
+			ObjectProvider<DingTalkLoginObserver> loginObserverProvider) {
+		DingTalkMaAuthenticationProvider authenticationProvider = new DingTalkMaAuthenticationProvider(userDetailsServiceProvider.getIfAvailable(), dingtalkTemplateProvider.getIfAvailable());
+		authenticationProvider.setAccessTokenCache(accessTokenCacheProvider.getIfAvailable());
+		authenticationProvider.setCredentialRegistry(credentialRegistryProvider.getIfAvailable());
+		authenticationProvider.setUpstreamInvoker(upstreamInvokerProvider.getIfAvailable());
+		authenticationProvider.setReplayGuard(replayGuardProvider.getIfAvailable());
+		authenticationProvider.setUserDetailsCache(userDetailsCacheProvider.getIfAvailable());
+		authenticationProvider.setLoginObserver(DingTalkCompositeLoginObserver.of(loginObserverProvider.orderedStream().collect(Collectors.toList())));
+		return authenticationProvider;
 	}
 
     @Configuration
-	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX, value = "enabled", havingValue = "true")
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".ma", value = "enabled", havingValue = "true", matchIfMissing = true)
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
     @EnableConfigurationProperties({ SecurityBizProperties.class, SecuritySessionMgtProperties.class, SecurityDingTalkProperties.class, SecurityDingTalkMaAuthcProperties.class })
    	static class DingTalkMaWebSecurityConfigurerAdapter extends SecurityFilterChainConfigurer {
 
 		private final SecurityBizProperties bizProperties;
     	private final SecurityDingTalkMaAuthcProperties authcProperties;
 
-		private final AuthenticationEntryPoint authenticationEntryPoint;
-		private final AuthenticationSuccessHandler authenticationSuccessHandler;
-		private final AuthenticationFailureHandler authenticationFailureHandler;
+		// 处理器与监听器列表在构建过滤器链时才解析
+		private final SingletonSupplier<AuthenticationEntryPoint> authenticationEntryPoint;
+		private final SingletonSupplier<AuthenticationSuccessHandler> authenticationSuccessHandler;
+		private final SingletonSupplier<AuthenticationFailureHandler> authenticationFailureHandler;
 		private final AuthenticationManager authenticationManager;
 		private final LocaleContextFilter localeContextFilter;
-		private final LogoutHandler logoutHandler;
+		private final SingletonSupplier<LogoutHandler> logoutHandler;
 		private final LogoutSuccessHandler logoutSuccessHandler;
 		private final ObjectMapper objectMapper;
 		private final RememberMeServices rememberMeServices;
 		private final SessionAuthenticationStrategy sessionAuthenticationStrategy;
+		private final DingTalkAuthenticationExecutor authenticationExecutor;
+		private final DingTalkAppKeyGuard appKeyGuard;
+		private final DingTalkLoginRequestReader<DingTalkMaLoginRequest> loginRequestReader;
+		private final DingTalkLoginObserver loginObserver;
 
    		public DingTalkMaWebSecurityConfigurerAdapter(
 
    				SecurityBizProperties bizProperties,
    				SecurityDingTalkMaAuthcProperties authcProperties,
+   				SecurityDingTalkProperties dingtalkProperties,
 
 				ObjectProvider<AuthenticationListener> authenticationListenerProvider,
 				ObjectProvider<AuthenticationManager> authenticationManagerProvider,
@@ -88,7 +123,11 @@ public class SecurityDingTalkMaFilterConfiguration {
 				ObjectProvider<RedirectStrategy> redirectStrategyProvider,
 				ObjectProvider<RequestCache> requestCacheProvider,
 				ObjectProvider<RememberMeServices> rememberMeServicesProvider,
-				ObjectProvider<SessionAuthenticationStrategy> sessionAuthenticationStrategyProvider
+				ObjectProvider<SessionAuthenticationStrategy> sessionAuthenticationStrategyProvider,
+				ObjectProvider<DingTalkAuthenticationExecutor> authenticationExecutorProvider,
+				ObjectProvider<DingTalkAppCredentialRegistry> credentialRegistryProvider,
+				ObjectProvider<DingTalkLoginObserver> loginObserverProvider,
+				ObjectProvider<DingTalkWarmup> warmupProvider
 
 			) {
 
@@ -97,17 +136,32 @@ public class SecurityDingTalkMaFilterConfiguration {
    			this.authcProperties = authcProperties;
 			this.bizProperties = bizProperties;
 
-			List<AuthenticationListener> authenticationListeners = authenticationListenerProvider.stream().collect(Collectors.toList());
-			this.authenticationEntryPoint = super.authenticationEntryPoint(authcProperties.getPathPattern(), authenticationEntryPointProvider.stream().collect(Collectors.toList()));
-			this.authenticationSuccessHandler = super.authenticationSuccessHandler(authcProperties, authenticationListeners, authenticationSuccessHandlerProvider.stream().collect(Collectors.toList()));
-			this.authenticationFailureHandler = super.authenticationFailureHandler(authenticationListeners, authenticationFailureHandlerProvider.stream().collect(Collectors.toList()));
+			SingletonSupplier<List<AuthenticationListener>> authenticationListeners = SingletonSupplier.of(() -> authenticationListenerProvider.stream().collect(Collectors.toList()));
+			this.authenticationEntryPoint = SingletonSupplier.of(() -> super.authenticationEntryPoint(authcProperties.getPathPattern(), authenticationEntryPointProvider.stream().collect(Collectors.toList())));
+			this.authenticationSuccessHandler = SingletonSupplier.of(() -> super.authenticationSuccessHandler(authcProperties, authenticationListeners.get(), authenticationSuccessHandlerProvider.stream().collect(Collectors.toList())));
+			this.authenticationFailureHandler = SingletonSupplier.of(() -> super.authenticationFailureHandler(authenticationListeners.get(), authenticationFailureHandlerProvider.stream().collect(Collectors.toList())));
 			this.authenticationManager = authenticationManagerProvider.getIfAvailable();
 			this.localeContextFilter = localeContextProvider.getIfAvailable();
-			this.logoutHandler = super.logoutHandler(logoutHandlerProvider.stream().collect(Collectors.toList()));
+			this.logoutHandler = SingletonSupplier.of(() -> super.logoutHandler(logoutHandlerProvider.stream().collect(Collectors.toList())));
 			this.logoutSuccessHandler = logoutSuccessHandlerProvider.getIfAvailable();
 			this.objectMapper = objectMapperProvider.getIfAvailable();
 			this.rememberMeServices = rememberMeServicesProvider.getIfAvailable();
 			this.sessionAuthenticationStrategy = sessionAuthenticationStrategyProvider.getIfAvailable();
+			this.authenticationExecutor = authenticationExecutorProvider.getIfAvailable();
+			DingTalkAppCredentialRegistry credentialRegistry = credentialRegistryProvider.getIfAvailable();
+			this.appKeyGuard = dingtalkProperties.getCredential().isEarlyRejection() && credentialRegistry != null ? new DingTalkAppKeyGuard(credentialRegistry) : null;
+			SecurityDingTalkLoginRequestProperties loginRequest = dingtalkProperties.getLoginRequest();
+			this.loginRequestReader = new DingTalkLoginRequestReader<>(objectMapper, DingTalkMaLoginRequest.class,
+					loginRequest.getMaxBodySize().toBytes(), loginRequest.isBytecodeAccelerator());
+			this.loginObserver = DingTalkCompositeLoginObserver.of(loginObserverProvider.orderedStream().collect(Collectors.toList()));
+			this.loginRequestReader.setLoginObserver(loginObserver, DingTalkLoginObserver.FLOW_MA);
+			// 启动预热驱动实际使用的请求解析器与认证成功响应序列化
+			warmupProvider.ifAvailable(warmup -> {
+				warmup.addLoginRequestReader(loginRequestReader);
+				authenticationSuccessHandlerProvider.stream()
+					.filter(DingTalkMatchedAuthenticationSuccessJwtHandler.class::isInstance)
+					.forEach(handler -> warmup.addResponseWriter(((DingTalkMatchedAuthenticationSuccessJwtHandler) handler).getResponseWriter()));
+			});
 
    		}
 
@@ -123,8 +177,8 @@ public class SecurityDingTalkMaFilterConfiguration {
 			map.from(bizProperties.getSession().isAllowSessionCreation()).to(authenticationFilter::setAllowSessionCreation);
 
 			map.from(authenticationManager).to(authenticationFilter::setAuthenticationManager);
-			map.from(authenticationSuccessHandler).to(authenticationFilter::setAuthenticationSuccessHandler);
-			map.from(authenticationFailureHandler).to(authenticationFilter::setAuthenticationFailureHandler);
+			map.from(authenticationSuccessHandler.get()).to(authenticationFilter::setAuthenticationSuccessHandler);
+			map.from(authenticationFailureHandler.get()).to(authenticationFilter::setAuthenticationFailureHandler);
 
 			map.from(authcProperties.getTokenParameter()).to(authenticationFilter::setTokenParameter);
 			map.from(authcProperties.getAuthCodeParameter()).to(authenticationFilter::setAuthCodeParameter);
@@ -134,24 +188,49 @@ public class SecurityDingTalkMaFilterConfiguration {
 			map.from(sessionAuthenticationStrategy).to(authenticationFilter::setSessionAuthenticationStrategy);
 			map.from(authcProperties.isContinueChainBeforeSuccessfulAuthentication()).to(authenticationFilter::setContinueChainBeforeSuccessfulAuthentication);
 
+			// 异步模式：认证过程交由独立线程池执行，不占用容器线程
+			if (authcProperties.isAsyncEnabled() && authenticationExecutor != null && !authcProperties.isContinueChainBeforeSuccessfulAuthentication()) {
+				DingTalkAsyncAuthenticationProcessor asyncProcessor = new DingTalkAsyncAuthenticationProcessor(authenticationExecutor.getExecutor());
+				map.from(authcProperties.getAsyncTimeout()).to(asyncProcessor::setTimeout);
+				authenticationFilter.setAsyncProcessor(asyncProcessor);
+			}
+			// JSON 登录请求：预构建的 ObjectReader，限制请求体大小
+			authenticationFilter.setLoginRequestReader(loginRequestReader);
+			// 未配置的 appKey 在构建认证 Token 之前直接拒绝
+			map.from(appKeyGuard).to(authenticationFilter::setAppKeyGuard);
+			// 按客户端 IP 与 appKey 限流
+			if (authcProperties.getRateLimit().isEnabled()) {
+				authenticationFilter.setRateLimiter(new DingTalkLoginRateLimiter(authcProperties.getRateLimit()));
+			}
+			authenticationFilter.setLoginObserver(loginObserver);
+
    	        return authenticationFilter;
    	    }
 
+		AuthenticationEntryPoint getAuthenticationEntryPoint() {
+			return authenticationEntryPoint.get();
+		}
+
+		String getPathPattern() {
+			return authcProperties.getPathPattern();
+		}
+
 		@Bean
 		@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 11)
+		@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX, value = "consolidated-chain", havingValue = "false", matchIfMissing = true)
 		public SecurityFilterChain dingTalkMaSecurityFilterChain(HttpSecurity http) throws Exception {
 			// new DefaultSecurityFilterChain(new AntPathRequestMatcher(authcProperties.getPathPattern()), localeContextFilter, authenticationProcessingFilter());
 			http.antMatcher(authcProperties.getPathPattern())
 					// 请求鉴权配置
 					.authorizeRequests(this.authorizeRequestsCustomizer())
 					// 异常处理
-					.exceptionHandling((configurer) -> configurer.authenticationEntryPoint(authenticationEntryPoint))
+					.exceptionHandling((configurer) -> configurer.authenticationEntryPoint(authenticationEntryPoint.get()))
 					// 请求头配置
 					.headers(this.headersCustomizer(bizProperties.getHeaders()))
 					// Request 缓存配置
 					.requestCache(this.requestCacheCustomizer())
 					// Session 注销配置
-					.logout(this.logoutCustomizer(bizProperties.getLogout(), logoutHandler, logoutSuccessHandler))
+					.logout(this.logoutCustomizer(bizProperties.getLogout(), logoutHandler.get(), logoutSuccessHandler))
 					// 禁用 Http Basic
 					.httpBasic((basic) -> basic.disable())
 					// Filter 配置
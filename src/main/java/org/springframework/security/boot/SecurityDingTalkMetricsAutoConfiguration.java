@@ -0,0 +1,46 @@
+package org.springframework.security.boot;
+
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.boot.dingtalk.observation.DingTalkMicrometerCircuitBreakerListener;
+import org.springframework.security.boot.dingtalk.observation.DingTalkMicrometerLoginObserver;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkMetricsProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * DingTalk 登录过程与熔断器状态的 Micrometer 指标：类路径中存在 Micrometer 且应用中存在 {@link MeterRegistry} 时生效
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Configuration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnBean(type = "io.micrometer.core.instrument.MeterRegistry")
+@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".metrics", value = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(name = {
+	"org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+	"org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"
+})
+@EnableConfigurationProperties({ SecurityDingTalkProperties.class })
+public class SecurityDingTalkMetricsAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkMicrometerLoginObserver dingTalkMicrometerLoginObserver(MeterRegistry meterRegistry,
+			SecurityDingTalkProperties dingtalkProperties) {
+		SecurityDingTalkMetricsProperties metrics = dingtalkProperties.getMetrics();
+		return new DingTalkMicrometerLoginObserver(meterRegistry, metrics.getMaxAppKeyTags(), metrics.getMaxErrcodeTags());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkMicrometerCircuitBreakerListener dingTalkMicrometerCircuitBreakerListener(MeterRegistry meterRegistry) {
+		return new DingTalkMicrometerCircuitBreakerListener(meterRegistry);
+	}
+
+}
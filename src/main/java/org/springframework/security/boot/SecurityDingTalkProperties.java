@@ -1,6 +1,23 @@
 package org.springframework.security.boot;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkBulkheadProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCircuitBreakerProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCredentialProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkExecutorProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkFailureProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkFlightRecorderProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkFlowProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkLoginRequestProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkMetricsProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkQuotaProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkReplayProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkRetryProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkTokenCacheProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkTracingProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkUserDetailsCacheProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkWarmupProperties;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -16,5 +33,83 @@ public class SecurityDingTalkProperties {
 
 	/** Whether Enable DingTalk Authentication. */
 	private boolean enabled = false;
-	
+
+	/** DingTalk access_token cache. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkTokenCacheProperties tokenCache = new SecurityDingTalkTokenCacheProperties();
+
+	/** Executor used by the asynchronous authentication mode. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkExecutorProperties executor = new SecurityDingTalkExecutorProperties();
+
+	/** Circuit breaker around the DingTalk API calls. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkCircuitBreakerProperties circuitBreaker = new SecurityDingTalkCircuitBreakerProperties();
+
+	/** Concurrency limit of the DingTalk API calls. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkBulkheadProperties bulkhead = new SecurityDingTalkBulkheadProperties();
+
+	/** Retry of transient DingTalk API failures. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkRetryProperties retry = new SecurityDingTalkRetryProperties();
+
+	/** Client side quota of the DingTalk API calls per (corpId, appKey, api). */
+	@NestedConfigurationProperty
+	private SecurityDingTalkQuotaProperties quota = new SecurityDingTalkQuotaProperties();
+
+	/** Credentials of the configured DingTalk apps. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkCredentialProperties credential = new SecurityDingTalkCredentialProperties();
+
+	/** Replay guard of the one-time DingTalk codes. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkReplayProperties replay = new SecurityDingTalkReplayProperties();
+
+	/** Cache of the user details loaded for a DingTalk identity. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkUserDetailsCacheProperties userDetailsCache = new SecurityDingTalkUserDetailsCacheProperties();
+
+	/**
+	 * Whether to serve all login flows from a single SecurityFilterChain that dispatches by exact path,
+	 * instead of one chain per flow.
+	 */
+	private boolean consolidatedChain = false;
+
+	/** Parsing of JSON login requests. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkLoginRequestProperties loginRequest = new SecurityDingTalkLoginRequestProperties();
+
+	/** Scan code login flow. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkFlowProperties scancode = new SecurityDingTalkFlowProperties();
+
+	/** Temporary authorization code login flow. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkFlowProperties tmpcode = new SecurityDingTalkFlowProperties();
+
+	/** Mini program login flow. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkFlowProperties ma = new SecurityDingTalkFlowProperties();
+
+	/** Warm-up of tokens, connections and serialization before the application accepts traffic. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkWarmupProperties warmup = new SecurityDingTalkWarmupProperties();
+
+	/** Failure responses of the expected client errors. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkFailureProperties failure = new SecurityDingTalkFailureProperties();
+
+	/** Micrometer metrics of the DingTalk login stages. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkMetricsProperties metrics = new SecurityDingTalkMetricsProperties();
+
+	/** OpenTelemetry tracing of the DingTalk login. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkTracingProperties tracing = new SecurityDingTalkTracingProperties();
+
+	/** JDK Flight Recorder events of the DingTalk login. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkFlightRecorderProperties flightRecorder = new SecurityDingTalkFlightRecorderProperties();
+
 }
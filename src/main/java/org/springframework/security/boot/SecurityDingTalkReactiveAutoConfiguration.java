@@ -0,0 +1,221 @@
+package org.springframework.security.boot;
+
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.boot.biz.userdetails.JwtPayloadRepository;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkAuthenticationResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkFastjsonResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaAuthenticationProvider;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaLoginRequest;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationProvider;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeLoginRequest;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeAuthenticationProvider;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeLoginRequest;
+import org.springframework.security.boot.dingtalk.authentication.server.AbstractDingTalkServerAuthenticationConverter;
+import org.springframework.security.boot.dingtalk.authentication.server.DingTalkMaServerAuthenticationConverter;
+import org.springframework.security.boot.dingtalk.authentication.server.DingTalkReactiveAuthenticationManager;
+import org.springframework.security.boot.dingtalk.authentication.server.DingTalkScanCodeServerAuthenticationConverter;
+import org.springframework.security.boot.dingtalk.authentication.server.DingTalkServerAuthenticationSuccessJwtHandler;
+import org.springframework.security.boot.dingtalk.authentication.server.DingTalkTmpCodeServerAuthenticationConverter;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+import org.springframework.security.boot.dingtalk.observation.DingTalkCompositeLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkExecutorProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkLoginRequestProperties;
+import org.springframework.security.boot.dingtalk.support.DingTalkLoginRequestReader;
+import org.springframework.security.boot.dingtalk.support.DingTalkWarmup;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationFailureHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.authentication.WebFilterChainServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux 环境下的 DingTalk 登录：扫码、临时授权码、小程序三种登录方式各自注册一个 {@link SecurityWebFilterChain}（可按登录方式单独关闭），
+ * 复用 Servlet 环境下的 {@link AuthenticationProvider}，阻塞的认证过程在专用的 {@link Schedulers#newBoundedElastic(int, int, String)}
+ * 上执行，线程与队列上限取自 spring.security.dingtalk.executor，已满时以 503 拒绝，不会退回到事件循环线程。
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass({ ServerHttpSecurity.class, Mono.class })
+@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX, value = "enabled", havingValue = "true")
+@AutoConfigureAfter({ SecurityDingTalkAutoConfiguration.class })
+@AutoConfigureBefore({ ReactiveSecurityAutoConfiguration.class })
+@EnableConfigurationProperties({ SecurityDingTalkProperties.class, SecurityDingTalkScanCodeAuthcProperties.class,
+		SecurityDingTalkTmpCodeAuthcProperties.class, SecurityDingTalkMaAuthcProperties.class })
+public class SecurityDingTalkReactiveAutoConfiguration implements DisposableBean {
+
+	private final ObjectMapper objectMapper;
+	private final Scheduler scheduler;
+	private final ServerAuthenticationSuccessHandler authenticationSuccessHandler;
+	private final ServerAuthenticationFailureHandler authenticationFailureHandler;
+	private final SecurityDingTalkLoginRequestProperties loginRequestProperties;
+	private final DingTalkLoginObserver loginObserver;
+	private final ObjectProvider<DingTalkWarmup> warmupProvider;
+
+	public SecurityDingTalkReactiveAutoConfiguration(
+			SecurityDingTalkProperties dingtalkProperties,
+			ObjectProvider<ObjectMapper> objectMapperProvider,
+			ObjectProvider<ServerAuthenticationSuccessHandler> authenticationSuccessHandlerProvider,
+			ObjectProvider<ServerAuthenticationFailureHandler> authenticationFailureHandlerProvider,
+			ObjectProvider<ServerAuthenticationEntryPoint> authenticationEntryPointProvider,
+			ObjectProvider<JwtPayloadRepository> payloadRepositoryProvider,
+			ObjectProvider<DingTalkAuthenticationResponseWriter> responseWriterProvider,
+			ObjectProvider<DingTalkLoginObserver> loginObserverProvider,
+			ObjectProvider<DingTalkWarmup> warmupProvider) {
+
+		this.objectMapper = objectMapperProvider.getIfAvailable(ObjectMapper::new);
+		this.loginRequestProperties = dingtalkProperties.getLoginRequest();
+		this.loginObserver = DingTalkCompositeLoginObserver.of(loginObserverProvider.orderedStream().collect(Collectors.toList()));
+		this.warmupProvider = warmupProvider;
+		SecurityDingTalkExecutorProperties executorProperties = dingtalkProperties.getExecutor();
+		this.scheduler = Schedulers.newBoundedElastic(executorProperties.getMaxPoolSize(), executorProperties.getQueueCapacity(),
+				executorProperties.getThreadNamePrefix() + "reactive");
+
+		// 认证成功：优先使用自定义处理器，其次以 JSON 返回 JWT，否则继续执行过滤器链
+		JwtPayloadRepository payloadRepository = payloadRepositoryProvider.getIfAvailable();
+		this.authenticationSuccessHandler = authenticationSuccessHandlerProvider.getIfAvailable(() -> payloadRepository != null
+				? this.successJwtHandler(payloadRepository, responseWriterProvider.getIfAvailable(DingTalkFastjsonResponseWriter::new))
+				: new WebFilterChainServerAuthenticationSuccessHandler());
+		if (authenticationSuccessHandler instanceof DingTalkServerAuthenticationSuccessJwtHandler) {
+			DingTalkAuthenticationResponseWriter responseWriter = ((DingTalkServerAuthenticationSuccessJwtHandler) authenticationSuccessHandler).getResponseWriter();
+			warmupProvider.ifAvailable(warmup -> warmup.addResponseWriter(responseWriter));
+		}
+		// 认证失败：优先使用自定义处理器，否则交由认证入口处理（默认返回 401，DingTalk 不可用时返回 503）
+		ServerAuthenticationFailureHandler entryPointFailureHandler = new ServerAuthenticationEntryPointFailureHandler(
+				authenticationEntryPointProvider.getIfAvailable(() -> new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)));
+		ServerAuthenticationFailureHandler unavailableFailureHandler = new ServerAuthenticationEntryPointFailureHandler(
+				new HttpStatusServerEntryPoint(HttpStatus.SERVICE_UNAVAILABLE));
+		this.authenticationFailureHandler = authenticationFailureHandlerProvider.getIfAvailable(() -> (webFilterExchange, exception) ->
+				exception instanceof DingTalkServiceUnavailableException
+						? unavailableFailureHandler.onAuthenticationFailure(webFilterExchange, exception)
+						: entryPointFailureHandler.onAuthenticationFailure(webFilterExchange, exception));
+	}
+
+	@Bean
+	@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 12)
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".scancode", value = "enabled", havingValue = "true", matchIfMissing = true)
+	public SecurityWebFilterChain dingTalkScanCodeSecurityWebFilterChain(ServerHttpSecurity http,
+			SecurityDingTalkScanCodeAuthcProperties authcProperties,
+			ObjectProvider<DingTalkScanCodeAuthenticationProvider> authenticationProvider) {
+
+		DingTalkScanCodeServerAuthenticationConverter converter = new DingTalkScanCodeServerAuthenticationConverter(objectMapper);
+		converter.setLoginRequestReader(this.loginRequestReader(DingTalkScanCodeLoginRequest.class, DingTalkLoginObserver.FLOW_SCAN_CODE));
+		PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+		map.from(authcProperties.getTokenParameter()).to(converter::setTokenParameter);
+		map.from(authcProperties.getTmpCodeParameter()).to(converter::setCodeParameter);
+
+		return this.securityWebFilterChain(http, authcProperties.getPathPattern(), authcProperties.isPostOnly(),
+				authenticationProvider.getObject(), converter);
+	}
+
+	@Bean
+	@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 13)
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".tmpcode", value = "enabled", havingValue = "true", matchIfMissing = true)
+	public SecurityWebFilterChain dingTalkTmpCodeSecurityWebFilterChain(ServerHttpSecurity http,
+			SecurityDingTalkTmpCodeAuthcProperties authcProperties,
+			ObjectProvider<DingTalkTmpCodeAuthenticationProvider> authenticationProvider) {
+
+		DingTalkTmpCodeServerAuthenticationConverter converter = new DingTalkTmpCodeServerAuthenticationConverter(objectMapper);
+		converter.setLoginRequestReader(this.loginRequestReader(DingTalkTmpCodeLoginRequest.class, DingTalkLoginObserver.FLOW_TMP_CODE));
+		PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+		map.from(authcProperties.getTokenParameter()).to(converter::setTokenParameter);
+		map.from(authcProperties.getCodeParameter()).to(converter::setCodeParameter);
+
+		return this.securityWebFilterChain(http, authcProperties.getPathPattern(), authcProperties.isPostOnly(),
+				authenticationProvider.getObject(), converter);
+	}
+
+	@Bean
+	@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 11)
+	@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".ma", value = "enabled", havingValue = "true", matchIfMissing = true)
+	public SecurityWebFilterChain dingTalkMaSecurityWebFilterChain(ServerHttpSecurity http,
+			SecurityDingTalkMaAuthcProperties authcProperties,
+			ObjectProvider<DingTalkMaAuthenticationProvider> authenticationProvider) {
+
+		DingTalkMaServerAuthenticationConverter converter = new DingTalkMaServerAuthenticationConverter(objectMapper);
+		converter.setLoginRequestReader(this.loginRequestReader(DingTalkMaLoginRequest.class, DingTalkLoginObserver.FLOW_MA));
+		PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+		map.from(authcProperties.getTokenParameter()).to(converter::setTokenParameter);
+		map.from(authcProperties.getAuthCodeParameter()).to(converter::setCodeParameter);
+
+		// 小程序登录与 Servlet 环境一致，仅支持 POST
+		return this.securityWebFilterChain(http, authcProperties.getPathPattern(), true,
+				authenticationProvider.getObject(), converter);
+	}
+
+	protected <T> DingTalkLoginRequestReader<T> loginRequestReader(Class<T> loginRequestType, String flow) {
+		DingTalkLoginRequestReader<T> loginRequestReader = new DingTalkLoginRequestReader<>(objectMapper, loginRequestType,
+				loginRequestProperties.getMaxBodySize().toBytes(), loginRequestProperties.isBytecodeAccelerator());
+		loginRequestReader.setLoginObserver(loginObserver, flow);
+		warmupProvider.ifAvailable(warmup -> warmup.addLoginRequestReader(loginRequestReader));
+		return loginRequestReader;
+	}
+
+	private DingTalkServerAuthenticationSuccessJwtHandler successJwtHandler(JwtPayloadRepository payloadRepository,
+			DingTalkAuthenticationResponseWriter responseWriter) {
+		DingTalkServerAuthenticationSuccessJwtHandler successHandler = new DingTalkServerAuthenticationSuccessJwtHandler(payloadRepository, responseWriter);
+		successHandler.setLoginObserver(loginObserver);
+		return successHandler;
+	}
+
+	protected SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, String pathPattern, boolean postOnly,
+			AuthenticationProvider authenticationProvider, AbstractDingTalkServerAuthenticationConverter<?> converter) {
+
+		ServerWebExchangeMatcher pathMatcher = ServerWebExchangeMatchers.pathMatchers(pathPattern);
+
+		AuthenticationWebFilter authenticationFilter = new AuthenticationWebFilter(
+				new DingTalkReactiveAuthenticationManager(authenticationProvider, scheduler));
+		authenticationFilter.setRequiresAuthenticationMatcher(postOnly ? ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, pathPattern) : pathMatcher);
+		authenticationFilter.setServerAuthenticationConverter(converter);
+		authenticationFilter.setAuthenticationSuccessHandler(authenticationSuccessHandler);
+		authenticationFilter.setAuthenticationFailureHandler(authenticationFailureHandler);
+		// 登录结果以 JWT 返回，不在服务端保存认证状态
+		authenticationFilter.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+
+		return http.securityMatcher(pathMatcher)
+				.csrf(csrf -> csrf.disable())
+				.httpBasic(basic -> basic.disable())
+				.formLogin(form -> form.disable())
+				.addFilterAt(authenticationFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+				.authorizeExchange(exchanges -> exchanges.anyExchange().permitAll())
+				.build();
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.dispose();
+	}
+
+}
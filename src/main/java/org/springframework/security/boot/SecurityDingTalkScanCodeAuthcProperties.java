@@ -15,6 +15,8 @@
  */
 package org.springframework.security.boot;
 
+import java.time.Duration;
+
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -22,6 +24,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.security.boot.biz.property.*;
 import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationProcessingFilter;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkRateLimitProperties;
 
 @ConfigurationProperties(SecurityDingTalkScanCodeAuthcProperties.PREFIX)
 @Getter
@@ -39,4 +42,14 @@ public class SecurityDingTalkScanCodeAuthcProperties extends SecurityAuthcProper
     /** the code parameter name. Defaults to "loginTmpCode". */
     private String tmpCodeParameter = DingTalkScanCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_TMPCODE_KEY;
 
+	/** Whether to authenticate on a dedicated executor via Servlet async (AsyncContext), releasing the container thread. */
+	private boolean asyncEnabled = false;
+
+	/** Timeout of the asynchronous authentication. */
+	private Duration asyncTimeout = Duration.ofSeconds(30);
+
+	/** Per client IP and per app key rate limit of the login requests. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkRateLimitProperties rateLimit = new SecurityDingTalkRateLimitProperties();
+
 }
@@ -15,6 +15,8 @@
  */
 package org.springframework.security.boot;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.security.boot.biz.property.SecurityAuthcProperties;
@@ -25,6 +27,7 @@ import org.springframework.security.boot.biz.property.SecurityLogoutProperties;
 import org.springframework.security.boot.biz.property.SecurityRedirectProperties;
 import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationProcessingFilter;
 import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeAuthenticationProcessingFilter;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkRateLimitProperties;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -46,4 +49,14 @@ public class SecurityDingTalkTmpCodeAuthcProperties extends SecurityAuthcPropert
     /** the code parameter name. Defaults to "loginTmpCode". */
     private String codeParameter = DingTalkTmpCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CODE_KEY;
 
+	/** Whether to authenticate on a dedicated executor via Servlet async (AsyncContext), releasing the container thread. */
+	private boolean asyncEnabled = false;
+
+	/** Timeout of the asynchronous authentication. */
+	private Duration asyncTimeout = Duration.ofSeconds(30);
+
+	/** Per client IP and per app key rate limit of the login requests. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkRateLimitProperties rateLimit = new SecurityDingTalkRateLimitProperties();
+
 }
@@ -0,0 +1,33 @@
+package org.springframework.security.boot;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.boot.dingtalk.observation.DingTalkOpenTelemetryLoginObserver;
+
+import io.opentelemetry.api.OpenTelemetry;
+
+/**
+ * DingTalk 登录过程的 OpenTelemetry 链路追踪：类路径中存在 OpenTelemetry API 且应用中存在 {@link OpenTelemetry} 时生效
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Configuration
+@ConditionalOnClass(name = "io.opentelemetry.api.OpenTelemetry")
+@ConditionalOnBean(type = "io.opentelemetry.api.OpenTelemetry")
+@ConditionalOnProperty(prefix = SecurityDingTalkProperties.PREFIX + ".tracing", value = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties({ SecurityDingTalkProperties.class })
+public class SecurityDingTalkTracingAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkOpenTelemetryLoginObserver dingTalkOpenTelemetryLoginObserver(OpenTelemetry openTelemetry,
+			SecurityDingTalkProperties dingtalkProperties) {
+		return new DingTalkOpenTelemetryLoginObserver(openTelemetry.getTracer(DingTalkOpenTelemetryLoginObserver.INSTRUMENTATION_NAME),
+				dingtalkProperties.getTracing().getUpstreamHost());
+	}
+
+}
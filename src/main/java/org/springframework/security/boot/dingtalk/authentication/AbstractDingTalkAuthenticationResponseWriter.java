@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.security.boot.biz.SpringSecurityBizMessageSource;
+import org.springframework.security.boot.biz.exception.AuthResponse;
+import org.springframework.security.boot.biz.exception.AuthResponseCode;
+import org.springframework.security.boot.biz.userdetails.UserProfilePayload;
+import org.springframework.util.Assert;
+
+/**
+ * 认证成功响应的基础实现：国际化后的成功信息按语言缓存，只在首次使用某种语言时解析
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public abstract class AbstractDingTalkAuthenticationResponseWriter implements DingTalkAuthenticationResponseWriter {
+
+	/** 每种语言缓存一份成功信息，超过数量后不再缓存 */
+	private static final int MAX_CACHED_LOCALES = 32;
+
+	private final MessageSourceAccessor messages;
+	private final ConcurrentMap<Locale, String> successMessages = new ConcurrentHashMap<>();
+
+	protected AbstractDingTalkAuthenticationResponseWriter() {
+		this(SpringSecurityBizMessageSource.getAccessor());
+	}
+
+	protected AbstractDingTalkAuthenticationResponseWriter(MessageSourceAccessor messages) {
+		Assert.notNull(messages, "messages must not be null");
+		this.messages = messages;
+	}
+
+	@Override
+	public byte[] renderSuccess(Locale locale, UserProfilePayload profilePayload) {
+		return this.serialize(AuthResponse.success(this.getSuccessMessage(locale), profilePayload));
+	}
+
+	/**
+	 * @param locale 语言
+	 * @return 国际化后的认证成功信息
+	 */
+	public String getSuccessMessage(Locale locale) {
+		String message = successMessages.get(locale);
+		if (message != null) {
+			return message;
+		}
+		message = messages.getMessage(AuthResponseCode.SC_AUTHC_SUCCESS.getMsgKey(), locale);
+		if (successMessages.size() < MAX_CACHED_LOCALES) {
+			successMessages.putIfAbsent(locale, message);
+		}
+		return message;
+	}
+
+	/**
+	 * 清空已缓存的成功信息，国际化资源重新加载后调用
+	 */
+	public void clearMessageCache() {
+		successMessages.clear();
+	}
+
+	/**
+	 * @param body 响应对象
+	 * @return UTF-8 编码的 JSON
+	 */
+	protected abstract byte[] serialize(Object body);
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.util.Assert;
+
+/**
+ * 登录过滤器的前置校验：在构建认证 Token 之前检查 appKey 是否已配置，未知的 appKey 直接拒绝，不再经过
+ * {@link org.springframework.security.authentication.AuthenticationManager}。
+ * <p>拒绝以与认证提供者相同的 {@link DingTalkCodeNotFoundException} 抛出，经过登录过滤器的正常失败流程
+ * （认证失败处理器与监听器），响应由 {@link DingTalkFailureResponseCache} 统一缓存。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkAppKeyGuard {
+
+	private final DingTalkAppCredentialRegistry credentialRegistry;
+	private final LongAdder rejectedCount = new LongAdder();
+
+	public DingTalkAppKeyGuard(DingTalkAppCredentialRegistry credentialRegistry) {
+		Assert.notNull(credentialRegistry, "credentialRegistry must not be null");
+		this.credentialRegistry = credentialRegistry;
+	}
+
+	/**
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @return appKey 未配置时返回 true
+	 */
+	public boolean isRejected(String corpId, String appKey) {
+		return !credentialRegistry.hasAppKey(corpId, appKey);
+	}
+
+	/**
+	 * 记录一次拒绝
+	 * @return 由调用方抛出的认证异常
+	 */
+	public DingTalkCodeNotFoundException reject() {
+		rejectedCount.increment();
+		return new DingTalkCodeNotFoundException("Invalid App Key.");
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public DingTalkAppCredentialRegistry getCredentialRegistry() {
+		return credentialRegistry;
+	}
+
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.util.Assert;
+
+/**
+ * 以 Servlet 异步（{@link AsyncContext}）方式执行 DingTalk 登录：认证过程在独立的有界线程池中执行，
+ * 完成后再调用认证成功/失败处理器，期间不占用容器线程。
+ * <p>工作线程与超时处理通过 CAS 争用同一请求，只有胜出的一方写响应并完成 {@link AsyncContext}；超时时中断工作线程。
+ * 认证过程中直接写出的响应（如按 AppKey 限流时的 429）同样须先胜出，超时处理已胜出时放弃本次认证。
+ * 线程池已满时直接以 503 拒绝。</p>
+ * <p>工作线程中会传递调用方的 {@link SecurityContext}，认证成功后的上下文可通过
+ * {@link #setSecurityContextRepository(SecurityContextRepository)} 持久化。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkAsyncAuthenticationProcessor {
+
+	/** 尚未有一方写响应 */
+	protected static final int PENDING = 0;
+	/** 工作线程（或拒绝执行时的容器线程）负责写响应 */
+	protected static final int WORKER = 1;
+	/** 超时或容器错误处理负责写响应 */
+	protected static final int TIMED_OUT = 2;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final Executor executor;
+	private Duration timeout = Duration.ofSeconds(30);
+	private SecurityContextRepository securityContextRepository;
+
+	public DingTalkAsyncAuthenticationProcessor(Executor executor) {
+		Assert.notNull(executor, "executor must not be null");
+		this.executor = executor;
+	}
+
+	/**
+	 * 当前请求是否可以异步处理
+	 * @param request 请求
+	 * @return 容器支持异步且为首次分发时返回 true
+	 */
+	public boolean isAsyncPossible(HttpServletRequest request) {
+		return request.isAsyncSupported() && DispatcherType.REQUEST.equals(request.getDispatcherType());
+	}
+
+	public void process(HttpServletRequest request, HttpServletResponse response, AuthenticationSteps steps) {
+
+		AsyncContext asyncContext = request.startAsync(request, response);
+		asyncContext.setTimeout(timeout.toMillis());
+
+		AtomicInteger state = new AtomicInteger(PENDING);
+		SecurityContext callerContext = SecurityContextHolder.getContext();
+		FutureTask<Void> future = new FutureTask<>(() -> {
+			SecurityContext previousContext = SecurityContextHolder.getContext();
+			SecurityContextHolder.setContext(callerContext);
+			try {
+				this.authenticate(request, response, steps, state);
+			} catch (ResponseClaimedException e) {
+				logger.debug("DingTalk authentication timed out before writing the response, discard it.");
+			} catch (Exception e) {
+				logger.error("Asynchronous DingTalk authentication failed.", e);
+				if (this.claim(state) && !response.isCommitted()) {
+					this.sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+				}
+			} finally {
+				SecurityContextHolder.setContext(previousContext);
+				// 超时处理胜出时由其完成 AsyncContext
+				if (state.get() == WORKER) {
+					this.complete(asyncContext);
+				}
+			}
+		}, null);
+		asyncContext.addListener(new TimeoutListener(request, response, steps, state, future));
+
+		try {
+			executor.execute(future);
+		} catch (RejectedExecutionException e) {
+			// 线程池已满时直接拒绝，不占用容器线程
+			logger.debug("DingTalk authentication executor is saturated, reject the login.");
+			if (state.compareAndSet(PENDING, WORKER)) {
+				this.sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+				this.complete(asyncContext);
+			}
+		}
+	}
+
+	/**
+	 * 执行认证，写响应前须将 state 从 {@link #PENDING} 切换为 {@link #WORKER}，失败时说明已超时，放弃写响应；
+	 * 认证步骤拿到的响应在首次写入时完成同样的切换
+	 */
+	protected void authenticate(HttpServletRequest request, HttpServletResponse response, AuthenticationSteps steps,
+			AtomicInteger state) throws IOException, ServletException {
+		HttpServletResponse claimingResponse = new ClaimingResponse(response, state);
+		Authentication authResult;
+		try {
+			authResult = steps.attemptAuthentication(request, claimingResponse);
+			if (authResult == null) {
+				// 认证步骤已自行写出响应（如限流拒绝）
+				this.claim(state);
+				return;
+			}
+			steps.onAuthentication(authResult, request, claimingResponse);
+		} catch (InternalAuthenticationServiceException failed) {
+			logger.error("An internal error occurred while trying to authenticate the user.", failed);
+			if (this.claim(state)) {
+				steps.unsuccessfulAuthentication(request, response, failed);
+			}
+			return;
+		} catch (AuthenticationException failed) {
+			if (this.claim(state)) {
+				steps.unsuccessfulAuthentication(request, response, failed);
+			}
+			return;
+		}
+		if (this.claim(state)) {
+			steps.successfulAuthentication(request, response, authResult);
+			if (securityContextRepository != null) {
+				securityContextRepository.saveContext(SecurityContextHolder.getContext(), request, response);
+			}
+		}
+	}
+
+	/**
+	 * 由工作线程取得写响应的权利；认证步骤已提前写过响应时 state 已是 {@link #WORKER}
+	 * @return 超时处理已胜出时返回 false
+	 */
+	private boolean claim(AtomicInteger state) {
+		return state.get() == WORKER || state.compareAndSet(PENDING, WORKER);
+	}
+
+	private void sendError(HttpServletResponse response, int status) {
+		try {
+			response.sendError(status);
+		} catch (IOException e) {
+			logger.debug("Send error response failed.", e);
+		}
+	}
+
+	private void complete(AsyncContext asyncContext) {
+		try {
+			asyncContext.complete();
+		} catch (IllegalStateException e) {
+			// 已被超时处理或容器完成
+			logger.debug("AsyncContext already completed.");
+		}
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	public SecurityContextRepository getSecurityContextRepository() {
+		return securityContextRepository;
+	}
+
+	public void setSecurityContextRepository(SecurityContextRepository securityContextRepository) {
+		this.securityContextRepository = securityContextRepository;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * 登录过滤器中受保护的认证步骤，由各过滤器以内部类实现
+	 */
+	public interface AuthenticationSteps {
+
+		Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
+				throws AuthenticationException, IOException, ServletException;
+
+		void onAuthentication(Authentication authentication, HttpServletRequest request, HttpServletResponse response)
+				throws AuthenticationException;
+
+		void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, Authentication authResult)
+				throws IOException, ServletException;
+
+		void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+				AuthenticationException failed) throws IOException, ServletException;
+
+	}
+
+	/**
+	 * 超时处理已胜出后工作线程仍试图写响应
+	 */
+	private static class ResponseClaimedException extends IllegalStateException {
+
+		private static final long serialVersionUID = 1L;
+
+		ResponseClaimedException() {
+			super("The response has been claimed by the timeout handler.");
+		}
+
+	}
+
+	/**
+	 * 交给认证步骤的响应：任何写入前先取得写响应的权利，超时处理已胜出时中止认证而不是与之同时写响应
+	 */
+	private class ClaimingResponse extends HttpServletResponseWrapper {
+
+		private final AtomicInteger state;
+
+		ClaimingResponse(HttpServletResponse response, AtomicInteger state) {
+			super(response);
+			this.state = state;
+		}
+
+		private void claimOrAbort() {
+			if (!claim(state)) {
+				throw new ResponseClaimedException();
+			}
+		}
+
+		@Override
+		public void addCookie(Cookie cookie) {
+			this.claimOrAbort();
+			super.addCookie(cookie);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			this.claimOrAbort();
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			this.claimOrAbort();
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			this.claimOrAbort();
+			super.sendRedirect(location);
+		}
+
+		@Override
+		public void setDateHeader(String name, long date) {
+			this.claimOrAbort();
+			super.setDateHeader(name, date);
+		}
+
+		@Override
+		public void addDateHeader(String name, long date) {
+			this.claimOrAbort();
+			super.addDateHeader(name, date);
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			this.claimOrAbort();
+			super.setHeader(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			this.claimOrAbort();
+			super.addHeader(name, value);
+		}
+
+		@Override
+		public void setIntHeader(String name, int value) {
+			this.claimOrAbort();
+			super.setIntHeader(name, value);
+		}
+
+		@Override
+		public void addIntHeader(String name, int value) {
+			this.claimOrAbort();
+			super.addIntHeader(name, value);
+		}
+
+		@Override
+		public void setStatus(int sc) {
+			this.claimOrAbort();
+			super.setStatus(sc);
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			this.claimOrAbort();
+			super.setContentLength(len);
+		}
+
+		@Override
+		public void setContentLengthLong(long len) {
+			this.claimOrAbort();
+			super.setContentLengthLong(len);
+		}
+
+		@Override
+		public void setContentType(String type) {
+			this.claimOrAbort();
+			super.setContentType(type);
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			this.claimOrAbort();
+			return super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			this.claimOrAbort();
+			return super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			this.claimOrAbort();
+			super.flushBuffer();
+		}
+
+		@Override
+		public void reset() {
+			this.claimOrAbort();
+			super.reset();
+		}
+
+		@Override
+		public void resetBuffer() {
+			this.claimOrAbort();
+			super.resetBuffer();
+		}
+
+	}
+
+	private class TimeoutListener implements AsyncListener {
+
+		private final HttpServletRequest request;
+		private final HttpServletResponse response;
+		private final AuthenticationSteps steps;
+		private final AtomicInteger state;
+		private final FutureTask<Void> future;
+
+		TimeoutListener(HttpServletRequest request, HttpServletResponse response, AuthenticationSteps steps,
+				AtomicInteger state, FutureTask<Void> future) {
+			this.request = request;
+			this.response = response;
+			this.steps = steps;
+			this.state = state;
+			this.future = future;
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			if (!state.compareAndSet(PENDING, TIMED_OUT)) {
+				return;
+			}
+			// 中断仍在等待 DingTalk 的工作线程，排队中的任务不再执行
+			future.cancel(true);
+			try {
+				steps.unsuccessfulAuthentication(request, response,
+						new DingTalkAuthenticationServiceException("DingTalk authentication timed out."));
+			} catch (ServletException e) {
+				logger.error("Handle DingTalk authentication timeout failed.", e);
+			} finally {
+				complete(event.getAsyncContext());
+			}
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			if (state.compareAndSet(PENDING, TIMED_OUT)) {
+				future.cancel(true);
+			}
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+
+	}
+
+}
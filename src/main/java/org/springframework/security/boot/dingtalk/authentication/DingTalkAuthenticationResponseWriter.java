@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.boot.biz.userdetails.UserProfilePayload;
+
+/**
+ * DingTalk 认证成功响应的渲染与写出，Servlet 与 WebFlux 的 JWT 成功处理器共用
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkAuthenticationResponseWriter {
+
+	/**
+	 * 渲染认证成功的响应体
+	 * @param locale 国际化信息使用的语言
+	 * @param profilePayload 用户信息载体
+	 * @return UTF-8 编码的 JSON 响应体
+	 */
+	byte[] renderSuccess(Locale locale, UserProfilePayload profilePayload);
+
+	/**
+	 * 写出认证成功响应：设置准确的 Content-Length 后一次写出响应体
+	 * @param response 响应
+	 * @param locale 国际化信息使用的语言
+	 * @param profilePayload 用户信息载体
+	 * @throws IOException 写出响应失败
+	 */
+	default void writeSuccess(HttpServletResponse response, Locale locale, UserProfilePayload profilePayload) throws IOException {
+		byte[] body = this.renderSuccess(locale, profilePayload);
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * 已渲染的响应：状态码、内容类型、渲染过程中设置的响应头与响应体，之后直接写出。
+ * <p>渲染前响应中已有的响应头（如其他过滤器按请求设置的）不属于渲染结果，不会被缓存。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+final class DingTalkCachedResponse {
+
+	private final int status;
+	private final String contentType;
+	private final String characterEncoding;
+	private final Map<String, List<String>> headers;
+	private final byte[] body;
+
+	DingTalkCachedResponse(int status, String contentType, String characterEncoding, Map<String, List<String>> headers, byte[] body) {
+		this.status = status;
+		this.contentType = contentType;
+		this.characterEncoding = characterEncoding;
+		this.headers = headers;
+		this.body = body;
+	}
+
+	/**
+	 * @param response 渲染前的响应
+	 * @return 响应中已有的响应头
+	 */
+	static Map<String, List<String>> headersOf(HttpServletResponse response) {
+		Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<>();
+		for (String name : response.getHeaderNames()) {
+			headers.put(name, new ArrayList<>(response.getHeaders(name)));
+		}
+		return headers;
+	}
+
+	/**
+	 * @param wrapper 已写出响应体的响应
+	 * @param before 渲染前响应中已有的响应头，见 {@link #headersOf(HttpServletResponse)}
+	 * @return 响应体为空时返回 null
+	 */
+	static DingTalkCachedResponse of(ContentCachingResponseWrapper wrapper, Map<String, List<String>> before) {
+		byte[] body = wrapper.getContentAsByteArray();
+		if (body.length == 0) {
+			return null;
+		}
+		// 只保留渲染过程中新增或修改的响应头，内容类型与长度单独写出
+		Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<>();
+		for (Map.Entry<String, List<String>> header : headersOf(wrapper).entrySet()) {
+			String name = header.getKey();
+			if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+					|| header.getValue().isEmpty() || header.getValue().equals(before.get(name))) {
+				continue;
+			}
+			headers.put(name, Collections.unmodifiableList(header.getValue()));
+		}
+		return new DingTalkCachedResponse(wrapper.getStatus(), wrapper.getContentType(), wrapper.getCharacterEncoding(),
+				Collections.unmodifiableMap(headers), body);
+	}
+
+	void writeTo(HttpServletResponse response) throws IOException {
+		response.setStatus(status);
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			List<String> values = header.getValue();
+			response.setHeader(header.getKey(), values.get(0));
+			for (int i = 1; i < values.size(); i++) {
+				response.addHeader(header.getKey(), values.get(i));
+			}
+		}
+		if (contentType != null) {
+			response.setContentType(contentType);
+		}
+		if (characterEncoding != null) {
+			response.setCharacterEncoding(characterEncoding);
+		}
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+		response.flushBuffer();
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeExpiredException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.util.Assert;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * 可预期的客户端错误的失败响应缓存：按 (异常类型, 异常信息, 请求的 {@link Locale}) 渲染一次后缓存，之后直接写出缓存的状态码、
+ * 渲染时设置的响应头与响应体。
+ * <p>只缓存 {@link DingTalkCodeNotFoundException}、{@link DingTalkCodeIncorrectException} 与 {@link DingTalkCodeExpiredException}，
+ * 它们的异常信息来自固定的文本；超过数量后不再缓存，按原方式渲染。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkFailureResponseCache {
+
+	private final int maxSize;
+	private final ConcurrentMap<Key, DingTalkCachedResponse> responses = new ConcurrentHashMap<>();
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+
+	public DingTalkFailureResponseCache(int maxSize) {
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param e 认证异常
+	 * @return 该异常的响应可以缓存时返回 true
+	 */
+	public boolean isCacheable(AuthenticationException e) {
+		Class<?> type = e.getClass();
+		return type == DingTalkCodeNotFoundException.class || type == DingTalkCodeIncorrectException.class
+				|| type == DingTalkCodeExpiredException.class;
+	}
+
+	/**
+	 * 写出失败响应，未缓存时由 renderer 渲染并缓存
+	 * @param request 请求
+	 * @param response 响应
+	 * @param e 认证异常，需满足 {@link #isCacheable(AuthenticationException)}
+	 * @param renderer 首次渲染响应
+	 * @throws IOException 写出响应失败
+	 * @throws ServletException 渲染响应异常
+	 */
+	public void write(HttpServletRequest request, HttpServletResponse response, AuthenticationException e,
+			AuthenticationFailureHandler renderer) throws IOException, ServletException {
+		Key key = new Key(e.getClass(), e.getMessage(), request.getLocale());
+		DingTalkCachedResponse cached = responses.get(key);
+		if (cached != null) {
+			hitCount.increment();
+			cached.writeTo(response);
+			return;
+		}
+		missCount.increment();
+		Map<String, List<String>> headers = DingTalkCachedResponse.headersOf(response);
+		ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+		renderer.onAuthenticationFailure(request, wrapper, e);
+		cached = DingTalkCachedResponse.of(wrapper, headers);
+		if (cached != null && responses.size() < maxSize) {
+			responses.putIfAbsent(key, cached);
+		}
+		wrapper.copyBodyToResponse();
+	}
+
+	/**
+	 * 清空已缓存的响应，国际化资源重新加载后调用
+	 */
+	public void clear() {
+		responses.clear();
+	}
+
+	public long hitCount() {
+		return hitCount.sum();
+	}
+
+	public long missCount() {
+		return missCount.sum();
+	}
+
+	public int size() {
+		return responses.size();
+	}
+
+	private static final class Key {
+
+		private final Class<?> type;
+		private final String message;
+		private final Locale locale;
+		private final int hash;
+
+		Key(Class<?> type, String message, Locale locale) {
+			this.type = type;
+			this.message = message;
+			this.locale = locale;
+			this.hash = Objects.hash(type, message, locale);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return type == other.type && Objects.equals(message, other.message) && Objects.equals(locale, other.locale);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+}
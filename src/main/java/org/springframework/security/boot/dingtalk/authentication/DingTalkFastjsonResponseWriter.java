@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.util.Assert;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+
+/**
+ * 基于 fastjson 的认证成功响应，默认实现。
+ * <p>序列化配置在构造时确定；{@link JSON#toJSONBytes(Object, SerializeConfig, SerializerFeature...)} 使用 fastjson
+ * 按线程复用的字符与字节缓冲，每次只分配最终的响应体数组。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkFastjsonResponseWriter extends AbstractDingTalkAuthenticationResponseWriter {
+
+	private static final SerializerFeature[] NO_FEATURES = new SerializerFeature[0];
+
+	private final SerializeConfig serializeConfig;
+	private final SerializerFeature[] features;
+
+	public DingTalkFastjsonResponseWriter() {
+		super();
+		this.serializeConfig = SerializeConfig.getGlobalInstance();
+		this.features = NO_FEATURES;
+	}
+
+	public DingTalkFastjsonResponseWriter(MessageSourceAccessor messages) {
+		this(messages, SerializeConfig.getGlobalInstance());
+	}
+
+	public DingTalkFastjsonResponseWriter(MessageSourceAccessor messages, SerializeConfig serializeConfig, SerializerFeature... features) {
+		super(messages);
+		Assert.notNull(serializeConfig, "serializeConfig must not be null");
+		this.serializeConfig = serializeConfig;
+		this.features = features != null ? features.clone() : NO_FEATURES;
+	}
+
+	@Override
+	protected byte[] serialize(Object body) {
+		return JSON.toJSONBytes(body, serializeConfig, features);
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.security.boot.biz.exception.AuthResponse;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * 基于 Jackson 的认证成功响应：{@link ObjectWriter} 在构造时预先构建，序列化使用 Jackson 按线程复用的缓冲。
+ * <p>输出的字段以 {@link ObjectMapper} 的配置为准，可能与 fastjson 的默认输出不同。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkJacksonResponseWriter extends AbstractDingTalkAuthenticationResponseWriter {
+
+	private final ObjectWriter objectWriter;
+
+	public DingTalkJacksonResponseWriter(ObjectMapper objectMapper) {
+		super();
+		Assert.notNull(objectMapper, "objectMapper must not be null");
+		this.objectWriter = objectMapper.writerFor(AuthResponse.class);
+	}
+
+	public DingTalkJacksonResponseWriter(MessageSourceAccessor messages, ObjectMapper objectMapper) {
+		super(messages);
+		Assert.notNull(objectMapper, "objectMapper must not be null");
+		this.objectWriter = objectMapper.writerFor(AuthResponse.class);
+	}
+
+	@Override
+	protected byte[] serialize(Object body) {
+		try {
+			return objectWriter.writeValueAsBytes(body);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not write authentication response: " + e.getOriginalMessage(), e);
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.GenericFilterBean;
+
+/**
+ * 合并模式下所有 DingTalk 登录入口共用的分发过滤器：按请求路径精确查找对应登录方式的认证过滤器，
+ * 包含通配符的路径才退回到 Ant 匹配；路径不匹配的请求直接继续执行过滤器链。
+ * <p>{@link #getRequestMatcher()} 使用同一查找，作为合并后过滤器链的匹配条件。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkLoginDispatcherFilter extends GenericFilterBean {
+
+	private final Map<String, Filter> exactPaths = new HashMap<>();
+	private final List<PatternRoute> patternRoutes = new ArrayList<>();
+	private final RequestMatcher requestMatcher = request -> this.resolve(request) != null;
+
+	/**
+	 * 注册登录入口
+	 * @param pathPattern 登录地址，如 /login/dingtalk/scancode
+	 * @param filter 该登录方式的认证过滤器
+	 */
+	public void addRoute(String pathPattern, Filter filter) {
+		Assert.hasText(pathPattern, "pathPattern must not be empty");
+		Assert.notNull(filter, "filter must not be null");
+		if (pathPattern.indexOf('*') < 0 && pathPattern.indexOf('?') < 0 && pathPattern.indexOf('{') < 0) {
+			exactPaths.put(pathPattern, filter);
+		} else {
+			patternRoutes.add(new PatternRoute(new AntPathRequestMatcher(pathPattern), filter));
+		}
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		Filter filter = this.resolve((HttpServletRequest) request);
+		if (filter == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		filter.doFilter(request, response, chain);
+	}
+
+	/**
+	 * @param request 请求
+	 * @return 请求路径对应的认证过滤器，不是登录请求时返回 null
+	 */
+	public Filter resolve(HttpServletRequest request) {
+		Filter filter = exactPaths.get(getRequestPath(request));
+		if (filter != null || patternRoutes.isEmpty()) {
+			return filter;
+		}
+		for (PatternRoute route : patternRoutes) {
+			if (route.matcher.matches(request)) {
+				return route.filter;
+			}
+		}
+		return null;
+	}
+
+	public RequestMatcher getRequestMatcher() {
+		return requestMatcher;
+	}
+
+	/** 与 {@link AntPathRequestMatcher} 一致，取 servletPath + pathInfo */
+	private static String getRequestPath(HttpServletRequest request) {
+		String pathInfo = request.getPathInfo();
+		return pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+	}
+
+	private static final class PatternRoute {
+
+		private final RequestMatcher matcher;
+		private final Filter filter;
+
+		PatternRoute(RequestMatcher matcher, Filter filter) {
+			this.matcher = matcher;
+			this.filter = filter;
+		}
+
+	}
+
+}
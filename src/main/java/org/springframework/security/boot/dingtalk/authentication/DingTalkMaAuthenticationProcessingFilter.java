@@ -17,16 +17,27 @@ package org.springframework.security.boot.dingtalk.authentication;
 
 import java.io.IOException;
 
+import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.boot.biz.authentication.PostOnlyAuthenticationProcessingFilter;
 import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObservation;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginOutcome;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
+import org.springframework.security.boot.dingtalk.ratelimit.DingTalkLoginRateLimiter;
+import org.springframework.security.boot.dingtalk.support.DingTalkLoginRequestReader;
 import org.springframework.security.boot.utils.WebUtils;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.session.NullAuthenticatedSessionStrategy;
+import org.springframework.security.web.authentication.session.SessionAuthenticationStrategy;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.util.StringUtils;
 
@@ -47,21 +58,50 @@ public class DingTalkMaAuthenticationProcessingFilter extends PostOnlyAuthentica
 	private String tokenParameter = SPRING_SECURITY_FORM_TOKEN_KEY;
     private String authCodeParameter = SPRING_SECURITY_FORM_CODE_KEY;
     
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private DingTalkLoginRequestReader<DingTalkMaLoginRequest> loginRequestReader;
+    private SessionAuthenticationStrategy sessionStrategy = new NullAuthenticatedSessionStrategy();
+    private DingTalkAsyncAuthenticationProcessor asyncProcessor;
+    private DingTalkAppKeyGuard appKeyGuard;
+    private DingTalkLoginRateLimiter rateLimiter;
+    private DingTalkLoginObserver loginObserver = DingTalkLoginObserver.NOOP;
+    private final DingTalkAsyncAuthenticationProcessor.AuthenticationSteps asyncSteps = new AsyncAuthenticationSteps();
     
     public DingTalkMaAuthenticationProcessingFilter(ObjectMapper objectMapper) {
     	super(new AntPathRequestMatcher("/login/dingtalk/ma"));
-		this.objectMapper = objectMapper;
+		this.loginRequestReader = new DingTalkLoginRequestReader<>(objectMapper, DingTalkMaLoginRequest.class);
 	}
 	
 	public DingTalkMaAuthenticationProcessingFilter(ObjectMapper objectMapper, AntPathRequestMatcher requestMatcher) {
 		super(requestMatcher);
-		this.objectMapper = objectMapper;
+		this.loginRequestReader = new DingTalkLoginRequestReader<>(objectMapper, DingTalkMaLoginRequest.class);
 	}
 	
     @Override
     public Authentication doAttemptAuthentication(HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException, IOException, ServletException {
+    	DingTalkLoginObservation observation = loginObserver.start(DingTalkLoginStage.AUTHENTICATION, DingTalkLoginObserver.FLOW_MA, null);
+    	try {
+    		Authentication authentication = this.attemptDingTalkAuthentication(request, response);
+    		// 返回 null 时请求已被限流
+    		observation.stop(authentication != null ? DingTalkLoginOutcome.SUCCESS : DingTalkLoginOutcome.FAILURE, null);
+    		return authentication;
+    	} catch (IOException | ServletException | RuntimeException e) {
+    		observation.failure(e);
+    		throw e;
+    	}
+    }
+
+    /**
+     * 认证过程：解析登录请求，构建认证 Token 后交由 AuthenticationManager 认证
+     * @param request 请求
+     * @param response 响应
+     * @return 认证结果，请求已被拒绝时返回 null
+     * @throws AuthenticationException 认证失败
+     * @throws IOException 读取请求失败
+     * @throws ServletException 写出拒绝响应失败
+     */
+    protected Authentication attemptDingTalkAuthentication(HttpServletRequest request, HttpServletResponse response)
+            throws AuthenticationException, IOException, ServletException {
         
         AbstractAuthenticationToken authRequest;
         
@@ -72,7 +112,7 @@ public class DingTalkMaAuthenticationProcessingFilter extends PostOnlyAuthentica
 				logger.debug("Post && JSON");
 			}
 			
-			DingTalkMaLoginRequest loginRequest = objectMapper.readValue(request.getReader(), DingTalkMaLoginRequest.class);
+			DingTalkMaLoginRequest loginRequest = loginRequestReader.read(request);
 			
 			if ( !StringUtils.hasText(loginRequest.getKey())) {
 				logger.debug("No key (appId or appKey) found in request.");
@@ -83,6 +123,13 @@ public class DingTalkMaAuthenticationProcessingFilter extends PostOnlyAuthentica
 				throw new DingTalkCodeNotFoundException("No AuthCode found in request.");
 			}
 			
+			if (isRejectedAppKey(loginRequest.getCorpId(), loginRequest.getKey())) {
+				throw appKeyGuard.reject();
+			}
+			if (rateLimiter != null && !rateLimiter.tryAcquireAppKey(loginRequest.getKey(), response)) {
+				return null;
+			}
+
 			authRequest = this.authenticationToken( loginRequest );
 			
 		} else {
@@ -101,6 +148,13 @@ public class DingTalkMaAuthenticationProcessingFilter extends PostOnlyAuthentica
 				throw new DingTalkCodeNotFoundException("No authCode found in request.");
 			}
 	        
+			if (isRejectedAppKey(corpId, appId)) {
+				throw appKeyGuard.reject();
+			}
+			if (rateLimiter != null && !rateLimiter.tryAcquireAppKey(appId, response)) {
+				return null;
+			}
+
 			DingTalkMaLoginRequest loginRequest = new DingTalkMaLoginRequest(corpId, appId, token, authCode);
 	        
 	        authRequest = this.authenticationToken( loginRequest);
@@ -115,6 +169,43 @@ public class DingTalkMaAuthenticationProcessingFilter extends PostOnlyAuthentica
 
     }
 
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+		boolean requiresAuthentication = requiresAuthentication(httpRequest, httpResponse);
+		// 限流在解析请求体之前进行
+		if (requiresAuthentication && rateLimiter != null && !rateLimiter.tryAcquireClient(httpRequest, httpResponse)) {
+			return;
+		}
+		if (requiresAuthentication && asyncProcessor != null && asyncProcessor.isAsyncPossible(httpRequest)) {
+			asyncProcessor.process(httpRequest, httpResponse, asyncSteps);
+			return;
+		}
+		super.doFilter(request, response, chain);
+	}
+
+	/**
+	 * 前置校验 appKey，未配置的 appKey 不再构建认证 Token
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @return 需要拒绝时返回 true
+	 */
+	protected boolean isRejectedAppKey(String corpId, String appKey) {
+		if (appKeyGuard != null && appKeyGuard.isRejected(corpId, appKey)) {
+			logger.debug("Rejected unknown App Key " + appKey + " .");
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void setSessionAuthenticationStrategy(SessionAuthenticationStrategy sessionStrategy) {
+		super.setSessionAuthenticationStrategy(sessionStrategy);
+		this.sessionStrategy = sessionStrategy;
+	}
+
 	protected String obtainCropId(HttpServletRequest request) {
 		return request.getParameter(cropIdParameter);
 	}
@@ -181,4 +272,72 @@ public class DingTalkMaAuthenticationProcessingFilter extends PostOnlyAuthentica
 		this.authCodeParameter = authCodeParameter;
 	}
 
+	public DingTalkLoginRequestReader<DingTalkMaLoginRequest> getLoginRequestReader() {
+		return loginRequestReader;
+	}
+
+	public void setLoginRequestReader(DingTalkLoginRequestReader<DingTalkMaLoginRequest> loginRequestReader) {
+		this.loginRequestReader = loginRequestReader;
+	}
+
+	public DingTalkAsyncAuthenticationProcessor getAsyncProcessor() {
+		return asyncProcessor;
+	}
+
+	public void setAsyncProcessor(DingTalkAsyncAuthenticationProcessor asyncProcessor) {
+		this.asyncProcessor = asyncProcessor;
+	}
+
+	public DingTalkAppKeyGuard getAppKeyGuard() {
+		return appKeyGuard;
+	}
+
+	public void setAppKeyGuard(DingTalkAppKeyGuard appKeyGuard) {
+		this.appKeyGuard = appKeyGuard;
+	}
+
+	public DingTalkLoginRateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	public void setRateLimiter(DingTalkLoginRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	public DingTalkLoginObserver getLoginObserver() {
+		return loginObserver;
+	}
+
+	public void setLoginObserver(DingTalkLoginObserver loginObserver) {
+		this.loginObserver = loginObserver != null ? loginObserver : DingTalkLoginObserver.NOOP;
+	}
+
+	private class AsyncAuthenticationSteps implements DingTalkAsyncAuthenticationProcessor.AuthenticationSteps {
+
+		@Override
+		public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
+				throws AuthenticationException, IOException, ServletException {
+			return DingTalkMaAuthenticationProcessingFilter.this.attemptAuthentication(request, response);
+		}
+
+		@Override
+		public void onAuthentication(Authentication authentication, HttpServletRequest request,
+				HttpServletResponse response) throws AuthenticationException {
+			sessionStrategy.onAuthentication(authentication, request, response);
+		}
+
+		@Override
+		public void successfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+				Authentication authResult) throws IOException, ServletException {
+			DingTalkMaAuthenticationProcessingFilter.this.successfulAuthentication(request, response, null, authResult);
+		}
+
+		@Override
+		public void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+				AuthenticationException failed) throws IOException, ServletException {
+			DingTalkMaAuthenticationProcessingFilter.this.unsuccessfulAuthentication(request, response, failed);
+		}
+
+	}
+
 }
\ No newline at end of file
@@ -5,13 +5,17 @@ import java.io.IOException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.boot.biz.SpringSecurityBizMessageSource;
 import org.springframework.security.boot.biz.authentication.nested.MatchedAuthenticationFailureHandler;
 import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
 import org.springframework.security.boot.dingtalk.exception.DingTalkCodeExpiredException;
 import org.springframework.security.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
 import org.springframework.security.boot.utils.SecurityResponseUtils;
 import org.springframework.security.boot.utils.SubjectUtils;
 import org.springframework.security.core.AuthenticationException;
@@ -22,19 +26,73 @@ import org.springframework.security.core.AuthenticationException;
 public class DingTalkMatchedAuthenticationFailureHandler implements MatchedAuthenticationFailureHandler {
 
 	protected MessageSourceAccessor messages = SpringSecurityBizMessageSource.getAccessor();
+	private DingTalkFailureResponseCache responseCache;
 	 
 	@Override
 	public boolean supports(AuthenticationException e) {
 		return SubjectUtils.isAssignableFrom(e.getClass(), DingTalkAuthenticationServiceException.class,
-				DingTalkCodeIncorrectException.class, DingTalkCodeExpiredException.class);
+				DingTalkCodeIncorrectException.class, DingTalkCodeExpiredException.class, DingTalkCodeNotFoundException.class);
 	}
 
 	@Override
 	public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
 			AuthenticationException e) throws IOException, ServletException {
 		
+		// DingTalk 熔断或并发已满：以 503 响应，提示客户端稍后重试
+		if (e instanceof DingTalkServiceUnavailableException) {
+			DingTalkServiceUnavailableException ex = (DingTalkServiceUnavailableException) e;
+			if (ex.getRetryAfter() != null && !ex.getRetryAfter().isZero()) {
+				response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000)));
+			}
+			response = new ServiceUnavailableResponse(response);
+		}
+		
+		// 可预期的客户端错误：写出预先渲染的响应
+		if (responseCache != null && responseCache.isCacheable(e)) {
+			responseCache.write(request, response, e, SecurityResponseUtils::handleException);
+			return;
+		}
+		
 		SecurityResponseUtils.handleException(request, response, e);
 		
 	}
 
+	public DingTalkFailureResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * @param responseCache 失败响应缓存，为空时每次都重新渲染
+	 */
+	public void setResponseCache(DingTalkFailureResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	/**
+	 * 将写出的状态码固定为 503
+	 */
+	private static class ServiceUnavailableResponse extends HttpServletResponseWrapper {
+
+		ServiceUnavailableResponse(HttpServletResponse response) {
+			super(response);
+			response.setStatus(SC_SERVICE_UNAVAILABLE);
+		}
+
+		@Override
+		public void setStatus(int sc) {
+			super.setStatus(SC_SERVICE_UNAVAILABLE);
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			super.sendError(SC_SERVICE_UNAVAILABLE);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			super.sendError(SC_SERVICE_UNAVAILABLE, msg);
+		}
+
+	}
+
 }
@@ -16,35 +16,41 @@
 package org.springframework.security.boot.dingtalk.authentication;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.context.support.MessageSourceAccessor;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.boot.biz.SpringSecurityBizMessageSource;
 import org.springframework.security.boot.biz.authentication.nested.MatchedAuthenticationSuccessHandler;
-import org.springframework.security.boot.biz.exception.AuthResponse;
-import org.springframework.security.boot.biz.exception.AuthResponseCode;
 import org.springframework.security.boot.biz.userdetails.JwtPayloadRepository;
 import org.springframework.security.boot.biz.userdetails.UserProfilePayload;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
 import org.springframework.security.boot.utils.SubjectUtils;
 import org.springframework.security.core.Authentication;
-
-import com.alibaba.fastjson.JSONObject;
+import org.springframework.util.Assert;
 
 public class DingTalkMatchedAuthenticationSuccessJwtHandler implements MatchedAuthenticationSuccessHandler {
 
 	protected MessageSourceAccessor messages = SpringSecurityBizMessageSource.getAccessor();
 	private JwtPayloadRepository payloadRepository;
+	private DingTalkAuthenticationResponseWriter responseWriter;
+	private DingTalkLoginObserver loginObserver = DingTalkLoginObserver.NOOP;
 	private boolean checkExpiry = false;
 
 	public DingTalkMatchedAuthenticationSuccessJwtHandler(JwtPayloadRepository payloadRepository) {
 		this.setPayloadRepository(payloadRepository);
+		this.setResponseWriter(new DingTalkFastjsonResponseWriter(messages));
+	}
+
+	public DingTalkMatchedAuthenticationSuccessJwtHandler(JwtPayloadRepository payloadRepository,
+			DingTalkAuthenticationResponseWriter responseWriter) {
+		this.setPayloadRepository(payloadRepository);
+		this.setResponseWriter(responseWriter);
 	}
 
 	@Override
@@ -57,15 +63,10 @@ public class DingTalkMatchedAuthenticationSuccessJwtHandler implements MatchedAu
 	public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
 			Authentication authentication) throws IOException, ServletException {
 
-		// 设置状态码和响应头
-		response.setStatus(HttpStatus.OK.value());
-		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
-		// 国际化后的异常信息
-		String message = messages.getMessage(AuthResponseCode.SC_AUTHC_SUCCESS.getMsgKey());
-		// 写出JSON
-		UserProfilePayload profilePayload = getPayloadRepository().getProfilePayload((AbstractAuthenticationToken) authentication, isCheckExpiry());
-		JSONObject.writeJSONString(response.getOutputStream(), AuthResponse.success(message, profilePayload));
+		UserProfilePayload profilePayload = getLoginObserver().observe(DingTalkLoginStage.JWT_PAYLOAD, flowOf(authentication), null,
+				() -> getPayloadRepository().getProfilePayload((AbstractAuthenticationToken) authentication, isCheckExpiry()));
+		// 写出JSON：国际化后的成功信息按语言缓存，设置 Content-Length 后一次写出
+		getResponseWriter().writeSuccess(response, LocaleContextHolder.getLocale(), profilePayload);
 
 	}
 
@@ -77,6 +78,40 @@ public class DingTalkMatchedAuthenticationSuccessJwtHandler implements MatchedAu
 		this.payloadRepository = payloadRepository;
 	}
 
+	public DingTalkAuthenticationResponseWriter getResponseWriter() {
+		return responseWriter;
+	}
+
+	public void setResponseWriter(DingTalkAuthenticationResponseWriter responseWriter) {
+		Assert.notNull(responseWriter, "responseWriter must not be null");
+		this.responseWriter = responseWriter;
+	}
+
+	public DingTalkLoginObserver getLoginObserver() {
+		return loginObserver;
+	}
+
+	public void setLoginObserver(DingTalkLoginObserver loginObserver) {
+		this.loginObserver = loginObserver != null ? loginObserver : DingTalkLoginObserver.NOOP;
+	}
+
+	/**
+	 * @param authentication 认证结果
+	 * @return 登录方式，如 {@link DingTalkLoginObserver#FLOW_MA}，无法识别时返回 null
+	 */
+	public static String flowOf(Authentication authentication) {
+		if (authentication instanceof DingTalkMaAuthenticationToken) {
+			return DingTalkLoginObserver.FLOW_MA;
+		}
+		if (authentication instanceof DingTalkScanCodeAuthenticationToken) {
+			return DingTalkLoginObserver.FLOW_SCAN_CODE;
+		}
+		if (authentication instanceof DingTalkTmpCodeAuthenticationToken) {
+			return DingTalkLoginObserver.FLOW_TMP_CODE;
+		}
+		return null;
+	}
+
 	public boolean isCheckExpiry() {
 		return checkExpiry;
 	}
@@ -23,14 +23,25 @@ import org.springframework.security.boot.biz.SpringSecurityBizMessageSource;
 import org.springframework.security.boot.biz.exception.AuthResponseCode;
 import org.springframework.security.boot.biz.exception.AuthenticationMethodNotSupportedException;
 import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObservation;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginOutcome;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
+import org.springframework.security.boot.dingtalk.ratelimit.DingTalkLoginRateLimiter;
+import org.springframework.security.boot.dingtalk.support.DingTalkLoginRequestReader;
 import org.springframework.security.boot.utils.WebUtils;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.AbstractAuthenticationProcessingFilter;
+import org.springframework.security.web.authentication.session.NullAuthenticatedSessionStrategy;
+import org.springframework.security.web.authentication.session.SessionAuthenticationStrategy;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.util.StringUtils;
 
+import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -53,21 +64,50 @@ public class DingTalkScanCodeAuthenticationProcessingFilter extends AbstractAuth
 	private String tokenParameter = SPRING_SECURITY_FORM_TOKEN_KEY;
     private String codeParameter = SPRING_SECURITY_FORM_TMPCODE_KEY;
     private boolean postOnly = false;
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private DingTalkLoginRequestReader<DingTalkScanCodeLoginRequest> loginRequestReader;
+    private SessionAuthenticationStrategy sessionStrategy = new NullAuthenticatedSessionStrategy();
+    private DingTalkAsyncAuthenticationProcessor asyncProcessor;
+    private DingTalkAppKeyGuard appKeyGuard;
+    private DingTalkLoginRateLimiter rateLimiter;
+    private DingTalkLoginObserver loginObserver = DingTalkLoginObserver.NOOP;
+    private final DingTalkAsyncAuthenticationProcessor.AuthenticationSteps asyncSteps = new AsyncAuthenticationSteps();
 
     public DingTalkScanCodeAuthenticationProcessingFilter(ObjectMapper objectMapper) {
     	super(new AntPathRequestMatcher("/login/dingtalk/scancode"));
-		this.objectMapper = objectMapper;
+		this.loginRequestReader = new DingTalkLoginRequestReader<>(objectMapper, DingTalkScanCodeLoginRequest.class);
 	}
 
 	public DingTalkScanCodeAuthenticationProcessingFilter(ObjectMapper objectMapper, AntPathRequestMatcher requestMatcher) {
 		super(requestMatcher);
-		this.objectMapper = objectMapper;
+		this.loginRequestReader = new DingTalkLoginRequestReader<>(objectMapper, DingTalkScanCodeLoginRequest.class);
 	}
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException, IOException, ServletException {
+    	DingTalkLoginObservation observation = loginObserver.start(DingTalkLoginStage.AUTHENTICATION, DingTalkLoginObserver.FLOW_SCAN_CODE, null);
+    	try {
+    		Authentication authentication = this.attemptDingTalkAuthentication(request, response);
+    		// 返回 null 时请求已被限流
+    		observation.stop(authentication != null ? DingTalkLoginOutcome.SUCCESS : DingTalkLoginOutcome.FAILURE, null);
+    		return authentication;
+    	} catch (IOException | ServletException | RuntimeException e) {
+    		observation.failure(e);
+    		throw e;
+    	}
+    }
+
+    /**
+     * 认证过程：解析登录请求，构建认证 Token 后交由 AuthenticationManager 认证
+     * @param request 请求
+     * @param response 响应
+     * @return 认证结果，请求已被拒绝时返回 null
+     * @throws AuthenticationException 认证失败
+     * @throws IOException 读取请求失败
+     * @throws ServletException 写出拒绝响应失败
+     */
+    protected Authentication attemptDingTalkAuthentication(HttpServletRequest request, HttpServletResponse response)
+            throws AuthenticationException, IOException, ServletException {
 
         if (isPostOnly() && !WebUtils.isPostRequest(request) ) {
 			if (log.isDebugEnabled()) {
@@ -86,7 +126,7 @@ public class DingTalkScanCodeAuthenticationProcessingFilter extends AbstractAuth
 				log.debug("Post && JSON");
 			}
 
-			DingTalkScanCodeLoginRequest loginRequest = objectMapper.readValue(request.getReader(), DingTalkScanCodeLoginRequest.class);
+			DingTalkScanCodeLoginRequest loginRequest = loginRequestReader.read(request);
 
 			if ( !StringUtils.hasText(loginRequest.getKey())) {
 				log.debug("No key (appId or appKey) found in request.");
@@ -97,6 +137,13 @@ public class DingTalkScanCodeAuthenticationProcessingFilter extends AbstractAuth
 				throw new DingTalkCodeNotFoundException("No loginTmpCode or Code found in request.");
 			}
 
+			if (isRejectedAppKey(loginRequest.getCorpId(), loginRequest.getKey())) {
+				throw appKeyGuard.reject();
+			}
+			if (rateLimiter != null && !rateLimiter.tryAcquireAppKey(loginRequest.getKey(), response)) {
+				return null;
+			}
+
 			authRequest = this.authenticationToken( loginRequest );
 
 		} else {
@@ -116,6 +163,13 @@ public class DingTalkScanCodeAuthenticationProcessingFilter extends AbstractAuth
 				throw new DingTalkCodeNotFoundException("No loginTmpCode or Code found in request.");
 			}
 
+			if (isRejectedAppKey(corpId, appId)) {
+				throw appKeyGuard.reject();
+			}
+			if (rateLimiter != null && !rateLimiter.tryAcquireAppKey(appId, response)) {
+				return null;
+			}
+
 			DingTalkScanCodeLoginRequest loginRequest = new DingTalkScanCodeLoginRequest(corpId, appId, token, loginTmpCode);
 
 	        authRequest = this.authenticationToken( loginRequest);
@@ -130,6 +184,43 @@ public class DingTalkScanCodeAuthenticationProcessingFilter extends AbstractAuth
 
     }
 
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+		boolean requiresAuthentication = requiresAuthentication(httpRequest, httpResponse);
+		// 限流在解析请求体之前进行
+		if (requiresAuthentication && rateLimiter != null && !rateLimiter.tryAcquireClient(httpRequest, httpResponse)) {
+			return;
+		}
+		if (requiresAuthentication && asyncProcessor != null && asyncProcessor.isAsyncPossible(httpRequest)) {
+			asyncProcessor.process(httpRequest, httpResponse, asyncSteps);
+			return;
+		}
+		super.doFilter(request, response, chain);
+	}
+
+	/**
+	 * 前置校验 appKey，未配置的 appKey 不再构建认证 Token
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @return 需要拒绝时返回 true
+	 */
+	protected boolean isRejectedAppKey(String corpId, String appKey) {
+		if (appKeyGuard != null && appKeyGuard.isRejected(corpId, appKey)) {
+			log.debug("Rejected unknown App Key {} .", appKey);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void setSessionAuthenticationStrategy(SessionAuthenticationStrategy sessionStrategy) {
+		super.setSessionAuthenticationStrategy(sessionStrategy);
+		this.sessionStrategy = sessionStrategy;
+	}
+
 	protected String obtainCropId(HttpServletRequest request) {
 		return request.getParameter(cropIdParameter);
 	}
@@ -203,4 +294,72 @@ public class DingTalkScanCodeAuthenticationProcessingFilter extends AbstractAuth
 		this.postOnly = postOnly;
 	}
 
+	public DingTalkLoginRequestReader<DingTalkScanCodeLoginRequest> getLoginRequestReader() {
+		return loginRequestReader;
+	}
+
+	public void setLoginRequestReader(DingTalkLoginRequestReader<DingTalkScanCodeLoginRequest> loginRequestReader) {
+		this.loginRequestReader = loginRequestReader;
+	}
+
+	public DingTalkAsyncAuthenticationProcessor getAsyncProcessor() {
+		return asyncProcessor;
+	}
+
+	public void setAsyncProcessor(DingTalkAsyncAuthenticationProcessor asyncProcessor) {
+		this.asyncProcessor = asyncProcessor;
+	}
+
+	public DingTalkAppKeyGuard getAppKeyGuard() {
+		return appKeyGuard;
+	}
+
+	public void setAppKeyGuard(DingTalkAppKeyGuard appKeyGuard) {
+		this.appKeyGuard = appKeyGuard;
+	}
+
+	public DingTalkLoginRateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	public void setRateLimiter(DingTalkLoginRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	public DingTalkLoginObserver getLoginObserver() {
+		return loginObserver;
+	}
+
+	public void setLoginObserver(DingTalkLoginObserver loginObserver) {
+		this.loginObserver = loginObserver != null ? loginObserver : DingTalkLoginObserver.NOOP;
+	}
+
+	private class AsyncAuthenticationSteps implements DingTalkAsyncAuthenticationProcessor.AuthenticationSteps {
+
+		@Override
+		public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
+				throws AuthenticationException, IOException, ServletException {
+			return DingTalkScanCodeAuthenticationProcessingFilter.this.attemptAuthentication(request, response);
+		}
+
+		@Override
+		public void onAuthentication(Authentication authentication, HttpServletRequest request,
+				HttpServletResponse response) throws AuthenticationException {
+			sessionStrategy.onAuthentication(authentication, request, response);
+		}
+
+		@Override
+		public void successfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+				Authentication authResult) throws IOException, ServletException {
+			DingTalkScanCodeAuthenticationProcessingFilter.this.successfulAuthentication(request, response, null, authResult);
+		}
+
+		@Override
+		public void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+				AuthenticationException failed) throws IOException, ServletException {
+			DingTalkScanCodeAuthenticationProcessingFilter.this.unsuccessfulAuthentication(request, response, failed);
+		}
+
+	}
+
 }
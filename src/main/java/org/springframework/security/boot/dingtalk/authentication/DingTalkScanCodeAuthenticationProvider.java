@@ -12,8 +12,16 @@ import org.springframework.security.authentication.AccountStatusUserDetailsCheck
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.boot.biz.userdetails.SecurityPrincipal;
 import org.springframework.security.boot.biz.userdetails.UserDetailsServiceAdapter;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
 import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
 import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObservation;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginOutcome;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
+import org.springframework.security.boot.dingtalk.replay.DingTalkCodeReplayGuard;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkUpstreamInvoker;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkUserDetailsCache;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.SpringSecurityMessageSource;
@@ -27,11 +35,18 @@ import org.springframework.util.StringUtils;
  */
 public class DingTalkScanCodeAuthenticationProvider implements AuthenticationProvider, InitializingBean {
 
+	private static final String FLOW = DingTalkLoginObserver.FLOW_SCAN_CODE;
+
 	protected MessageSourceAccessor messages = SpringSecurityMessageSource.getAccessor();
 	private UserDetailsChecker userDetailsChecker = new AccountStatusUserDetailsChecker();
 	private final Logger logger = LoggerFactory.getLogger(getClass());
     private final UserDetailsServiceAdapter userDetailsService;
     private final DingTalkTemplate dingTalkTemplate;
+    private DingTalkAppCredentialRegistry credentialRegistry;
+    private DingTalkUpstreamInvoker upstreamInvoker;
+    private DingTalkCodeReplayGuard replayGuard;
+    private DingTalkUserDetailsCache userDetailsCache;
+    private DingTalkLoginObserver loginObserver = DingTalkLoginObserver.NOOP;
 
     public DingTalkScanCodeAuthenticationProvider(final UserDetailsServiceAdapter userDetailsService,
                                                   final DingTalkTemplate dingTalkTemplate) {
@@ -68,22 +83,52 @@ public class DingTalkScanCodeAuthenticationProvider implements AuthenticationPro
 			throw new DingTalkCodeNotFoundException("No loginTmpCode found in request.");
 		}
 		
+		if (replayGuard != null) {
+			return replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_SCAN_CODE, loginRequest.getKey(), loginRequest.getLoginTmpCode(),
+					() -> this.doAuthenticate(authentication, loginRequest), result -> this.copyAuthentication(result, authentication));
+		}
+		return this.doAuthenticate(authentication, loginRequest);
+    }
+
+    /**
+     * 复制同一授权码共享的认证结果，每个请求得到各自的对象与 details
+     * @param result 共享的认证结果
+     * @param authentication 当前请求的认证请求
+     * @return 当前请求的认证结果
+     */
+    protected Authentication copyAuthentication(Authentication result, Authentication authentication) {
+    	DingTalkScanCodeAuthenticationToken authenticationToken = new DingTalkScanCodeAuthenticationToken(result.getPrincipal(), result.getCredentials(), result.getAuthorities());
+    	authenticationToken.setDetails(authentication.getDetails());
+    	return authenticationToken;
+    }
+
+    /**
+     * 认证过程，一次性授权码在此发送到 DingTalk
+     * @param authentication 认证请求
+     * @param loginRequest 登录参数
+     * @return 认证结果
+     * @throws AuthenticationException 认证失败
+     */
+    protected Authentication doAuthenticate(Authentication authentication, DingTalkScanCodeLoginRequest loginRequest) throws AuthenticationException {
+
 		try {
 
-			if(!dingTalkTemplate.hasAppKey(loginRequest.getKey())) {
+			String appKey = loginRequest.getKey();
+			String appSecret = this.observeAppSecret(loginRequest.getCorpId(), appKey);
+			if(appSecret == null) {
 				logger.debug("Invalid App Key {} .", loginRequest.getKey());
 				throw new DingTalkCodeNotFoundException("Invalid App Key.");
 			}
 			
-			String appKey = loginRequest.getKey();
-			String appSecret = dingTalkTemplate.getAppSecret(loginRequest.getCorpId(), loginRequest.getKey());
-			
 			DingTalkScanCodeAuthenticationToken dingTalkToken = (DingTalkScanCodeAuthenticationToken) authentication;
 			
 			if (StringUtils.hasText(loginRequest.getLoginTmpCode())) {
 				
 				// 第三方应用钉钉扫码登录：通过临时授权码Code获取用户信息，临时授权码只能使用一次
-				OapiSnsGetuserinfoBycodeResponse response = dingTalkTemplate.opsForSns().getUserinfoByTmpCode(loginRequest.getLoginTmpCode(), appKey, appSecret);
+				OapiSnsGetuserinfoBycodeResponse response = loginObserver.observe(DingTalkLoginStage.UPSTREAM, FLOW, appKey,
+						DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE,
+						() -> getUserinfoByTmpCode(loginRequest.getCorpId(), loginRequest.getLoginTmpCode(), appKey, appSecret),
+						OapiSnsGetuserinfoBycodeResponse::getErrcode);
 				/*{ 
 				    "errcode": 0,
 				    "errmsg": "ok",
@@ -106,10 +151,11 @@ public class DingTalkScanCodeAuthenticationProvider implements AuthenticationPro
 
 			}
 
-			UserDetails ud = getUserDetailsService().loadUserDetails(dingTalkToken);
+			UserDetails ud = loginObserver.observe(DingTalkLoginStage.LOAD_USER, FLOW, appKey,
+					() -> this.loadUserDetails(dingTalkToken, loginRequest));
 	        
 	        // User Status Check
-	        getUserDetailsChecker().check(ud);
+	        this.checkUserDetails(ud, appKey);
 	        
 	        DingTalkScanCodeAuthenticationToken authenticationToken = null;
 	        if(SecurityPrincipal.class.isAssignableFrom(ud.getClass())) {
@@ -125,6 +171,72 @@ public class DingTalkScanCodeAuthenticationProvider implements AuthenticationPro
 		}
     }
     
+	protected String observeAppSecret(String corpId, String appKey) {
+		DingTalkLoginObservation observation = loginObserver.start(DingTalkLoginStage.APP_CREDENTIAL, FLOW, appKey);
+		String appSecret;
+		try {
+			appSecret = getAppSecret(corpId, appKey);
+		} catch (RuntimeException e) {
+			observation.failure(e);
+			throw e;
+		}
+		// 未配置的 appKey 计为失败，不会占用 appKey 标签的名额
+		observation.stop(appSecret != null ? DingTalkLoginOutcome.SUCCESS : DingTalkLoginOutcome.FAILURE, null);
+		return appSecret;
+	}
+
+	protected void checkUserDetails(UserDetails ud, String appKey) {
+		DingTalkLoginObservation observation = loginObserver.start(DingTalkLoginStage.CHECK_USER, FLOW, appKey);
+		try {
+			getUserDetailsChecker().check(ud);
+		} catch (RuntimeException e) {
+			observation.failure(e);
+			throw e;
+		}
+		observation.success();
+	}
+
+	protected String getAppSecret(String corpId, String appKey) {
+		if (credentialRegistry != null) {
+			return credentialRegistry.getAppSecret(corpId, appKey);
+		}
+		if(!dingTalkTemplate.hasAppKey(appKey)) {
+			return null;
+		}
+		return dingTalkTemplate.getAppSecret(corpId, appKey);
+	}
+
+	/**
+	 * 加载用户信息：设置了 {@link DingTalkUserDetailsCache} 时按 unionid（没有 unionid 时按 openid）缓存，
+	 * 携带绑定 token 的请求每次都重新加载
+	 * @param dingTalkToken 已获取 DingTalk 用户信息的认证 Token
+	 * @param loginRequest 登录参数
+	 * @return 用户信息
+	 */
+	protected UserDetails loadUserDetails(DingTalkScanCodeAuthenticationToken dingTalkToken, DingTalkScanCodeLoginRequest loginRequest) {
+		String cacheKey = null;
+		if (userDetailsCache != null && !StringUtils.hasText(loginRequest.getToken())) {
+			if (StringUtils.hasText(dingTalkToken.getUnionid())) {
+				cacheKey = DingTalkUserDetailsCache.unionidKey(dingTalkToken.getUnionid());
+			} else if (StringUtils.hasText(dingTalkToken.getOpenid())) {
+				cacheKey = DingTalkUserDetailsCache.openidKey(loginRequest.getKey(), dingTalkToken.getOpenid());
+			}
+		}
+		if (cacheKey == null) {
+			return getUserDetailsService().loadUserDetails(dingTalkToken);
+		}
+		return userDetailsCache.get(cacheKey, loginRequest.getCorpId(), () -> getUserDetailsService().loadUserDetails(dingTalkToken));
+	}
+
+	protected OapiSnsGetuserinfoBycodeResponse getUserinfoByTmpCode(String corpId, String tmpCode, String appKey, String appSecret) throws ApiException {
+		if (upstreamInvoker != null) {
+			return upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE, corpId, appKey,
+					() -> dingTalkTemplate.opsForSns().getUserinfoByTmpCode(tmpCode, appKey, appSecret),
+					OapiSnsGetuserinfoBycodeResponse::getErrcode);
+		}
+		return dingTalkTemplate.opsForSns().getUserinfoByTmpCode(tmpCode, appKey, appSecret);
+	}
+
     @Override
     public boolean supports(Class<?> authentication) {
         return (DingTalkScanCodeAuthenticationToken.class.isAssignableFrom(authentication));
@@ -141,5 +253,45 @@ public class DingTalkScanCodeAuthenticationProvider implements AuthenticationPro
 	public UserDetailsServiceAdapter getUserDetailsService() {
 		return userDetailsService;
 	}
+
+	public DingTalkAppCredentialRegistry getCredentialRegistry() {
+		return credentialRegistry;
+	}
+
+	public void setCredentialRegistry(DingTalkAppCredentialRegistry credentialRegistry) {
+		this.credentialRegistry = credentialRegistry;
+	}
+
+	public DingTalkUpstreamInvoker getUpstreamInvoker() {
+		return upstreamInvoker;
+	}
+
+	public void setUpstreamInvoker(DingTalkUpstreamInvoker upstreamInvoker) {
+		this.upstreamInvoker = upstreamInvoker;
+	}
+
+	public DingTalkCodeReplayGuard getReplayGuard() {
+		return replayGuard;
+	}
+
+	public void setReplayGuard(DingTalkCodeReplayGuard replayGuard) {
+		this.replayGuard = replayGuard;
+	}
+
+	public DingTalkUserDetailsCache getUserDetailsCache() {
+		return userDetailsCache;
+	}
+
+	public void setUserDetailsCache(DingTalkUserDetailsCache userDetailsCache) {
+		this.userDetailsCache = userDetailsCache;
+	}
+
+	public DingTalkLoginObserver getLoginObserver() {
+		return loginObserver;
+	}
+
+	public void setLoginObserver(DingTalkLoginObserver loginObserver) {
+		this.loginObserver = loginObserver != null ? loginObserver : DingTalkLoginObserver.NOOP;
+	}
     
 }
@@ -10,8 +10,17 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.boot.SecurityDingTalkProperties;
 import org.springframework.security.boot.biz.userdetails.SecurityPrincipal;
 import org.springframework.security.boot.biz.userdetails.UserDetailsServiceAdapter;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
 import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
 import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObservation;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginOutcome;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
+import org.springframework.security.boot.dingtalk.replay.DingTalkCodeReplayGuard;
+import org.springframework.security.boot.dingtalk.token.DingTalkAccessTokenCache;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkUpstreamInvoker;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkUserDetailsCache;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.SpringSecurityMessageSource;
@@ -26,12 +35,20 @@ import com.dingtalk.spring.boot.DingTalkTemplate;
  * https://open.dingtalk.com/document/orgapp-server/scan-qr-code-to-log-on-to-third-party-websites
  */
 public class DingTalkTmpCodeAuthenticationProvider implements AuthenticationProvider, InitializingBean {
+
+	private static final String FLOW = DingTalkLoginObserver.FLOW_TMP_CODE;
 	
 	private UserDetailsChecker userDetailsChecker = new AccountStatusUserDetailsChecker();
 	private final Logger logger = LoggerFactory.getLogger(getClass());
     private final UserDetailsServiceAdapter userDetailsService;
 	private final SecurityDingTalkProperties dingtalkProperties;
 	private final DingTalkTemplate dingTalkTemplate;
+	private DingTalkAccessTokenCache accessTokenCache;
+	private DingTalkAppCredentialRegistry credentialRegistry;
+	private DingTalkUpstreamInvoker upstreamInvoker;
+    private DingTalkCodeReplayGuard replayGuard;
+    private DingTalkUserDetailsCache userDetailsCache;
+    private DingTalkLoginObserver loginObserver = DingTalkLoginObserver.NOOP;
 
     public DingTalkTmpCodeAuthenticationProvider(final UserDetailsServiceAdapter userDetailsService,
     		final DingTalkTemplate dingTalkTemplate,
@@ -71,29 +88,57 @@ public class DingTalkTmpCodeAuthenticationProvider implements AuthenticationProv
 		}
 		
 
-		if(!dingTalkTemplate.hasAppKey(loginRequest.getKey())) {
+		if(!this.observeAppKey(loginRequest.getCorpId(), loginRequest.getKey())) {
 			logger.debug("Invalid App Key {} .", loginRequest.getKey());
 			throw new DingTalkCodeNotFoundException("Invalid App Key.");
 		}
 
+		if (replayGuard != null) {
+			return replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_TMP_CODE, loginRequest.getKey(), loginRequest.getCode(),
+					() -> this.doAuthenticate(authentication, loginRequest), result -> this.copyAuthentication(result, authentication));
+		}
+		return this.doAuthenticate(authentication, loginRequest);
+    }
+
+    /**
+     * 复制同一授权码共享的认证结果，每个请求得到各自的对象与 details
+     * @param result 共享的认证结果
+     * @param authentication 当前请求的认证请求
+     * @return 当前请求的认证结果
+     */
+    protected Authentication copyAuthentication(Authentication result, Authentication authentication) {
+    	DingTalkTmpCodeAuthenticationToken authenticationToken = new DingTalkTmpCodeAuthenticationToken(result.getPrincipal(), result.getCredentials(), result.getAuthorities());
+    	authenticationToken.setDetails(authentication.getDetails());
+    	return authenticationToken;
+    }
+
+    /**
+     * 认证过程，一次性授权码在此发送到 DingTalk
+     * @param authentication 认证请求
+     * @param loginRequest 登录参数
+     * @return 认证结果
+     * @throws AuthenticationException 认证失败
+     */
+    protected Authentication doAuthenticate(Authentication authentication, DingTalkTmpCodeLoginRequest loginRequest) throws AuthenticationException {
+
 		DingTalkTmpCodeAuthenticationToken dingTalkToken = (DingTalkTmpCodeAuthenticationToken) authentication;
 		try {
 			if (StringUtils.hasText(loginRequest.getCode())) {
 
-				String appKey = loginRequest.getKey();
-				String appSecret = dingTalkTemplate.getAppSecret(loginRequest.getCorpId(), loginRequest.getKey());
 				// 获取access_token
-				String accessToken = dingTalkTemplate.getAccessToken(appKey, appSecret);
+				String accessToken = loginObserver.observe(DingTalkLoginStage.UPSTREAM, FLOW, loginRequest.getKey(),
+						DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, () -> getAccessToken(loginRequest.getCorpId(), loginRequest.getKey()), null);
 				loginRequest.setAccessToken(accessToken);
 			}
 		} catch (ApiException e) {
 			throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
 		}
 
-		UserDetails ud = getUserDetailsService().loadUserDetails(dingTalkToken);
+		UserDetails ud = loginObserver.observe(DingTalkLoginStage.LOAD_USER, FLOW, loginRequest.getKey(),
+				() -> this.loadUserDetails(dingTalkToken, loginRequest));
 
 		// User Status Check
-		getUserDetailsChecker().check(ud);
+		this.checkUserDetails(ud, loginRequest.getKey());
 
 		DingTalkTmpCodeAuthenticationToken authenticationToken = null;
 		if(SecurityPrincipal.class.isAssignableFrom(ud.getClass())) {
@@ -106,6 +151,78 @@ public class DingTalkTmpCodeAuthenticationProvider implements AuthenticationProv
 		return authenticationToken;
     }
     
+	/**
+	 * 加载用户信息：设置了 {@link DingTalkUserDetailsCache} 且 {@link #userDetailsCacheKey} 返回 Key 时使用缓存，
+	 * 携带绑定 token 的请求每次都重新加载
+	 * @param dingTalkToken 认证 Token
+	 * @param loginRequest 登录参数
+	 * @return 用户信息
+	 */
+	protected UserDetails loadUserDetails(DingTalkTmpCodeAuthenticationToken dingTalkToken, DingTalkTmpCodeLoginRequest loginRequest) {
+		String cacheKey = userDetailsCache == null || StringUtils.hasText(loginRequest.getToken()) ? null
+				: this.userDetailsCacheKey(dingTalkToken, loginRequest);
+		if (cacheKey == null) {
+			return getUserDetailsService().loadUserDetails(dingTalkToken);
+		}
+		return userDetailsCache.get(cacheKey, loginRequest.getCorpId(), () -> getUserDetailsService().loadUserDetails(dingTalkToken));
+	}
+
+	/**
+	 * 用户信息的缓存 Key：该登录方式由 UserDetailsServiceAdapter 通过一次性授权码换取用户身份，认证前无法得知，默认不缓存；
+	 * 子类可按已知的身份返回 {@link DingTalkUserDetailsCache#useridKey(String, String)} 等 Key
+	 * @param dingTalkToken 认证 Token
+	 * @param loginRequest 登录参数
+	 * @return 缓存 Key，返回 null 时不使用缓存
+	 */
+	protected String userDetailsCacheKey(DingTalkTmpCodeAuthenticationToken dingTalkToken, DingTalkTmpCodeLoginRequest loginRequest) {
+		return null;
+	}
+
+	protected boolean observeAppKey(String corpId, String appKey) {
+		DingTalkLoginObservation observation = loginObserver.start(DingTalkLoginStage.APP_CREDENTIAL, FLOW, appKey);
+		boolean hasAppKey;
+		try {
+			hasAppKey = hasAppKey(corpId, appKey);
+		} catch (RuntimeException e) {
+			observation.failure(e);
+			throw e;
+		}
+		// 未配置的 appKey 计为失败，不会占用 appKey 标签的名额
+		observation.stop(hasAppKey ? DingTalkLoginOutcome.SUCCESS : DingTalkLoginOutcome.FAILURE, null);
+		return hasAppKey;
+	}
+
+	protected void checkUserDetails(UserDetails ud, String appKey) {
+		DingTalkLoginObservation observation = loginObserver.start(DingTalkLoginStage.CHECK_USER, FLOW, appKey);
+		try {
+			getUserDetailsChecker().check(ud);
+		} catch (RuntimeException e) {
+			observation.failure(e);
+			throw e;
+		}
+		observation.success();
+	}
+
+	protected boolean hasAppKey(String corpId, String appKey) {
+		if (credentialRegistry != null) {
+			return credentialRegistry.hasAppKey(corpId, appKey);
+		}
+		return dingTalkTemplate.hasAppKey(appKey);
+	}
+
+	protected String getAccessToken(String corpId, String appKey) throws ApiException {
+		if (accessTokenCache != null) {
+			return accessTokenCache.getAccessToken(corpId, appKey);
+		}
+		String appSecret = credentialRegistry != null ? credentialRegistry.getAppSecret(corpId, appKey)
+				: dingTalkTemplate.getAppSecret(corpId, appKey);
+		if (upstreamInvoker != null) {
+			return upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, corpId, appKey,
+					() -> dingTalkTemplate.getAccessToken(appKey, appSecret), null);
+		}
+		return dingTalkTemplate.getAccessToken(appKey, appSecret);
+	}
+
     @Override
     public boolean supports(Class<?> authentication) {
         return (DingTalkTmpCodeAuthenticationToken.class.isAssignableFrom(authentication));
@@ -122,5 +239,53 @@ public class DingTalkTmpCodeAuthenticationProvider implements AuthenticationProv
 	public UserDetailsServiceAdapter getUserDetailsService() {
 		return userDetailsService;
 	}
+
+	public DingTalkAccessTokenCache getAccessTokenCache() {
+		return accessTokenCache;
+	}
+
+	public void setAccessTokenCache(DingTalkAccessTokenCache accessTokenCache) {
+		this.accessTokenCache = accessTokenCache;
+	}
+
+	public DingTalkAppCredentialRegistry getCredentialRegistry() {
+		return credentialRegistry;
+	}
+
+	public void setCredentialRegistry(DingTalkAppCredentialRegistry credentialRegistry) {
+		this.credentialRegistry = credentialRegistry;
+	}
+
+	public DingTalkUpstreamInvoker getUpstreamInvoker() {
+		return upstreamInvoker;
+	}
+
+	public void setUpstreamInvoker(DingTalkUpstreamInvoker upstreamInvoker) {
+		this.upstreamInvoker = upstreamInvoker;
+	}
+
+	public DingTalkCodeReplayGuard getReplayGuard() {
+		return replayGuard;
+	}
+
+	public void setReplayGuard(DingTalkCodeReplayGuard replayGuard) {
+		this.replayGuard = replayGuard;
+	}
+
+	public DingTalkUserDetailsCache getUserDetailsCache() {
+		return userDetailsCache;
+	}
+
+	public void setUserDetailsCache(DingTalkUserDetailsCache userDetailsCache) {
+		this.userDetailsCache = userDetailsCache;
+	}
+
+	public DingTalkLoginObserver getLoginObserver() {
+		return loginObserver;
+	}
+
+	public void setLoginObserver(DingTalkLoginObserver loginObserver) {
+		this.loginObserver = loginObserver != null ? loginObserver : DingTalkLoginObserver.NOOP;
+	}
     
 }
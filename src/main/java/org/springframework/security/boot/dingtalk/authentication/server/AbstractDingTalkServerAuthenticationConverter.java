@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.boot.dingtalk.support.DingTalkLoginRequestReader;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * DingTalk 登录请求解析：与 Servlet 过滤器一致，JSON 请求读取请求体，其余请求读取查询参数与表单参数
+ * @param <T> 登录请求类型
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public abstract class AbstractDingTalkServerAuthenticationConverter<T> implements ServerAuthenticationConverter {
+
+	public static final String SPRING_SECURITY_FORM_CROPID_KEY = "cropId";
+	public static final String SPRING_SECURITY_FORM_APP_KEY = "key";
+	public static final String SPRING_SECURITY_FORM_TOKEN_KEY = "token";
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+	private final Class<T> loginRequestType;
+	private DingTalkLoginRequestReader<T> loginRequestReader;
+	private String cropIdParameter = SPRING_SECURITY_FORM_CROPID_KEY;
+	private String keyParameter = SPRING_SECURITY_FORM_APP_KEY;
+	private String tokenParameter = SPRING_SECURITY_FORM_TOKEN_KEY;
+	private String codeParameter;
+
+	protected AbstractDingTalkServerAuthenticationConverter(ObjectMapper objectMapper, Class<T> loginRequestType, String codeParameter) {
+		Assert.notNull(objectMapper, "objectMapper must not be null");
+		this.loginRequestType = loginRequestType;
+		this.loginRequestReader = new DingTalkLoginRequestReader<>(objectMapper, loginRequestType);
+		this.codeParameter = codeParameter;
+	}
+
+	@Override
+	public Mono<Authentication> convert(ServerWebExchange exchange) {
+		ServerHttpRequest request = exchange.getRequest();
+		MediaType contentType = request.getHeaders().getContentType();
+		Mono<T> loginRequest;
+		// Post && JSON
+		if (contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+			if (loginRequestReader.isTooLarge(request.getHeaders().getContentLength())) {
+				return Mono.error(loginRequestReader.tooLarge());
+			}
+			// 超过上限时 join 在缓冲过程中即失败
+			long maxBodySize = loginRequestReader.getMaxBodySize();
+			loginRequest = (maxBodySize > 0 ? DataBufferUtils.join(request.getBody(), (int) Math.min(maxBodySize, Integer.MAX_VALUE))
+					: DataBufferUtils.join(request.getBody()))
+					.onErrorMap(DataBufferLimitException.class, e -> loginRequestReader.tooLarge())
+					.map(this::readLoginRequest);
+		} else if (contentType != null && MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(contentType)) {
+			loginRequest = exchange.getFormData().map(formData -> this.readLoginRequest(request.getQueryParams(), formData));
+		} else {
+			loginRequest = Mono.fromCallable(() -> this.readLoginRequest(request.getQueryParams(), new LinkedMultiValueMap<>()));
+		}
+		return loginRequest.map(this::validate).map(this::authenticationToken);
+	}
+
+	protected T readLoginRequest(DataBuffer buffer) {
+		try (InputStream input = buffer.asInputStream(true)) {
+			return loginRequestReader.read(input);
+		} catch (IOException e) {
+			throw new AuthenticationServiceException("Unreadable DingTalk login request.", e);
+		}
+	}
+
+	protected T readLoginRequest(MultiValueMap<String, String> queryParams, MultiValueMap<String, String> formData) {
+		return this.createLoginRequest(obtain(queryParams, formData, cropIdParameter), obtain(queryParams, formData, keyParameter),
+				obtain(queryParams, formData, tokenParameter), obtain(queryParams, formData, codeParameter));
+	}
+
+	protected T validate(T loginRequest) {
+		if (!StringUtils.hasText(this.obtainKey(loginRequest))) {
+			logger.debug("No key (appId or appKey) found in request.");
+			throw new DingTalkCodeNotFoundException("No key (appId or appKey) found in request.");
+		}
+		if (!StringUtils.hasText(this.obtainCode(loginRequest))) {
+			logger.debug("No {} found in request.", codeParameter);
+			throw new DingTalkCodeNotFoundException("No " + codeParameter + " found in request.");
+		}
+		return loginRequest;
+	}
+
+	protected abstract T createLoginRequest(String corpId, String key, String token, String code);
+
+	protected abstract String obtainKey(T loginRequest);
+
+	protected abstract String obtainCode(T loginRequest);
+
+	protected abstract AbstractAuthenticationToken authenticationToken(T loginRequest);
+
+	private static String obtain(MultiValueMap<String, String> queryParams, MultiValueMap<String, String> formData, String name) {
+		String value = formData.getFirst(name);
+		return value != null ? value : queryParams.getFirst(name);
+	}
+
+	public String getCropIdParameter() {
+		return cropIdParameter;
+	}
+
+	public void setCropIdParameter(String cropIdParameter) {
+		this.cropIdParameter = cropIdParameter;
+	}
+
+	public String getKeyParameter() {
+		return keyParameter;
+	}
+
+	public void setKeyParameter(String keyParameter) {
+		this.keyParameter = keyParameter;
+	}
+
+	public String getTokenParameter() {
+		return tokenParameter;
+	}
+
+	public void setTokenParameter(String tokenParameter) {
+		this.tokenParameter = tokenParameter;
+	}
+
+	public Class<T> getLoginRequestType() {
+		return loginRequestType;
+	}
+
+	public DingTalkLoginRequestReader<T> getLoginRequestReader() {
+		return loginRequestReader;
+	}
+
+	public void setLoginRequestReader(DingTalkLoginRequestReader<T> loginRequestReader) {
+		Assert.notNull(loginRequestReader, "loginRequestReader must not be null");
+		this.loginRequestReader = loginRequestReader;
+	}
+
+	public String getCodeParameter() {
+		return codeParameter;
+	}
+
+	public void setCodeParameter(String codeParameter) {
+		this.codeParameter = codeParameter;
+	}
+
+}
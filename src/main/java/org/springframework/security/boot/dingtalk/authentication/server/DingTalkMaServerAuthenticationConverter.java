@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaAuthenticationProcessingFilter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaLoginRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * DingTalk 小程序免登请求解析，对应 {@link DingTalkMaAuthenticationProcessingFilter}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkMaServerAuthenticationConverter extends AbstractDingTalkServerAuthenticationConverter<DingTalkMaLoginRequest> {
+
+	public DingTalkMaServerAuthenticationConverter(ObjectMapper objectMapper) {
+		super(objectMapper, DingTalkMaLoginRequest.class, DingTalkMaAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CODE_KEY);
+	}
+
+	@Override
+	protected DingTalkMaLoginRequest createLoginRequest(String corpId, String key, String token, String code) {
+		return new DingTalkMaLoginRequest(corpId, key, token, code);
+	}
+
+	@Override
+	protected String obtainKey(DingTalkMaLoginRequest loginRequest) {
+		return loginRequest.getKey();
+	}
+
+	@Override
+	protected String obtainCode(DingTalkMaLoginRequest loginRequest) {
+		return loginRequest.getAuthCode();
+	}
+
+	@Override
+	protected AbstractAuthenticationToken authenticationToken(DingTalkMaLoginRequest loginRequest) {
+		return new DingTalkMaAuthenticationToken(loginRequest);
+	}
+
+}
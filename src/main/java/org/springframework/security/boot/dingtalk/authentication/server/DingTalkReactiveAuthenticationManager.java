@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.Assert;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 将 DingTalk 的 {@link AuthenticationProvider} 适配为 {@link ReactiveAuthenticationManager}。
+ * <p>DingTalk SDK 与 {@link org.springframework.security.boot.biz.userdetails.UserDetailsServiceAdapter} 均为阻塞调用，
+ * 认证过程在给定的 {@link Scheduler} 上执行，不占用事件循环线程；{@link Scheduler} 已满时以
+ * {@link DingTalkServiceUnavailableException} 快速失败。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+	private final AuthenticationProvider authenticationProvider;
+	private final Scheduler scheduler;
+
+	public DingTalkReactiveAuthenticationManager(AuthenticationProvider authenticationProvider) {
+		this(authenticationProvider, Schedulers.boundedElastic());
+	}
+
+	public DingTalkReactiveAuthenticationManager(AuthenticationProvider authenticationProvider, Scheduler scheduler) {
+		Assert.notNull(authenticationProvider, "authenticationProvider must not be null");
+		Assert.notNull(scheduler, "scheduler must not be null");
+		this.authenticationProvider = authenticationProvider;
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public Mono<Authentication> authenticate(Authentication authentication) {
+		if (!authenticationProvider.supports(authentication.getClass())) {
+			return Mono.empty();
+		}
+		return Mono.fromCallable(() -> authenticationProvider.authenticate(authentication))
+				.subscribeOn(scheduler)
+				.onErrorMap(RejectedExecutionException.class,
+						e -> new DingTalkServiceUnavailableException("DingTalk authentication scheduler is saturated."));
+	}
+
+	public AuthenticationProvider getAuthenticationProvider() {
+		return authenticationProvider;
+	}
+
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationProcessingFilter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeLoginRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * DingTalk 扫码登录第三方网站请求解析，对应 {@link DingTalkScanCodeAuthenticationProcessingFilter}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkScanCodeServerAuthenticationConverter extends AbstractDingTalkServerAuthenticationConverter<DingTalkScanCodeLoginRequest> {
+
+	public DingTalkScanCodeServerAuthenticationConverter(ObjectMapper objectMapper) {
+		super(objectMapper, DingTalkScanCodeLoginRequest.class, DingTalkScanCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_TMPCODE_KEY);
+	}
+
+	@Override
+	protected DingTalkScanCodeLoginRequest createLoginRequest(String corpId, String key, String token, String code) {
+		return new DingTalkScanCodeLoginRequest(corpId, key, token, code);
+	}
+
+	@Override
+	protected String obtainKey(DingTalkScanCodeLoginRequest loginRequest) {
+		return loginRequest.getKey();
+	}
+
+	@Override
+	protected String obtainCode(DingTalkScanCodeLoginRequest loginRequest) {
+		return loginRequest.getLoginTmpCode();
+	}
+
+	@Override
+	protected AbstractAuthenticationToken authenticationToken(DingTalkScanCodeLoginRequest loginRequest) {
+		return new DingTalkScanCodeAuthenticationToken(loginRequest);
+	}
+
+}
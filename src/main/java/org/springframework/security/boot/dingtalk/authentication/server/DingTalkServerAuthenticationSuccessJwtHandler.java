@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.boot.biz.SpringSecurityBizMessageSource;
+import org.springframework.security.boot.biz.userdetails.JwtPayloadRepository;
+import org.springframework.security.boot.biz.userdetails.UserProfilePayload;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkAuthenticationResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkFastjsonResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMatchedAuthenticationSuccessJwtHandler;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.ServerAuthenticationSuccessHandler;
+import org.springframework.util.Assert;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * DingTalk 认证成功后以 JSON 返回 JWT 信息，对应 {@link org.springframework.security.boot.dingtalk.authentication.DingTalkMatchedAuthenticationSuccessJwtHandler}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkServerAuthenticationSuccessJwtHandler implements ServerAuthenticationSuccessHandler {
+
+	protected MessageSourceAccessor messages = SpringSecurityBizMessageSource.getAccessor();
+	private JwtPayloadRepository payloadRepository;
+	private DingTalkAuthenticationResponseWriter responseWriter;
+	private DingTalkLoginObserver loginObserver = DingTalkLoginObserver.NOOP;
+	private boolean checkExpiry = false;
+
+	public DingTalkServerAuthenticationSuccessJwtHandler(JwtPayloadRepository payloadRepository) {
+		this.payloadRepository = payloadRepository;
+		this.setResponseWriter(new DingTalkFastjsonResponseWriter(messages));
+	}
+
+	public DingTalkServerAuthenticationSuccessJwtHandler(JwtPayloadRepository payloadRepository,
+			DingTalkAuthenticationResponseWriter responseWriter) {
+		this.payloadRepository = payloadRepository;
+		this.setResponseWriter(responseWriter);
+	}
+
+	@Override
+	public Mono<Void> onAuthenticationSuccess(WebFilterExchange webFilterExchange, Authentication authentication) {
+		ServerHttpResponse response = webFilterExchange.getExchange().getResponse();
+		// 设置状态码和响应头
+		response.setStatusCode(HttpStatus.OK);
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		UserProfilePayload profilePayload = getLoginObserver().observe(DingTalkLoginStage.JWT_PAYLOAD,
+				DingTalkMatchedAuthenticationSuccessJwtHandler.flowOf(authentication), null,
+				() -> getPayloadRepository().getProfilePayload((AbstractAuthenticationToken) authentication, isCheckExpiry()));
+		// 国际化后的成功信息按语言缓存
+		byte[] body = getResponseWriter().renderSuccess(LocaleContextHolder.getLocale(), profilePayload);
+		response.getHeaders().setContentLength(body.length);
+		DataBuffer buffer = response.bufferFactory().wrap(body);
+		return response.writeWith(Mono.just(buffer));
+	}
+
+	public JwtPayloadRepository getPayloadRepository() {
+		return payloadRepository;
+	}
+
+	public void setPayloadRepository(JwtPayloadRepository payloadRepository) {
+		this.payloadRepository = payloadRepository;
+	}
+
+	public DingTalkAuthenticationResponseWriter getResponseWriter() {
+		return responseWriter;
+	}
+
+	public void setResponseWriter(DingTalkAuthenticationResponseWriter responseWriter) {
+		Assert.notNull(responseWriter, "responseWriter must not be null");
+		this.responseWriter = responseWriter;
+	}
+
+	public DingTalkLoginObserver getLoginObserver() {
+		return loginObserver;
+	}
+
+	public void setLoginObserver(DingTalkLoginObserver loginObserver) {
+		this.loginObserver = loginObserver != null ? loginObserver : DingTalkLoginObserver.NOOP;
+	}
+
+	public boolean isCheckExpiry() {
+		return checkExpiry;
+	}
+
+	public void setCheckExpiry(boolean checkExpiry) {
+		this.checkExpiry = checkExpiry;
+	}
+
+}
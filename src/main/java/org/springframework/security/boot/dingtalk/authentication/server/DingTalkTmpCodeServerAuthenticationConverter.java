@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeAuthenticationProcessingFilter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeLoginRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * DingTalk 临时授权码登录请求解析，对应 {@link DingTalkTmpCodeAuthenticationProcessingFilter}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkTmpCodeServerAuthenticationConverter extends AbstractDingTalkServerAuthenticationConverter<DingTalkTmpCodeLoginRequest> {
+
+	public DingTalkTmpCodeServerAuthenticationConverter(ObjectMapper objectMapper) {
+		super(objectMapper, DingTalkTmpCodeLoginRequest.class, DingTalkTmpCodeAuthenticationProcessingFilter.SPRING_SECURITY_FORM_CODE_KEY);
+	}
+
+	@Override
+	protected DingTalkTmpCodeLoginRequest createLoginRequest(String corpId, String key, String token, String code) {
+		return new DingTalkTmpCodeLoginRequest(corpId, key, token, code);
+	}
+
+	@Override
+	protected String obtainKey(DingTalkTmpCodeLoginRequest loginRequest) {
+		return loginRequest.getKey();
+	}
+
+	@Override
+	protected String obtainCode(DingTalkTmpCodeLoginRequest loginRequest) {
+		return loginRequest.getCode();
+	}
+
+	@Override
+	protected AbstractAuthenticationToken authenticationToken(DingTalkTmpCodeLoginRequest loginRequest) {
+		return new DingTalkTmpCodeAuthenticationToken(loginRequest);
+	}
+
+}
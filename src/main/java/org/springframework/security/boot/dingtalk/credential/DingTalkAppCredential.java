@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.credential;
+
+/**
+ * DingTalk 应用凭证
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkAppCredential {
+
+	/**
+	 * 	企业的corpid，可为空
+	 */
+	private final String corpId;
+	/**
+	 * 	应用的唯一标识key
+	 */
+	private final String appKey;
+	/**
+	 * 	应用的密钥
+	 */
+	private final String appSecret;
+
+	public DingTalkAppCredential(String corpId, String appKey, String appSecret) {
+		this.corpId = corpId;
+		this.appKey = appKey;
+		this.appSecret = appSecret;
+	}
+
+	public String getCorpId() {
+		return corpId;
+	}
+
+	public String getAppKey() {
+		return appKey;
+	}
+
+	public String getAppSecret() {
+		return appSecret;
+	}
+
+	@Override
+	public String toString() {
+		return "DingTalkAppCredential [corpId=" + corpId + ", appKey=" + appKey + "]";
+	}
+
+}
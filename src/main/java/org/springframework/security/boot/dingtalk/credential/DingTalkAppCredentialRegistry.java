@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.credential;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * 不可变的 (corpId, appKey) → 应用凭证索引，替代每次登录时 {@link DingTalkTemplate#hasAppKey(String)} 与
+ * {@link DingTalkTemplate#getAppSecret(String, String)} 对应用列表的遍历。
+ * <p>索引为 appKey → corpId → 凭证 的两级 {@link ImmutableMap}，在启动时由配置的应用一次性构建，查询不产生任何对象、不加锁；
+ * 登录请求中的 (corpId, appKey) 不会写入索引，配置变化时可通过 {@link #reload(Collection)} 或 {@link #reset()} 原子切换。
+ * 未指定 corpId 的应用适用于任意企业。</p>
+ * <p>未配置任何应用时，由 {@link DingTalkTemplate} 已配置的应用在首次登录时逐个记住：每个 (corpId, appKey) 只向
+ * {@link DingTalkTemplate} 解析一次，之后的查询同样不产生对象、不加锁；记住的应用数量不超过负缓存的上限，
+ * 超过后的应用每次委托 {@link DingTalkTemplate}。未知的 (corpId, appKey) 记录在有界的负缓存中，有效期内不再向
+ * {@link DingTalkTemplate} 查询。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkAppCredentialRegistry {
+
+	private static final String ANY_CORP = "";
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final DingTalkTemplate dingTalkTemplate;
+	private final Cache<String, Boolean> unknownAppKeys;
+	private final LongAdder unknownHitCount = new LongAdder();
+	/** 未配置应用时由 {@link DingTalkTemplate} 解析过的应用：appKey → corpId → 凭证 */
+	private final ConcurrentMap<String, ConcurrentMap<String, DingTalkAppCredential>> resolved = new ConcurrentHashMap<>();
+	private final AtomicLong resolvedCount = new AtomicLong();
+	private final long maximumResolved;
+	private volatile ImmutableMap<String, ImmutableMap<String, DingTalkAppCredential>> index = ImmutableMap.of();
+
+	public DingTalkAppCredentialRegistry(DingTalkTemplate dingTalkTemplate) {
+		this(dingTalkTemplate, 10000, Duration.ofSeconds(60));
+	}
+
+	/**
+	 * @param dingTalkTemplate DingTalk 接口
+	 * @param unknownCacheSize 负缓存最多记录的未知 (corpId, appKey) 数量，也是未配置应用时最多记住的应用数量
+	 * @param unknownCacheTtl 未知 (corpId, appKey) 的记录时长
+	 */
+	public DingTalkAppCredentialRegistry(DingTalkTemplate dingTalkTemplate, long unknownCacheSize, Duration unknownCacheTtl) {
+		Assert.notNull(dingTalkTemplate, "dingTalkTemplate must not be null");
+		this.dingTalkTemplate = dingTalkTemplate;
+		this.maximumResolved = unknownCacheSize;
+		this.unknownAppKeys = CacheBuilder.newBuilder()
+				.maximumSize(unknownCacheSize)
+				.expireAfterWrite(unknownCacheTtl.toMillis(), TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	public DingTalkAppCredentialRegistry(DingTalkTemplate dingTalkTemplate, Collection<DingTalkAppCredential> credentials) {
+		this(dingTalkTemplate);
+		this.reload(credentials);
+	}
+
+	/**
+	 * 由配置的应用构建索引，未配置密钥的应用在此时向 {@link DingTalkTemplate} 解析一次
+	 * @param dingTalkTemplate DingTalk 接口
+	 * @param apps 配置的应用
+	 * @param unknownCacheSize 未配置应用时，负缓存最多记录的未知 (corpId, appKey) 数量
+	 * @param unknownCacheTtl 未配置应用时，未知 (corpId, appKey) 的记录时长
+	 * @return 应用凭证索引
+	 */
+	public static DingTalkAppCredentialRegistry of(DingTalkTemplate dingTalkTemplate, Collection<DingTalkAppCredential> apps,
+			long unknownCacheSize, Duration unknownCacheTtl) {
+		DingTalkAppCredentialRegistry registry = new DingTalkAppCredentialRegistry(dingTalkTemplate, unknownCacheSize, unknownCacheTtl);
+		List<DingTalkAppCredential> credentials = new ArrayList<>(apps.size());
+		for (DingTalkAppCredential app : apps) {
+			Assert.hasText(app.getAppKey(), "appKey of a configured DingTalk app must not be empty");
+			if (StringUtils.hasText(app.getAppSecret())) {
+				credentials.add(app);
+				continue;
+			}
+			String appSecret = dingTalkTemplate.getAppSecret(app.getCorpId(), app.getAppKey());
+			Assert.hasText(appSecret, () -> "No appSecret configured for DingTalk app " + app);
+			credentials.add(new DingTalkAppCredential(app.getCorpId(), app.getAppKey(), appSecret));
+		}
+		registry.reload(credentials);
+		return registry;
+	}
+
+	/**
+	 * 查询应用凭证
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @return 应用凭证，未配置的 appKey 返回 null
+	 */
+	public DingTalkAppCredential getCredential(String corpId, String appKey) {
+		if (!StringUtils.hasText(appKey)) {
+			return null;
+		}
+		ImmutableMap<String, ImmutableMap<String, DingTalkAppCredential>> index = this.index;
+		if (!index.isEmpty()) {
+			return lookup(index, corpId, appKey);
+		}
+		ConcurrentMap<String, DingTalkAppCredential> corps = resolved.get(appKey);
+		if (corps != null) {
+			DingTalkAppCredential credential = corps.get(corpId == null ? ANY_CORP : corpId);
+			if (credential != null) {
+				return credential;
+			}
+		}
+		String unknownKey = unknownKey(corpId, appKey);
+		if (unknownAppKeys.getIfPresent(unknownKey) != null) {
+			unknownHitCount.increment();
+			return null;
+		}
+		DingTalkAppCredential credential = this.resolve(corpId, appKey);
+		if (credential == null) {
+			unknownAppKeys.put(unknownKey, Boolean.TRUE);
+		} else {
+			this.remember(corpId, credential);
+		}
+		return credential;
+	}
+
+	/**
+	 * 查询应用密钥
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @return 应用密钥，未配置的 appKey 返回 null
+	 */
+	public String getAppSecret(String corpId, String appKey) {
+		DingTalkAppCredential credential = this.getCredential(corpId, appKey);
+		return credential == null ? null : credential.getAppSecret();
+	}
+
+	public boolean hasAppKey(String corpId, String appKey) {
+		return this.getCredential(corpId, appKey) != null;
+	}
+
+	/**
+	 * 以给定凭证整体替换索引
+	 * @param credentials 应用凭证
+	 */
+	public synchronized void reload(Collection<DingTalkAppCredential> credentials) {
+		Map<String, Map<String, DingTalkAppCredential>> building = new HashMap<>();
+		for (DingTalkAppCredential credential : credentials) {
+			building.computeIfAbsent(credential.getAppKey(), k -> new HashMap<>())
+				.put(credential.getCorpId() == null ? ANY_CORP : credential.getCorpId(), credential);
+		}
+		this.index = freeze(building);
+		this.forgetResolved();
+		unknownAppKeys.invalidateAll();
+		logger.debug("Indexed {} DingTalk app credentials.", credentials.size());
+	}
+
+	/**
+	 * 清空索引与记住的应用，之后的查询重新委托 {@link DingTalkTemplate}
+	 */
+	public synchronized void reset() {
+		this.index = ImmutableMap.of();
+		this.forgetResolved();
+		unknownAppKeys.invalidateAll();
+	}
+
+	/**
+	 * @return 索引中的应用凭证
+	 */
+	public List<DingTalkAppCredential> getCredentials() {
+		List<DingTalkAppCredential> credentials = new ArrayList<>();
+		for (ImmutableMap<String, DingTalkAppCredential> corps : index.values()) {
+			credentials.addAll(corps.values());
+		}
+		return credentials;
+	}
+
+	public int size() {
+		int size = 0;
+		for (ImmutableMap<String, DingTalkAppCredential> corps : index.values()) {
+			size += corps.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return 未配置应用时，由 {@link DingTalkTemplate} 解析后记住的应用数量
+	 */
+	public long resolvedSize() {
+		return resolvedCount.get();
+	}
+
+	/**
+	 * @return 负缓存中记录的未知 (corpId, appKey) 数量
+	 */
+	public long unknownSize() {
+		return unknownAppKeys.size();
+	}
+
+	/**
+	 * @return 命中负缓存而被直接拒绝的查询次数
+	 */
+	public long unknownHitCount() {
+		return unknownHitCount.sum();
+	}
+
+	private static String unknownKey(String corpId, String appKey) {
+		return corpId == null ? appKey : appKey + '\n' + corpId;
+	}
+
+	private static DingTalkAppCredential lookup(ImmutableMap<String, ImmutableMap<String, DingTalkAppCredential>> index,
+			String corpId, String appKey) {
+		ImmutableMap<String, DingTalkAppCredential> corps = index.get(appKey);
+		if (corps == null) {
+			return null;
+		}
+		DingTalkAppCredential credential = corps.get(corpId == null ? ANY_CORP : corpId);
+		if (credential == null && corpId != null) {
+			// 未指定 corpId 的应用适用于任意企业
+			credential = corps.get(ANY_CORP);
+		}
+		return credential;
+	}
+
+	/**
+	 * 未配置应用时直接委托 {@link DingTalkTemplate}，结果不写入索引
+	 */
+	private DingTalkAppCredential resolve(String corpId, String appKey) {
+		if (!dingTalkTemplate.hasAppKey(appKey)) {
+			return null;
+		}
+		String appSecret = dingTalkTemplate.getAppSecret(corpId, appKey);
+		if (!StringUtils.hasText(appSecret)) {
+			return null;
+		}
+		return new DingTalkAppCredential(corpId, appKey, appSecret);
+	}
+
+	/**
+	 * 记住解析到的应用：先占用名额再写入，数量不会超过上限
+	 */
+	private void remember(String corpId, DingTalkAppCredential credential) {
+		long count;
+		do {
+			count = resolvedCount.get();
+			if (count >= maximumResolved) {
+				return;
+			}
+		} while (!resolvedCount.compareAndSet(count, count + 1));
+		if (resolved.computeIfAbsent(credential.getAppKey(), key -> new ConcurrentHashMap<>())
+				.putIfAbsent(corpId == null ? ANY_CORP : corpId, credential) != null) {
+			resolvedCount.decrementAndGet();
+		}
+	}
+
+	private void forgetResolved() {
+		resolved.clear();
+		resolvedCount.set(0);
+	}
+
+	private static ImmutableMap<String, ImmutableMap<String, DingTalkAppCredential>> freeze(
+			Map<String, Map<String, DingTalkAppCredential>> building) {
+		ImmutableMap.Builder<String, ImmutableMap<String, DingTalkAppCredential>> builder = ImmutableMap.builder();
+		building.forEach((key, value) -> builder.put(key, ImmutableMap.copyOf(value)));
+		return builder.build();
+	}
+
+}
@@ -14,4 +14,9 @@ public class DingTalkCodeExpiredException extends AuthenticationExceptionAdapter
 		super(AuthResponseCode.SC_AUTHZ_CODE_EXPIRED, msg, t);
 	}
 
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return DingTalkStacklessExceptions.isEnabled() ? this : super.fillInStackTrace();
+	}
+
 }
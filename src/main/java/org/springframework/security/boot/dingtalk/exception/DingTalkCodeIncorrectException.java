@@ -13,5 +13,10 @@ public class DingTalkCodeIncorrectException extends AuthenticationExceptionAdapt
 	public DingTalkCodeIncorrectException(String msg, Throwable t) {
 		super(AuthResponseCode.SC_AUTHZ_CODE_INCORRECT, msg, t);
 	}
-	
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return DingTalkStacklessExceptions.isEnabled() ? this : super.fillInStackTrace();
+	}
+
 }
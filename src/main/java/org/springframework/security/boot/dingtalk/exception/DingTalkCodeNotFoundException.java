@@ -47,4 +47,10 @@ public class DingTalkCodeNotFoundException extends AuthenticationExceptionAdapte
 	public DingTalkCodeNotFoundException(String msg, Throwable t) {
 		super(AuthResponseCode.SC_AUTHZ_CODE_REQUIRED, msg, t);
 	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return DingTalkStacklessExceptions.isEnabled() ? this : super.fillInStackTrace();
+	}
+
 }
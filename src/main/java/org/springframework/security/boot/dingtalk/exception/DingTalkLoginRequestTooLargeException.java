@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * 登录请求体超过允许的大小，未读取完即拒绝
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@SuppressWarnings("serial")
+public class DingTalkLoginRequestTooLargeException extends AuthenticationServiceException {
+
+	private final long maxBodySize;
+
+	/**
+	 * @param msg the detail message
+	 * @param maxBodySize 允许的最大字节数
+	 */
+	public DingTalkLoginRequestTooLargeException(String msg, long maxBodySize) {
+		super(msg);
+		this.maxBodySize = maxBodySize;
+	}
+
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return DingTalkStacklessExceptions.isEnabled() ? this : super.fillInStackTrace();
+	}
+
+}
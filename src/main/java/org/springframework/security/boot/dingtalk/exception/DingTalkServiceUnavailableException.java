@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.exception;
+
+import java.time.Duration;
+
+/**
+ * DingTalk 服务暂不可用：熔断器处于打开状态或并发隔离已满，未向 DingTalk 发出请求即快速失败
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@SuppressWarnings("serial")
+public class DingTalkServiceUnavailableException extends DingTalkAuthenticationServiceException {
+
+	private final Duration retryAfter;
+
+	public DingTalkServiceUnavailableException(String msg) {
+		this(msg, null);
+	}
+
+	/**
+	 * @param msg the detail message
+	 * @param retryAfter 建议的重试间隔，可为空
+	 */
+	public DingTalkServiceUnavailableException(String msg, Duration retryAfter) {
+		super(msg);
+		this.retryAfter = retryAfter;
+	}
+
+	public Duration getRetryAfter() {
+		return retryAfter;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return DingTalkStacklessExceptions.isEnabled() ? this : super.fillInStackTrace();
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.exception;
+
+/**
+ * 可预期的客户端错误（缺少或错误的 code、code 已过期、请求体过大、DingTalk 暂不可用等）是否跳过堆栈采集。
+ * <p>开启后这些异常不再调用 {@link Throwable#fillInStackTrace()}，在暴力请求时减少异常构造的开销；默认关闭。
+ * 由 {@link DingTalkStacklessExceptionsInitializer} 按配置设置，作用于整个 JVM。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkStacklessExceptions {
+
+	private static volatile boolean enabled = false;
+
+	private DingTalkStacklessExceptions() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		DingTalkStacklessExceptions.enabled = enabled;
+	}
+
+}
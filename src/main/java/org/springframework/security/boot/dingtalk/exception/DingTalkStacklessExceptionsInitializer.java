@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.exception;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.security.boot.SecurityDingTalkProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkFailureProperties;
+
+/**
+ * 按 spring.security.dingtalk.failure.lightweight 设置 {@link DingTalkStacklessExceptions}。
+ * <p>在创建任何 Bean 之前从 {@link org.springframework.core.env.Environment} 读取配置，启动过程中构造的异常同样生效；
+ * 由该上下文开启时，上下文关闭后恢复为关闭。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkStacklessExceptionsInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+	@Override
+	public void initialize(ConfigurableApplicationContext applicationContext) {
+		boolean lightweight = Binder.get(applicationContext.getEnvironment())
+				.bind(SecurityDingTalkProperties.PREFIX + ".failure", SecurityDingTalkFailureProperties.class)
+				.map(SecurityDingTalkFailureProperties::isLightweight)
+				.orElse(false);
+		if (!lightweight) {
+			return;
+		}
+		DingTalkStacklessExceptions.setEnabled(true);
+		applicationContext.addApplicationListener(event -> {
+			if (event instanceof ContextClosedEvent && ((ContextClosedEvent) event).getApplicationContext() == applicationContext) {
+				DingTalkStacklessExceptions.setEnabled(false);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * 取值数量有上限的标签：超过上限后新出现的取值统一记为 {@link #OTHER}，避免指标维度无限增长。
+ * <p>名额通过 CAS 预占，并发接纳时取值数量也不会超过上限。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkBoundedTagValues {
+
+	/** 取值为空 */
+	public static final String NONE = "none";
+	/** 超过上限或未被接纳的取值 */
+	public static final String OTHER = "other";
+
+	private final int maxSize;
+	private final Set<String> values = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger admitted = new AtomicInteger();
+
+	public DingTalkBoundedTagValues(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param value 原始取值
+	 * @param admitNew 是否允许接纳新的取值，例如只接纳已成功认证过的 appKey，避免随机的 appKey 占满名额
+	 * @return 标签取值
+	 */
+	public String valueOf(String value, boolean admitNew) {
+		if (!StringUtils.hasText(value)) {
+			return NONE;
+		}
+		if (values.contains(value)) {
+			return value;
+		}
+		if (admitNew && this.admit(value)) {
+			return value;
+		}
+		return OTHER;
+	}
+
+	private boolean admit(String value) {
+		for (;;) {
+			int count = admitted.get();
+			if (count >= maxSize) {
+				// 名额已满，但可能是并发接纳的同一取值
+				return values.contains(value);
+			}
+			if (admitted.compareAndSet(count, count + 1)) {
+				break;
+			}
+		}
+		if (!values.add(value)) {
+			// 同一取值已由其他线程接纳，归还名额
+			admitted.decrementAndGet();
+		}
+		return true;
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+}
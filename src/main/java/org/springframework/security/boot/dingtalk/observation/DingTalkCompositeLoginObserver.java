@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 将多个 {@link DingTalkLoginObserver} 组合为一个，依次通知
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkCompositeLoginObserver implements DingTalkLoginObserver {
+
+	private final DingTalkLoginObserver[] observers;
+	private final DingTalkLoginObserver[] propagators;
+
+	public DingTalkCompositeLoginObserver(Collection<? extends DingTalkLoginObserver> observers) {
+		this.observers = observers.toArray(new DingTalkLoginObserver[0]);
+		this.propagators = observers.stream().filter(DingTalkLoginObserver::isContextPropagating).toArray(DingTalkLoginObserver[]::new);
+	}
+
+	/**
+	 * @param observers 观测实现
+	 * @return 没有实现时返回 {@link DingTalkLoginObserver#NOOP}，只有一个时直接返回该实现
+	 */
+	public static DingTalkLoginObserver of(Collection<? extends DingTalkLoginObserver> observers) {
+		if (observers == null || observers.isEmpty()) {
+			return DingTalkLoginObserver.NOOP;
+		}
+		if (observers.size() == 1) {
+			return observers.iterator().next();
+		}
+		return new DingTalkCompositeLoginObserver(observers);
+	}
+
+	@Override
+	public DingTalkLoginObservation start(DingTalkLoginStage stage, String flow, String appKey, String operation) {
+		DingTalkLoginObservation[] observations = new DingTalkLoginObservation[observers.length];
+		for (int i = 0; i < observers.length; i++) {
+			observations[i] = observers[i].start(stage, flow, appKey, operation);
+		}
+		return (outcome, errcode) -> {
+			// 与开始的顺序相反结束，嵌套的 Span 等按正确的顺序关闭
+			for (int i = observations.length - 1; i >= 0; i--) {
+				observations[i].stop(outcome, errcode);
+			}
+		};
+	}
+
+	@Override
+	public Runnable wrap(Runnable task) {
+		Runnable wrapped = task;
+		for (DingTalkLoginObserver observer : propagators) {
+			wrapped = observer.wrap(wrapped);
+		}
+		return wrapped;
+	}
+
+	@Override
+	public boolean isContextPropagating() {
+		return propagators.length > 0;
+	}
+
+	public List<DingTalkLoginObserver> getObservers() {
+		List<DingTalkLoginObserver> list = new ArrayList<>(observers.length);
+		Collections.addAll(list, observers);
+		return Collections.unmodifiableList(list);
+	}
+
+}
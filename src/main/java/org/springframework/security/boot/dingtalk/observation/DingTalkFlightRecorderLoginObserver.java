@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import jdk.jfr.EventType;
+
+/**
+ * 基于 JDK Flight Recorder 的登录观测：每次登录一个 {@link DingTalkLoginEvent}，每个阶段一个 {@link DingTalkLoginStageEvent}，
+ * 与同一录制中的 GC、线程等事件按时间关联，可通过 <code>jfr print --categories DingTalk</code> 查看。
+ * <p>没有录制或录制中未启用对应事件时，各阶段直接返回 {@link DingTalkLoginObservation#NOOP}，不创建事件对象。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkFlightRecorderLoginObserver implements DingTalkLoginObserver {
+
+	private final EventType loginEventType = EventType.getEventType(DingTalkLoginEvent.class);
+	private final EventType stageEventType = EventType.getEventType(DingTalkLoginStageEvent.class);
+	/** 当前线程中正在进行的登录，其中各阶段的耗时汇总到该事件 */
+	private final ThreadLocal<DingTalkLoginEvent> currentLogin = new ThreadLocal<>();
+
+	@Override
+	public DingTalkLoginObservation start(DingTalkLoginStage stage, String flow, String appKey, String operation) {
+		if (stage == DingTalkLoginStage.AUTHENTICATION) {
+			return this.startLogin(flow);
+		}
+		DingTalkLoginEvent login = currentLogin.get();
+		DingTalkLoginStageEvent event = stageEventType.isEnabled() ? new DingTalkLoginStageEvent() : null;
+		if (login == null && event == null) {
+			return DingTalkLoginObservation.NOOP;
+		}
+		if (event != null) {
+			event.begin();
+		}
+		long start = System.nanoTime();
+		return (outcome, errcode) -> {
+			if (login != null) {
+				this.aggregate(login, stage, appKey, errcode, System.nanoTime() - start);
+			}
+			if (event != null) {
+				event.end();
+				if (event.shouldCommit()) {
+					event.stage = stage.getValue();
+					event.flow = flow;
+					event.appKey = appKey;
+					event.operation = operation;
+					event.outcome = outcome.getValue();
+					event.errcode = errcode;
+					event.commit();
+				}
+			}
+		};
+	}
+
+	protected DingTalkLoginObservation startLogin(String flow) {
+		if (!loginEventType.isEnabled()) {
+			return DingTalkLoginObservation.NOOP;
+		}
+		DingTalkLoginEvent event = new DingTalkLoginEvent();
+		event.flow = flow;
+		DingTalkLoginEvent previous = currentLogin.get();
+		currentLogin.set(event);
+		event.begin();
+		return (outcome, errcode) -> {
+			event.end();
+			if (previous != null) {
+				currentLogin.set(previous);
+			} else {
+				currentLogin.remove();
+			}
+			if (event.shouldCommit()) {
+				event.outcome = outcome.getValue();
+				if (errcode != null) {
+					event.errcode = errcode;
+				}
+				event.commit();
+			}
+		};
+	}
+
+	private void aggregate(DingTalkLoginEvent login, DingTalkLoginStage stage, String appKey, String errcode, long durationNanos) {
+		if (stage == DingTalkLoginStage.UPSTREAM) {
+			login.upstreamDuration += durationNanos;
+		} else if (stage == DingTalkLoginStage.LOAD_USER) {
+			login.userLookupDuration += durationNanos;
+		}
+		if (appKey != null) {
+			login.appKey = appKey;
+		}
+		if (errcode != null) {
+			login.errcode = errcode;
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder 事件：登录过滤器中的一次完整认证，汇总其中 DingTalk 接口调用与加载用户信息的耗时
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Name(DingTalkLoginEvent.NAME)
+@Label("DingTalk Login")
+@Category({ "DingTalk", "Login" })
+@Description("A DingTalk login handled by the login filter")
+@StackTrace(false)
+public class DingTalkLoginEvent extends Event {
+
+	public static final String NAME = "org.springframework.security.boot.dingtalk.Login";
+
+	@Label("Flow")
+	String flow;
+
+	@Label("App Key")
+	String appKey;
+
+	@Label("Outcome")
+	String outcome;
+
+	@Label("Errcode")
+	String errcode;
+
+	@Label("Upstream Duration")
+	@Description("Total duration of the DingTalk API calls")
+	@Timespan(Timespan.NANOSECONDS)
+	long upstreamDuration;
+
+	@Label("User Lookup Duration")
+	@Description("Duration of loading the user details")
+	@Timespan(Timespan.NANOSECONDS)
+	long userLookupDuration;
+
+}
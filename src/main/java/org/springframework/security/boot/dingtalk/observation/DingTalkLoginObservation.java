@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 一次正在进行的登录阶段观测，结束时调用且只调用一次 stop
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@FunctionalInterface
+public interface DingTalkLoginObservation {
+
+	DingTalkLoginObservation NOOP = (outcome, errcode) -> {
+	};
+
+	/**
+	 * 结束观测
+	 * @param outcome 结果
+	 * @param errcode DingTalk 返回的 errcode，可为空
+	 */
+	void stop(DingTalkLoginOutcome outcome, String errcode);
+
+	default void success() {
+		this.stop(DingTalkLoginOutcome.SUCCESS, null);
+	}
+
+	default void failure(Throwable e) {
+		this.stop(DingTalkLoginOutcome.of(e), errcode(e));
+	}
+
+	/**
+	 * @param e 阶段抛出的异常
+	 * @return 异常或其原因中 {@link ApiException} 的 errcode，没有时返回 null
+	 */
+	static String errcode(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+			if (t instanceof ApiException) {
+				return ((ApiException) t).getErrCode();
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import java.util.function.Function;
+
+/**
+ * DingTalk 登录过程的观测扩展点：各阶段开始时调用 {@link #start}，结束时调用返回对象的 stop，开始与结束在同一线程中。
+ * <p>默认实现 {@link #NOOP} 不做任何事情；指标、链路追踪等实现只需覆盖 {@link #start(DingTalkLoginStage, String, String, String)}，
+ * 需要向认证线程池传递上下文时覆盖 {@link #wrap(Runnable)} 与 {@link #isContextPropagating()}。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkLoginObserver {
+
+	/** 小程序免登 */
+	String FLOW_MA = "ma";
+	/** 扫码登录 */
+	String FLOW_SCAN_CODE = "scancode";
+	/** 临时授权码登录 */
+	String FLOW_TMP_CODE = "tmpcode";
+
+	DingTalkLoginObserver NOOP = new DingTalkLoginObserver() {
+
+		@Override
+		public <T, E extends Exception> T observe(DingTalkLoginStage stage, String flow, String appKey, String operation,
+				DingTalkLoginStep<T, E> step, Function<T, Long> errcode) throws E {
+			return step.run();
+		}
+
+	};
+
+	/**
+	 * 开始观测一个阶段
+	 * @param stage 阶段
+	 * @param flow 登录方式，如 {@link #FLOW_MA}
+	 * @param appKey 应用的唯一标识key，未知时为空
+	 * @return 阶段结束时调用 stop
+	 */
+	default DingTalkLoginObservation start(DingTalkLoginStage stage, String flow, String appKey) {
+		return this.start(stage, flow, appKey, null);
+	}
+
+	/**
+	 * 开始观测一个阶段
+	 * @param stage 阶段
+	 * @param flow 登录方式，如 {@link #FLOW_MA}
+	 * @param appKey 应用的唯一标识key，未知时为空
+	 * @param operation {@link DingTalkLoginStage#UPSTREAM} 阶段调用的 DingTalk 接口，如
+	 *        {@link org.springframework.security.boot.dingtalk.upstream.DingTalkUpstreamInvoker#OPERATION_GET_TOKEN}，其余阶段为空
+	 * @return 阶段结束时调用 stop
+	 */
+	default DingTalkLoginObservation start(DingTalkLoginStage stage, String flow, String appKey, String operation) {
+		return DingTalkLoginObservation.NOOP;
+	}
+
+	/**
+	 * 包装提交到认证线程池的任务
+	 * @param task 任务
+	 * @return 携带当前上下文的任务，默认原样返回
+	 */
+	default Runnable wrap(Runnable task) {
+		return task;
+	}
+
+	/**
+	 * @return {@link #wrap(Runnable)} 会向认证线程传递上下文时返回 true，为 false 时认证线程池不装饰任务
+	 */
+	default boolean isContextPropagating() {
+		return false;
+	}
+
+	/**
+	 * 观测一个阶段：正常返回计为成功，抛出异常按异常类型计为失败或错误
+	 * @param <T> 阶段结果类型
+	 * @param <E> 阶段可能抛出的受检异常
+	 * @param stage 阶段
+	 * @param flow 登录方式
+	 * @param appKey 应用的唯一标识key，未知时为空
+	 * @param step 阶段的实际执行
+	 * @return 阶段结果
+	 * @throws E 阶段抛出的异常
+	 */
+	default <T, E extends Exception> T observe(DingTalkLoginStage stage, String flow, String appKey,
+			DingTalkLoginStep<T, E> step) throws E {
+		return this.observe(stage, flow, appKey, step, null);
+	}
+
+	/**
+	 * 观测一个阶段：响应的 errcode 不为 0 时计为错误
+	 * @param <T> 阶段结果类型
+	 * @param <E> 阶段可能抛出的受检异常
+	 * @param stage 阶段
+	 * @param flow 登录方式
+	 * @param appKey 应用的唯一标识key，未知时为空
+	 * @param step 阶段的实际执行
+	 * @param errcode 从响应中获取 errcode，可为空
+	 * @return 阶段结果
+	 * @throws E 阶段抛出的异常
+	 */
+	default <T, E extends Exception> T observe(DingTalkLoginStage stage, String flow, String appKey,
+			DingTalkLoginStep<T, E> step, Function<T, Long> errcode) throws E {
+		return this.observe(stage, flow, appKey, null, step, errcode);
+	}
+
+	/**
+	 * 观测一个阶段：响应的 errcode 不为 0 时计为错误
+	 * @param <T> 阶段结果类型
+	 * @param <E> 阶段可能抛出的受检异常
+	 * @param stage 阶段
+	 * @param flow 登录方式
+	 * @param appKey 应用的唯一标识key，未知时为空
+	 * @param operation 调用的 DingTalk 接口，可为空
+	 * @param step 阶段的实际执行
+	 * @param errcode 从响应中获取 errcode，可为空
+	 * @return 阶段结果
+	 * @throws E 阶段抛出的异常
+	 */
+	default <T, E extends Exception> T observe(DingTalkLoginStage stage, String flow, String appKey, String operation,
+			DingTalkLoginStep<T, E> step, Function<T, Long> errcode) throws E {
+		DingTalkLoginObservation observation = this.start(stage, flow, appKey, operation);
+		T result;
+		try {
+			result = step.run();
+		} catch (Exception e) {
+			observation.failure(e);
+			throw e;
+		}
+		Long code = errcode != null && result != null ? errcode.apply(result) : null;
+		if (code != null && code != 0L) {
+			observation.stop(DingTalkLoginOutcome.ERROR, String.valueOf(code));
+		} else {
+			observation.success();
+		}
+		return result;
+	}
+
+}
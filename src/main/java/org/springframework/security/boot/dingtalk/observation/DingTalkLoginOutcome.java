@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.springframework.security.core.AuthenticationException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * 登录阶段的结果
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum DingTalkLoginOutcome {
+
+	/** 成功 */
+	SUCCESS("success"),
+	/** 客户端错误：缺少参数、code 无效、用户状态异常等 */
+	FAILURE("failure"),
+	/** 服务端错误：DingTalk 调用失败、暂不可用或其它异常 */
+	ERROR("error");
+
+	private final String value;
+
+	DingTalkLoginOutcome(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return 用于指标标签的取值
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @param e 阶段抛出的异常
+	 * @return 对应的结果
+	 */
+	public static DingTalkLoginOutcome of(Throwable e) {
+		// 请求体过大、JSON 格式错误属于客户端错误
+		if (e instanceof DingTalkLoginRequestTooLargeException || e instanceof JsonProcessingException) {
+			return FAILURE;
+		}
+		if (e instanceof DingTalkAuthenticationServiceException || e instanceof AuthenticationServiceException) {
+			return ERROR;
+		}
+		return e instanceof AuthenticationException ? FAILURE : ERROR;
+	}
+
+}
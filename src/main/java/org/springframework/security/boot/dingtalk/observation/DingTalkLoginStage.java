@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+/**
+ * DingTalk 登录过程的各个阶段
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum DingTalkLoginStage {
+
+	/** 登录过滤器中的整个认证过程，其余阶段都在其中 */
+	AUTHENTICATION("authentication"),
+	/** 解析登录请求体 */
+	PARSE("parse"),
+	/** 校验 appKey、获取 appSecret */
+	APP_CREDENTIAL("app_credential"),
+	/** 调用 DingTalk 接口 */
+	UPSTREAM("upstream"),
+	/** 加载用户信息 */
+	LOAD_USER("load_user"),
+	/** 检查用户状态 */
+	CHECK_USER("check_user"),
+	/** 创建 JWT 载体 */
+	JWT_PAYLOAD("jwt_payload");
+
+	private final String value;
+
+	DingTalkLoginStage(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return 用于指标标签、Span 名称的取值
+	 */
+	public String getValue() {
+		return value;
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder 事件：登录过程中的一个阶段，包括认证提供者中的 DingTalk 接口调用与加载用户信息
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Name(DingTalkLoginStageEvent.NAME)
+@Label("DingTalk Login Stage")
+@Category({ "DingTalk", "Login" })
+@Description("A stage of the DingTalk login")
+@StackTrace(false)
+public class DingTalkLoginStageEvent extends Event {
+
+	public static final String NAME = "org.springframework.security.boot.dingtalk.LoginStage";
+
+	@Label("Stage")
+	String stage;
+
+	@Label("Flow")
+	String flow;
+
+	@Label("App Key")
+	String appKey;
+
+	@Label("Operation")
+	@Description("The DingTalk API called in the upstream stage")
+	String operation;
+
+	@Label("Outcome")
+	String outcome;
+
+	@Label("Errcode")
+	String errcode;
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import java.util.Locale;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkCircuitBreaker;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkCircuitBreakerEvent;
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 将 DingTalk 熔断器的状态变化记为 Micrometer 指标：每次变化计入 {@value #TRANSITION_COUNTER}，
+ * 发生过变化的熔断器以 {@value #STATE_GAUGE} 报告当前状态（0：关闭，1：打开，2：半开）。
+ * <p>标签：operation、from、to；接口与状态均为有限取值。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkMicrometerCircuitBreakerListener implements ApplicationListener<DingTalkCircuitBreakerEvent> {
+
+	public static final String TRANSITION_COUNTER = "dingtalk.upstream.circuitbreaker.transitions";
+	public static final String STATE_GAUGE = "dingtalk.upstream.circuitbreaker.state";
+
+	private final MeterRegistry registry;
+
+	public DingTalkMicrometerCircuitBreakerListener(MeterRegistry registry) {
+		Assert.notNull(registry, "registry must not be null");
+		this.registry = registry;
+	}
+
+	@Override
+	public void onApplicationEvent(DingTalkCircuitBreakerEvent event) {
+		Gauge.builder(STATE_GAUGE, event.getCircuitBreaker(), circuitBreaker -> circuitBreaker.getState().ordinal())
+			.description("State of the DingTalk circuit breakers")
+			.tag("operation", event.getOperation())
+			.register(registry);
+		Counter.builder(TRANSITION_COUNTER)
+			.description("State transitions of the DingTalk circuit breakers")
+			.tag("operation", event.getOperation())
+			.tag("from", this.stateTag(event.getFromState()))
+			.tag("to", this.stateTag(event.getToState()))
+			.register(registry)
+			.increment();
+	}
+
+	private String stateTag(DingTalkCircuitBreaker.State state) {
+		return state.name().toLowerCase(Locale.ROOT);
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 基于 Micrometer 的登录过程观测：每个阶段一个 {@value #STAGE_TIMER} 计时器，非成功的阶段另计入 {@value #FAILURE_COUNTER}。
+ * <p>标签：stage、flow、app_key、outcome、errcode；app_key 只接纳已成功通过的取值，app_key 与 errcode 的取值数量均有上限，
+ * 超过后记为 {@link DingTalkBoundedTagValues#OTHER}。</p>
+ * <p>标签组合的数量因此有上限，按标签组合缓存计时器与计数器，记录时不再构建标签和查找注册表。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkMicrometerLoginObserver implements DingTalkLoginObserver {
+
+	public static final String STAGE_TIMER = "dingtalk.login.stage";
+	public static final String FAILURE_COUNTER = "dingtalk.login.failures";
+
+	private final MeterRegistry registry;
+	private final DingTalkBoundedTagValues appKeys;
+	private final DingTalkBoundedTagValues errcodes;
+	private final ConcurrentMap<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<MeterKey, Counter> counters = new ConcurrentHashMap<>();
+
+	public DingTalkMicrometerLoginObserver(MeterRegistry registry, int maxAppKeys, int maxErrcodes) {
+		Assert.notNull(registry, "registry must not be null");
+		this.registry = registry;
+		this.appKeys = new DingTalkBoundedTagValues(maxAppKeys);
+		this.errcodes = new DingTalkBoundedTagValues(maxErrcodes);
+	}
+
+	@Override
+	public DingTalkLoginObservation start(DingTalkLoginStage stage, String flow, String appKey, String operation) {
+		long start = System.nanoTime();
+		return (outcome, errcode) -> this.record(stage, flow, appKey, outcome, errcode, System.nanoTime() - start);
+	}
+
+	protected void record(DingTalkLoginStage stage, String flow, String appKey, DingTalkLoginOutcome outcome,
+			String errcode, long durationNanos) {
+		MeterKey key = new MeterKey(stage, flow != null ? flow : DingTalkBoundedTagValues.NONE,
+				appKeys.valueOf(appKey, outcome == DingTalkLoginOutcome.SUCCESS), outcome, errcodes.valueOf(errcode, true));
+		Timer timer = timers.get(key);
+		if (timer == null) {
+			timer = timers.computeIfAbsent(key, k -> Timer.builder(STAGE_TIMER)
+				.description("Duration of the DingTalk login stages")
+				.tags(k.tags())
+				.register(registry));
+		}
+		timer.record(durationNanos, TimeUnit.NANOSECONDS);
+		if (outcome != DingTalkLoginOutcome.SUCCESS) {
+			Counter counter = counters.get(key);
+			if (counter == null) {
+				counter = counters.computeIfAbsent(key, k -> Counter.builder(FAILURE_COUNTER)
+					.description("Failed DingTalk login stages")
+					.tags(k.tags())
+					.register(registry));
+			}
+			counter.increment();
+		}
+	}
+
+	/**
+	 * 一组标签取值
+	 */
+	private static final class MeterKey {
+
+		private final DingTalkLoginStage stage;
+		private final String flow;
+		private final String appKey;
+		private final DingTalkLoginOutcome outcome;
+		private final String errcode;
+		private final int hash;
+
+		MeterKey(DingTalkLoginStage stage, String flow, String appKey, DingTalkLoginOutcome outcome, String errcode) {
+			this.stage = stage;
+			this.flow = flow;
+			this.appKey = appKey;
+			this.outcome = outcome;
+			this.errcode = errcode;
+			this.hash = Objects.hash(stage, flow, appKey, outcome, errcode);
+		}
+
+		Tags tags() {
+			return Tags.of("stage", stage.getValue(), "flow", flow, "app_key", appKey, "outcome", outcome.getValue(),
+					"errcode", errcode);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof MeterKey)) {
+				return false;
+			}
+			MeterKey other = (MeterKey) o;
+			return stage == other.stage && outcome == other.outcome && flow.equals(other.flow)
+					&& appKey.equals(other.appKey) && errcode.equals(other.errcode);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+}
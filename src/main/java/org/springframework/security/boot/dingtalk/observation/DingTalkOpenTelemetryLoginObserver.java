@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import org.springframework.util.Assert;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+
+/**
+ * 基于 OpenTelemetry 的登录链路追踪：登录过滤器中的认证过程一个 {@value #LOGIN_SPAN} Span，其余阶段作为其子 Span，
+ * 每次 DingTalk 接口调用一个 CLIENT 类型的 Span，记录接口名称、主机与 errcode。
+ * <p>阶段的 Span 在开始时设为当前上下文，结束时恢复，因此开始与结束必须在同一线程中；提交到认证线程池的任务经
+ * {@link #wrap(Runnable)} 携带提交线程的上下文，提交线程没有上下文时原样返回任务。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkOpenTelemetryLoginObserver implements DingTalkLoginObserver {
+
+	public static final String INSTRUMENTATION_NAME = "security-dingtalk";
+	public static final String LOGIN_SPAN = "dingtalk.login";
+
+	static final AttributeKey<String> FLOW = AttributeKey.stringKey("dingtalk.login.flow");
+	static final AttributeKey<String> APP_KEY = AttributeKey.stringKey("dingtalk.app_key");
+	static final AttributeKey<String> API = AttributeKey.stringKey("dingtalk.api");
+	static final AttributeKey<String> ERRCODE = AttributeKey.stringKey("dingtalk.errcode");
+	static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("dingtalk.login.outcome");
+	static final AttributeKey<String> SERVER_ADDRESS = AttributeKey.stringKey("server.address");
+
+	private final Tracer tracer;
+	private final String upstreamHost;
+
+	public DingTalkOpenTelemetryLoginObserver(Tracer tracer, String upstreamHost) {
+		Assert.notNull(tracer, "tracer must not be null");
+		this.tracer = tracer;
+		this.upstreamHost = upstreamHost;
+	}
+
+	@Override
+	public DingTalkLoginObservation start(DingTalkLoginStage stage, String flow, String appKey, String operation) {
+		boolean upstream = stage == DingTalkLoginStage.UPSTREAM;
+		SpanBuilder builder = tracer.spanBuilder(this.spanName(stage, operation))
+				.setSpanKind(upstream ? SpanKind.CLIENT : SpanKind.INTERNAL);
+		if (flow != null) {
+			builder.setAttribute(FLOW, flow);
+		}
+		if (appKey != null) {
+			builder.setAttribute(APP_KEY, appKey);
+		}
+		if (upstream) {
+			if (upstreamHost != null) {
+				builder.setAttribute(SERVER_ADDRESS, upstreamHost);
+			}
+			if (operation != null) {
+				builder.setAttribute(API, operation);
+			}
+		}
+		Span span = builder.startSpan();
+		Scope scope = span.makeCurrent();
+		return (outcome, errcode) -> {
+			try {
+				span.setAttribute(OUTCOME, outcome.getValue());
+				if (errcode != null) {
+					span.setAttribute(ERRCODE, errcode);
+				}
+				if (outcome == DingTalkLoginOutcome.ERROR) {
+					if (errcode != null) {
+						span.setStatus(StatusCode.ERROR, "errcode " + errcode);
+					} else {
+						span.setStatus(StatusCode.ERROR);
+					}
+				}
+			} finally {
+				scope.close();
+				span.end();
+			}
+		};
+	}
+
+	@Override
+	public Runnable wrap(Runnable task) {
+		Context context = Context.current();
+		return context == Context.root() ? task : context.wrap(task);
+	}
+
+	@Override
+	public boolean isContextPropagating() {
+		return true;
+	}
+
+	protected String spanName(DingTalkLoginStage stage, String operation) {
+		if (stage == DingTalkLoginStage.AUTHENTICATION) {
+			return LOGIN_SPAN;
+		}
+		if (stage == DingTalkLoginStage.UPSTREAM && operation != null) {
+			return "dingtalk " + operation;
+		}
+		return LOGIN_SPAN + "." + stage.getValue();
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * DingTalk 接口并发隔离配置，限制每个接口同时进行中的请求数
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkBulkheadProperties {
+
+	/** Whether Enable the bulkhead. */
+	private boolean enabled = true;
+
+	/** Maximum number of concurrent calls per DingTalk operation. */
+	private int maxConcurrentCalls = 64;
+
+	/** Maximum time a call waits for a free slot before failing fast. */
+	private Duration maxWaitDuration = Duration.ZERO;
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * DingTalk 接口熔断配置，每个接口（gettoken、sns/getuserinfo_bycode 等）各自一个熔断器
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkCircuitBreakerProperties {
+
+	/** Whether Enable the circuit breaker. */
+	private boolean enabled = true;
+
+	/** Failure rate threshold in percentage, above which the circuit opens. */
+	private float failureRateThreshold = 50;
+
+	/** Slow call rate threshold in percentage, above which the circuit opens. */
+	private float slowCallRateThreshold = 100;
+
+	/** Calls slower than this are counted as slow calls. */
+	private Duration slowCallDurationThreshold = Duration.ofSeconds(3);
+
+	/** Number of most recent calls used to compute the failure and slow call rates. */
+	private int slidingWindowSize = 50;
+
+	/** Minimum number of recorded calls before the rates are evaluated. */
+	private int minimumNumberOfCalls = 20;
+
+	/** How long the circuit stays open before letting trial calls through. */
+	private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+	/** Number of trial calls permitted while the circuit is half open. */
+	private int permittedNumberOfCallsInHalfOpenState = 5;
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * DingTalk 应用凭证配置：启动时由配置的应用构建凭证索引，登录请求中未配置的 appKey 在过滤器中直接拒绝
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkCredentialProperties {
+
+	/** Whether to reject login requests with an unknown app key before building the authentication token. */
+	private boolean earlyRejection = true;
+
+	/**
+	 * Apps indexed at startup, app keys missing from the list are unknown. When empty, the apps
+	 * known to DingTalkTemplate are resolved once on their first login and remembered.
+	 */
+	private List<App> apps = new ArrayList<>();
+
+	/** Maximum number of unknown app keys remembered by the negative cache, and of apps remembered from DingTalkTemplate, used when no apps are configured. */
+	private long unknownCacheSize = 10000;
+
+	/** How long an unknown app key is remembered, a reload of the credentials clears it as well. */
+	private Duration unknownCacheTtl = Duration.ofSeconds(60);
+
+	@Getter
+	@Setter
+	@ToString
+	public static class App {
+
+		/** Corp id of the app, the app serves any corp when empty. */
+		private String corpId;
+
+		/** App key of the app. */
+		private String appKey;
+
+		/** App secret of the app, resolved once through DingTalkTemplate at startup when empty. */
+		@ToString.Exclude
+		private String appSecret;
+
+	}
+
+}
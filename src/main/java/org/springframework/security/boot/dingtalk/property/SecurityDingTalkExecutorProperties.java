@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * DingTalk 异步认证线程池配置：只在登录过滤器开启 async-enabled 时使用，默认的同步登录在容器线程中认证，不会使用虚拟线程；
+ * WebFlux 登录只使用其中的 maxPoolSize、queueCapacity 与 threadNamePrefix 创建 bounded-elastic 调度器
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkExecutorProperties {
+
+	/**
+	 * Whether to run authentications on virtual threads when the JVM supports them (JDK 21+),
+	 * the bounded platform pool below is used otherwise. Only applies to servlet logins with
+	 * async-enabled set, synchronous logins keep running on the container thread.
+	 */
+	private boolean virtualThreads = true;
+
+	/**
+	 * Maximum number of authentications running at once on virtual threads, further
+	 * asynchronous logins are rejected with 503. 0 to disable the limit.
+	 */
+	private int virtualThreadsMaxConcurrency = 1000;
+
+	/** Core number of platform threads. */
+	private int corePoolSize = 8;
+
+	/** Maximum allowed number of platform threads. */
+	private int maxPoolSize = 64;
+
+	/** Queue capacity, once full new asynchronous logins are rejected with 503. */
+	private int queueCapacity = 512;
+
+	/** Time limit for which threads may remain idle before being terminated. */
+	private Duration keepAlive = Duration.ofSeconds(60);
+
+	/** Prefix to use for the names of newly created threads. */
+	private String threadNamePrefix = "dingtalk-authc-";
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 登录过程指标配置，应用中存在 MeterRegistry 时生效
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkMetricsProperties {
+
+	/** Whether Record Micrometer timers and counters for each stage of the DingTalk login. */
+	private boolean enabled = true;
+
+	/** Maximum number of distinct app_key tag values, further appKeys are tagged as "other". */
+	private int maxAppKeyTags = 50;
+
+	/** Maximum number of distinct errcode tag values, further errcodes are tagged as "other". */
+	private int maxErrcodeTags = 50;
+
+}
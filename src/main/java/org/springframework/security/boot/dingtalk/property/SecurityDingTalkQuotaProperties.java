@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * DingTalk 接口调用配额：按 (corpId, appKey, 接口) 控制调用 DingTalk 的速率，在触发 DingTalk 限流之前排队等待或快速失败
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkQuotaProperties {
+
+	/** Whether Enable client side pacing of the DingTalk API calls. */
+	private boolean enabled = false;
+
+	/** Calls per second allowed for each (corpId, appKey, api) without a matching rule. */
+	private double permitsPerSecond = 20;
+
+	/** Burst of calls allowed for each (corpId, appKey, api) without a matching rule. */
+	private int burst = 20;
+
+	/** Maximum time a call waits for quota, calls that would wait longer fail fast. */
+	private Duration maxWait = Duration.ofMillis(200);
+
+	/**
+	 * Quota rules, the first rule matching (corpId, appKey, api) applies. Calls matching a rule share one
+	 * quota per value of the dimensions the rule sets, e.g. a rule setting only api is one quota for all apps.
+	 */
+	private List<Rule> rules = new ArrayList<>();
+
+	/** Maximum number of quotas tracked, least recently used quotas are evicted beyond it. */
+	private long maxQuotas = 10000;
+
+	@Getter
+	@Setter
+	@ToString
+	public static class Rule {
+
+		/** Corp id the rule applies to, any corp when empty. */
+		private String corpId;
+
+		/** App key the rule applies to, any app when empty. */
+		private String appKey;
+
+		/** API the rule applies to, e.g. gettoken or sns.getuserinfo_bycode, any API when empty. */
+		private String api;
+
+		/** Calls per second allowed. */
+		private double permitsPerSecond = 20;
+
+		/** Burst of calls allowed. */
+		private int burst = 20;
+
+	}
+
+}
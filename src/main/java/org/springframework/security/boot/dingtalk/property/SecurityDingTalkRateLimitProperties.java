@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 登录请求限流配置，按客户端 IP 与 appKey 分别限流
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkRateLimitProperties {
+
+	/** Whether Enable rate limiting of the login requests. */
+	private boolean enabled = false;
+
+	/** Login requests per second allowed from one client IP, 0 disables the per-IP limit. */
+	private double clientRate = 10;
+
+	/** Burst of login requests allowed from one client IP. */
+	private int clientBurst = 20;
+
+	/** Login requests per second allowed for one app key, 0 disables the per-app-key limit. */
+	private double appKeyRate = 500;
+
+	/** Burst of login requests allowed for one app key. */
+	private int appKeyBurst = 1000;
+
+	/**
+	 * Number of counter stripes per limiter, rounded up to a power of two. Each client IP or app key uses two
+	 * stripes, so it should be at least the number of keys active within one burst window.
+	 */
+	private long maxKeys = 100000;
+
+	/** Header carrying the client IP when behind a trusted proxy, e.g. X-Forwarded-For; the remote address is used when empty. */
+	private String clientIpHeader;
+
+	/**
+	 * Number of trusted proxies appending to the client IP header. The client IP is taken this many
+	 * entries from the right, entries left of it may be forged by the client.
+	 */
+	private int trustedProxies = 1;
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 一次性授权码防重放配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkReplayProperties {
+
+	/** Whether Enable the replay guard of the one-time DingTalk codes. */
+	private boolean enabled = true;
+
+	/** How long a consumed code is remembered, should cover the validity of the code itself. */
+	private Duration consumedTtl = Duration.ofMinutes(5);
+
+	/** Maximum time a duplicate submission waits for the in-flight authentication of the same code. */
+	private Duration inFlightTimeout = Duration.ofSeconds(10);
+
+	/** Maximum number of consumed codes remembered by the in-memory store. */
+	private long maximumSize = 100000;
+
+	/** Tick duration of the in-memory store's timing wheel. */
+	private Duration tickDuration = Duration.ofSeconds(1);
+
+	/** Number of ticks of the in-memory store's timing wheel. */
+	private int ticksPerWheel = 512;
+
+}
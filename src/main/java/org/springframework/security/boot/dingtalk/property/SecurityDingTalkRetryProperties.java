@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * DingTalk 接口重试配置：按 errcode 区分可重试与不可重试的失败，退避时间带随机抖动，总耗时不超过单次登录的时间预算
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkRetryProperties {
+
+	/** Whether Enable retry of transient DingTalk failures, off unless explicitly turned on. */
+	private boolean enabled = false;
+
+	/** Maximum number of attempts per DingTalk call, including the first one. */
+	private int maxAttempts = 3;
+
+	/** Base backoff between attempts. */
+	private Duration initialBackoff = Duration.ofMillis(100);
+
+	/** Upper bound of a single backoff. */
+	private Duration maxBackoff = Duration.ofSeconds(1);
+
+	/**
+	 * Overall time budget of a DingTalk call including all retries. A retry starts only when the
+	 * backoff plus the duration of the previous attempt still fits in it.
+	 */
+	private Duration deadline = Duration.ofSeconds(3);
+
+	/**
+	 * DingTalk errcodes treated as transient, e.g. -1 (system busy) and 90018 (throttled). They
+	 * count as circuit breaker failures whether or not retry is enabled.
+	 */
+	private Set<Long> retryableErrcodes = new LinkedHashSet<>(Arrays.asList(-1L, 90018L));
+
+	/** Whether to retry when the request failed without an errcode, e.g. connect or read timeout. */
+	private boolean retryOnIoError = false;
+
+	/**
+	 * Operations consuming a one-time code. They are never retried on I/O errors, since the
+	 * failed request may already have consumed the code.
+	 */
+	private Set<String> oneTimeCodeOperations = new LinkedHashSet<>(Arrays.asList("sns.getuserinfo_bycode"));
+
+}
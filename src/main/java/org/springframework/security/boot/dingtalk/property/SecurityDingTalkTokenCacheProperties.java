@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * DingTalk access_token 缓存配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkTokenCacheProperties {
+
+	/** Whether Enable the access_token cache. */
+	private boolean enabled = true;
+
+	/** Maximum number of (corpId, appKey) entries kept in the cache. */
+	private long maximumSize = 1000;
+
+	/**
+	 * How long a token stays usable after it was fetched. DingTalk issues tokens with
+	 * expires_in = 7200s, keep a safety margin so an almost expired token is never handed out.
+	 */
+	private Duration expireAfterWrite = Duration.ofSeconds(7000);
+
+	/**
+	 * Age after which a token is refreshed in the background, the stale token keeps being
+	 * served until the refreshed one arrives.
+	 */
+	private Duration refreshAfterWrite = Duration.ofSeconds(6000);
+
+	/**
+	 * Maximum time a login waits for a token fetch already in progress for the same
+	 * (corpId, appKey), only one fetch per key is sent to DingTalk at a time. A fetch still
+	 * running after this time no longer holds the key and the next login fetches again.
+	 */
+	private Duration loadTimeout = Duration.ofSeconds(5);
+
+	/** Number of threads used for background refresh. */
+	private int refreshThreads = 2;
+
+	/** Store sharing the tokens between the nodes of a cluster. */
+	@NestedConfigurationProperty
+	private SecurityDingTalkTokenStoreProperties store = new SecurityDingTalkTokenStoreProperties();
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * access_token 共享存储配置，集群各节点共享 access_token，只由取得租约的节点刷新
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkTokenStoreProperties {
+
+	/** Type of the shared access_token store, a custom DingTalkAccessTokenStore bean takes precedence. */
+	private StoreType type = StoreType.NONE;
+
+	/** How long a node holds the refresh lease of a (corpId, appKey), keep it well above the clock skew between nodes. */
+	private Duration leaseTime = Duration.ofSeconds(30);
+
+	/** Table name of the jdbc store. */
+	private String tableName = "DINGTALK_ACCESS_TOKEN";
+
+	/** Whether Create the table of the jdbc store on startup when it does not exist. */
+	private boolean initializeSchema = false;
+
+	public enum StoreType {
+		/** 不共享，各节点各自请求 DingTalk */
+		NONE,
+		/** 进程内存储，用于单节点部署与测试 */
+		MEMORY,
+		/** 数据库存储，需要 spring-jdbc 与 DataSource */
+		JDBC
+	}
+
+}
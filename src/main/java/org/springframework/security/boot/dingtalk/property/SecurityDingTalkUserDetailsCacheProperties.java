@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 用户信息缓存配置，以 DingTalk 身份为 Key 缓存 UserDetailsServiceAdapter 的加载结果，可选共享缓存（L2）与跨节点失效
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkUserDetailsCacheProperties {
+
+	/**
+	 * Whether Enable caching of the loaded user details. Only scan code logins know the DingTalk
+	 * identity before loading the user; mini app and tmp code logins exchange the code inside
+	 * UserDetailsServiceAdapter and are not cached unless the provider's userDetailsCacheKey is overridden.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Whether every login gets its own copy of the cached user details, so that erasing the
+	 * credentials or changing the returned instance cannot alter the cache. Only disable it
+	 * when the UserDetails implementation is immutable.
+	 */
+	private boolean copyOnRead = true;
+
+	/** Maximum number of cached user details. */
+	private long maximumSize = 10000;
+
+	/** How long loaded user details are cached, account changes become visible after it unless invalidated. */
+	private Duration ttl = Duration.ofMinutes(5);
+
+	/** How long user details are kept in the shared (L2) cache, defaults to ttl. */
+	private Duration sharedTtl;
+
+	/** Invalidation bus used to notify other nodes, a custom DingTalkUserDetailsInvalidationBus bean takes precedence. */
+	private BusType invalidationBus = BusType.NONE;
+
+	public enum BusType {
+		/** 不广播失效消息，仅适用于单节点 */
+		NONE,
+		/** 进程内通道，用于测试 */
+		LOOPBACK
+	}
+
+}
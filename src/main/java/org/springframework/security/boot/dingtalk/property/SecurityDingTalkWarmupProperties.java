@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.property;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 启动预热配置：应用就绪前预取 access_token、建立到 DingTalk 的连接并预热登录请求的序列化
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class SecurityDingTalkWarmupProperties {
+
+	/** Whether Enable the warm-up on ApplicationReadyEvent, readiness is held until it finishes or times out. */
+	private boolean enabled = false;
+
+	/** Maximum time the warm-up may hold readiness. */
+	private Duration timeout = Duration.ofSeconds(30);
+
+	/** Whether Prefetch the access_token of the warmed apps. */
+	private boolean tokens = true;
+
+	/**
+	 * Apps whose access_token is prefetched, as appKey or corpId:appKey,
+	 * in addition to the credentials already registered.
+	 */
+	private List<String> apps = new ArrayList<>();
+
+	/** Whether Open connections to the DingTalk hosts. */
+	private boolean connections = true;
+
+	/** DingTalk hosts to connect to. */
+	private List<String> hosts = new ArrayList<>(Arrays.asList("https://oapi.dingtalk.com"));
+
+	/** Connect and read timeout of each warm-up connection. */
+	private Duration connectTimeout = Duration.ofSeconds(3);
+
+	/** Number of synthetic parse/serialize passes through the login request and response types, 0 to disable. */
+	private int serializationIterations = 2000;
+
+}
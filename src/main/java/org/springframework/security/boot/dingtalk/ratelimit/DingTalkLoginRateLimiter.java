@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.ratelimit;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkRateLimitProperties;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * 登录请求限流：按客户端 IP 与 appKey 分别限流，超出限制时直接以 429 响应并返回 Retry-After，不再解析请求体。
+ * <p>配置了客户端 IP 请求头（如 X-Forwarded-For）时，按受信任代理的数量从右往左取客户端 IP，客户端自行填写的值不会被采用。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkLoginRateLimiter {
+
+	private final DingTalkRateLimiter clientLimiter;
+	private final DingTalkRateLimiter appKeyLimiter;
+	private final String clientIpHeader;
+	private final int trustedProxies;
+
+	public DingTalkLoginRateLimiter(SecurityDingTalkRateLimitProperties properties) {
+		this.clientLimiter = properties.getClientRate() > 0
+				? new DingTalkRateLimiter(properties.getClientRate(), properties.getClientBurst(), properties.getMaxKeys())
+				: null;
+		this.appKeyLimiter = properties.getAppKeyRate() > 0
+				? new DingTalkRateLimiter(properties.getAppKeyRate(), properties.getAppKeyBurst(), properties.getMaxKeys())
+				: null;
+		Assert.isTrue(properties.getTrustedProxies() > 0, "trustedProxies must be greater than 0");
+		this.clientIpHeader = properties.getClientIpHeader();
+		this.trustedProxies = properties.getTrustedProxies();
+	}
+
+	/**
+	 * 按客户端 IP 限流
+	 * @param request 请求
+	 * @param response 响应，超出限制时写出 429
+	 * @return 允许时返回 true
+	 * @throws IOException 写出响应失败
+	 */
+	public boolean tryAcquireClient(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		return clientLimiter == null || this.permit(clientLimiter.tryAcquire(this.obtainClientIp(request)), response);
+	}
+
+	/**
+	 * 按 appKey 限流
+	 * @param appKey 应用的唯一标识key
+	 * @param response 响应，超出限制时写出 429
+	 * @return 允许时返回 true
+	 * @throws IOException 写出响应失败
+	 */
+	public boolean tryAcquireAppKey(String appKey, HttpServletResponse response) throws IOException {
+		return appKeyLimiter == null || appKey == null || this.permit(appKeyLimiter.tryAcquire(appKey), response);
+	}
+
+	public DingTalkRateLimiter getClientLimiter() {
+		return clientLimiter;
+	}
+
+	public DingTalkRateLimiter getAppKeyLimiter() {
+		return appKeyLimiter;
+	}
+
+	protected String obtainClientIp(HttpServletRequest request) {
+		if (clientIpHeader != null) {
+			String forwarded = request.getHeader(clientIpHeader);
+			if (StringUtils.hasText(forwarded)) {
+				// X-Forwarded-For: client, proxy1, proxy2，每个受信任代理在末尾追加它看到的地址，左侧的值可能由客户端伪造
+				int end = forwarded.length();
+				for (int hop = 1; ; hop++) {
+					int comma = forwarded.lastIndexOf(',', end - 1);
+					if (hop == trustedProxies || comma < 0) {
+						String clientIp = forwarded.substring(comma + 1, end).trim();
+						return StringUtils.hasText(clientIp) ? clientIp : request.getRemoteAddr();
+					}
+					end = comma;
+				}
+			}
+		}
+		return request.getRemoteAddr();
+	}
+
+	private boolean permit(long waitNanos, HttpServletResponse response) throws IOException {
+		if (waitNanos == 0) {
+			return true;
+		}
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L))));
+		response.setContentLength(0);
+		response.flushBuffer();
+		return false;
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.ratelimit;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.util.Assert;
+
+/**
+ * 分段的令牌桶限流器（GCRA 算法）：每个分段只保存一个"理论到达时间"，通过 CAS 更新，无锁、不按 Key 分配对象且内存占用固定。
+ * <p>每个 Key 通过两个带随机种子的哈希映射到两个分段，按其中受其他 Key 占用较少的分段判断并更新，再将另一分段抬升到同一时间。
+ * 只有两个分段都被其他繁忙的 Key 占用时才会共享额度，且客户端无法预知哪些 Key 会冲突。</p>
+ * <p>分段空闲超过一个突发窗口后令牌桶即已回满，无需清理。同一 Key 的请求并发到达时可能多放行极少量请求。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkRateLimiter {
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final AtomicLongArray theoreticalArrivalTimes;
+	private final int mask;
+	private final long seed;
+	private final long emissionIntervalNanos;
+	private final long burstNanos;
+	private final long origin = System.nanoTime();
+	private final LongAdder rejectedCount = new LongAdder();
+
+	/**
+	 * @param permitsPerSecond 每秒允许的请求数
+	 * @param burst 允许的突发请求数
+	 * @param stripes 分段数量，向上取整为 2 的幂，应不少于一个突发窗口内活跃的 Key 数量
+	 */
+	public DingTalkRateLimiter(double permitsPerSecond, int burst, long stripes) {
+		this(permitsPerSecond, burst, stripes, ThreadLocalRandom.current().nextLong());
+	}
+
+	DingTalkRateLimiter(double permitsPerSecond, int burst, long stripes, long seed) {
+		Assert.isTrue(permitsPerSecond > 0, "permitsPerSecond must be greater than 0");
+		Assert.isTrue(burst > 0, "burst must be greater than 0");
+		Assert.isTrue(stripes > 1 && stripes <= (1 << 24), "stripes must be in (1, 2^24]");
+		int size = 2;
+		while (size < stripes) {
+			size <<= 1;
+		}
+		this.theoreticalArrivalTimes = new AtomicLongArray(size);
+		this.mask = size - 1;
+		this.seed = seed;
+		this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+		this.burstNanos = emissionIntervalNanos * burst;
+	}
+
+	/**
+	 * 申请一个许可
+	 * @param key 限流的 Key
+	 * @return 允许时返回 0，否则返回需要等待的纳秒数
+	 */
+	public long tryAcquire(String key) {
+		long hash = this.hash(key);
+		int first = this.first(hash);
+		int second = this.second(hash, first);
+		long now = System.nanoTime() - origin;
+		for (;;) {
+			long firstTat = theoreticalArrivalTimes.get(first);
+			long secondTat = theoreticalArrivalTimes.get(second);
+			int index = firstTat <= secondTat ? first : second;
+			long tat = Math.min(firstTat, secondTat);
+			long newTat = Math.max(tat, now) + emissionIntervalNanos;
+			long allowAt = newTat - burstNanos;
+			if (allowAt > now) {
+				rejectedCount.increment();
+				return allowAt - now;
+			}
+			if (theoreticalArrivalTimes.compareAndSet(index, tat, newTat)) {
+				this.raise(index == first ? second : first, newTat);
+				return 0;
+			}
+		}
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	/** 令牌桶未回满的分段数量（近似值） */
+	public long size() {
+		long now = System.nanoTime() - origin;
+		long size = 0;
+		for (int i = 0; i <= mask; i++) {
+			if (theoreticalArrivalTimes.get(i) > now) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/** 分段数量 */
+	public int getStripes() {
+		return mask + 1;
+	}
+
+	/**
+	 * @param key 限流的 Key
+	 * @return Key 映射到的两个分段
+	 */
+	int[] stripes(String key) {
+		long hash = this.hash(key);
+		int first = this.first(hash);
+		return new int[] { first, this.second(hash, first) };
+	}
+
+	private void raise(int index, long tat) {
+		for (;;) {
+			long current = theoreticalArrivalTimes.get(index);
+			if (current >= tat || theoreticalArrivalTimes.compareAndSet(index, current, tat)) {
+				return;
+			}
+		}
+	}
+
+	private long hash(String key) {
+		// 带种子的 FNV-1a，再经 MurmurHash3 的 fmix64 混合；不使用可被构造冲突的 String#hashCode
+		long h = seed;
+		for (int i = 0; i < key.length(); i++) {
+			h = (h ^ key.charAt(i)) * FNV_PRIME;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private int first(long hash) {
+		return (int) hash & mask;
+	}
+
+	private int second(long hash, int first) {
+		int second = (int) (hash >>> 32) & mask;
+		return second != first ? second : (first + 1) & mask;
+	}
+
+}
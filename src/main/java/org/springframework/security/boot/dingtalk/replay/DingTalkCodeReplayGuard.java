@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.replay;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeExpiredException;
+import org.springframework.security.boot.dingtalk.support.DingTalkSingleFlight;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.util.Assert;
+
+/**
+ * 一次性授权码（loginTmpCode、code、authCode）的防重放：
+ * <ul>
+ * <li>同一授权码的并发提交（重复点击、客户端重试）只执行一次认证，其余请求等待同一个认证结果，并各自得到一份复制；</li>
+ * <li>已使用的授权码在有效期内直接拒绝，不再发送到 DingTalk。</li>
+ * </ul>
+ * 只有认证成功，或请求可能已到达 DingTalk 但结果未知（读取超时）时，授权码才保持已使用；被 DingTalk 拒绝、
+ * 因熔断、并发隔离、appKey 无效或连接失败而未发送等其余失败都撤销标记，伪造的授权码不会占用已使用授权码的存储。
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkCodeReplayGuard {
+
+	public static final String FLOW_SCAN_CODE = "scan";
+	public static final String FLOW_TMP_CODE = "tmp";
+	public static final String FLOW_MA = "ma";
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final DingTalkSingleFlight<String, Authentication> singleFlight = new DingTalkSingleFlight<>();
+	private final DingTalkConsumedCodeStore consumedCodeStore;
+	private final Duration consumedTtl;
+	private Duration inFlightTimeout = Duration.ofSeconds(10);
+	private final LongAdder replayedCount = new LongAdder();
+	private final LongAdder sharedCount = new LongAdder();
+
+	/**
+	 * @param consumedCodeStore 已使用授权码的存储
+	 * @param consumedTtl 已使用授权码的记录时长，不短于授权码本身的有效期即可
+	 */
+	public DingTalkCodeReplayGuard(DingTalkConsumedCodeStore consumedCodeStore, Duration consumedTtl) {
+		Assert.notNull(consumedCodeStore, "consumedCodeStore must not be null");
+		Assert.notNull(consumedTtl, "consumedTtl must not be null");
+		this.consumedCodeStore = consumedCodeStore;
+		this.consumedTtl = consumedTtl;
+	}
+
+	/**
+	 * 执行认证
+	 * @param flow 登录方式，如 {@link #FLOW_SCAN_CODE}
+	 * @param appKey 应用的唯一标识key
+	 * @param code 一次性授权码
+	 * @param authentication 实际的认证过程
+	 * @param copier 为每个请求复制共享的认证结果，调用方之间不共享同一个对象
+	 * @return 当前请求的认证结果
+	 * @throws AuthenticationException 认证失败或授权码已被使用
+	 */
+	public Authentication authenticate(String flow, String appKey, String code, Callable<Authentication> authentication,
+			UnaryOperator<Authentication> copier) throws AuthenticationException {
+		String key = flow + ':' + appKey + ':' + code;
+		boolean[] leader = new boolean[1];
+		try {
+			Authentication result = singleFlight.execute(key, () -> {
+				leader[0] = true;
+				return this.consume(key, authentication);
+			}, inFlightTimeout);
+			if (!leader[0]) {
+				sharedCount.increment();
+			}
+			return copier.apply(result);
+		} catch (AuthenticationException e) {
+			throw e;
+		} catch (TimeoutException e) {
+			throw new DingTalkAuthenticationServiceException("Timed out waiting for the in-flight authentication of the same code.", e);
+		} catch (Exception e) {
+			throw new DingTalkAuthenticationServiceException(e.getMessage(), e);
+		}
+	}
+
+	private Authentication consume(String key, Callable<Authentication> authentication) throws Exception {
+		if (!consumedCodeStore.markConsumed(key, consumedTtl)) {
+			replayedCount.increment();
+			logger.debug("Rejected replayed DingTalk code of {} .", key.substring(0, key.lastIndexOf(':')));
+			throw new DingTalkCodeExpiredException("Code has already been used.");
+		}
+		try {
+			return authentication.call();
+		} catch (Exception e) {
+			// 被 DingTalk 拒绝或未发送的授权码不再占用存储，重放时 DingTalk 会再次拒绝
+			if (!isOutcomeUnknown(e)) {
+				consumedCodeStore.remove(key);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @param e 认证异常
+	 * @return 请求可能已到达 DingTalk 但没有得到响应（读取超时）时返回 true，此时授权码可能已被使用
+	 */
+	protected boolean isOutcomeUnknown(Throwable e) {
+		for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof SocketTimeoutException) {
+				// HttpURLConnection 的连接超时与读取超时都是 SocketTimeoutException，只能按信息区分
+				return !"connect timed out".equals(cause.getMessage());
+			}
+		}
+		return false;
+	}
+
+	public DingTalkConsumedCodeStore getConsumedCodeStore() {
+		return consumedCodeStore;
+	}
+
+	public Duration getInFlightTimeout() {
+		return inFlightTimeout;
+	}
+
+	public void setInFlightTimeout(Duration inFlightTimeout) {
+		this.inFlightTimeout = inFlightTimeout;
+	}
+
+	/** 因授权码已被使用而拒绝的次数 */
+	public long getReplayedCount() {
+		return replayedCount.sum();
+	}
+
+	/** 等待并共享同一授权码认证结果的次数 */
+	public long getSharedCount() {
+		return sharedCount.sum();
+	}
+
+	public int getInFlightCount() {
+		return singleFlight.inFlightCount();
+	}
+
+}
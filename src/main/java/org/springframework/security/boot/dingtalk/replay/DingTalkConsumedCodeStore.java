@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.replay;
+
+import java.time.Duration;
+
+/**
+ * 已使用的一次性授权码存储，集群部署时可基于 Redis、数据库等共享实现，默认为 {@link DingTalkInMemoryConsumedCodeStore}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkConsumedCodeStore {
+
+	/**
+	 * 将授权码标记为已使用，需为原子操作
+	 * @param key 授权码的 Key
+	 * @param ttl 记录的有效期
+	 * @return 首次标记时返回 true，已被使用时返回 false
+	 * @throws org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException 共享存储不可用而无法记录时抛出，授权码不得被放行
+	 */
+	boolean markConsumed(String key, Duration ttl);
+
+	/**
+	 * @param key 授权码的 Key
+	 * @return 授权码在有效期内已被使用时返回 true
+	 */
+	boolean isConsumed(String key);
+
+	/**
+	 * 撤销标记，用于认证失败且授权码未被 DingTalk 接受的情况
+	 * @param key 授权码的 Key
+	 */
+	void remove(String key);
+
+}
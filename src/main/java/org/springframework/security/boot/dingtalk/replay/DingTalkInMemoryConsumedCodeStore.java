@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.replay;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 基于时间轮的本地已使用授权码存储：每个授权码按过期时间放入时间轮的一个槽位，时间推进时只清理到期的槽位，
+ * 不需要后台线程，也不需要遍历全部记录。
+ * <p>记录数达到上限且没有可清理的过期记录时，按时间轮的顺序淘汰最早到期的记录为新的授权码腾出空间，并计入
+ * {@link #getEvictionCount()}；新的授权码总能被记录，存储写满不会导致登录不可用。被淘汰的授权码重放时由 DingTalk 拒绝。
+ * 并发写入时记录数可能短暂超过上限，超出的数量不超过并发线程数。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkInMemoryConsumedCodeStore implements DingTalkConsumedCodeStore {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final ConcurrentMap<String, Long> deadlines = new ConcurrentHashMap<>();
+	private final AtomicReferenceArray<Queue<String>> wheel;
+	private final int mask;
+	private final long tickNanos;
+	private final long maximumSize;
+	private final long origin = System.nanoTime();
+	private final ReentrantLock sweepLock = new ReentrantLock();
+	private final LongAdder evictionCount = new LongAdder();
+	private volatile long lastTick;
+
+	public DingTalkInMemoryConsumedCodeStore() {
+		this(100000, Duration.ofSeconds(1), 512);
+	}
+
+	/**
+	 * @param maximumSize 最多记录的授权码数量
+	 * @param tickDuration 时间轮每一格的时长，即过期清理的精度
+	 * @param ticksPerWheel 时间轮的格数，向上取整为 2 的幂
+	 */
+	public DingTalkInMemoryConsumedCodeStore(long maximumSize, Duration tickDuration, int ticksPerWheel) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+		Assert.isTrue(!tickDuration.isNegative() && !tickDuration.isZero(), "tickDuration must be greater than 0");
+		Assert.isTrue(ticksPerWheel > 0 && ticksPerWheel <= (1 << 30), "ticksPerWheel must be in (0, 2^30]");
+		int size = 1;
+		while (size < ticksPerWheel) {
+			size <<= 1;
+		}
+		this.wheel = new AtomicReferenceArray<>(size);
+		for (int i = 0; i < size; i++) {
+			wheel.set(i, new ConcurrentLinkedQueue<>());
+		}
+		this.mask = size - 1;
+		this.tickNanos = tickDuration.toNanos();
+		this.maximumSize = maximumSize;
+	}
+
+	@Override
+	public boolean markConsumed(String key, Duration ttl) {
+		long now = System.nanoTime();
+		this.advance(now);
+		// 已满时仍能识别重复提交
+		Long consumed = deadlines.get(key);
+		if (consumed != null && consumed - now > 0) {
+			return false;
+		}
+		if (deadlines.size() >= maximumSize && !this.purge(now)) {
+			this.evict();
+		}
+		long deadline = now + ttl.toNanos();
+		Long existing = deadlines.putIfAbsent(key, deadline);
+		if (existing != null) {
+			// 已过期但尚未被清理的记录可以被覆盖
+			if (existing - now > 0 || !deadlines.replace(key, existing, deadline)) {
+				return false;
+			}
+		}
+		this.schedule(key, deadline);
+		return true;
+	}
+
+	@Override
+	public boolean isConsumed(String key) {
+		long now = System.nanoTime();
+		this.advance(now);
+		Long deadline = deadlines.get(key);
+		return deadline != null && deadline - now > 0;
+	}
+
+	@Override
+	public void remove(String key) {
+		deadlines.remove(key);
+	}
+
+	public int size() {
+		return deadlines.size();
+	}
+
+	/** 因记录数达到上限而淘汰的未到期记录数 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	private void schedule(String key, long deadline) {
+		long tick = (deadline - origin + tickNanos - 1) / tickNanos;
+		wheel.get((int) (tick & mask)).add(key);
+	}
+
+	/**
+	 * 清理上次推进之后到期的槽位，同一时刻只有一个线程执行，其余线程直接返回
+	 */
+	private void advance(long now) {
+		long tick = (now - origin) / tickNanos;
+		if (tick <= lastTick || !sweepLock.tryLock()) {
+			return;
+		}
+		try {
+			long from = Math.max(lastTick + 1, tick - mask);
+			for (long t = from; t <= tick; t++) {
+				Queue<String> bucket = wheel.getAndSet((int) (t & mask), new ConcurrentLinkedQueue<>());
+				for (String key; (key = bucket.poll()) != null; ) {
+					Long deadline = deadlines.get(key);
+					if (deadline == null) {
+						continue;
+					}
+					if (deadline - now <= 0) {
+						deadlines.remove(key, deadline);
+					} else {
+						// 过期时间超过一圈，放回对应槽位
+						this.schedule(key, deadline);
+					}
+				}
+			}
+			lastTick = tick;
+		} finally {
+			sweepLock.unlock();
+		}
+	}
+
+	/**
+	 * 记录数达到上限时全量清理一次过期记录
+	 * @return 清理后仍有空间时返回 true
+	 */
+	private boolean purge(long now) {
+		if (sweepLock.tryLock()) {
+			try {
+				deadlines.values().removeIf(deadline -> deadline - now <= 0);
+			} finally {
+				sweepLock.unlock();
+			}
+		}
+		return deadlines.size() < maximumSize;
+	}
+
+	/**
+	 * 从下一个到期的槽位起依次淘汰记录，直到低于上限；超过一圈的记录与同一槽位的记录一并淘汰
+	 */
+	private void evict() {
+		boolean first = evictionCount.sum() == 0;
+		sweepLock.lock();
+		try {
+			long tick = lastTick;
+			for (int i = 1; i <= mask + 1 && deadlines.size() >= maximumSize; i++) {
+				Queue<String> bucket = wheel.get((int) ((tick + i) & mask));
+				for (String key; deadlines.size() >= maximumSize && (key = bucket.poll()) != null; ) {
+					if (deadlines.remove(key) != null) {
+						evictionCount.increment();
+					}
+				}
+			}
+		} finally {
+			sweepLock.unlock();
+		}
+		if (first) {
+			logger.warn("Consumed DingTalk code store is full ({} entries), the codes expiring first are evicted.", maximumSize);
+		}
+	}
+
+}
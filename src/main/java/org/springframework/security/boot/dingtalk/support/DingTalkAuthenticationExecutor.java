@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkExecutorProperties;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * DingTalk 认证专用线程池：JDK 21+ 上默认使用虚拟线程（每个认证一个虚拟线程），更早的 JDK 退化为有界的平台线程池。
+ * <p>虚拟线程执行器本身不限制并发，前面以 {@link Semaphore} 舱壁限制同时执行的认证数，超出时抛出
+ * {@link RejectedExecutionException}。</p>
+ * <p>只有开启 async-enabled 的 Servlet 登录会提交到这里；同步登录仍在容器线程中认证，虚拟线程对其没有作用。</p>
+ * <p>有意不实现 {@link Executor} 接口，避免作为 Bean 注册后替换掉 Spring Boot 默认的 applicationTaskExecutor。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkAuthenticationExecutor implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DingTalkAuthenticationExecutor.class);
+
+	private final ExecutorService executorService;
+	private final boolean virtual;
+	private final Semaphore bulkhead;
+	private TaskDecorator taskDecorator;
+
+	public DingTalkAuthenticationExecutor(ExecutorService executorService) {
+		this(executorService, false, 0);
+	}
+
+	/**
+	 * @param executorService 执行器
+	 * @param maxConcurrentTasks 同时执行的认证数上限，0 表示不限制
+	 */
+	public DingTalkAuthenticationExecutor(ExecutorService executorService, int maxConcurrentTasks) {
+		this(executorService, false, maxConcurrentTasks);
+	}
+
+	public DingTalkAuthenticationExecutor(SecurityDingTalkExecutorProperties properties) {
+		this(properties.isVirtualThreads() ? newVirtualThreadExecutor(properties.getThreadNamePrefix()) : null, properties);
+	}
+
+	private DingTalkAuthenticationExecutor(ExecutorService virtualExecutor, SecurityDingTalkExecutorProperties properties) {
+		this(virtualExecutor != null ? virtualExecutor : newBoundedThreadPool(properties), virtualExecutor != null,
+				virtualExecutor != null ? properties.getVirtualThreadsMaxConcurrency() : 0);
+	}
+
+	private DingTalkAuthenticationExecutor(ExecutorService executorService, boolean virtual, int maxConcurrentTasks) {
+		Assert.notNull(executorService, "executorService must not be null");
+		this.executorService = executorService;
+		this.virtual = virtual;
+		this.bulkhead = maxConcurrentTasks > 0 ? new Semaphore(maxConcurrentTasks) : null;
+	}
+
+	/**
+	 * 当前 JVM 是否支持虚拟线程
+	 * @return JDK 21+ 返回 true
+	 */
+	public static boolean isVirtualThreadsAvailable() {
+		return ClassUtils.hasMethod(Thread.class, "ofVirtual");
+	}
+
+	/**
+	 * 每个任务一个虚拟线程的执行器，通过反射创建以便在 JDK 8 上编译与运行
+	 * @param threadNamePrefix 线程名前缀
+	 * @return 执行器，当前 JVM 不支持虚拟线程时返回 null
+	 */
+	public static ExecutorService newVirtualThreadExecutor(String threadNamePrefix) {
+		if (!isVirtualThreadsAvailable()) {
+			return null;
+		}
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = ClassUtils.forName("java.lang.Thread$Builder", null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+			Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+		} catch (Throwable e) {
+			LOG.warn("Virtual threads are not usable, fall back to the platform thread pool.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * 有界线程池，线程与队列已满时抛出 {@link java.util.concurrent.RejectedExecutionException}，由调用方拒绝登录请求，
+	 * 避免认证在容器线程中执行
+	 * @param properties 线程池配置
+	 * @return 线程池
+	 */
+	public static ExecutorService newBoundedThreadPool(SecurityDingTalkExecutorProperties properties) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(properties.getCorePoolSize(), properties.getMaxPoolSize(),
+				properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+				new CustomizableThreadFactory(properties.getThreadNamePrefix()),
+				new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * 执行认证任务的执行器，设置了 {@link TaskDecorator} 时每个任务提交前先经过装饰；
+	 * 舱壁已满时抛出 {@link RejectedExecutionException}
+	 * @return 执行器
+	 */
+	public Executor getExecutor() {
+		TaskDecorator decorator = this.taskDecorator;
+		Semaphore bulkhead = this.bulkhead;
+		if (bulkhead == null) {
+			return decorator == null ? executorService : task -> executorService.execute(decorator.decorate(task));
+		}
+		return task -> {
+			if (!bulkhead.tryAcquire()) {
+				throw new RejectedExecutionException("More than the allowed concurrent DingTalk authentications are running");
+			}
+			Runnable bounded = () -> {
+				try {
+					task.run();
+				} finally {
+					bulkhead.release();
+				}
+			};
+			try {
+				executorService.execute(decorator == null ? bounded : decorator.decorate(bounded));
+			} catch (RejectedExecutionException e) {
+				bulkhead.release();
+				throw e;
+			}
+		};
+	}
+
+	/**
+	 * @return 舱壁中剩余的许可数，未启用舱壁时返回 -1
+	 */
+	public int availablePermits() {
+		return bulkhead == null ? -1 : bulkhead.availablePermits();
+	}
+
+	public TaskDecorator getTaskDecorator() {
+		return taskDecorator;
+	}
+
+	/**
+	 * 设置任务装饰器，例如将提交线程的追踪上下文传递到认证线程；需在 {@link #getExecutor()} 之前设置
+	 * @param taskDecorator 任务装饰器
+	 */
+	public void setTaskDecorator(TaskDecorator taskDecorator) {
+		this.taskDecorator = taskDecorator;
+	}
+
+	/**
+	 * 是否运行在虚拟线程上
+	 * @return 使用虚拟线程时返回 true
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		executorService.shutdown();
+	}
+
+}
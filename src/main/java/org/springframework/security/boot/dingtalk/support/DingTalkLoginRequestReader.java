@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.security.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * 登录请求体解析：预先为登录请求类型构建 {@link ObjectReader}，直接从请求的字节流解析（按 JSON 规范自动识别 UTF-8/16/32），
+ * 不再经过 {@link java.io.Reader} 解码；请求体超过 maxBodySize 时在读取过程中即拒绝，不会缓冲整个请求体。
+ * <p>启用字节码加速且类路径中存在 jackson-module-afterburner 时，在 {@link ObjectMapper} 的副本上注册该模块，
+ * 不影响应用中共享的 {@link ObjectMapper}。</p>
+ * @param <T> 登录请求类型
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkLoginRequestReader<T> {
+
+	/** 默认最大请求体：8KB，登录请求只包含少量参数 */
+	public static final long DEFAULT_MAX_BODY_SIZE = 8 * 1024;
+
+	private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+	private static final Logger LOG = LoggerFactory.getLogger(DingTalkLoginRequestReader.class);
+
+	private final ObjectReader objectReader;
+	private final long maxBodySize;
+	private DingTalkLoginObserver loginObserver = DingTalkLoginObserver.NOOP;
+	private String flow;
+
+	/**
+	 * @param objectMapper 应用的 {@link ObjectMapper}，为空时使用默认配置
+	 * @param loginRequestType 登录请求类型
+	 */
+	public DingTalkLoginRequestReader(ObjectMapper objectMapper, Class<T> loginRequestType) {
+		this(objectMapper, loginRequestType, DEFAULT_MAX_BODY_SIZE, false);
+	}
+
+	/**
+	 * @param objectMapper 应用的 {@link ObjectMapper}，为空时使用默认配置
+	 * @param loginRequestType 登录请求类型
+	 * @param maxBodySize 允许的最大请求体字节数，小于等于 0 时不限制
+	 * @param bytecodeAccelerator 是否启用 afterburner 字节码加速（需在类路径中）
+	 */
+	public DingTalkLoginRequestReader(ObjectMapper objectMapper, Class<T> loginRequestType, long maxBodySize, boolean bytecodeAccelerator) {
+		Assert.notNull(loginRequestType, "loginRequestType must not be null");
+		ObjectMapper mapper = objectMapper != null ? objectMapper : new ObjectMapper();
+		if (bytecodeAccelerator) {
+			mapper = accelerate(mapper);
+		}
+		this.objectReader = mapper.readerFor(loginRequestType);
+		this.maxBodySize = maxBodySize;
+	}
+
+	/**
+	 * 解析 Servlet 请求体
+	 * @param request 请求
+	 * @return 登录请求
+	 * @throws IOException 读取或解析失败
+	 * @throws DingTalkLoginRequestTooLargeException 请求体超过 maxBodySize
+	 */
+	public T read(HttpServletRequest request) throws IOException {
+		if (maxBodySize > 0 && request.getContentLengthLong() > maxBodySize) {
+			throw this.tooLarge();
+		}
+		return this.read(request.getInputStream());
+	}
+
+	/**
+	 * 解析请求体
+	 * @param input 请求体
+	 * @return 登录请求
+	 * @throws IOException 读取或解析失败
+	 * @throws DingTalkLoginRequestTooLargeException 请求体超过 maxBodySize
+	 */
+	public T read(InputStream input) throws IOException {
+		return loginObserver.observe(DingTalkLoginStage.PARSE, flow, null, () -> this.doRead(input));
+	}
+
+	protected T doRead(InputStream input) throws IOException {
+		if (maxBodySize <= 0) {
+			return objectReader.readValue(input);
+		}
+		try {
+			return objectReader.readValue(new LimitedInputStream(input, maxBodySize));
+		} catch (BodyTooLargeException e) {
+			throw this.tooLarge();
+		}
+	}
+
+	/**
+	 * @param size 已知的请求体字节数
+	 * @return 超过 maxBodySize 时返回 true
+	 */
+	public boolean isTooLarge(long size) {
+		return maxBodySize > 0 && size > maxBodySize;
+	}
+
+	public DingTalkLoginRequestTooLargeException tooLarge() {
+		return new DingTalkLoginRequestTooLargeException("DingTalk login request exceeds " + maxBodySize + " bytes.", maxBodySize);
+	}
+
+	public ObjectReader getObjectReader() {
+		return objectReader;
+	}
+
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	public DingTalkLoginObserver getLoginObserver() {
+		return loginObserver;
+	}
+
+	/**
+	 * @param loginObserver 登录过程观测，为空时不观测
+	 * @param flow 登录方式，如 {@link DingTalkLoginObserver#FLOW_MA}
+	 */
+	public void setLoginObserver(DingTalkLoginObserver loginObserver, String flow) {
+		this.loginObserver = loginObserver != null ? loginObserver : DingTalkLoginObserver.NOOP;
+		this.flow = flow;
+	}
+
+	private static ObjectMapper accelerate(ObjectMapper objectMapper) {
+		if (!ClassUtils.isPresent(AFTERBURNER_MODULE, DingTalkLoginRequestReader.class.getClassLoader())) {
+			LOG.warn("Bytecode accelerator requested but {} is not on the classpath.", AFTERBURNER_MODULE);
+			return objectMapper;
+		}
+		Class<?> moduleClass = ClassUtils.resolveClassName(AFTERBURNER_MODULE, DingTalkLoginRequestReader.class.getClassLoader());
+		return objectMapper.copy().registerModule((Module) BeanUtils.instantiateClass(moduleClass));
+	}
+
+	/**
+	 * 超过上限即失败的输入流
+	 */
+	private static final class LimitedInputStream extends FilterInputStream {
+
+		private long remaining;
+
+		LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				this.consume(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				this.consume(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			this.consume(skipped);
+			return skipped;
+		}
+
+		private void consume(long n) throws BodyTooLargeException {
+			remaining -= n;
+			if (remaining < 0) {
+				throw new BodyTooLargeException();
+			}
+		}
+
+	}
+
+	@SuppressWarnings("serial")
+	private static final class BodyTooLargeException extends IOException {
+
+		BodyTooLargeException() {
+			super("Request body too large");
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			// 仅用于在解析过程中跳出，不需要堆栈
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 合并同一 Key 的并发调用：同一时刻每个 Key 只有一个调用在执行，其余调用方等待同一个结果。
+ * <p>每个调用自开始起最多占用 Key 的时长为 timeout：超过后等待方以 {@link TimeoutException} 结束该调用的结果并释放 Key，
+ * 之后的调用方重新执行，不再排在未返回的调用之后；未返回的调用仍在原线程中执行，其结果只返回给发起方。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ * @param <K> Key 类型
+ * @param <V> 结果类型
+ */
+public class DingTalkSingleFlight<K, V> {
+
+	private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * 正在执行的调用及其占用 Key 的截止时间
+	 */
+	private static class Flight<V> {
+
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+		private final long deadline;
+
+		Flight(long deadline) {
+			this.deadline = deadline;
+		}
+
+	}
+
+	/**
+	 * 执行调用，若相同 Key 的调用正在进行则等待其结果
+	 * @param key 调用的 Key
+	 * @param callable 实际调用
+	 * @param timeout 等待其他调用方结果的最长时间，也是本次调用最多占用 Key 的时长
+	 * @return 调用结果
+	 * @throws TimeoutException 等待超时，或正在进行的调用超过了占用时长
+	 * @throws Exception 实际调用抛出的异常，所有等待方收到同一个异常
+	 */
+	public V execute(K key, Callable<V> callable, Duration timeout) throws Exception {
+		long timeoutNanos = timeout.toNanos();
+		while (true) {
+			Flight<V> flight = new Flight<>(System.nanoTime() + timeoutNanos);
+			Flight<V> existing = inFlight.putIfAbsent(key, flight);
+			if (existing == null) {
+				return this.lead(key, flight, callable);
+			}
+			if (existing.deadline - System.nanoTime() > 0) {
+				return this.await(key, existing, timeoutNanos);
+			}
+			// 正在进行的调用已超过占用时长：结束其等待方后重新竞争执行
+			this.expire(key, existing);
+		}
+	}
+
+	public boolean isInFlight(K key) {
+		return inFlight.containsKey(key);
+	}
+
+	public int inFlightCount() {
+		return inFlight.size();
+	}
+
+	private V lead(K key, Flight<V> flight, Callable<V> callable) throws Exception {
+		try {
+			V value = callable.call();
+			flight.future.complete(value);
+			return value;
+		} catch (Throwable e) {
+			flight.future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	private V await(K key, Flight<V> flight, long timeoutNanos) throws Exception {
+		try {
+			return flight.future.get(Math.min(timeoutNanos, flight.deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			if (flight.deadline - System.nanoTime() <= 0) {
+				this.expire(key, flight);
+			}
+			throw e;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
+	private void expire(K key, Flight<V> flight) {
+		flight.future.completeExceptionally(new TimeoutException("Call of " + key + " is still in flight after its timeout."));
+		inFlight.remove(key, flight);
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.boot.biz.userdetails.UserProfilePayload;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkAuthenticationResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaLoginRequest;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkScanCodeLoginRequest;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkTmpCodeLoginRequest;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredential;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkWarmupProperties;
+import org.springframework.security.boot.dingtalk.token.DingTalkAccessTokenCache;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 启动预热：在 {@link ApplicationReadyEvent} 中同步执行，期间应用尚未进入 ACCEPTING_TRAFFIC 就绪状态。
+ * <p>预热内容各自在独立线程上并行执行：预取 access_token、建立到 DingTalk 的 HTTPS 连接（读完响应后留在 JDK 的
+ * keep-alive 连接池中）、以合成数据反复驱动各登录过滤器实际使用的 {@link DingTalkLoginRequestReader}（含字节码加速后的
+ * ObjectReader）与认证成功处理器的 {@link DingTalkAuthenticationResponseWriter}，使其序列化器及 JIT 就绪。
+ * 未注册任何解析器时退回到以应用的 {@link ObjectMapper} 解析登录请求类型。
+ * 超过 timeout 仍未完成的预热被取消，不影响启动。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkWarmup implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final String SYNTHETIC_REQUEST = "{\"corpId\":\"warmup\",\"key\":\"warmup\",\"token\":null,"
+			+ "\"authCode\":\"warmup\",\"loginTmpCode\":\"warmup\",\"code\":\"warmup\"}";
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final SecurityDingTalkWarmupProperties properties;
+	private final ObjectMapper objectMapper;
+	private DingTalkAppCredentialRegistry credentialRegistry;
+	private DingTalkAccessTokenCache accessTokenCache;
+	private final Set<DingTalkLoginRequestReader<?>> loginRequestReaders = new CopyOnWriteArraySet<>();
+	private final Set<DingTalkAuthenticationResponseWriter> responseWriters = new CopyOnWriteArraySet<>();
+
+	public DingTalkWarmup(SecurityDingTalkWarmupProperties properties, ObjectMapper objectMapper) {
+		this.properties = properties;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		this.warmup();
+	}
+
+	/**
+	 * 执行预热，最多等待 timeout
+	 */
+	public void warmup() {
+		List<Runnable> tasks = new ArrayList<>();
+		if (properties.isTokens() && accessTokenCache != null) {
+			tasks.add(this::warmupTokens);
+		}
+		if (properties.isConnections()) {
+			tasks.add(this::warmupConnections);
+		}
+		if (properties.getSerializationIterations() > 0) {
+			tasks.add(this::warmupSerialization);
+		}
+		if (tasks.isEmpty()) {
+			return;
+		}
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), new CustomizableThreadFactory("dingtalk-warmup-"));
+		try {
+			List<Future<?>> futures = new ArrayList<>(tasks.size());
+			for (Runnable task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			executor.shutdown();
+			if (!executor.awaitTermination(properties.getTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+				logger.warn("DingTalk warm-up did not finish within {} , continuing startup.", properties.getTimeout());
+				futures.forEach(future -> future.cancel(true));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		logger.info("DingTalk warm-up finished in {}ms.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	protected void warmupTokens() {
+		// corpId:appKey -> [corpId, appKey]
+		Map<String, String[]> apps = new LinkedHashMap<>();
+		if (credentialRegistry != null) {
+			for (DingTalkAppCredential credential : credentialRegistry.getCredentials()) {
+				apps.putIfAbsent(credential.getCorpId() + ":" + credential.getAppKey(), new String[] { credential.getCorpId(), credential.getAppKey() });
+			}
+		}
+		for (String app : properties.getApps()) {
+			int index = app.indexOf(':');
+			String corpId = index > 0 ? app.substring(0, index).trim() : null;
+			String appKey = app.substring(index + 1).trim();
+			if (StringUtils.hasText(appKey)) {
+				apps.putIfAbsent(corpId + ":" + appKey, new String[] { corpId, appKey });
+			}
+		}
+		for (String[] app : apps.values()) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			try {
+				accessTokenCache.getAccessToken(app[0], app[1]);
+			} catch (Exception e) {
+				logger.warn("Failed to prefetch the access_token of {} : {}", app[1], e.getMessage());
+			}
+		}
+	}
+
+	protected void warmupConnections() {
+		int timeout = (int) properties.getConnectTimeout().toMillis();
+		for (String host : properties.getHosts()) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			try {
+				HttpURLConnection connection = (HttpURLConnection) new URL(host).openConnection();
+				connection.setConnectTimeout(timeout);
+				connection.setReadTimeout(timeout);
+				int status = connection.getResponseCode();
+				// 读完并关闭响应流，连接才会留在 keep-alive 连接池中
+				InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+				if (body != null) {
+					try (InputStream input = body) {
+						StreamUtils.drain(input);
+					}
+				}
+				logger.debug("Warmed up connection to {} , status {} .", host, status);
+			} catch (IOException e) {
+				logger.warn("Failed to warm up connection to {} : {}", host, e.getMessage());
+			}
+		}
+	}
+
+	protected void warmupSerialization() {
+		byte[] request = SYNTHETIC_REQUEST.getBytes(StandardCharsets.UTF_8);
+		List<DingTalkLoginRequestReader<?>> readers = new ArrayList<>(loginRequestReaders);
+		if (readers.isEmpty()) {
+			readers.add(new DingTalkLoginRequestReader<>(objectMapper, DingTalkTmpCodeLoginRequest.class));
+			readers.add(new DingTalkLoginRequestReader<>(objectMapper, DingTalkScanCodeLoginRequest.class));
+			readers.add(new DingTalkLoginRequestReader<>(objectMapper, DingTalkMaLoginRequest.class));
+		}
+		Locale locale = Locale.getDefault();
+		UserProfilePayload payload = new UserProfilePayload();
+		try {
+			for (int i = 0; i < properties.getSerializationIterations() && !Thread.currentThread().isInterrupted(); i++) {
+				// 绕过登录观测，合成请求不计入登录指标
+				for (DingTalkLoginRequestReader<?> reader : readers) {
+					reader.doRead(new ByteArrayInputStream(request));
+				}
+				for (DingTalkAuthenticationResponseWriter responseWriter : responseWriters) {
+					responseWriter.renderSuccess(locale, payload);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Failed to warm up serialization : {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 注册登录过滤器实际使用的请求解析器
+	 * @param loginRequestReader 登录请求解析器
+	 */
+	public void addLoginRequestReader(DingTalkLoginRequestReader<?> loginRequestReader) {
+		Assert.notNull(loginRequestReader, "loginRequestReader must not be null");
+		this.loginRequestReaders.add(loginRequestReader);
+	}
+
+	/**
+	 * 注册认证成功处理器实际使用的响应序列化
+	 * @param responseWriter 认证成功响应序列化
+	 */
+	public void addResponseWriter(DingTalkAuthenticationResponseWriter responseWriter) {
+		Assert.notNull(responseWriter, "responseWriter must not be null");
+		this.responseWriters.add(responseWriter);
+	}
+
+	public DingTalkAppCredentialRegistry getCredentialRegistry() {
+		return credentialRegistry;
+	}
+
+	public void setCredentialRegistry(DingTalkAppCredentialRegistry credentialRegistry) {
+		this.credentialRegistry = credentialRegistry;
+	}
+
+	public DingTalkAccessTokenCache getAccessTokenCache() {
+		return accessTokenCache;
+	}
+
+	public void setAccessTokenCache(DingTalkAccessTokenCache accessTokenCache) {
+		this.accessTokenCache = accessTokenCache;
+	}
+
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.token;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkTokenCacheProperties;
+import org.springframework.security.boot.dingtalk.support.DingTalkSingleFlight;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkUpstreamInvoker;
+import org.springframework.util.Assert;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.taobao.api.ApiException;
+
+/**
+ * 按 (corpId, appKey) 缓存 DingTalk access_token，在过期前后台刷新，避免每次登录都请求 gettoken 接口；
+ * 同一 (corpId, appKey) 同一时刻只会有一个 gettoken 请求，其余调用方等待该请求的结果。
+ * <p>设置 {@link DingTalkAccessTokenStore} 后，集群各节点共享 access_token，到达刷新时间时只有取得租约的节点请求 DingTalk。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkAccessTokenCache implements DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final DingTalkTemplate dingTalkTemplate;
+	private final Cache<TokenKey, CachedToken> cache;
+	private final DingTalkSingleFlight<TokenKey, CachedToken> singleFlight = new DingTalkSingleFlight<>();
+	private final Set<TokenKey> refreshing = ConcurrentHashMap.newKeySet();
+	private final ExecutorService refreshExecutor;
+	private final long refreshAfterWriteNanos;
+	private final long expireAfterWriteNanos;
+	private final Duration loadTimeout;
+	private final LongAdder loadCount = new LongAdder();
+	private final LongAdder refreshCount = new LongAdder();
+	private final LongAdder refreshFailureCount = new LongAdder();
+	private DingTalkAppCredentialRegistry credentialRegistry;
+	private DingTalkUpstreamInvoker upstreamInvoker;
+	private DingTalkAccessTokenStore tokenStore;
+	private Duration leaseTime = Duration.ofSeconds(30);
+	private String nodeId = UUID.randomUUID().toString();
+	private final LongAdder storeHitCount = new LongAdder();
+	private final LongAdder storeFailureCount = new LongAdder();
+
+	public DingTalkAccessTokenCache(final DingTalkTemplate dingTalkTemplate,
+			final SecurityDingTalkTokenCacheProperties properties) {
+		Assert.notNull(dingTalkTemplate, "dingTalkTemplate must not be null");
+		Assert.notNull(properties, "properties must not be null");
+		Assert.isTrue(properties.getRefreshAfterWrite().compareTo(properties.getExpireAfterWrite()) < 0,
+				"refreshAfterWrite must be shorter than expireAfterWrite");
+		this.dingTalkTemplate = dingTalkTemplate;
+		this.refreshAfterWriteNanos = properties.getRefreshAfterWrite().toNanos();
+		this.expireAfterWriteNanos = properties.getExpireAfterWrite().toNanos();
+		this.loadTimeout = properties.getLoadTimeout();
+		this.refreshExecutor = new ThreadPoolExecutor(properties.getRefreshThreads(), properties.getRefreshThreads(),
+				60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("dingtalk-token-refresh-"));
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(properties.getMaximumSize())
+				.expireAfterWrite(properties.getExpireAfterWrite().toMillis(), TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * 获取 access_token，缓存未命中时请求 DingTalk，并发的未命中请求合并为一次
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @return access_token
+	 * @throws ApiException 请求 DingTalk 失败或等待超时
+	 */
+	public String getAccessToken(String corpId, String appKey) throws ApiException {
+		TokenKey key = new TokenKey(corpId, appKey);
+		CachedToken cached = cache.getIfPresent(key);
+		if (cached != null) {
+			// 取自共享存储的 access_token，其获取时间早于写入本地缓存的时间
+			long age = System.nanoTime() - cached.getFetchedAt();
+			if (age < expireAfterWriteNanos) {
+				if (age >= refreshAfterWriteNanos) {
+					this.scheduleRefresh(key);
+				}
+				return cached.getAccessToken();
+			}
+		}
+		return this.load(key).getAccessToken();
+	}
+
+	/**
+	 * 丢弃缓存的 access_token，例如 DingTalk 返回 token 失效时
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 */
+	public void invalidate(String corpId, String appKey) {
+		cache.invalidate(new TokenKey(corpId, appKey));
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	public long hitCount() {
+		return cache.stats().hitCount();
+	}
+
+	public long missCount() {
+		return cache.stats().missCount();
+	}
+
+	public long loadCount() {
+		return loadCount.sum();
+	}
+
+	public long refreshCount() {
+		return refreshCount.sum();
+	}
+
+	public long refreshFailureCount() {
+		return refreshFailureCount.sum();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public DingTalkAppCredentialRegistry getCredentialRegistry() {
+		return credentialRegistry;
+	}
+
+	public void setCredentialRegistry(DingTalkAppCredentialRegistry credentialRegistry) {
+		this.credentialRegistry = credentialRegistry;
+	}
+
+	public DingTalkAccessTokenStore getTokenStore() {
+		return tokenStore;
+	}
+
+	public void setTokenStore(DingTalkAccessTokenStore tokenStore) {
+		this.tokenStore = tokenStore;
+	}
+
+	public Duration getLeaseTime() {
+		return leaseTime;
+	}
+
+	public void setLeaseTime(Duration leaseTime) {
+		this.leaseTime = leaseTime;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public void setNodeId(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	/** 从共享存储获取到可用 access_token 的次数 */
+	public long storeHitCount() {
+		return storeHitCount.sum();
+	}
+
+	/** 共享存储不可用的次数 */
+	public long storeFailureCount() {
+		return storeFailureCount.sum();
+	}
+
+	public DingTalkUpstreamInvoker getUpstreamInvoker() {
+		return upstreamInvoker;
+	}
+
+	public void setUpstreamInvoker(DingTalkUpstreamInvoker upstreamInvoker) {
+		this.upstreamInvoker = upstreamInvoker;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		refreshExecutor.shutdownNow();
+	}
+
+	protected String fetchAccessToken(TokenKey key) throws ApiException {
+		String appSecret = credentialRegistry != null ? credentialRegistry.getAppSecret(key.getCorpId(), key.getAppKey())
+				: dingTalkTemplate.getAppSecret(key.getCorpId(), key.getAppKey());
+		if (upstreamInvoker != null) {
+			return upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, key.getCorpId(), key.getAppKey(),
+					() -> dingTalkTemplate.getAccessToken(key.getAppKey(), appSecret), null);
+		}
+		return dingTalkTemplate.getAccessToken(key.getAppKey(), appSecret);
+	}
+
+	/**
+	 * 获取 access_token：设置了 {@link DingTalkAccessTokenStore} 时优先使用存储中未到刷新时间的 access_token；
+	 * 需要刷新时只有取得租约的节点请求 DingTalk 并写回存储，其余节点在过期前继续使用存储中的 access_token；
+	 * 存储不可用时退回到本节点请求 DingTalk
+	 */
+	private CachedToken fetch(TokenKey key) throws ApiException {
+		if (tokenStore == null) {
+			return new CachedToken(fetchAccessToken(key), System.nanoTime());
+		}
+		boolean leader;
+		try {
+			long now = System.currentTimeMillis();
+			DingTalkStoredAccessToken stored = tokenStore.get(key.getCorpId(), key.getAppKey());
+			if (stored != null && stored.getExpiresAt() > now && now - stored.getFetchedAt() < TimeUnit.NANOSECONDS.toMillis(refreshAfterWriteNanos)) {
+				storeHitCount.increment();
+				return toCachedToken(stored, now);
+			}
+			leader = tokenStore.tryAcquireLease(key.getCorpId(), key.getAppKey(), nodeId, leaseTime);
+			if (!leader && stored != null && stored.getExpiresAt() > now) {
+				// 其他节点正在刷新
+				storeHitCount.increment();
+				return toCachedToken(stored, now);
+			}
+		} catch (RuntimeException e) {
+			storeFailureCount.increment();
+			logger.warn("Access token store unavailable, fetching access_token of {} locally.", key, e);
+			return new CachedToken(fetchAccessToken(key), System.nanoTime());
+		}
+		// 持有租约，或其他节点持有租约但存储中已没有可用的 access_token
+		if (!leader) {
+			return new CachedToken(fetchAccessToken(key), System.nanoTime());
+		}
+		String accessToken;
+		try {
+			accessToken = fetchAccessToken(key);
+			long fetchedAt = System.currentTimeMillis();
+			try {
+				tokenStore.save(key.getCorpId(), key.getAppKey(), new DingTalkStoredAccessToken(accessToken, fetchedAt,
+						fetchedAt + TimeUnit.NANOSECONDS.toMillis(expireAfterWriteNanos)));
+			} catch (RuntimeException e) {
+				// 未能写回存储时本节点仍使用获取到的 access_token
+				storeFailureCount.increment();
+				logger.warn("Failed to save access_token of {} to the store.", key, e);
+			}
+		} finally {
+			try {
+				tokenStore.releaseLease(key.getCorpId(), key.getAppKey(), nodeId);
+			} catch (RuntimeException e) {
+				logger.debug("Failed to release the refresh lease of {} , it expires after {} .", key, leaseTime);
+			}
+		}
+		return new CachedToken(accessToken, System.nanoTime());
+	}
+
+	private static CachedToken toCachedToken(DingTalkStoredAccessToken stored, long now) {
+		long age = TimeUnit.MILLISECONDS.toNanos(Math.max(0, now - stored.getFetchedAt()));
+		return new CachedToken(stored.getAccessToken(), System.nanoTime() - age);
+	}
+
+	private CachedToken load(TokenKey key) throws ApiException {
+		try {
+			return singleFlight.execute(key, () -> {
+				// 等待期间可能已被其他请求或后台刷新写入
+				CachedToken cached = cache.getIfPresent(key);
+				if (cached != null && System.nanoTime() - cached.getFetchedAt() < expireAfterWriteNanos) {
+					return cached;
+				}
+				CachedToken fetched = this.fetch(key);
+				cache.put(key, fetched);
+				loadCount.increment();
+				return fetched;
+			}, loadTimeout);
+		} catch (ApiException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			// 熔断等快速失败的异常原样抛出
+			throw e;
+		} catch (TimeoutException e) {
+			throw new ApiException("Timed out after " + loadTimeout.toMillis() + "ms waiting for access_token of " + key, e);
+		} catch (Exception e) {
+			throw new ApiException(e);
+		}
+	}
+
+	private void scheduleRefresh(TokenKey key) {
+		if (!refreshing.add(key)) {
+			return;
+		}
+		try {
+			refreshExecutor.execute(() -> {
+				try {
+					singleFlight.execute(key, () -> {
+						CachedToken fetched = this.fetch(key);
+						cache.put(key, fetched);
+						return fetched;
+					}, loadTimeout);
+					refreshCount.increment();
+				} catch (Exception e) {
+					refreshFailureCount.increment();
+					logger.warn("Refresh access_token failed for {} , keep serving the cached one.", key, e);
+				} finally {
+					refreshing.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			refreshing.remove(key);
+		}
+	}
+
+	private static final class CachedToken {
+
+		private final String accessToken;
+		private final long fetchedAt;
+
+		CachedToken(String accessToken, long fetchedAt) {
+			this.accessToken = accessToken;
+			this.fetchedAt = fetchedAt;
+		}
+
+		String getAccessToken() {
+			return accessToken;
+		}
+
+		long getFetchedAt() {
+			return fetchedAt;
+		}
+
+	}
+
+	/**
+	 * access_token 缓存 Key
+	 */
+	public static final class TokenKey {
+
+		private final String corpId;
+		private final String appKey;
+
+		public TokenKey(String corpId, String appKey) {
+			this.corpId = corpId;
+			this.appKey = appKey;
+		}
+
+		public String getCorpId() {
+			return corpId;
+		}
+
+		public String getAppKey() {
+			return appKey;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof TokenKey)) {
+				return false;
+			}
+			TokenKey other = (TokenKey) o;
+			return Objects.equals(corpId, other.corpId) && Objects.equals(appKey, other.appKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(corpId, appKey);
+		}
+
+		@Override
+		public String toString() {
+			return "TokenKey [corpId=" + corpId + ", appKey=" + appKey + "]";
+		}
+
+	}
+
+}
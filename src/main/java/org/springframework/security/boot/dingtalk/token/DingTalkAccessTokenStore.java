@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.token;
+
+import java.time.Duration;
+
+/**
+ * 集群共享的 access_token 存储：各节点从存储读取 access_token，只有持有租约的节点向 DingTalk 刷新并写回。
+ * <p>实现抛出的 {@link RuntimeException} 视为存储不可用，{@link DingTalkAccessTokenCache} 此时退回到本地获取。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkAccessTokenStore {
+
+	/**
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @return 存储的 access_token，不存在时返回 null
+	 */
+	DingTalkStoredAccessToken get(String corpId, String appKey);
+
+	/**
+	 * 写入 access_token
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @param token access_token
+	 */
+	void save(String corpId, String appKey, DingTalkStoredAccessToken token);
+
+	/**
+	 * 申请或续期 (corpId, appKey) 的刷新租约，需为原子操作
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @param owner 申请租约的节点
+	 * @param leaseTime 租约时长
+	 * @return 租约空闲、已过期或已由该节点持有时返回 true
+	 */
+	boolean tryAcquireLease(String corpId, String appKey, String owner, Duration leaseTime);
+
+	/**
+	 * 释放该节点持有的租约
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @param owner 持有租约的节点
+	 */
+	void releaseLease(String corpId, String appKey, String owner);
+
+}
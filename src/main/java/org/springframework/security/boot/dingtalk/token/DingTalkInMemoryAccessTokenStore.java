@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.token;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 进程内的 access_token 存储，适用于单节点部署，或同一进程中多个缓存实例共享 access_token
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkInMemoryAccessTokenStore implements DingTalkAccessTokenStore {
+
+	private final ConcurrentMap<String, DingTalkStoredAccessToken> tokens = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+	@Override
+	public DingTalkStoredAccessToken get(String corpId, String appKey) {
+		return tokens.get(key(corpId, appKey));
+	}
+
+	@Override
+	public void save(String corpId, String appKey, DingTalkStoredAccessToken token) {
+		tokens.put(key(corpId, appKey), token);
+	}
+
+	@Override
+	public boolean tryAcquireLease(String corpId, String appKey, String owner, Duration leaseTime) {
+		long now = System.currentTimeMillis();
+		Lease acquired = new Lease(owner, now + leaseTime.toMillis());
+		Lease lease = leases.compute(key(corpId, appKey), (key, current) ->
+				current == null || current.owner.equals(owner) || current.until < now ? acquired : current);
+		return lease == acquired;
+	}
+
+	@Override
+	public void releaseLease(String corpId, String appKey, String owner) {
+		leases.computeIfPresent(key(corpId, appKey), (key, current) -> current.owner.equals(owner) ? null : current);
+	}
+
+	private static String key(String corpId, String appKey) {
+		return (corpId == null ? "" : corpId) + '\n' + appKey;
+	}
+
+	private static final class Lease {
+
+		private final String owner;
+		private final long until;
+
+		Lease(String owner, long until) {
+			this.owner = owner;
+			this.until = until;
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.token;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * 基于数据库的 access_token 存储，表结构见 {@link #DEFAULT_SCHEMA_LOCATION}（H2、MySQL、PostgreSQL 等通用）。
+ * <p>租约通过带条件的 UPDATE 原子地获取，时间使用各节点的墙上时间，租约时长应明显大于节点间的时钟偏差。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkJdbcAccessTokenStore implements DingTalkAccessTokenStore {
+
+	public static final String DEFAULT_TABLE_NAME = "DINGTALK_ACCESS_TOKEN";
+	public static final String DEFAULT_SCHEMA_LOCATION = "org/springframework/security/boot/dingtalk/token/schema-dingtalk-access-token.sql";
+
+	/** 表的主键不允许为空，未指定 corpId 时以空字符串存储 */
+	private static final String ANY_CORP = "";
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final JdbcTemplate jdbcTemplate;
+	private final String tableName;
+	private final String selectTokenSql;
+	private final String updateTokenSql;
+	private final String insertTokenSql;
+	private final String acquireLeaseSql;
+	private final String insertLeaseSql;
+	private final String releaseLeaseSql;
+
+	public DingTalkJdbcAccessTokenStore(JdbcTemplate jdbcTemplate) {
+		this(jdbcTemplate, DEFAULT_TABLE_NAME);
+	}
+
+	public DingTalkJdbcAccessTokenStore(JdbcTemplate jdbcTemplate, String tableName) {
+		Assert.notNull(jdbcTemplate, "jdbcTemplate must not be null");
+		Assert.hasText(tableName, "tableName must not be empty");
+		this.jdbcTemplate = jdbcTemplate;
+		this.tableName = tableName;
+		this.selectTokenSql = "SELECT ACCESS_TOKEN, FETCHED_AT, EXPIRES_AT FROM " + tableName + " WHERE CORP_ID = ? AND APP_KEY = ?";
+		this.updateTokenSql = "UPDATE " + tableName + " SET ACCESS_TOKEN = ?, FETCHED_AT = ?, EXPIRES_AT = ? WHERE CORP_ID = ? AND APP_KEY = ?";
+		this.insertTokenSql = "INSERT INTO " + tableName + " (CORP_ID, APP_KEY, ACCESS_TOKEN, FETCHED_AT, EXPIRES_AT) VALUES (?, ?, ?, ?, ?)";
+		this.acquireLeaseSql = "UPDATE " + tableName + " SET LEASE_OWNER = ?, LEASE_UNTIL = ? WHERE CORP_ID = ? AND APP_KEY = ?"
+				+ " AND (LEASE_OWNER IS NULL OR LEASE_OWNER = ? OR LEASE_UNTIL < ?)";
+		this.insertLeaseSql = "INSERT INTO " + tableName + " (CORP_ID, APP_KEY, LEASE_OWNER, LEASE_UNTIL) VALUES (?, ?, ?, ?)";
+		this.releaseLeaseSql = "UPDATE " + tableName + " SET LEASE_OWNER = NULL, LEASE_UNTIL = NULL WHERE CORP_ID = ? AND APP_KEY = ? AND LEASE_OWNER = ?";
+	}
+
+	/**
+	 * 按 {@link #DEFAULT_SCHEMA_LOCATION} 创建表，表已存在时忽略
+	 */
+	public void initializeSchema() {
+		String sql;
+		try (InputStream input = new ClassPathResource(DEFAULT_SCHEMA_LOCATION).getInputStream()) {
+			sql = StreamUtils.copyToString(input, StandardCharsets.UTF_8).trim();
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to read " + DEFAULT_SCHEMA_LOCATION, e);
+		}
+		if (sql.endsWith(";")) {
+			sql = sql.substring(0, sql.length() - 1);
+		}
+		try {
+			jdbcTemplate.execute(sql.replace(DEFAULT_TABLE_NAME, tableName));
+			logger.info("Created DingTalk access_token table {} .", tableName);
+		} catch (DataAccessException e) {
+			logger.debug("DingTalk access_token table {} not created, it probably exists already: {}", tableName, e.getMessage());
+		}
+	}
+
+	@Override
+	public DingTalkStoredAccessToken get(String corpId, String appKey) {
+		List<DingTalkStoredAccessToken> tokens = jdbcTemplate.query(selectTokenSql, (rs, rowNum) -> {
+			String accessToken = rs.getString(1);
+			return accessToken == null ? null : new DingTalkStoredAccessToken(accessToken, rs.getLong(2), rs.getLong(3));
+		}, corp(corpId), appKey);
+		return tokens.isEmpty() ? null : tokens.get(0);
+	}
+
+	@Override
+	public void save(String corpId, String appKey, DingTalkStoredAccessToken token) {
+		if (this.update(corpId, appKey, token) > 0) {
+			return;
+		}
+		try {
+			jdbcTemplate.update(insertTokenSql, corp(corpId), appKey, token.getAccessToken(), token.getFetchedAt(), token.getExpiresAt());
+		} catch (DuplicateKeyException e) {
+			// 并发插入，改为更新
+			this.update(corpId, appKey, token);
+		}
+	}
+
+	@Override
+	public boolean tryAcquireLease(String corpId, String appKey, String owner, Duration leaseTime) {
+		long now = System.currentTimeMillis();
+		long until = now + leaseTime.toMillis();
+		if (jdbcTemplate.update(acquireLeaseSql, owner, until, corp(corpId), appKey, owner, now) > 0) {
+			return true;
+		}
+		try {
+			return jdbcTemplate.update(insertLeaseSql, corp(corpId), appKey, owner, until) > 0;
+		} catch (DuplicateKeyException e) {
+			// 记录已存在且租约由其他节点持有
+			return false;
+		}
+	}
+
+	@Override
+	public void releaseLease(String corpId, String appKey, String owner) {
+		jdbcTemplate.update(releaseLeaseSql, corp(corpId), appKey, owner);
+	}
+
+	private int update(String corpId, String appKey, DingTalkStoredAccessToken token) {
+		return jdbcTemplate.update(updateTokenSql, token.getAccessToken(), token.getFetchedAt(), token.getExpiresAt(), corp(corpId), appKey);
+	}
+
+	private static String corp(String corpId) {
+		return corpId == null ? ANY_CORP : corpId;
+	}
+
+}
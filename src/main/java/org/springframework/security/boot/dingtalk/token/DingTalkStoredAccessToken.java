@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.token;
+
+/**
+ * 共享存储中的 access_token，时间均为各节点可比较的墙上时间（毫秒）
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkStoredAccessToken {
+
+	private final String accessToken;
+	private final long fetchedAt;
+	private final long expiresAt;
+
+	public DingTalkStoredAccessToken(String accessToken, long fetchedAt, long expiresAt) {
+		this.accessToken = accessToken;
+		this.fetchedAt = fetchedAt;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getAccessToken() {
+		return accessToken;
+	}
+
+	/** 从 DingTalk 获取的时间 */
+	public long getFetchedAt() {
+		return fetchedAt;
+	}
+
+	/** 不再可用的时间 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	@Override
+	public String toString() {
+		// 不输出 access_token
+		return "DingTalkStoredAccessToken [fetchedAt=" + fetchedAt + ", expiresAt=" + expiresAt + "]";
+	}
+
+}
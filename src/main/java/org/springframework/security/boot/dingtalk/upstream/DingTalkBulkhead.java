@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkBulkheadProperties;
+
+/**
+ * 基于信号量的并发隔离：限制同一 DingTalk 接口同时进行中的请求数，DingTalk 响应变慢时多余的登录快速失败而不是堆积线程
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkBulkhead {
+
+	private final String name;
+	private final int maxConcurrentCalls;
+	private final long maxWaitNanos;
+	private final Semaphore semaphore;
+	private final LongAdder rejectedCount = new LongAdder();
+
+	public DingTalkBulkhead(String name, SecurityDingTalkBulkheadProperties properties) {
+		this.name = name;
+		this.maxConcurrentCalls = properties.getMaxConcurrentCalls();
+		this.maxWaitNanos = properties.getMaxWaitDuration().toNanos();
+		this.semaphore = new Semaphore(maxConcurrentCalls);
+	}
+
+	/**
+	 * 申请一个并发名额
+	 * @return 成功时返回 true，需调用 {@link #release()} 归还
+	 */
+	public boolean tryAcquire() {
+		boolean acquired;
+		if (maxWaitNanos <= 0) {
+			acquired = semaphore.tryAcquire();
+		} else {
+			try {
+				acquired = semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				acquired = false;
+			}
+		}
+		if (!acquired) {
+			rejectedCount.increment();
+		}
+		return acquired;
+	}
+
+	public void release() {
+		semaphore.release();
+	}
+
+	public int getAvailableConcurrentCalls() {
+		return semaphore.availablePermits();
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+}
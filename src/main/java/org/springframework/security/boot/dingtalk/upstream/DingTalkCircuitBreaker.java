@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCircuitBreakerProperties;
+import org.springframework.util.Assert;
+
+/**
+ * 基于最近 N 次调用（计数滑动窗口）的熔断器：失败率或慢调用率超过阈值时打开，打开一段时间后进入半开状态放行少量试探请求，
+ * 试探结果达标则关闭，否则重新打开。
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkCircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * 熔断器状态变化监听
+	 */
+	@FunctionalInterface
+	public interface StateListener {
+
+		void onStateTransition(DingTalkCircuitBreaker circuitBreaker, State fromState, State toState);
+
+	}
+
+	private static final byte FAILURE = 1;
+	private static final byte SLOW = 2;
+
+	private final String name;
+	private final float failureRateThreshold;
+	private final float slowCallRateThreshold;
+	private final long slowCallDurationNanos;
+	private final int minimumNumberOfCalls;
+	private final long waitDurationInOpenStateNanos;
+	private final int permittedNumberOfCallsInHalfOpenState;
+	private final StateListener listener;
+	private final LongAdder notPermittedCount = new LongAdder();
+
+	/** 最近调用结果的环形缓冲，按位记录失败与慢调用 */
+	private final byte[] outcomes;
+	private int index;
+	private int recorded;
+	private int failures;
+	private int slowCalls;
+
+	private volatile State state = State.CLOSED;
+	private long openedAt;
+	private int halfOpenPermits;
+
+	public DingTalkCircuitBreaker(String name, SecurityDingTalkCircuitBreakerProperties properties, StateListener listener) {
+		Assert.isTrue(properties.getSlidingWindowSize() > 0, "slidingWindowSize must be greater than 0");
+		this.name = name;
+		this.failureRateThreshold = properties.getFailureRateThreshold();
+		this.slowCallRateThreshold = properties.getSlowCallRateThreshold();
+		this.slowCallDurationNanos = properties.getSlowCallDurationThreshold().toNanos();
+		this.minimumNumberOfCalls = Math.min(properties.getMinimumNumberOfCalls(), properties.getSlidingWindowSize());
+		this.waitDurationInOpenStateNanos = properties.getWaitDurationInOpenState().toNanos();
+		this.permittedNumberOfCallsInHalfOpenState = Math.max(1, Math.min(properties.getPermittedNumberOfCallsInHalfOpenState(), properties.getSlidingWindowSize()));
+		this.outcomes = new byte[properties.getSlidingWindowSize()];
+		this.listener = listener;
+	}
+
+	/**
+	 * 申请一次调用许可
+	 * @return 允许调用时返回 true，熔断器打开或半开状态的试探名额已用完时返回 false
+	 */
+	public boolean tryAcquirePermission() {
+		State from;
+		synchronized (this) {
+			from = state;
+			if (state == State.CLOSED) {
+				return true;
+			}
+			if (state == State.OPEN) {
+				if (System.nanoTime() - openedAt < waitDurationInOpenStateNanos) {
+					notPermittedCount.increment();
+					return false;
+				}
+				this.transitionTo(State.HALF_OPEN);
+			}
+			if (halfOpenPermits >= permittedNumberOfCallsInHalfOpenState) {
+				notPermittedCount.increment();
+				return false;
+			}
+			halfOpenPermits++;
+		}
+		this.fireTransition(from, State.HALF_OPEN);
+		return true;
+	}
+
+	/**
+	 * 归还未使用的调用许可，例如被并发隔离拒绝时
+	 */
+	public synchronized void releasePermission() {
+		if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+			halfOpenPermits--;
+		}
+	}
+
+	public void onSuccess(long durationNanos) {
+		this.record(durationNanos >= slowCallDurationNanos ? SLOW : 0);
+	}
+
+	public void onError(long durationNanos) {
+		this.record((byte) (FAILURE | (durationNanos >= slowCallDurationNanos ? SLOW : 0)));
+	}
+
+	/**
+	 * 熔断器打开时距离允许试探请求的剩余时间
+	 * @return 剩余毫秒数，未打开时返回 0
+	 */
+	public synchronized long getRemainingOpenMillis() {
+		if (state != State.OPEN) {
+			return 0;
+		}
+		long remaining = waitDurationInOpenStateNanos - (System.nanoTime() - openedAt);
+		return remaining > 0 ? TimeUnit.NANOSECONDS.toMillis(remaining) : 0;
+	}
+
+	public synchronized float getFailureRate() {
+		return recorded < minimumNumberOfCalls ? -1 : failures * 100f / recorded;
+	}
+
+	public synchronized float getSlowCallRate() {
+		return recorded < minimumNumberOfCalls ? -1 : slowCalls * 100f / recorded;
+	}
+
+	public synchronized int getNumberOfRecordedCalls() {
+		return recorded;
+	}
+
+	public long getNotPermittedCount() {
+		return notPermittedCount.sum();
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 强制关闭熔断器并清空统计
+	 */
+	public void reset() {
+		State from;
+		synchronized (this) {
+			from = state;
+			this.clear();
+			this.transitionTo(State.CLOSED);
+		}
+		this.fireTransition(from, State.CLOSED);
+	}
+
+	private void record(byte outcome) {
+		State from;
+		State to;
+		synchronized (this) {
+			from = state;
+			if (state == State.OPEN) {
+				// 打开前已发出的请求，结果不再计入
+				return;
+			}
+			byte evicted = outcomes[index];
+			if (recorded == outcomes.length) {
+				failures -= evicted & FAILURE;
+				slowCalls -= (evicted & SLOW) >> 1;
+			} else {
+				recorded++;
+			}
+			outcomes[index] = outcome;
+			index = (index + 1) % outcomes.length;
+			failures += outcome & FAILURE;
+			slowCalls += (outcome & SLOW) >> 1;
+
+			if (state == State.HALF_OPEN) {
+				if (recorded < permittedNumberOfCallsInHalfOpenState) {
+					return;
+				}
+				this.transitionTo(this.isAboveThresholds() ? State.OPEN : State.CLOSED);
+			} else if (recorded >= minimumNumberOfCalls && this.isAboveThresholds()) {
+				this.transitionTo(State.OPEN);
+			}
+			to = state;
+		}
+		this.fireTransition(from, to);
+	}
+
+	private boolean isAboveThresholds() {
+		return failures * 100f / recorded >= failureRateThreshold || slowCalls * 100f / recorded >= slowCallRateThreshold;
+	}
+
+	private void transitionTo(State newState) {
+		if (state == newState) {
+			return;
+		}
+		// 每次状态变化都重新开始统计
+		this.clear();
+		if (newState == State.OPEN) {
+			openedAt = System.nanoTime();
+		}
+		state = newState;
+	}
+
+	private void clear() {
+		Arrays.fill(outcomes, (byte) 0);
+		index = 0;
+		recorded = 0;
+		failures = 0;
+		slowCalls = 0;
+		halfOpenPermits = 0;
+	}
+
+	private void fireTransition(State from, State to) {
+		if (from != to && listener != null) {
+			listener.onStateTransition(this, from, to);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DingTalkCircuitBreaker [name=" + name + ", state=" + state + "]";
+	}
+
+}
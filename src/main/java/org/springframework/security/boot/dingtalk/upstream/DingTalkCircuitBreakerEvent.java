@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkCircuitBreaker.State;
+
+/**
+ * DingTalk 接口熔断器状态变化事件
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@SuppressWarnings("serial")
+public class DingTalkCircuitBreakerEvent extends ApplicationEvent {
+
+	private final String operation;
+	private final State fromState;
+	private final State toState;
+
+	public DingTalkCircuitBreakerEvent(DingTalkCircuitBreaker source, State fromState, State toState) {
+		super(source);
+		this.operation = source.getName();
+		this.fromState = fromState;
+		this.toState = toState;
+	}
+
+	public DingTalkCircuitBreaker getCircuitBreaker() {
+		return (DingTalkCircuitBreaker) getSource();
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public State getFromState() {
+		return fromState;
+	}
+
+	public State getToState() {
+		return toState;
+	}
+
+	@Override
+	public String toString() {
+		return "DingTalkCircuitBreakerEvent [operation=" + operation + ", fromState=" + fromState + ", toState=" + toState + "]";
+	}
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkQuotaProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkQuotaProperties.Rule;
+import org.springframework.util.StringUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * DingTalk 接口调用配额：每个配额一个令牌桶（GCRA），额度不足时在 maxWait 内排队等待，
+ * 超出 maxWait 则抛出 {@link DingTalkServiceUnavailableException}，不再向 DingTalk 发出请求。
+ * <p>配额按匹配到的规则所设置的维度划分，规则未设置的维度用 * 合并，例如只设置了接口的规则对所有应用共用一个配额；
+ * 没有匹配的规则时按 (corpId, appKey, 接口) 划分。配额的数量有上限，空闲超过突发窗口的配额会过期（此时令牌桶已经回满）。</p>
+ * <p>各配额的使用情况见 {@link #getQuotas()}。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkQuotaGovernor {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final SecurityDingTalkQuotaProperties properties;
+	private final long maxWaitNanos;
+	private final Cache<String, Quota> quotas;
+
+	public DingTalkQuotaGovernor(SecurityDingTalkQuotaProperties properties) {
+		this.properties = properties;
+		this.maxWaitNanos = properties.getMaxWait().toNanos();
+		long idleNanos = Quota.burstNanos(properties.getPermitsPerSecond(), properties.getBurst());
+		for (Rule rule : properties.getRules()) {
+			idleNanos = Math.max(idleNanos, Quota.burstNanos(rule.getPermitsPerSecond(), rule.getBurst()));
+		}
+		this.quotas = CacheBuilder.newBuilder()
+				.maximumSize(properties.getMaxQuotas())
+				.expireAfterAccess(idleNanos + maxWaitNanos, TimeUnit.NANOSECONDS)
+				.build();
+	}
+
+	/**
+	 * 申请一次调用额度，必要时等待
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @param api 接口名称
+	 * @throws DingTalkServiceUnavailableException 额度不足且等待时间超过 maxWait
+	 */
+	public void acquire(String corpId, String appKey, String api) {
+		Quota quota = this.getQuota(corpId, appKey, api);
+		long waitNanos = quota.reserve(maxWaitNanos);
+		if (waitNanos < 0) {
+			logger.debug("DingTalk {} quota of {} exhausted, call rejected.", api, quota.getName());
+			throw new DingTalkServiceUnavailableException("DingTalk " + api + " quota exhausted.",
+					Duration.ofNanos(-waitNanos));
+		}
+		if (waitNanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DingTalkServiceUnavailableException("Interrupted while waiting for DingTalk " + api + " quota.");
+			}
+		}
+	}
+
+	/**
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key
+	 * @param api 接口名称
+	 * @return 调用所属的配额，匹配同一规则且规则所设置的维度相同的调用共用一个配额
+	 */
+	public Quota getQuota(String corpId, String appKey, String api) {
+		Rule rule = this.match(corpId, appKey, api);
+		String name = rule == null ? name(corpId, appKey, api)
+				: name(dimension(rule.getCorpId(), corpId), dimension(rule.getAppKey(), appKey), dimension(rule.getApi(), api));
+		Quota quota = quotas.getIfPresent(name);
+		if (quota != null) {
+			return quota;
+		}
+		return quotas.asMap().computeIfAbsent(name, key -> rule == null
+				? new Quota(key, properties.getPermitsPerSecond(), properties.getBurst())
+				: new Quota(key, rule.getPermitsPerSecond(), rule.getBurst()));
+	}
+
+	public Collection<Quota> getQuotas() {
+		return Collections.unmodifiableCollection(quotas.asMap().values());
+	}
+
+	private Rule match(String corpId, String appKey, String api) {
+		List<Rule> rules = properties.getRules();
+		for (Rule rule : rules) {
+			if (matches(rule.getCorpId(), corpId) && matches(rule.getAppKey(), appKey) && matches(rule.getApi(), api)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	private static boolean matches(String expected, String actual) {
+		return !StringUtils.hasText(expected) || expected.equals(actual);
+	}
+
+	/**
+	 * 规则未设置的维度合并为 *
+	 */
+	private static String dimension(String expected, String actual) {
+		return StringUtils.hasText(expected) ? actual : "*";
+	}
+
+	private static String name(String corpId, String appKey, String api) {
+		return (corpId == null ? "" : corpId) + '/' + (appKey == null ? "" : appKey) + '/' + api;
+	}
+
+	/**
+	 * 单个配额，名称为 corpId/appKey/接口，被规则合并的维度为 *
+	 */
+	public static final class Quota {
+
+		private final String name;
+		private final double permitsPerSecond;
+		private final long emissionIntervalNanos;
+		private final long burstNanos;
+		private final long origin = System.nanoTime();
+		/** 理论到达时间，相对于 origin */
+		private final AtomicLong theoreticalArrivalTime = new AtomicLong();
+		private final LongAdder acquiredCount = new LongAdder();
+		private final LongAdder delayedCount = new LongAdder();
+		private final LongAdder rejectedCount = new LongAdder();
+
+		Quota(String name, double permitsPerSecond, int burst) {
+			this.name = name;
+			this.permitsPerSecond = permitsPerSecond > 0 ? permitsPerSecond : Double.MAX_VALUE;
+			this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / this.permitsPerSecond));
+			this.burstNanos = emissionIntervalNanos * Math.max(1, burst);
+		}
+
+		/**
+		 * @return 令牌桶从用尽到回满所需的纳秒数
+		 */
+		static long burstNanos(double permitsPerSecond, int burst) {
+			double rate = permitsPerSecond > 0 ? permitsPerSecond : Double.MAX_VALUE;
+			return Math.max(1L, (long) (1_000_000_000L / rate)) * Math.max(1, burst);
+		}
+
+		/**
+		 * 预约一次调用
+		 * @param maxWaitNanos 最长等待时间
+		 * @return 需要等待的纳秒数；额度不足时返回负数，其绝对值为可重试的等待时间
+		 */
+		long reserve(long maxWaitNanos) {
+			long now = System.nanoTime() - origin;
+			for (;;) {
+				long tat = theoreticalArrivalTime.get();
+				long newTat = Math.max(tat, now) + emissionIntervalNanos;
+				long wait = Math.max(0, newTat - burstNanos - now);
+				if (wait > maxWaitNanos) {
+					rejectedCount.increment();
+					return -wait;
+				}
+				if (theoreticalArrivalTime.compareAndSet(tat, newTat)) {
+					acquiredCount.increment();
+					if (wait > 0) {
+						delayedCount.increment();
+					}
+					return wait;
+				}
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public double getPermitsPerSecond() {
+			return permitsPerSecond;
+		}
+
+		/**
+		 * 当前已占用的突发额度比例
+		 * @return 0 表示额度完全空闲，1 表示突发额度已用完，大于 1 表示已有调用在排队
+		 */
+		public double getUtilization() {
+			long backlog = theoreticalArrivalTime.get() - (System.nanoTime() - origin);
+			return backlog <= 0 ? 0 : (double) backlog / burstNanos;
+		}
+
+		/** 获得额度的调用次数 */
+		public long getAcquiredCount() {
+			return acquiredCount.sum();
+		}
+
+		/** 排队等待后获得额度的调用次数 */
+		public long getDelayedCount() {
+			return delayedCount.sum();
+		}
+
+		/** 因额度不足被拒绝的调用次数 */
+		public long getRejectedCount() {
+			return rejectedCount.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "Quota [name=" + name + ", utilization=" + getUtilization() + "]";
+		}
+
+	}
+
+}
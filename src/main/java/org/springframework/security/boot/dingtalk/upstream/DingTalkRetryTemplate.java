@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkRetryProperties;
+import org.springframework.util.StringUtils;
+
+import com.taobao.api.ApiException;
+
+/**
+ * DingTalk 接口重试：按 errcode 表判定失败是否可重试，退避采用 decorrelated jitter（在 [base, 上次退避 × 3] 之间随机，
+ * 不超过 maxBackoff），且首次请求开始后的总耗时不超过 deadline，剩余时间不足以完成一次退避加一次请求（按上次请求的耗时估算）时不再重试。
+ * <p>消耗一次性授权码的接口在没有 errcode 的 I/O 失败时不重试，失败的请求可能已经消耗了授权码。</p>
+ * <p>各接口的尝试次数与最终结果记录在 {@link #getStats()} 中。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkRetryTemplate {
+
+	/**
+	 * 调用的最终结果
+	 */
+	public enum Outcome {
+		/** 成功（可能经过重试） */
+		SUCCESS,
+		/** 不可重试的失败 */
+		FAILURE,
+		/** 重试次数已用完 */
+		EXHAUSTED,
+		/** 剩余时间不足以再次重试 */
+		DEADLINE_EXCEEDED
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final int maxAttempts;
+	private final long initialBackoffNanos;
+	private final long maxBackoffNanos;
+	private final long deadlineNanos;
+	private final Set<Long> retryableErrcodes;
+	private final boolean retryOnIoError;
+	private final Set<String> oneTimeCodeOperations;
+	private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+	public DingTalkRetryTemplate(SecurityDingTalkRetryProperties properties) {
+		this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+		this.initialBackoffNanos = properties.getInitialBackoff().toNanos();
+		this.maxBackoffNanos = Math.max(initialBackoffNanos, properties.getMaxBackoff().toNanos());
+		this.deadlineNanos = properties.getDeadline().toNanos();
+		this.retryableErrcodes = new HashSet<>(properties.getRetryableErrcodes());
+		this.retryOnIoError = properties.isRetryOnIoError();
+		this.oneTimeCodeOperations = new HashSet<>(properties.getOneTimeCodeOperations());
+	}
+
+	/**
+	 * 执行调用，抛出可重试的 {@link ApiException} 时重试
+	 * @param <T> 响应类型
+	 * @param operation 接口名称
+	 * @param call 实际调用
+	 * @return 接口响应
+	 * @throws ApiException 最后一次调用的异常
+	 */
+	public <T> T execute(String operation, DingTalkUpstreamCall<T> call) throws ApiException {
+		return this.execute(operation, call, null);
+	}
+
+	/**
+	 * 执行调用，抛出可重试的 {@link ApiException} 或响应的 errcode 可重试时重试
+	 * @param <T> 响应类型
+	 * @param operation 接口名称
+	 * @param call 实际调用
+	 * @param errcode 从响应中获取 errcode，可为空
+	 * @return 最后一次调用的响应，调用方仍需检查响应是否成功
+	 * @throws ApiException 最后一次调用的异常
+	 */
+	public <T> T execute(String operation, DingTalkUpstreamCall<T> call, Function<T, Long> errcode) throws ApiException {
+		Stats stats = this.getStats(operation);
+		long start = System.nanoTime();
+		long backoff = initialBackoffNanos;
+		for (int attempt = 1; ; attempt++) {
+			stats.attempts.increment();
+			long attemptStart = System.nanoTime();
+			T response;
+			try {
+				response = call.call();
+			} catch (ApiException e) {
+				if (!this.isRetryable(operation, e)) {
+					stats.record(Outcome.FAILURE);
+					throw e;
+				}
+				backoff = this.backoffOrStop(operation, stats, attempt, start, attemptStart, backoff, e.getErrCode());
+				if (backoff < 0) {
+					throw e;
+				}
+				continue;
+			}
+			Long code = errcode != null && response != null ? errcode.apply(response) : null;
+			if (code == null || code == 0L) {
+				stats.record(Outcome.SUCCESS);
+				return response;
+			}
+			if (!this.isRetryable(code)) {
+				stats.record(Outcome.FAILURE);
+				return response;
+			}
+			backoff = this.backoffOrStop(operation, stats, attempt, start, attemptStart, backoff, String.valueOf(code));
+			if (backoff < 0) {
+				return response;
+			}
+		}
+	}
+
+	public boolean isRetryable(Long errcode) {
+		return errcode != null && retryableErrcodes.contains(errcode);
+	}
+
+	/**
+	 * @param operation 接口名称
+	 * @param e 调用异常
+	 * @return errcode 可重试，或无 errcode 且允许对该接口重试 I/O 失败时返回 true
+	 */
+	public boolean isRetryable(String operation, ApiException e) {
+		if (!StringUtils.hasText(e.getErrCode())) {
+			return retryOnIoError && !oneTimeCodeOperations.contains(operation);
+		}
+		try {
+			return retryableErrcodes.contains(Long.valueOf(e.getErrCode().trim()));
+		} catch (NumberFormatException ex) {
+			return false;
+		}
+	}
+
+	public Map<String, Stats> getStats() {
+		return Collections.unmodifiableMap(stats);
+	}
+
+	public Stats getStats(String operation) {
+		return stats.computeIfAbsent(operation, key -> new Stats());
+	}
+
+	/**
+	 * 计算并等待下一次退避
+	 * @return 本次退避时长，不再重试时返回 -1
+	 */
+	private long backoffOrStop(String operation, Stats stats, int attempt, long start, long attemptStart,
+			long previousBackoff, String errcode) {
+		if (attempt >= maxAttempts) {
+			stats.record(Outcome.EXHAUSTED);
+			return -1;
+		}
+		// decorrelated jitter: sleep = min(cap, random(base, previous * 3))
+		long upper = Math.min(maxBackoffNanos, Math.max(initialBackoffNanos + 1, previousBackoff * 3));
+		long sleep = ThreadLocalRandom.current().nextLong(initialBackoffNanos, upper + 1);
+		long now = System.nanoTime();
+		long remaining = deadlineNanos - (now - start);
+		// 下一次请求预计与本次耗时相同，退避加请求须在截止时间之内完成
+		if (sleep + (now - attemptStart) >= remaining) {
+			stats.record(Outcome.DEADLINE_EXCEEDED);
+			return -1;
+		}
+		logger.debug("DingTalk {} failed with errcode {} , retry #{} in {}ms.", operation, errcode, attempt,
+				TimeUnit.NANOSECONDS.toMillis(sleep));
+		try {
+			TimeUnit.NANOSECONDS.sleep(sleep);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stats.record(Outcome.DEADLINE_EXCEEDED);
+			return -1;
+		}
+		stats.retries.increment();
+		return sleep;
+	}
+
+	/**
+	 * 单个接口的重试统计
+	 */
+	public static final class Stats {
+
+		private final LongAdder attempts = new LongAdder();
+		private final LongAdder retries = new LongAdder();
+		private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+		Stats() {
+			for (int i = 0; i < outcomes.length; i++) {
+				outcomes[i] = new LongAdder();
+			}
+		}
+
+		void record(Outcome outcome) {
+			outcomes[outcome.ordinal()].increment();
+		}
+
+		/** 实际发出的请求次数 */
+		public long getAttempts() {
+			return attempts.sum();
+		}
+
+		/** 重试次数 */
+		public long getRetries() {
+			return retries.sum();
+		}
+
+		/** 以该结果结束的调用次数 */
+		public long getCount(Outcome outcome) {
+			return outcomes[outcome.ordinal()].sum();
+		}
+
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkBulkheadProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCircuitBreakerProperties;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkCircuitBreaker.State;
+import org.springframework.util.StringUtils;
+
+import com.taobao.api.ApiException;
+
+/**
+ * DingTalk 接口调用的统一入口：每个接口各自一个熔断器与并发隔离，熔断打开或并发已满时抛出
+ * {@link DingTalkServiceUnavailableException} 快速失败，不再向 DingTalk 发出请求。
+ * <p>只有 I/O 失败与表示 DingTalk 暂时不可用的 errcode 计为熔断器的失败，单个应用的凭证或业务错误不影响其他应用。</p>
+ * <p>设置 {@link DingTalkRetryTemplate} 后，可重试的失败按其策略重试，每次尝试都单独经过熔断器与并发隔离；
+ * 熔断器状态变化以 {@link DingTalkCircuitBreakerEvent} 发布；设置 {@link DingTalkQuotaGovernor} 后，每次尝试前先按
+ * (corpId, appKey, 接口) 申请调用配额。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkUpstreamInvoker implements ApplicationEventPublisherAware {
+
+	/** 获取 access_token：/gettoken */
+	public static final String OPERATION_GET_TOKEN = "gettoken";
+	/** 扫码登录获取用户信息：/sns/getuserinfo_bycode */
+	public static final String OPERATION_SNS_GET_USERINFO_BYCODE = "sns.getuserinfo_bycode";
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final SecurityDingTalkCircuitBreakerProperties circuitBreakerProperties;
+	private final SecurityDingTalkBulkheadProperties bulkheadProperties;
+	private final ConcurrentMap<String, DingTalkCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, DingTalkBulkhead> bulkheads = new ConcurrentHashMap<>();
+	private DingTalkRetryTemplate retryTemplate;
+	private Set<Long> transientErrcodes = new HashSet<>(Arrays.asList(-1L, 90018L));
+	private DingTalkQuotaGovernor quotaGovernor;
+	private ApplicationEventPublisher eventPublisher;
+
+	public DingTalkUpstreamInvoker(SecurityDingTalkCircuitBreakerProperties circuitBreakerProperties,
+			SecurityDingTalkBulkheadProperties bulkheadProperties) {
+		this.circuitBreakerProperties = circuitBreakerProperties;
+		this.bulkheadProperties = bulkheadProperties;
+	}
+
+	/**
+	 * 经熔断器与并发隔离调用 DingTalk 接口
+	 * @param <T> 响应类型
+	 * @param operation 接口名称，如 {@link #OPERATION_GET_TOKEN}
+	 * @param call 实际调用
+	 * @return 接口响应
+	 * @throws ApiException 调用 DingTalk 失败
+	 * @throws DingTalkServiceUnavailableException 熔断打开或并发已满
+	 */
+	public <T> T invoke(String operation, DingTalkUpstreamCall<T> call) throws ApiException {
+		return this.invoke(operation, call, null);
+	}
+
+	/**
+	 * 经熔断器与并发隔离调用 DingTalk 接口，响应中可重试的 errcode 计为熔断器的失败
+	 * @param <T> 响应类型
+	 * @param operation 接口名称，如 {@link #OPERATION_SNS_GET_USERINFO_BYCODE}
+	 * @param call 实际调用
+	 * @param errcode 从响应中获取 errcode，可为空
+	 * @return 接口响应，调用方仍需检查响应是否成功
+	 * @throws ApiException 调用 DingTalk 失败
+	 * @throws DingTalkServiceUnavailableException 熔断打开或并发已满
+	 */
+	public <T> T invoke(String operation, DingTalkUpstreamCall<T> call, Function<T, Long> errcode) throws ApiException {
+		return this.invoke(operation, null, null, call, errcode);
+	}
+
+	/**
+	 * 经调用配额、熔断器与并发隔离调用 DingTalk 接口
+	 * @param <T> 响应类型
+	 * @param operation 接口名称，如 {@link #OPERATION_SNS_GET_USERINFO_BYCODE}
+	 * @param corpId 企业的corpid，可为空
+	 * @param appKey 应用的唯一标识key，用于区分调用配额
+	 * @param call 实际调用
+	 * @param errcode 从响应中获取 errcode，可为空
+	 * @return 接口响应，调用方仍需检查响应是否成功
+	 * @throws ApiException 调用 DingTalk 失败
+	 * @throws DingTalkServiceUnavailableException 配额不足、熔断打开或并发已满
+	 */
+	public <T> T invoke(String operation, String corpId, String appKey, DingTalkUpstreamCall<T> call, Function<T, Long> errcode) throws ApiException {
+		if (retryTemplate != null) {
+			return retryTemplate.execute(operation, () -> this.invokeOnce(operation, corpId, appKey, call, errcode), errcode);
+		}
+		return this.invokeOnce(operation, corpId, appKey, call, errcode);
+	}
+
+	protected <T> T invokeOnce(String operation, String corpId, String appKey, DingTalkUpstreamCall<T> call, Function<T, Long> errcode) throws ApiException {
+		// 先等待调用配额，排队期间不占用熔断器的试探名额与并发隔离
+		if (quotaGovernor != null && appKey != null) {
+			quotaGovernor.acquire(corpId, appKey, operation);
+		}
+		DingTalkCircuitBreaker circuitBreaker = this.getCircuitBreaker(operation);
+		if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+			throw new DingTalkServiceUnavailableException("DingTalk " + operation + " is temporarily unavailable.",
+					Duration.ofMillis(circuitBreaker.getRemainingOpenMillis()));
+		}
+		DingTalkBulkhead bulkhead = this.getBulkhead(operation);
+		if (bulkhead != null && !bulkhead.tryAcquire()) {
+			if (circuitBreaker != null) {
+				circuitBreaker.releasePermission();
+			}
+			throw new DingTalkServiceUnavailableException("Too many concurrent DingTalk " + operation + " calls.");
+		}
+		long start = System.nanoTime();
+		try {
+			T result = call.call();
+			if (circuitBreaker != null) {
+				if (this.isTransientFailure(result, errcode)) {
+					circuitBreaker.onError(System.nanoTime() - start);
+				} else {
+					circuitBreaker.onSuccess(System.nanoTime() - start);
+				}
+			}
+			return result;
+		} catch (ApiException | RuntimeException e) {
+			if (circuitBreaker != null) {
+				if (this.isFailure(e)) {
+					circuitBreaker.onError(System.nanoTime() - start);
+				} else {
+					circuitBreaker.onSuccess(System.nanoTime() - start);
+				}
+			}
+			throw e;
+		} finally {
+			if (bulkhead != null) {
+				bulkhead.release();
+			}
+		}
+	}
+
+	/**
+	 * @param operation 接口名称
+	 * @return 接口对应的熔断器，未启用时返回 null
+	 */
+	public DingTalkCircuitBreaker getCircuitBreaker(String operation) {
+		if (circuitBreakerProperties == null || !circuitBreakerProperties.isEnabled()) {
+			return null;
+		}
+		return circuitBreakers.computeIfAbsent(operation, key -> new DingTalkCircuitBreaker(key, circuitBreakerProperties, this::onStateTransition));
+	}
+
+	/**
+	 * @param operation 接口名称
+	 * @return 接口对应的并发隔离，未启用时返回 null
+	 */
+	public DingTalkBulkhead getBulkhead(String operation) {
+		if (bulkheadProperties == null || !bulkheadProperties.isEnabled()) {
+			return null;
+		}
+		return bulkheads.computeIfAbsent(operation, key -> new DingTalkBulkhead(key, bulkheadProperties));
+	}
+
+	/**
+	 * 调用异常是否计为熔断器的失败：熔断器按接口共享，DingTalk 已返回 errcode 的业务或凭证错误（如 appSecret 错误）
+	 * 只与单个应用有关，不计为失败，避免一个配置错误的应用为所有应用打开熔断器
+	 * @param e 调用异常
+	 * @return 无 errcode 的 I/O 失败、可重试的 errcode 或其他运行时异常时返回 true
+	 */
+	protected boolean isFailure(Exception e) {
+		if (!(e instanceof ApiException) || !StringUtils.hasText(((ApiException) e).getErrCode())) {
+			return true;
+		}
+		try {
+			return transientErrcodes.contains(Long.valueOf(((ApiException) e).getErrCode().trim()));
+		} catch (NumberFormatException ex) {
+			return true;
+		}
+	}
+
+	private <T> boolean isTransientFailure(T result, Function<T, Long> errcode) {
+		if (errcode == null || result == null) {
+			return false;
+		}
+		Long code = errcode.apply(result);
+		return code != null && transientErrcodes.contains(code);
+	}
+
+	public DingTalkRetryTemplate getRetryTemplate() {
+		return retryTemplate;
+	}
+
+	public void setRetryTemplate(DingTalkRetryTemplate retryTemplate) {
+		this.retryTemplate = retryTemplate;
+	}
+
+	public Set<Long> getTransientErrcodes() {
+		return transientErrcodes;
+	}
+
+	/**
+	 * 设置计为熔断器失败的 errcode，与是否启用重试无关
+	 * @param transientErrcodes 表示 DingTalk 暂时不可用的 errcode
+	 */
+	public void setTransientErrcodes(Set<Long> transientErrcodes) {
+		this.transientErrcodes = new HashSet<>(transientErrcodes);
+	}
+
+	public DingTalkQuotaGovernor getQuotaGovernor() {
+		return quotaGovernor;
+	}
+
+	public void setQuotaGovernor(DingTalkQuotaGovernor quotaGovernor) {
+		this.quotaGovernor = quotaGovernor;
+	}
+
+	public Collection<DingTalkCircuitBreaker> getCircuitBreakers() {
+		return Collections.unmodifiableCollection(circuitBreakers.values());
+	}
+
+	public Collection<DingTalkBulkhead> getBulkheads() {
+		return Collections.unmodifiableCollection(bulkheads.values());
+	}
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+		this.eventPublisher = applicationEventPublisher;
+	}
+
+	protected void onStateTransition(DingTalkCircuitBreaker circuitBreaker, State fromState, State toState) {
+		if (toState == State.OPEN) {
+			logger.warn("Circuit breaker of DingTalk {} changed from {} to {} .", circuitBreaker.getName(), fromState, toState);
+		} else {
+			logger.info("Circuit breaker of DingTalk {} changed from {} to {} .", circuitBreaker.getName(), fromState, toState);
+		}
+		if (eventPublisher != null) {
+			eventPublisher.publishEvent(new DingTalkCircuitBreakerEvent(circuitBreaker, fromState, toState));
+		}
+	}
+
+}
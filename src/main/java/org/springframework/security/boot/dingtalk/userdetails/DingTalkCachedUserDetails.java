@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.userdetails;
+
+import java.io.Serializable;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * 缓存的用户信息，附带用于按 unionid、userid、企业失效的身份信息
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkCachedUserDetails implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final UserDetails userDetails;
+	private final String corpId;
+	private final String unionid;
+	private final String userid;
+	private final long loadedAt;
+
+	public DingTalkCachedUserDetails(UserDetails userDetails, String corpId) {
+		this(userDetails, corpId, System.currentTimeMillis());
+	}
+
+	/**
+	 * @param userDetails 用户信息
+	 * @param corpId 用户所属企业的corpid，可为空
+	 * @param loadedAt 开始加载用户信息的时间（毫秒），作为缓存条目的版本
+	 */
+	public DingTalkCachedUserDetails(UserDetails userDetails, String corpId, long loadedAt) {
+		this.userDetails = userDetails;
+		this.corpId = corpId;
+		this.loadedAt = loadedAt;
+		if (userDetails instanceof DingTalkPrincipal) {
+			this.unionid = ((DingTalkPrincipal) userDetails).getUnionid();
+			this.userid = ((DingTalkPrincipal) userDetails).getUserid();
+		} else {
+			this.unionid = null;
+			this.userid = null;
+		}
+	}
+
+	public UserDetails getUserDetails() {
+		return userDetails;
+	}
+
+	public String getCorpId() {
+		return corpId;
+	}
+
+	public String getUnionid() {
+		return unionid;
+	}
+
+	public String getUserid() {
+		return userid;
+	}
+
+	/** 开始加载用户信息的时间（毫秒），此后发出的失效消息表示该条目可能已过时 */
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.userdetails;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内的失效消息通道，在发送线程上同步通知同一 JVM 内的订阅者，用于单节点部署与测试
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkLoopbackInvalidationBus implements DingTalkUserDetailsInvalidationBus {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final List<Consumer<DingTalkUserDetailsInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void publish(DingTalkUserDetailsInvalidation invalidation) {
+		for (Consumer<DingTalkUserDetailsInvalidation> listener : listeners) {
+			try {
+				listener.accept(invalidation);
+			} catch (RuntimeException e) {
+				logger.warn("Failed to deliver {} .", invalidation, e);
+			}
+		}
+	}
+
+	@Override
+	public void subscribe(Consumer<DingTalkUserDetailsInvalidation> listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void unsubscribe(Consumer<DingTalkUserDetailsInvalidation> listener) {
+		listeners.remove(listener);
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.userdetails;
+
+import java.time.Duration;
+
+/**
+ * 集群共享的用户信息缓存（二级缓存），可基于 Redis 等实现。
+ * <p>实现需要能按 {@link DingTalkUserDetailsInvalidation} 的范围删除缓存，例如为 unionid、userid、企业维护索引；
+ * 所有方法失败时抛出 {@link RuntimeException}，调用方会跳过共享缓存直接加载。</p>
+ * <p>条目以 {@link DingTalkCachedUserDetails#getLoadedAt()} 为版本：加载可能在另一节点失效之前开始、在失效之后写入，
+ * 实现需记录各失效范围最近的 {@link DingTalkUserDetailsInvalidation#getIssuedAt()}（保留不短于缓存时长），
+ * 并在写入时原子地比较，例如 Redis 的 Lua 脚本。时间来自各节点的时钟，比较时可放宽节点间的时钟偏差。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkSharedUserDetailsCache {
+
+	/**
+	 * @param key 身份 Key，如 {@link DingTalkUserDetailsCache#unionidKey(String)}
+	 * @return 缓存的用户信息，不存在或已过期时返回 null
+	 */
+	DingTalkCachedUserDetails get(String key);
+
+	/**
+	 * 写入用户信息；覆盖该条目的失效消息的 issuedAt 不早于条目的 loadedAt，或已有 loadedAt 更晚的条目时，不得写入
+	 * @param key 身份 Key
+	 * @param userDetails 用户信息
+	 * @param ttl 缓存时长
+	 */
+	void put(String key, DingTalkCachedUserDetails userDetails, Duration ttl);
+
+	/**
+	 * 删除失效范围内的缓存，并记录失效时间，之后写入的更早开始加载的条目会被丢弃
+	 * @param invalidation 失效消息
+	 */
+	void invalidate(DingTalkUserDetailsInvalidation invalidation);
+
+}
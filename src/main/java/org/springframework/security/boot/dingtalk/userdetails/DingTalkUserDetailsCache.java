@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.userdetails;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.springframework.security.boot.dingtalk.userdetails.DingTalkUserDetailsInvalidation.Scope;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * 以 DingTalk 身份（unionid、openid、userid）为 Key 缓存 {@link UserDetails}，同一员工多端登录时不再重复查询用户信息。
+ * <p>同一 Key 同一时刻只有一个加载过程，其余调用方等待其结果；加载失败不缓存。缓存的用户信息仍需经过
+ * {@link org.springframework.security.core.userdetails.UserDetailsChecker} 检查，账号禁用等状态变化应调用
+ * {@link #invalidate(UserDetails)} 等方法使缓存立即失效。</p>
+ * <p>本地缓存（L1）未命中时先查询 {@link DingTalkSharedUserDetailsCache}（L2），仍未命中才加载；失效时同时删除 L2，
+ * 并经 {@link DingTalkUserDetailsInvalidationBus} 通知其他节点删除各自的 L1。写入 L2 的条目以加载开始时间为版本，
+ * 见 {@link DingTalkSharedUserDetailsCache}。两级缓存的命中率分别统计。</p>
+ * <p>缓存中的实例不交给调用方：认证成功后 ProviderManager 会对结果调用 eraseCredentials，调用方也可能修改用户信息，
+ * 因此每次返回序列化复制的副本；无法序列化的用户信息不缓存。确认 UserDetails 不可变时可关闭 {@link #setCopyOnRead(boolean)}。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkUserDetailsCache implements DisposableBean {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final Cache<String, DingTalkCachedUserDetails> cache;
+	private final Consumer<DingTalkUserDetailsInvalidation> invalidationListener = this::onInvalidation;
+	/** 每次失效加一，加载期间发生失效时不保留加载结果 */
+	private final AtomicLong invalidations = new AtomicLong();
+	private final LongAdder sharedHitCount = new LongAdder();
+	private final LongAdder sharedMissCount = new LongAdder();
+	private final LongAdder sharedFailureCount = new LongAdder();
+	private DingTalkSharedUserDetailsCache sharedCache;
+	private Duration sharedTtl;
+	private DingTalkUserDetailsInvalidationBus invalidationBus;
+	private String nodeId = UUID.randomUUID().toString();
+	private boolean copyOnRead = true;
+	private final AtomicBoolean notSerializableWarned = new AtomicBoolean();
+
+	/**
+	 * @param maximumSize 最多缓存的用户数量
+	 * @param ttl 用户信息的缓存时长
+	 */
+	public DingTalkUserDetailsCache(long maximumSize, Duration ttl) {
+		Assert.notNull(ttl, "ttl must not be null");
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build();
+		this.sharedTtl = ttl;
+	}
+
+	/**
+	 * 获取缓存的用户信息，未缓存时加载
+	 * @param key 身份 Key，如 {@link #unionidKey(String)}
+	 * @param loader 用户信息的加载过程
+	 * @return 用户信息
+	 */
+	public UserDetails get(String key, Callable<UserDetails> loader) {
+		return this.get(key, null, loader);
+	}
+
+	/**
+	 * 获取缓存的用户信息，未缓存时加载
+	 * @param key 身份 Key，如 {@link #unionidKey(String)}
+	 * @param corpId 用户所属企业的corpid，用于 {@link #invalidateCorp(String)}，可为空
+	 * @param loader 用户信息的加载过程
+	 * @return 用户信息
+	 */
+	public UserDetails get(String key, String corpId, Callable<UserDetails> loader) {
+		long generation = invalidations.get();
+		DingTalkCachedUserDetails cached;
+		try {
+			cached = cache.get(key, () -> this.loadShared(key, corpId, loader, generation));
+		} catch (UncheckedExecutionException | ExecutionError | ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new DingTalkAuthenticationServiceException(String.valueOf(cause), cause);
+		}
+		if (invalidations.get() != generation) {
+			// 加载期间收到失效消息，结果可能已过时，仅本次使用
+			cache.invalidate(key);
+		}
+		return copyOnRead ? this.copy(key, cached.getUserDetails()) : cached.getUserDetails();
+	}
+
+	/**
+	 * 复制缓存的用户信息，以用户信息自身的类加载器反序列化
+	 * @param key 身份 Key
+	 * @param userDetails 缓存的用户信息
+	 * @return 副本；无法序列化时从缓存中删除，仅本次返回原实例
+	 */
+	protected UserDetails copy(String key, UserDetails userDetails) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(userDetails);
+			}
+			try (ObjectInputStream in = new ConfigurableObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()),
+					userDetails.getClass().getClassLoader())) {
+				return (UserDetails) in.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			cache.invalidate(key);
+			if (notSerializableWarned.compareAndSet(false, true)) {
+				logger.warn("{} is not serializable and will not be cached.", userDetails.getClass().getName(), e);
+			}
+			return userDetails;
+		}
+	}
+
+	private DingTalkCachedUserDetails loadShared(String key, String corpId, Callable<UserDetails> loader, long generation) throws Exception {
+		if (sharedCache != null) {
+			try {
+				DingTalkCachedUserDetails shared = sharedCache.get(key);
+				if (shared != null) {
+					sharedHitCount.increment();
+					return shared;
+				}
+				sharedMissCount.increment();
+			} catch (RuntimeException e) {
+				sharedFailureCount.increment();
+				logger.warn("Shared user details cache unavailable, loading {} directly.", key, e);
+			}
+		}
+		// 加载开始的时间作为 L2 条目的版本，由共享缓存丢弃加载期间已被其他节点失效的结果
+		long loadedAt = System.currentTimeMillis();
+		DingTalkCachedUserDetails loaded = new DingTalkCachedUserDetails(loader.call(), corpId, loadedAt);
+		if (sharedCache != null && invalidations.get() == generation) {
+			try {
+				sharedCache.put(key, loaded, sharedTtl);
+			} catch (RuntimeException e) {
+				sharedFailureCount.increment();
+				logger.warn("Failed to put {} into the shared user details cache.", key, e);
+			}
+		}
+		return loaded;
+	}
+
+	public void invalidate(String key) {
+		this.invalidate(new DingTalkUserDetailsInvalidation(Scope.KEY, null, key, nodeId));
+	}
+
+	/**
+	 * 使同一 unionid 的用户在各节点的缓存失效
+	 * @param unionid 用户的unionid
+	 */
+	public void invalidateUnionid(String unionid) {
+		Assert.hasText(unionid, "unionid must not be empty");
+		this.invalidate(new DingTalkUserDetailsInvalidation(Scope.UNIONID, null, unionid, nodeId));
+	}
+
+	/**
+	 * 使企业内同一 userid 的用户在各节点的缓存失效
+	 * @param corpId 企业的corpid，为空时不区分企业
+	 * @param userid 用户的userid
+	 */
+	public void invalidateUserid(String corpId, String userid) {
+		Assert.hasText(userid, "userid must not be empty");
+		this.invalidate(new DingTalkUserDetailsInvalidation(Scope.USERID, corpId, userid, nodeId));
+	}
+
+	/**
+	 * 使企业内所有用户在各节点的缓存失效，仅对经 {@link #get(String, String, Callable)} 指定了企业的缓存有效
+	 * @param corpId 企业的corpid
+	 */
+	public void invalidateCorp(String corpId) {
+		Assert.hasText(corpId, "corpId must not be empty");
+		this.invalidate(new DingTalkUserDetailsInvalidation(Scope.CORP, corpId, null, nodeId));
+	}
+
+	public void invalidateOpenid(String appKey, String openid) {
+		this.invalidate(openidKey(appKey, openid));
+	}
+
+	/**
+	 * 使用户的所有缓存失效：{@link DingTalkPrincipal} 按其 unionid 与 userid 失效，其余按用户名失效
+	 * @param userDetails 用户信息
+	 */
+	public void invalidate(UserDetails userDetails) {
+		if (userDetails instanceof DingTalkPrincipal) {
+			DingTalkPrincipal principal = (DingTalkPrincipal) userDetails;
+			if (StringUtils.hasText(principal.getUnionid())) {
+				this.invalidateUnionid(principal.getUnionid());
+			}
+			if (StringUtils.hasText(principal.getUserid())) {
+				this.invalidateUserid(null, principal.getUserid());
+			}
+		}
+		if (userDetails.getUsername() != null) {
+			this.invalidate(new DingTalkUserDetailsInvalidation(Scope.USERNAME, null, userDetails.getUsername(), nodeId));
+		}
+	}
+
+	public void invalidateAll() {
+		this.invalidate(new DingTalkUserDetailsInvalidation(Scope.ALL, null, null, nodeId));
+	}
+
+	/**
+	 * 删除本节点 L1 与 L2 中失效范围内的缓存，并通知其他节点
+	 * @param invalidation 失效消息
+	 */
+	public void invalidate(DingTalkUserDetailsInvalidation invalidation) {
+		this.invalidateLocal(invalidation);
+		if (sharedCache != null) {
+			try {
+				sharedCache.invalidate(invalidation);
+			} catch (RuntimeException e) {
+				sharedFailureCount.increment();
+				logger.warn("Failed to apply {} to the shared user details cache.", invalidation, e);
+			}
+		}
+		if (invalidationBus != null) {
+			invalidationBus.publish(invalidation);
+		}
+	}
+
+	/**
+	 * 仅删除本节点 L1 中失效范围内的缓存
+	 * @param invalidation 失效消息
+	 */
+	public void invalidateLocal(DingTalkUserDetailsInvalidation invalidation) {
+		invalidations.incrementAndGet();
+		switch (invalidation.getScope()) {
+		case KEY:
+			cache.invalidate(invalidation.getValue());
+			break;
+		case ALL:
+			cache.invalidateAll();
+			break;
+		case UNIONID:
+			cache.invalidate(unionidKey(invalidation.getValue()));
+			cache.asMap().values().removeIf(invalidation::matches);
+			break;
+		case USERID:
+			if (invalidation.getCorpId() != null) {
+				cache.invalidate(useridKey(invalidation.getCorpId(), invalidation.getValue()));
+			}
+			cache.asMap().entrySet().removeIf(entry -> invalidation.matches(entry.getValue())
+					|| invalidation.getCorpId() == null && entry.getKey().startsWith("userid:") && entry.getKey().endsWith(':' + invalidation.getValue()));
+			break;
+		default:
+			cache.asMap().values().removeIf(invalidation::matches);
+			break;
+		}
+	}
+
+	protected void onInvalidation(DingTalkUserDetailsInvalidation invalidation) {
+		if (nodeId.equals(invalidation.getOrigin())) {
+			return;
+		}
+		logger.debug("Received {} .", invalidation);
+		this.invalidateLocal(invalidation);
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	/** 本地缓存（L1）的统计 */
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	/** 共享缓存（L2）的命中次数 */
+	public long sharedHitCount() {
+		return sharedHitCount.sum();
+	}
+
+	/** 共享缓存（L2）的未命中次数 */
+	public long sharedMissCount() {
+		return sharedMissCount.sum();
+	}
+
+	/** 共享缓存（L2）不可用的次数 */
+	public long sharedFailureCount() {
+		return sharedFailureCount.sum();
+	}
+
+	/** 共享缓存（L2）的命中率，尚未查询时为 1.0，与 {@link CacheStats#hitRate()} 一致 */
+	public double sharedHitRate() {
+		long hit = sharedHitCount.sum();
+		long total = hit + sharedMissCount.sum();
+		return total == 0 ? 1.0 : (double) hit / total;
+	}
+
+	public DingTalkSharedUserDetailsCache getSharedCache() {
+		return sharedCache;
+	}
+
+	public void setSharedCache(DingTalkSharedUserDetailsCache sharedCache) {
+		this.sharedCache = sharedCache;
+	}
+
+	public Duration getSharedTtl() {
+		return sharedTtl;
+	}
+
+	public void setSharedTtl(Duration sharedTtl) {
+		this.sharedTtl = sharedTtl;
+	}
+
+	public DingTalkUserDetailsInvalidationBus getInvalidationBus() {
+		return invalidationBus;
+	}
+
+	/**
+	 * 设置失效消息通道并订阅其他节点的失效消息
+	 * @param invalidationBus 失效消息通道
+	 */
+	public void setInvalidationBus(DingTalkUserDetailsInvalidationBus invalidationBus) {
+		if (this.invalidationBus != null) {
+			this.invalidationBus.unsubscribe(invalidationListener);
+		}
+		this.invalidationBus = invalidationBus;
+		if (invalidationBus != null) {
+			invalidationBus.subscribe(invalidationListener);
+		}
+	}
+
+	public boolean isCopyOnRead() {
+		return copyOnRead;
+	}
+
+	/**
+	 * @param copyOnRead 是否每次返回缓存用户信息的副本，仅当 UserDetails 及其属性均不可变时关闭
+	 */
+	public void setCopyOnRead(boolean copyOnRead) {
+		this.copyOnRead = copyOnRead;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public void setNodeId(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	@Override
+	public void destroy() {
+		if (invalidationBus != null) {
+			invalidationBus.unsubscribe(invalidationListener);
+		}
+	}
+
+	/** unionid 在开发者企业账号范围内唯一 */
+	public static String unionidKey(String unionid) {
+		return "unionid:" + unionid;
+	}
+
+	/** openid 仅在应用内唯一 */
+	public static String openidKey(String appKey, String openid) {
+		return "openid:" + appKey + ':' + openid;
+	}
+
+	/** userid 仅在企业内唯一 */
+	public static String useridKey(String corpId, String userid) {
+		return "userid:" + (corpId == null ? "" : corpId) + ':' + userid;
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.userdetails;
+
+import java.io.Serializable;
+
+import org.springframework.util.Assert;
+
+/**
+ * 用户信息缓存的失效消息，经 {@link DingTalkUserDetailsInvalidationBus} 广播到集群各节点
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkUserDetailsInvalidation implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 失效范围
+	 */
+	public enum Scope {
+		/** 指定的缓存 Key */
+		KEY,
+		/** 同一 unionid 的用户 */
+		UNIONID,
+		/** 企业内同一 userid 的用户 */
+		USERID,
+		/** 企业内的所有用户 */
+		CORP,
+		/** 同一用户名的用户 */
+		USERNAME,
+		/** 所有用户 */
+		ALL
+	}
+
+	private final Scope scope;
+	private final String corpId;
+	private final String value;
+	private final String origin;
+	private final long issuedAt;
+
+	public DingTalkUserDetailsInvalidation(Scope scope, String corpId, String value, String origin) {
+		Assert.notNull(scope, "scope must not be null");
+		this.scope = scope;
+		this.corpId = corpId;
+		this.value = value;
+		this.origin = origin;
+		this.issuedAt = System.currentTimeMillis();
+	}
+
+	public Scope getScope() {
+		return scope;
+	}
+
+	/** 企业的corpid，{@link Scope#USERID} 与 {@link Scope#CORP} 时使用 */
+	public String getCorpId() {
+		return corpId;
+	}
+
+	/** 缓存 Key、unionid、userid 或用户名 */
+	public String getValue() {
+		return value;
+	}
+
+	/** 发出消息的节点 */
+	public String getOrigin() {
+		return origin;
+	}
+
+	/** 发出消息的时间（毫秒），{@link DingTalkCachedUserDetails#getLoadedAt()} 不晚于此时间的条目可能已过时 */
+	public long getIssuedAt() {
+		return issuedAt;
+	}
+
+	/**
+	 * @param entry 缓存的用户信息
+	 * @return 该用户信息在失效范围内时返回 true，{@link Scope#KEY} 按 Key 判断，始终返回 false
+	 */
+	public boolean matches(DingTalkCachedUserDetails entry) {
+		switch (scope) {
+		case UNIONID:
+			return value.equals(entry.getUnionid());
+		case USERID:
+			return value.equals(entry.getUserid()) && (corpId == null || corpId.equals(entry.getCorpId()));
+		case CORP:
+			return corpId.equals(entry.getCorpId());
+		case USERNAME:
+			return value.equals(entry.getUserDetails().getUsername());
+		case ALL:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DingTalkUserDetailsInvalidation [scope=" + scope + ", corpId=" + corpId + ", value=" + value + ", origin=" + origin + ", issuedAt=" + issuedAt + "]";
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.userdetails;
+
+import java.util.function.Consumer;
+
+/**
+ * 用户信息缓存失效消息的广播通道，可基于 Redis Pub/Sub、消息队列等实现。
+ * <p>消息应送达包括发送方在内的所有订阅者，发送方会忽略自己发出的消息。</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkUserDetailsInvalidationBus {
+
+	/**
+	 * 广播失效消息
+	 * @param invalidation 失效消息
+	 */
+	void publish(DingTalkUserDetailsInvalidation invalidation);
+
+	/**
+	 * 订阅失效消息
+	 * @param listener 消息处理，不应阻塞
+	 */
+	void subscribe(Consumer<DingTalkUserDetailsInvalidation> listener);
+
+	/**
+	 * 取消订阅
+	 * @param listener 订阅时的消息处理
+	 */
+	void unsubscribe(Consumer<DingTalkUserDetailsInvalidation> listener);
+
+}
@@ -0,0 +1,10 @@
+CREATE TABLE DINGTALK_ACCESS_TOKEN (
+	CORP_ID VARCHAR(100) NOT NULL,
+	APP_KEY VARCHAR(100) NOT NULL,
+	ACCESS_TOKEN VARCHAR(512),
+	FETCHED_AT BIGINT,
+	EXPIRES_AT BIGINT,
+	LEASE_OWNER VARCHAR(100),
+	LEASE_UNTIL BIGINT,
+	CONSTRAINT DINGTALK_ACCESS_TOKEN_PK PRIMARY KEY (CORP_ID, APP_KEY)
+);
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredential;
+import org.springframework.security.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+
+public class DingTalkAppKeyGuardTest {
+
+	private final DingTalkAppKeyGuard appKeyGuard = new DingTalkAppKeyGuard(DingTalkAppCredentialRegistry.of(mock(DingTalkTemplate.class),
+			Collections.singletonList(new DingTalkAppCredential("corp-a", "app-a", "secret-a")), 100, Duration.ofMinutes(1)));
+
+	@Test
+	public void unknownAppKeysAreRejectedWithTheProviderException() {
+		assertThat(appKeyGuard.isRejected("corp-a", "app-a")).isFalse();
+		assertThat(appKeyGuard.isRejected("corp-a", "app-x")).isTrue();
+
+		DingTalkCodeNotFoundException first = appKeyGuard.reject();
+		DingTalkCodeNotFoundException second = appKeyGuard.reject();
+		// 每次拒绝都是新的异常，由过滤器抛出后经过认证失败处理器与监听器
+		assertThat(first).isNotSameAs(second).hasMessage("Invalid App Key.");
+		assertThat(appKeyGuard.getRejectedCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void rejectionsShareTheFailureResponseCache() throws Exception {
+		DingTalkFailureResponseCache responseCache = new DingTalkFailureResponseCache(16);
+		AtomicInteger rendered = new AtomicInteger();
+		AuthenticationFailureHandler renderer = (request, response, e) -> {
+			rendered.incrementAndGet();
+			response.setStatus(401);
+			response.setContentType("application/json;charset=UTF-8");
+			response.getWriter().write("{\"msg\":\"" + e.getMessage() + "\"}");
+		};
+		for (int i = 0; i < 3; i++) {
+			DingTalkCodeNotFoundException e = appKeyGuard.reject();
+			assertThat(responseCache.isCacheable(e)).isTrue();
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			responseCache.write(new MockHttpServletRequest(), response, e, renderer);
+			assertThat(response.getStatus()).isEqualTo(401);
+			assertThat(response.getContentAsString()).isEqualTo("{\"msg\":\"Invalid App Key.\"}");
+		}
+		assertThat(rendered).hasValue(1);
+		assertThat(responseCache.hitCount()).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+public class DingTalkAsyncAuthenticationProcessorTest {
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+	private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login/dingtalk");
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+	private final AtomicInteger completions = new AtomicInteger();
+	private final CountDownLatch completed = new CountDownLatch(1);
+
+	@BeforeEach
+	public void setUp() {
+		request.setAsyncSupported(true);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void workerWritesTheResponseAndCompletes() throws Exception {
+		RecordingSteps steps = new RecordingSteps(r -> new TestingAuthenticationToken("user", null));
+		DingTalkAsyncAuthenticationProcessor processor = new DingTalkAsyncAuthenticationProcessor(executor);
+		// 先占住工作线程，注册完成监听后再执行认证，避免工作线程先完成
+		CountDownLatch listening = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				listening.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		processor.process(request, response, steps);
+		this.countCompletions();
+		listening.countDown();
+
+		assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(steps.successes.get()).isEqualTo(1);
+		assertThat(steps.failures.get()).isZero();
+		assertThat(completions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void timeoutWinsCancelsTheWorkerAndCompletesOnce() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicReference<Throwable> interrupted = new AtomicReference<>();
+		CountDownLatch workerDone = new CountDownLatch(1);
+		RecordingSteps steps = new RecordingSteps(r -> {
+			started.countDown();
+			try {
+				Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+			} catch (InterruptedException e) {
+				interrupted.set(e);
+			} finally {
+				workerDone.countDown();
+			}
+			return new TestingAuthenticationToken("user", null);
+		});
+		DingTalkAsyncAuthenticationProcessor processor = new DingTalkAsyncAuthenticationProcessor(executor);
+
+		processor.process(request, response, steps);
+		this.countCompletions();
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(new AsyncEvent(asyncContext));
+		}
+
+		assertThat(workerDone.await(5, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(interrupted.get()).isInstanceOf(InterruptedException.class);
+		assertThat(steps.failures.get()).isEqualTo(1);
+		assertThat(steps.successes.get()).isZero();
+		assertThat(completions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void rejectionWrittenByTheAttemptClaimsTheResponse() throws Exception {
+		RecordingSteps steps = new RecordingSteps(r -> {
+			// 与按 AppKey 限流时相同的写法
+			r.setStatus(429);
+			r.setHeader("Retry-After", "1");
+			r.flushBuffer();
+			return null;
+		});
+		DingTalkAsyncAuthenticationProcessor processor = new DingTalkAsyncAuthenticationProcessor(executor);
+		CountDownLatch listening = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				listening.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		processor.process(request, response, steps);
+		this.countCompletions();
+		listening.countDown();
+
+		assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(response.getStatus()).isEqualTo(429);
+		assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(steps.failures.get()).isZero();
+		assertThat(completions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void rejectionAfterTimeoutWinsIsNotWritten() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch timedOut = new CountDownLatch(1);
+		AtomicReference<Throwable> writeFailure = new AtomicReference<>();
+		CountDownLatch workerDone = new CountDownLatch(1);
+		RecordingSteps steps = new RecordingSteps(r -> {
+			started.countDown();
+			try {
+				// 忽略超时处理发出的中断，模拟超时后才返回并写 429 的限流
+				boolean interrupted = false;
+				while (true) {
+					try {
+						timedOut.await();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				r.setStatus(429);
+				return null;
+			} catch (RuntimeException e) {
+				writeFailure.set(e);
+				throw e;
+			} finally {
+				workerDone.countDown();
+			}
+		});
+		DingTalkAsyncAuthenticationProcessor processor = new DingTalkAsyncAuthenticationProcessor(executor);
+
+		processor.process(request, response, steps);
+		this.countCompletions();
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(new AsyncEvent(asyncContext));
+		}
+		timedOut.countDown();
+
+		assertThat(workerDone.await(5, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+		// 超时处理已写响应，工作线程的 429 被拒绝
+		assertThat(writeFailure.get()).isInstanceOf(IllegalStateException.class);
+		assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+		assertThat(steps.failures.get()).isEqualTo(1);
+		assertThat(completions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void saturatedExecutorRejectsWithServiceUnavailable() throws Exception {
+		RecordingSteps steps = new RecordingSteps(r -> new TestingAuthenticationToken("user", null));
+		DingTalkAsyncAuthenticationProcessor processor = new DingTalkAsyncAuthenticationProcessor(task -> {
+			throw new RejectedExecutionException("saturated");
+		});
+
+		processor.process(request, response, steps);
+
+		assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		assertThat(steps.attempts.get()).isZero();
+		assertThat(request.isAsyncStarted()).isFalse();
+	}
+
+	private void countCompletions() {
+		request.getAsyncContext().addListener(new AsyncListener() {
+
+			@Override
+			public void onComplete(AsyncEvent event) {
+				completions.incrementAndGet();
+				completed.countDown();
+			}
+
+			@Override
+			public void onTimeout(AsyncEvent event) {
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+			}
+
+		});
+	}
+
+	private interface Attempt {
+
+		Authentication attempt(HttpServletResponse response) throws IOException;
+
+	}
+
+	private static class RecordingSteps implements DingTalkAsyncAuthenticationProcessor.AuthenticationSteps {
+
+		private final Attempt attempt;
+		private final AtomicInteger attempts = new AtomicInteger();
+		private final AtomicInteger successes = new AtomicInteger();
+		private final AtomicInteger failures = new AtomicInteger();
+
+		RecordingSteps(Attempt attempt) {
+			this.attempt = attempt;
+		}
+
+		@Override
+		public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
+				throws IOException {
+			attempts.incrementAndGet();
+			return attempt.attempt(response);
+		}
+
+		@Override
+		public void onAuthentication(Authentication authentication, HttpServletRequest request,
+				HttpServletResponse response) {
+		}
+
+		@Override
+		public void successfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+				Authentication authResult) throws IOException, ServletException {
+			successes.incrementAndGet();
+		}
+
+		@Override
+		public void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+				AuthenticationException failed) throws IOException, ServletException {
+			failures.incrementAndGet();
+		}
+
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+public class DingTalkFailureResponseCacheTest {
+
+	private final AtomicInteger renders = new AtomicInteger();
+	private final AuthenticationFailureHandler renderer = (request, response, e) -> {
+		renders.incrementAndGet();
+		response.setStatus(401);
+		response.setContentType("application/json;charset=UTF-8");
+		response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "DingTalk");
+		response.addHeader(HttpHeaders.VARY, "Accept-Language");
+		response.addHeader(HttpHeaders.VARY, "Origin");
+		response.getOutputStream().write("{\"code\":401}".getBytes(StandardCharsets.UTF_8));
+	};
+
+	@Test
+	public void cachedResponseReplaysHeadersSetWhileRendering() throws Exception {
+		DingTalkFailureResponseCache cache = new DingTalkFailureResponseCache(16);
+		DingTalkCodeIncorrectException e = new DingTalkCodeIncorrectException("Incorrect code.");
+
+		MockHttpServletResponse first = this.response("a");
+		cache.write(new MockHttpServletRequest(), first, e, renderer);
+		MockHttpServletResponse second = this.response("b");
+		cache.write(new MockHttpServletRequest(), second, e, renderer);
+
+		assertThat(renders.get()).isEqualTo(1);
+		assertThat(cache.hitCount()).isEqualTo(1);
+		assertThat(second.getStatus()).isEqualTo(401);
+		assertThat(second.getContentType()).isEqualTo("application/json;charset=UTF-8");
+		assertThat(second.getHeader(HttpHeaders.WWW_AUTHENTICATE)).isEqualTo("DingTalk");
+		assertThat(second.getHeaders(HttpHeaders.VARY)).containsExactly("Accept-Language", "Origin");
+		assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString()).isEqualTo("{\"code\":401}");
+		// 渲染前已有的按请求设置的响应头不被缓存
+		assertThat(second.getHeaders("X-Request-Id")).containsExactly("b");
+	}
+
+	private MockHttpServletResponse response(String requestId) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setHeader("X-Request-Id", requestId);
+		return response;
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.biz.userdetails.SecurityPrincipal;
+import org.springframework.security.boot.biz.userdetails.UserDetailsServiceAdapter;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObservation;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginStage;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkTokenCacheProperties;
+import org.springframework.security.boot.dingtalk.token.DingTalkAccessTokenCache;
+import org.springframework.security.core.Authentication;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+
+/**
+ * 大量并发登录经过 {@link DingTalkMaAuthenticationProvider}：每个应用只向 DingTalk 获取一次 access_token
+ */
+public class DingTalkMaAuthenticationProviderConcurrencyTest {
+
+	private static final int LOGINS = 64;
+	private static final String[] APP_KEYS = { "app-a", "app-b" };
+
+	private final DingTalkTemplate dingTalkTemplate = mock(DingTalkTemplate.class);
+	private final UserDetailsServiceAdapter userDetailsService = mock(UserDetailsServiceAdapter.class);
+	private final ExecutorService executor = Executors.newFixedThreadPool(LOGINS);
+	/** 所有登录都进入获取 access_token 阶段后，gettoken 才返回 */
+	private final CountDownLatch allInUpstream = new CountDownLatch(LOGINS);
+	private DingTalkAccessTokenCache tokenCache;
+	private DingTalkMaAuthenticationProvider provider;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		for (String appKey : APP_KEYS) {
+			when(dingTalkTemplate.hasAppKey(appKey)).thenReturn(true);
+			when(dingTalkTemplate.getAppSecret("corp", appKey)).thenReturn("secret-" + appKey);
+			when(dingTalkTemplate.getAccessToken(appKey, "secret-" + appKey)).thenAnswer(invocation -> {
+				allInUpstream.await(5, TimeUnit.SECONDS);
+				return "token-" + appKey;
+			});
+		}
+		when(userDetailsService.loadUserDetails(any(Authentication.class)))
+				.thenAnswer(invocation -> new SecurityPrincipal("user", "", "ROLE_USER"));
+
+		tokenCache = new DingTalkAccessTokenCache(dingTalkTemplate, new SecurityDingTalkTokenCacheProperties());
+		provider = new DingTalkMaAuthenticationProvider(userDetailsService, dingTalkTemplate);
+		provider.setAccessTokenCache(tokenCache);
+		provider.setLoginObserver(new DingTalkLoginObserver() {
+
+			@Override
+			public DingTalkLoginObservation start(DingTalkLoginStage stage, String flow, String appKey, String operation) {
+				if (stage == DingTalkLoginStage.UPSTREAM) {
+					allInUpstream.countDown();
+				}
+				return DingTalkLoginObservation.NOOP;
+			}
+
+		});
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		tokenCache.destroy();
+	}
+
+	@Test
+	public void concurrentLoginsFetchOneAccessTokenPerApp() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Authentication>> results = new ArrayList<>();
+		for (int i = 0; i < LOGINS; i++) {
+			String appKey = APP_KEYS[i % APP_KEYS.length];
+			DingTalkMaLoginRequest loginRequest = new DingTalkMaLoginRequest("corp", appKey, null, "code-" + i);
+			results.add(executor.submit(() -> {
+				start.await();
+				return provider.authenticate(new DingTalkMaAuthenticationToken(loginRequest));
+			}));
+		}
+		start.countDown();
+
+		for (Future<Authentication> result : results) {
+			assertThat(result.get(10, TimeUnit.SECONDS).isAuthenticated()).isTrue();
+		}
+		assertThat(allInUpstream.getCount()).isZero();
+		for (String appKey : APP_KEYS) {
+			verify(dingTalkTemplate, times(1)).getAccessToken(appKey, "secret-" + appKey);
+		}
+		verify(dingTalkTemplate, times(APP_KEYS.length)).getAccessToken(anyString(), anyString());
+		verify(userDetailsService, times(LOGINS)).loadUserDetails(any(Authentication.class));
+		assertThat(tokenCache.loadCount()).isEqualTo(APP_KEYS.length);
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+
+public class DingTalkMatchedAuthenticationFailureHandlerTest {
+
+	private final DingTalkMatchedAuthenticationFailureHandler failureHandler = new DingTalkMatchedAuthenticationFailureHandler();
+
+	@Test
+	public void openCircuitBreakerRespondsWith503AndRetryAfter() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		DingTalkServiceUnavailableException e = new DingTalkServiceUnavailableException("DingTalk gettoken is temporarily unavailable.",
+				Duration.ofMillis(29_001));
+
+		assertThat(failureHandler.supports(e)).isTrue();
+		failureHandler.onAuthenticationFailure(new MockHttpServletRequest(), response, e);
+
+		assertThat(response.getStatus()).isEqualTo(503);
+		// 向上取整到秒
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+	}
+
+	@Test
+	public void fullBulkheadRespondsWith503WithoutRetryAfter() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		failureHandler.onAuthenticationFailure(new MockHttpServletRequest(), response,
+				new DingTalkServiceUnavailableException("Too many concurrent DingTalk gettoken calls."));
+
+		assertThat(response.getStatus()).isEqualTo(503);
+		assertThat(response.containsHeader(HttpHeaders.RETRY_AFTER)).isFalse();
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaLoginRequest;
+import org.springframework.security.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.springframework.security.boot.dingtalk.support.DingTalkLoginRequestReader;
+import org.springframework.security.core.Authentication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+
+public class AbstractDingTalkServerAuthenticationConverterTest {
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final LoginRequestConverter converter = new LoginRequestConverter(objectMapper);
+
+	@Test
+	public void readsTheJsonLoginRequest() {
+		MockServerHttpRequest request = MockServerHttpRequest.post("/login/dingtalk").contentType(MediaType.APPLICATION_JSON)
+				.body("{\"corpId\":\"corp\",\"key\":\"app\",\"authCode\":\"code\"}");
+
+		Authentication authentication = converter.convert(MockServerWebExchange.from(request)).block();
+
+		DingTalkMaLoginRequest loginRequest = (DingTalkMaLoginRequest) authentication.getPrincipal();
+		assertThat(loginRequest.getKey()).isEqualTo("app");
+		assertThat(loginRequest.getAuthCode()).isEqualTo("code");
+	}
+
+	@Test
+	public void declaredContentLengthOverTheLimitIsRejectedWithoutSubscribingTheBody() {
+		converter.setLoginRequestReader(new DingTalkLoginRequestReader<>(objectMapper, DingTalkMaLoginRequest.class, 64, false));
+		AtomicInteger subscriptions = new AtomicInteger();
+		Flux<DataBuffer> body = Flux.defer(() -> {
+			subscriptions.incrementAndGet();
+			return Flux.just(this.buffer(128));
+		});
+		MockServerHttpRequest request = MockServerHttpRequest.post("/login/dingtalk").contentType(MediaType.APPLICATION_JSON)
+				.contentLength(128).body(body);
+
+		assertThatThrownBy(() -> converter.convert(MockServerWebExchange.from(request)).block())
+				.isInstanceOf(DingTalkLoginRequestTooLargeException.class);
+		assertThat(subscriptions.get()).isZero();
+	}
+
+	@Test
+	public void bufferLimitWhileJoiningIsMappedToTooLarge() {
+		converter.setLoginRequestReader(new DingTalkLoginRequestReader<>(objectMapper, DingTalkMaLoginRequest.class, 64, false));
+		// 未声明 Content-Length，分块到达的请求体在 join 时超过上限
+		AtomicInteger emitted = new AtomicInteger();
+		Flux<DataBuffer> body = Flux.range(0, 1024).map(i -> {
+			emitted.incrementAndGet();
+			return this.buffer(32);
+		});
+		MockServerHttpRequest request = MockServerHttpRequest.post("/login/dingtalk").contentType(MediaType.APPLICATION_JSON)
+				.body(body);
+
+		assertThatThrownBy(() -> converter.convert(MockServerWebExchange.from(request)).block())
+				.isInstanceOf(DingTalkLoginRequestTooLargeException.class)
+				.extracting(e -> ((DingTalkLoginRequestTooLargeException) e).getMaxBodySize()).isEqualTo(64L);
+		// 超过上限即取消上游，不会缓冲整个请求体
+		assertThat(emitted.get()).isLessThan(1024);
+	}
+
+	private DataBuffer buffer(int size) {
+		byte[] bytes = new byte[size];
+		Arrays.fill(bytes, (byte) ' ');
+		return bufferFactory.wrap(new String(bytes).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static class LoginRequestConverter extends AbstractDingTalkServerAuthenticationConverter<DingTalkMaLoginRequest> {
+
+		LoginRequestConverter(ObjectMapper objectMapper) {
+			super(objectMapper, DingTalkMaLoginRequest.class, "authCode");
+		}
+
+		@Override
+		protected DingTalkMaLoginRequest createLoginRequest(String corpId, String key, String token, String code) {
+			return new DingTalkMaLoginRequest(corpId, key, token, code);
+		}
+
+		@Override
+		protected String obtainKey(DingTalkMaLoginRequest loginRequest) {
+			return loginRequest.getKey();
+		}
+
+		@Override
+		protected String obtainCode(DingTalkMaLoginRequest loginRequest) {
+			return loginRequest.getAuthCode();
+		}
+
+		@Override
+		protected AbstractAuthenticationToken authenticationToken(DingTalkMaLoginRequest loginRequest) {
+			return new TestingAuthenticationToken(loginRequest, null);
+		}
+
+	}
+
+}
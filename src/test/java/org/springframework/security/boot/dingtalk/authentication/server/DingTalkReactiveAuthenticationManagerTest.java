@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.authentication.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+import org.springframework.security.core.Authentication;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class DingTalkReactiveAuthenticationManagerTest {
+
+	private final Scheduler scheduler = Schedulers.newBoundedElastic(1, 1, "dingtalk-authc-test");
+	private final AuthenticationProvider authenticationProvider = mock(AuthenticationProvider.class);
+	private final DingTalkReactiveAuthenticationManager authenticationManager = new DingTalkReactiveAuthenticationManager(
+			authenticationProvider, scheduler);
+
+	@AfterEach
+	public void tearDown() {
+		scheduler.dispose();
+	}
+
+	@Test
+	public void authenticatesOnTheDedicatedScheduler() {
+		AtomicReference<String> thread = new AtomicReference<>();
+		when(authenticationProvider.supports(any())).thenReturn(true);
+		when(authenticationProvider.authenticate(any())).thenAnswer(invocation -> {
+			thread.set(Thread.currentThread().getName());
+			return invocation.getArgument(0);
+		});
+
+		Authentication result = authenticationManager.authenticate(new TestingAuthenticationToken("user", null))
+				.block(Duration.ofSeconds(5));
+
+		assertThat(result).isNotNull();
+		assertThat(thread.get()).startsWith("dingtalk-authc-test");
+	}
+
+	@Test
+	public void saturatedSchedulerFailsFastWithServiceUnavailable() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(authenticationProvider.supports(any())).thenReturn(true);
+		when(authenticationProvider.authenticate(any())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return invocation.getArgument(0);
+		});
+
+		try {
+			// 占满唯一的线程与队列
+			authenticationManager.authenticate(new TestingAuthenticationToken("running", null)).subscribe();
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			authenticationManager.authenticate(new TestingAuthenticationToken("queued", null)).subscribe();
+
+			assertThatThrownBy(() -> authenticationManager.authenticate(new TestingAuthenticationToken("rejected", null))
+					.block(Duration.ofSeconds(5))).isInstanceOf(DingTalkServiceUnavailableException.class);
+		} finally {
+			release.countDown();
+		}
+	}
+
+}
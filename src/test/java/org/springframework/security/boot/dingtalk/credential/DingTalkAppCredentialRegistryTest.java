@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.credential;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+
+public class DingTalkAppCredentialRegistryTest {
+
+	private final DingTalkTemplate dingTalkTemplate = mock(DingTalkTemplate.class);
+
+	@Test
+	public void configuredAppsAreIndexedAtStartup() {
+		when(dingTalkTemplate.getAppSecret("corp-b", "app-b")).thenReturn("secret-b");
+		DingTalkAppCredentialRegistry registry = DingTalkAppCredentialRegistry.of(dingTalkTemplate, Arrays.asList(
+				new DingTalkAppCredential("corp-a", "app-a", "secret-a"),
+				new DingTalkAppCredential("corp-b", "app-b", null),
+				new DingTalkAppCredential(null, "app-any", "secret-any")), 100, Duration.ofMinutes(1));
+		verify(dingTalkTemplate, times(1)).getAppSecret("corp-b", "app-b");
+
+		assertThat(registry.getAppSecret("corp-a", "app-a")).isEqualTo("secret-a");
+		assertThat(registry.getAppSecret("corp-b", "app-b")).isEqualTo("secret-b");
+		assertThat(registry.getAppSecret("corp-x", "app-any")).isEqualTo("secret-any");
+		assertThat(registry.getAppSecret(null, "app-any")).isEqualTo("secret-any");
+		assertThat(registry.hasAppKey("corp-x", "app-a")).isFalse();
+		assertThat(registry.size()).isEqualTo(3);
+
+		// 登录路径上不再访问 DingTalkTemplate
+		verify(dingTalkTemplate, never()).hasAppKey(anyString());
+		verify(dingTalkTemplate, times(1)).getAppSecret(any(), anyString());
+	}
+
+	@Test
+	public void unknownAppKeysAreNeverIndexed() {
+		DingTalkAppCredentialRegistry registry = DingTalkAppCredentialRegistry.of(dingTalkTemplate,
+				Collections.singletonList(new DingTalkAppCredential("corp", "app", "secret")), 100, Duration.ofMinutes(1));
+
+		for (int i = 0; i < 10000; i++) {
+			assertThat(registry.getCredential("corp-" + i, "app-" + i)).isNull();
+		}
+		assertThat(registry.size()).isEqualTo(1);
+		assertThat(registry.unknownSize()).isZero();
+		verify(dingTalkTemplate, never()).hasAppKey(anyString());
+	}
+
+	@Test
+	public void withoutConfiguredAppsLookupsAreDelegatedAndBounded() {
+		when(dingTalkTemplate.hasAppKey("app")).thenReturn(true);
+		when(dingTalkTemplate.getAppSecret("corp", "app")).thenReturn("secret");
+		DingTalkAppCredentialRegistry registry = DingTalkAppCredentialRegistry.of(dingTalkTemplate,
+				Collections.emptyList(), 100, Duration.ofMinutes(1));
+
+		assertThat(registry.getAppSecret("corp", "app")).isEqualTo("secret");
+		for (int i = 0; i < 1000; i++) {
+			assertThat(registry.getCredential("corp", "unknown-" + i)).isNull();
+		}
+		assertThat(registry.size()).isZero();
+		assertThat(registry.unknownSize()).isLessThanOrEqualTo(100);
+	}
+
+	@Test
+	public void withoutConfiguredAppsEachKnownAppIsResolvedOnce() {
+		when(dingTalkTemplate.hasAppKey("app")).thenReturn(true);
+		when(dingTalkTemplate.getAppSecret("corp", "app")).thenReturn("secret");
+		when(dingTalkTemplate.getAppSecret(null, "app")).thenReturn("secret");
+		DingTalkAppCredentialRegistry registry = DingTalkAppCredentialRegistry.of(dingTalkTemplate,
+				Collections.emptyList(), 100, Duration.ofMinutes(1));
+
+		DingTalkAppCredential credential = registry.getCredential("corp", "app");
+		for (int i = 0; i < 1000; i++) {
+			// 之后的登录返回同一个凭证，不再访问 DingTalkTemplate
+			assertThat(registry.getCredential("corp", "app")).isSameAs(credential);
+			assertThat(registry.getAppSecret(null, "app")).isEqualTo("secret");
+		}
+		verify(dingTalkTemplate, times(2)).hasAppKey("app");
+		verify(dingTalkTemplate, times(1)).getAppSecret("corp", "app");
+		assertThat(registry.resolvedSize()).isEqualTo(2);
+
+		registry.reset();
+		assertThat(registry.resolvedSize()).isZero();
+	}
+
+	@Test
+	public void rememberedAppsAreBounded() {
+		when(dingTalkTemplate.hasAppKey("app")).thenReturn(true);
+		when(dingTalkTemplate.getAppSecret(anyString(), eq("app"))).thenReturn("secret");
+		DingTalkAppCredentialRegistry registry = DingTalkAppCredentialRegistry.of(dingTalkTemplate,
+				Collections.emptyList(), 100, Duration.ofMinutes(1));
+
+		// DingTalkTemplate 对任意 corpId 都返回密钥时，记住的数量仍有上限
+		for (int i = 0; i < 1000; i++) {
+			assertThat(registry.getAppSecret("corp-" + i, "app")).isEqualTo("secret");
+		}
+		assertThat(registry.resolvedSize()).isEqualTo(100);
+	}
+
+	@Test
+	public void missingSecretFailsAtStartup() {
+		assertThatThrownBy(() -> DingTalkAppCredentialRegistry.of(dingTalkTemplate,
+				Collections.singletonList(new DingTalkAppCredential("corp", "app", null)), 100, Duration.ofMinutes(1)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
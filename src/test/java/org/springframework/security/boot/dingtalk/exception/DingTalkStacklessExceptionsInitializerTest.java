@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.exception;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+public class DingTalkStacklessExceptionsInitializerTest {
+
+	@AfterEach
+	public void tearDown() {
+		DingTalkStacklessExceptions.setEnabled(false);
+	}
+
+	@Test
+	public void lightweightIsAppliedBeforeBeansAndResetOnClose() {
+		GenericApplicationContext context = this.context("true");
+		new DingTalkStacklessExceptionsInitializer().initialize(context);
+
+		assertThat(DingTalkStacklessExceptions.isEnabled()).isTrue();
+		assertThat(new DingTalkCodeIncorrectException("Incorrect code.").getStackTrace()).isEmpty();
+
+		context.refresh();
+		context.close();
+		assertThat(DingTalkStacklessExceptions.isEnabled()).isFalse();
+		assertThat(new DingTalkCodeIncorrectException("Incorrect code.").getStackTrace()).isNotEmpty();
+	}
+
+	@Test
+	public void disabledByDefault() {
+		new DingTalkStacklessExceptionsInitializer().initialize(this.context(null));
+
+		assertThat(DingTalkStacklessExceptions.isEnabled()).isFalse();
+	}
+
+	private GenericApplicationContext context(String lightweight) {
+		MockEnvironment environment = new MockEnvironment();
+		if (lightweight != null) {
+			environment.setProperty("spring.security.dingtalk.failure.lightweight", lightweight);
+		}
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.setEnvironment(environment);
+		return context;
+	}
+
+}
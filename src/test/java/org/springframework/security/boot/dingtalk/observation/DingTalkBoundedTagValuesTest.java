@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class DingTalkBoundedTagValuesTest {
+
+	@Test
+	public void valuesAreAdmittedUpToTheLimit() {
+		DingTalkBoundedTagValues values = new DingTalkBoundedTagValues(2);
+
+		assertThat(values.valueOf(null, true)).isEqualTo(DingTalkBoundedTagValues.NONE);
+		assertThat(values.valueOf("a", false)).isEqualTo(DingTalkBoundedTagValues.OTHER);
+		assertThat(values.valueOf("a", true)).isEqualTo("a");
+		assertThat(values.valueOf("a", true)).isEqualTo("a");
+		assertThat(values.valueOf("b", true)).isEqualTo("b");
+		assertThat(values.valueOf("c", true)).isEqualTo(DingTalkBoundedTagValues.OTHER);
+		// 已接纳的取值不再受 admitNew 限制
+		assertThat(values.valueOf("a", false)).isEqualTo("a");
+		assertThat(values.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void concurrentAdmissionNeverExceedsTheLimit() throws Exception {
+		int threads = 8;
+		int limit = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int round = 0; round < 50; round++) {
+				DingTalkBoundedTagValues values = new DingTalkBoundedTagValues(limit);
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<Integer>> admitted = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					int offset = t;
+					admitted.add(executor.submit(() -> {
+						start.await();
+						int count = 0;
+						for (int i = 0; i < 64; i++) {
+							// 各线程交错提交，部分取值相同
+							String value = String.valueOf((i * threads + offset) % 48);
+							if (!DingTalkBoundedTagValues.OTHER.equals(values.valueOf(value, true))) {
+								count++;
+							}
+						}
+						return count;
+					}));
+				}
+				start.countDown();
+				for (Future<Integer> future : admitted) {
+					future.get(5, TimeUnit.SECONDS);
+				}
+
+				assertThat(values.size()).isEqualTo(limit);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
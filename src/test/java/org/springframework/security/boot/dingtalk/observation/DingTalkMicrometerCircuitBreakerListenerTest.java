@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCircuitBreakerProperties;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkCircuitBreaker;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkCircuitBreakerEvent;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkUpstreamInvoker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DingTalkMicrometerCircuitBreakerListenerTest {
+
+	@Test
+	public void transitionsAreCountedAndStateIsReported() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		DingTalkMicrometerCircuitBreakerListener listener = new DingTalkMicrometerCircuitBreakerListener(registry);
+		SecurityDingTalkCircuitBreakerProperties properties = new SecurityDingTalkCircuitBreakerProperties();
+		properties.setMinimumNumberOfCalls(1);
+		properties.setWaitDurationInOpenState(Duration.ZERO);
+		properties.setPermittedNumberOfCallsInHalfOpenState(1);
+		DingTalkUpstreamInvoker upstreamInvoker = new DingTalkUpstreamInvoker(properties, null);
+		upstreamInvoker.setApplicationEventPublisher(event -> listener.onApplicationEvent((DingTalkCircuitBreakerEvent) event));
+		String operation = DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE;
+
+		upstreamInvoker.invoke(operation, () -> -1L, code -> code);
+		assertThat(registry.get(DingTalkMicrometerCircuitBreakerListener.STATE_GAUGE).tag("operation", operation).gauge().value())
+				.isEqualTo(DingTalkCircuitBreaker.State.OPEN.ordinal());
+
+		upstreamInvoker.invoke(operation, () -> 0L, code -> code);
+
+		assertThat(registry.get(DingTalkMicrometerCircuitBreakerListener.TRANSITION_COUNTER)
+				.tags("operation", operation, "from", "closed", "to", "open").counter().count()).isEqualTo(1);
+		assertThat(registry.get(DingTalkMicrometerCircuitBreakerListener.TRANSITION_COUNTER)
+				.tags("operation", operation, "from", "open", "to", "half_open").counter().count()).isEqualTo(1);
+		assertThat(registry.get(DingTalkMicrometerCircuitBreakerListener.TRANSITION_COUNTER)
+				.tags("operation", operation, "from", "half_open", "to", "closed").counter().count()).isEqualTo(1);
+		assertThat(registry.get(DingTalkMicrometerCircuitBreakerListener.STATE_GAUGE).tag("operation", operation).gauge().value())
+				.isEqualTo(DingTalkCircuitBreaker.State.CLOSED.ordinal());
+	}
+
+}
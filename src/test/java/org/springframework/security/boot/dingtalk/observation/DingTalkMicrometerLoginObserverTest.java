@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DingTalkMicrometerLoginObserverTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final AtomicInteger registrations = new AtomicInteger();
+	private final DingTalkMicrometerLoginObserver observer;
+
+	public DingTalkMicrometerLoginObserverTest() {
+		// 每次向注册表查找或注册计量器都会经过过滤器
+		registry.config().meterFilter(new MeterFilter() {
+
+			@Override
+			public Meter.Id map(Meter.Id id) {
+				registrations.incrementAndGet();
+				return id;
+			}
+
+		});
+		observer = new DingTalkMicrometerLoginObserver(registry, 2, 2);
+	}
+
+	@Test
+	public void stagesAreRecordedWithTheirTags() {
+		observer.record(DingTalkLoginStage.UPSTREAM, DingTalkLoginObserver.FLOW_MA, "app", DingTalkLoginOutcome.SUCCESS, null,
+				TimeUnit.MILLISECONDS.toNanos(5));
+		observer.record(DingTalkLoginStage.UPSTREAM, DingTalkLoginObserver.FLOW_MA, "app", DingTalkLoginOutcome.FAILURE, "40078",
+				TimeUnit.MILLISECONDS.toNanos(7));
+
+		Timer success = registry.get(DingTalkMicrometerLoginObserver.STAGE_TIMER).tags("stage", "upstream", "flow",
+				DingTalkLoginObserver.FLOW_MA, "app_key", "app", "outcome", "success", "errcode", "none").timer();
+		assertThat(success.count()).isEqualTo(1);
+		assertThat(success.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5);
+		assertThat(registry.get(DingTalkMicrometerLoginObserver.FAILURE_COUNTER).tags("stage", "upstream", "app_key", "app",
+				"outcome", "failure", "errcode", "40078").counter().count()).isEqualTo(1);
+		assertThat(registry.find(DingTalkMicrometerLoginObserver.FAILURE_COUNTER).tag("outcome", "success").counter()).isNull();
+	}
+
+	@Test
+	public void metersAreRegisteredOncePerTagTuple() {
+		for (int i = 0; i < 100; i++) {
+			observer.record(DingTalkLoginStage.PARSE, DingTalkLoginObserver.FLOW_MA, "app", DingTalkLoginOutcome.SUCCESS, null, 1);
+			observer.record(DingTalkLoginStage.PARSE, DingTalkLoginObserver.FLOW_MA, "app", DingTalkLoginOutcome.ERROR, null, 1);
+		}
+
+		// 两个计时器与一个计数器，各注册一次
+		assertThat(registrations.get()).isEqualTo(3);
+		assertThat(registry.get(DingTalkMicrometerLoginObserver.STAGE_TIMER).tag("outcome", "success").timer().count())
+				.isEqualTo(100);
+		assertThat(registry.get(DingTalkMicrometerLoginObserver.FAILURE_COUNTER).tag("outcome", "error").counter().count())
+				.isEqualTo(100);
+	}
+
+	@Test
+	public void appKeysAreAdmittedOnlyOnSuccessAndBounded() {
+		observer.record(DingTalkLoginStage.AUTHENTICATION, null, "unknown", DingTalkLoginOutcome.FAILURE, null, 1);
+		observer.record(DingTalkLoginStage.AUTHENTICATION, null, "app1", DingTalkLoginOutcome.SUCCESS, null, 1);
+		observer.record(DingTalkLoginStage.AUTHENTICATION, null, "app2", DingTalkLoginOutcome.SUCCESS, null, 1);
+		observer.record(DingTalkLoginStage.AUTHENTICATION, null, "app3", DingTalkLoginOutcome.SUCCESS, null, 1);
+
+		assertThat(registry.get(DingTalkMicrometerLoginObserver.FAILURE_COUNTER).tag("app_key", DingTalkBoundedTagValues.OTHER)
+				.counter().count()).isEqualTo(1);
+		assertThat(registry.find(DingTalkMicrometerLoginObserver.STAGE_TIMER).tag("app_key", "app2").timer()).isNotNull();
+		// 超过上限的 app3 记为 other
+		assertThat(registry.find(DingTalkMicrometerLoginObserver.STAGE_TIMER).tag("app_key", "app3").timer()).isNull();
+		assertThat(registry.get(DingTalkMicrometerLoginObserver.STAGE_TIMER)
+				.tags("app_key", DingTalkBoundedTagValues.OTHER, "outcome", "success").timer().count()).isEqualTo(1);
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.observation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.junit5.OpenTelemetryExtension;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+public class DingTalkOpenTelemetryLoginObserverTest {
+
+	@RegisterExtension
+	static final OpenTelemetryExtension otel = OpenTelemetryExtension.create();
+
+	private final DingTalkOpenTelemetryLoginObserver observer = new DingTalkOpenTelemetryLoginObserver(
+			otel.getOpenTelemetry().getTracer(DingTalkOpenTelemetryLoginObserver.INSTRUMENTATION_NAME), "oapi.dingtalk.com");
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void upstreamCallIsAClientSpanUnderTheLoginSpan() {
+		DingTalkLoginObservation login = observer.start(DingTalkLoginStage.AUTHENTICATION, DingTalkLoginObserver.FLOW_SCAN_CODE, "app");
+		observer.observe(DingTalkLoginStage.UPSTREAM, DingTalkLoginObserver.FLOW_SCAN_CODE, "app", "gettoken", () -> 40014L, errcode -> errcode);
+		login.success();
+
+		List<SpanData> spans = otel.getSpans();
+		assertThat(spans).hasSize(2);
+		SpanData upstream = this.span("dingtalk gettoken");
+		SpanData root = this.span(DingTalkOpenTelemetryLoginObserver.LOGIN_SPAN);
+		assertThat(upstream.getParentSpanId()).isEqualTo(root.getSpanId());
+		assertThat(upstream.getKind()).isEqualTo(SpanKind.CLIENT);
+		assertThat(upstream.getAttributes().get(DingTalkOpenTelemetryLoginObserver.SERVER_ADDRESS)).isEqualTo("oapi.dingtalk.com");
+		assertThat(upstream.getAttributes().get(DingTalkOpenTelemetryLoginObserver.API)).isEqualTo("gettoken");
+		assertThat(upstream.getAttributes().get(DingTalkOpenTelemetryLoginObserver.ERRCODE)).isEqualTo("40014");
+		// errcode 不为 0 时 Span 标记为错误
+		assertThat(upstream.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+		assertThat(root.getKind()).isEqualTo(SpanKind.INTERNAL);
+		assertThat(root.getAttributes().get(DingTalkOpenTelemetryLoginObserver.FLOW)).isEqualTo(DingTalkLoginObserver.FLOW_SCAN_CODE);
+		assertThat(root.getStatus().getStatusCode()).isEqualTo(StatusCode.UNSET);
+	}
+
+	@Test
+	public void wrappedTaskContinuesTheTraceOnTheAuthenticationThread() throws Exception {
+		DingTalkLoginObservation login = observer.start(DingTalkLoginStage.AUTHENTICATION, DingTalkLoginObserver.FLOW_MA, "app");
+		executor.submit(observer.wrap(() -> observer.start(DingTalkLoginStage.LOAD_USER, DingTalkLoginObserver.FLOW_MA, "app").success()))
+				.get(5, TimeUnit.SECONDS);
+		login.success();
+
+		assertThat(this.span(DingTalkOpenTelemetryLoginObserver.LOGIN_SPAN + "." + DingTalkLoginStage.LOAD_USER.getValue()).getParentSpanId())
+				.isEqualTo(this.span(DingTalkOpenTelemetryLoginObserver.LOGIN_SPAN).getSpanId());
+	}
+
+	@Test
+	public void wrapReturnsTheTaskWithoutACurrentContext() {
+		Runnable task = () -> {
+		};
+
+		assertThat(observer.wrap(task)).isSameAs(task);
+	}
+
+	@Test
+	public void onlyTracingObserversPropagateContext() {
+		DingTalkLoginObserver metrics = new DingTalkLoginObserver() {
+		};
+		Runnable task = () -> {
+		};
+
+		assertThat(DingTalkLoginObserver.NOOP.isContextPropagating()).isFalse();
+		assertThat(DingTalkCompositeLoginObserver.of(Arrays.asList(metrics, metrics)).isContextPropagating()).isFalse();
+		assertThat(DingTalkCompositeLoginObserver.of(Arrays.asList(metrics, metrics)).wrap(task)).isSameAs(task);
+		assertThat(DingTalkCompositeLoginObserver.of(Arrays.asList(metrics, observer)).isContextPropagating()).isTrue();
+	}
+
+	private SpanData span(String name) {
+		return otel.getSpans().stream().filter(span -> span.getName().equals(name)).findFirst()
+				.orElseThrow(() -> new AssertionError("No span " + name));
+	}
+
+}
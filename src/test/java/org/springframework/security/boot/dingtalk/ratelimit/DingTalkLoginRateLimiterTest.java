@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkRateLimitProperties;
+
+public class DingTalkLoginRateLimiterTest {
+
+	@Test
+	public void clientIpIsTheRightmostUntrustedHop() {
+		SecurityDingTalkRateLimitProperties properties = new SecurityDingTalkRateLimitProperties();
+		properties.setClientIpHeader("X-Forwarded-For");
+		DingTalkLoginRateLimiter rateLimiter = new DingTalkLoginRateLimiter(properties);
+
+		// 客户端伪造的 1.1.1.1 不会被采用
+		assertThat(rateLimiter.obtainClientIp(request("1.1.1.1, 10.0.0.8"))).isEqualTo("10.0.0.8");
+		assertThat(rateLimiter.obtainClientIp(request("10.0.0.8"))).isEqualTo("10.0.0.8");
+		assertThat(rateLimiter.obtainClientIp(request(null))).isEqualTo("192.168.0.1");
+
+		properties.setTrustedProxies(2);
+		rateLimiter = new DingTalkLoginRateLimiter(properties);
+		assertThat(rateLimiter.obtainClientIp(request("1.1.1.1, 10.0.0.8, 172.16.0.2"))).isEqualTo("10.0.0.8");
+		// 代理数量少于配置时取最左侧的值
+		assertThat(rateLimiter.obtainClientIp(request("10.0.0.8"))).isEqualTo("10.0.0.8");
+		assertThat(rateLimiter.obtainClientIp(request(" , 172.16.0.2"))).isEqualTo("192.168.0.1");
+	}
+
+	@Test
+	public void clientsAreLimitedIndependently() throws Exception {
+		SecurityDingTalkRateLimitProperties properties = new SecurityDingTalkRateLimitProperties();
+		properties.setClientRate(1);
+		properties.setClientBurst(2);
+		properties.setClientIpHeader("X-Forwarded-For");
+		DingTalkLoginRateLimiter rateLimiter = new DingTalkLoginRateLimiter(properties);
+
+		assertThat(rateLimiter.tryAcquireClient(request("10.0.0.1"), new MockHttpServletResponse())).isTrue();
+		assertThat(rateLimiter.tryAcquireClient(request("10.0.0.1"), new MockHttpServletResponse())).isTrue();
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		assertThat(rateLimiter.tryAcquireClient(request("10.0.0.1"), rejected)).isFalse();
+		assertThat(rejected.getStatus()).isEqualTo(429);
+		assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+		// 每个 IP 有各自的令牌桶，不会因其他 IP 被限流
+		for (int i = 2; i < 1000; i++) {
+			assertThat(rateLimiter.tryAcquireClient(request("10.0.0." + i), new MockHttpServletResponse())).isTrue();
+		}
+	}
+
+	private static MockHttpServletRequest request(String forwarded) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr("192.168.0.1");
+		if (forwarded != null) {
+			request.addHeader("X-Forwarded-For", forwarded);
+		}
+		return request;
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class DingTalkRateLimiterTest {
+
+	@Test
+	public void burstIsEnforcedPerKey() {
+		DingTalkRateLimiter rateLimiter = new DingTalkRateLimiter(1, 3, 1024);
+		for (int i = 0; i < 3; i++) {
+			assertThat(rateLimiter.tryAcquire("a")).isZero();
+		}
+		assertThat(rateLimiter.tryAcquire("a")).isPositive();
+		assertThat(rateLimiter.tryAcquire("b")).isZero();
+		assertThat(rateLimiter.getRejectedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void memoryIsFixedAndBucketsRefillWhenIdle() throws Exception {
+		DingTalkRateLimiter rateLimiter = new DingTalkRateLimiter(1000, 10, 50);
+		assertThat(rateLimiter.getStripes()).isEqualTo(64);
+		for (int i = 0; i < 1000; i++) {
+			rateLimiter.tryAcquire("key-" + i);
+		}
+		assertThat(rateLimiter.size()).isLessThanOrEqualTo(64);
+
+		// 空闲超过突发窗口（10ms）后令牌桶已回满
+		Thread.sleep(20);
+		assertThat(rateLimiter.size()).isZero();
+		for (int i = 0; i < 10; i++) {
+			rateLimiter.tryAcquire("a");
+		}
+		assertThat(rateLimiter.tryAcquire("a")).isPositive();
+		Thread.sleep(20);
+		assertThat(rateLimiter.tryAcquire("a")).isZero();
+	}
+
+	@Test
+	public void keySharingOneStripeKeepsItsOwnBurst() {
+		DingTalkRateLimiter rateLimiter = new DingTalkRateLimiter(1, 3, 16, 42L);
+		int[] victim = rateLimiter.stripes("victim");
+		String attacker = null;
+		for (int i = 0; attacker == null; i++) {
+			int[] stripes = rateLimiter.stripes("attacker-" + i);
+			if (shares(stripes, victim) == 1) {
+				attacker = "attacker-" + i;
+			}
+		}
+		// 与 victim 共享一个分段的 Key 耗尽自己的额度
+		while (rateLimiter.tryAcquire(attacker) == 0) {
+		}
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(rateLimiter.tryAcquire("victim")).isZero();
+		}
+		assertThat(rateLimiter.tryAcquire("victim")).isPositive();
+	}
+
+	@Test
+	public void stripesDependOnTheSeed() {
+		// 客户端无法预知哪些 Key 会冲突
+		int differing = 0;
+		for (int i = 0; i < 100; i++) {
+			String key = "10.0.0." + i;
+			int[] a = new DingTalkRateLimiter(1, 1, 1 << 16, 1L).stripes(key);
+			int[] b = new DingTalkRateLimiter(1, 1, 1 << 16, 2L).stripes(key);
+			if (a[0] != b[0] || a[1] != b[1]) {
+				differing++;
+			}
+		}
+		assertThat(differing).isGreaterThan(90);
+	}
+
+	@Test
+	public void concurrentCallersDoNotExceedTheBurstByMoreThanTheRace() throws Exception {
+		int threads = 8;
+		DingTalkRateLimiter rateLimiter = new DingTalkRateLimiter(0.001, 100, 1024);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		AtomicInteger permitted = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		try {
+			for (int t = 0; t < threads; t++) {
+				executor.execute(() -> {
+					try {
+						start.await();
+						for (int i = 0; i < 1000; i++) {
+							if (rateLimiter.tryAcquire("a") == 0) {
+								permitted.incrementAndGet();
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				});
+			}
+			start.countDown();
+			assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			executor.shutdownNow();
+		}
+		// 每秒 0.001 个许可，测试期间只有突发额度；并发时最多每个线程多放行一次
+		assertThat(permitted.get()).isBetween(100, 100 + threads);
+	}
+
+	private static int shares(int[] a, int[] b) {
+		int shared = 0;
+		for (int x : a) {
+			for (int y : b) {
+				if (x == y) {
+					shared++;
+				}
+			}
+		}
+		return shared;
+	}
+
+}
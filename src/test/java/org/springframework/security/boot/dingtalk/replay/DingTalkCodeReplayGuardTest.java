@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.springframework.security.boot.dingtalk.exception.DingTalkCodeExpiredException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import com.taobao.api.ApiException;
+
+public class DingTalkCodeReplayGuardTest {
+
+	private static final UnaryOperator<Authentication> COPIER = result -> new UsernamePasswordAuthenticationToken(
+			result.getPrincipal(), result.getCredentials(), result.getAuthorities());
+
+	private final DingTalkInMemoryConsumedCodeStore consumedCodeStore = new DingTalkInMemoryConsumedCodeStore();
+	private final DingTalkCodeReplayGuard replayGuard = new DingTalkCodeReplayGuard(consumedCodeStore, Duration.ofMinutes(5));
+
+	@Test
+	public void concurrentCallersGetTheirOwnCopy() throws Exception {
+		Authentication shared = new UsernamePasswordAuthenticationToken("user", "secret", AuthorityUtils.createAuthorityList("ROLE_USER"));
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Authentication>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_TMP_CODE, "app", "code", () -> {
+					release.await(5, TimeUnit.SECONDS);
+					return shared;
+				}, COPIER)));
+			}
+			while (replayGuard.getInFlightCount() == 0) {
+				Thread.sleep(1);
+			}
+			Thread.sleep(50);
+			release.countDown();
+			List<Authentication> results = new ArrayList<>();
+			for (Future<Authentication> future : futures) {
+				results.add(future.get(5, TimeUnit.SECONDS));
+			}
+			// 每个请求得到不同的对象，擦除凭证等修改互不影响
+			assertThat(results).allMatch(result -> result != shared);
+			assertThat(results.stream().map(System::identityHashCode).distinct()).hasSize(4);
+			((UsernamePasswordAuthenticationToken) results.get(0)).eraseCredentials();
+			assertThat(results.get(1).getCredentials()).isEqualTo("secret");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void connectFailureReleasesTheCode() {
+		assertThatThrownBy(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_TMP_CODE, "app", "code", () -> {
+			throw new DingTalkAuthenticationServiceException("connect failed", new ApiException(new ConnectException("Connection refused")));
+		}, COPIER)).isInstanceOf(DingTalkAuthenticationServiceException.class);
+		assertThat(consumedCodeStore.isConsumed("tmp:app:code")).isFalse();
+
+		assertThatThrownBy(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_TMP_CODE, "app", "code2", () -> {
+			throw new DingTalkAuthenticationServiceException("connect failed", new ApiException(new SocketTimeoutException("connect timed out")));
+		}, COPIER)).isInstanceOf(DingTalkAuthenticationServiceException.class);
+		assertThat(consumedCodeStore.isConsumed("tmp:app:code2")).isFalse();
+	}
+
+	@Test
+	public void rejectedCodeIsReleased() {
+		// DingTalk 以 errcode 拒绝的授权码不占用存储
+		for (int i = 0; i < 100; i++) {
+			String code = "forged-" + i;
+			assertThatThrownBy(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_SCAN_CODE, "app", code, () -> {
+				throw new DingTalkAuthenticationServiceException("不存在的临时授权码");
+			}, COPIER)).isInstanceOf(DingTalkAuthenticationServiceException.class);
+		}
+		assertThat(consumedCodeStore.size()).isZero();
+
+		assertThatThrownBy(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_SCAN_CODE, "app", "code", () -> {
+			throw new DingTalkAuthenticationServiceException("invalid code", new ApiException("40078", "不存在的临时授权码"));
+		}, COPIER)).isInstanceOf(DingTalkAuthenticationServiceException.class);
+		assertThat(consumedCodeStore.isConsumed("scan:app:code")).isFalse();
+	}
+
+	@Test
+	public void successfulCodeStaysConsumed() throws Exception {
+		Authentication result = new UsernamePasswordAuthenticationToken("user", "secret", AuthorityUtils.createAuthorityList("ROLE_USER"));
+		replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_SCAN_CODE, "app", "code", () -> result, COPIER);
+
+		assertThat(consumedCodeStore.isConsumed("scan:app:code")).isTrue();
+		assertThatThrownBy(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_SCAN_CODE, "app", "code", () -> result, COPIER))
+				.isInstanceOf(DingTalkCodeExpiredException.class);
+	}
+
+	@Test
+	public void readTimeoutKeepsTheCodeConsumed() {
+		// 读取超时时请求可能已到达 DingTalk，授权码可能已被使用
+		assertThatThrownBy(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_TMP_CODE, "app", "code", () -> {
+			throw new DingTalkAuthenticationServiceException("read failed", new ApiException(new SocketTimeoutException("Read timed out")));
+		}, COPIER)).isInstanceOf(DingTalkAuthenticationServiceException.class);
+		assertThat(consumedCodeStore.isConsumed("tmp:app:code")).isTrue();
+
+		assertThatThrownBy(() -> replayGuard.authenticate(DingTalkCodeReplayGuard.FLOW_TMP_CODE, "app", "code", () -> null, COPIER))
+				.isInstanceOf(DingTalkCodeExpiredException.class);
+		assertThat(replayGuard.getReplayedCount()).isEqualTo(1);
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class DingTalkInMemoryConsumedCodeStoreTest {
+
+	@Test
+	public void codesAreConsumedOnce() {
+		DingTalkInMemoryConsumedCodeStore consumedCodeStore = new DingTalkInMemoryConsumedCodeStore();
+		assertThat(consumedCodeStore.markConsumed("code", Duration.ofMinutes(5))).isTrue();
+		assertThat(consumedCodeStore.markConsumed("code", Duration.ofMinutes(5))).isFalse();
+		consumedCodeStore.remove("code");
+		assertThat(consumedCodeStore.markConsumed("code", Duration.ofMinutes(5))).isTrue();
+	}
+
+	@Test
+	public void fullStoreEvictsTheCodesExpiringFirst() {
+		DingTalkInMemoryConsumedCodeStore consumedCodeStore = new DingTalkInMemoryConsumedCodeStore(2, Duration.ofSeconds(1), 8);
+		assertThat(consumedCodeStore.markConsumed("code-1", Duration.ofSeconds(2))).isTrue();
+		assertThat(consumedCodeStore.markConsumed("code-2", Duration.ofSeconds(5))).isTrue();
+
+		// 写满时新的授权码仍被记录，最早到期的记录被淘汰
+		assertThat(consumedCodeStore.markConsumed("code-3", Duration.ofSeconds(5))).isTrue();
+		assertThat(consumedCodeStore.size()).isEqualTo(2);
+		assertThat(consumedCodeStore.getEvictionCount()).isEqualTo(1);
+		assertThat(consumedCodeStore.isConsumed("code-1")).isFalse();
+		assertThat(consumedCodeStore.isConsumed("code-2")).isTrue();
+		assertThat(consumedCodeStore.markConsumed("code-3", Duration.ofSeconds(5))).isFalse();
+	}
+
+	@Test
+	public void floodOfCodesStaysBounded() {
+		DingTalkInMemoryConsumedCodeStore consumedCodeStore = new DingTalkInMemoryConsumedCodeStore(1000, Duration.ofSeconds(1), 512);
+		for (int i = 0; i < 100000; i++) {
+			assertThat(consumedCodeStore.markConsumed("code-" + i, Duration.ofMinutes(5))).isTrue();
+		}
+		assertThat(consumedCodeStore.size()).isLessThanOrEqualTo(1000);
+		assertThat(consumedCodeStore.isConsumed("code-99999")).isTrue();
+	}
+
+	@Test
+	public void expiredCodesMakeRoom() throws Exception {
+		DingTalkInMemoryConsumedCodeStore consumedCodeStore = new DingTalkInMemoryConsumedCodeStore(1, Duration.ofMillis(10), 8);
+		assertThat(consumedCodeStore.markConsumed("code-1", Duration.ofMillis(20))).isTrue();
+		Thread.sleep(50);
+		assertThat(consumedCodeStore.markConsumed("code-2", Duration.ofMinutes(5))).isTrue();
+		assertThat(consumedCodeStore.size()).isEqualTo(1);
+	}
+
+}
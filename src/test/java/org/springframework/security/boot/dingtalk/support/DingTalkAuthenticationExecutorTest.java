@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkExecutorProperties;
+
+public class DingTalkAuthenticationExecutorTest {
+
+	private static final int LIMIT = 50;
+
+	@Test
+	public void bulkheadCapsConcurrentAuthentications() throws Exception {
+		// 与虚拟线程执行器一样不限制线程数
+		ExecutorService delegate = Executors.newCachedThreadPool();
+		DingTalkAuthenticationExecutor executor = new DingTalkAuthenticationExecutor(delegate, LIMIT);
+		BlockedLogins logins = new BlockedLogins();
+		try {
+			assertThat(logins.submitUntilRejected(executor.getExecutor())).isEqualTo(LIMIT);
+			logins.awaitRunning(LIMIT);
+			assertThat(executor.availablePermits()).isZero();
+			assertThatThrownBy(() -> executor.getExecutor().execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+		} finally {
+			logins.release();
+			delegate.shutdown();
+		}
+		// 线程池终止时所有任务都已返回，许可已全部归还
+		assertThat(delegate.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(logins.maxRunning.get()).isEqualTo(LIMIT);
+		assertThat(executor.availablePermits()).isEqualTo(LIMIT);
+	}
+
+	/**
+	 * 默认配置下同时阻塞在 DingTalk 调用上的异步登录数：平台线程池只有 maxPoolSize 个在执行，其余排队直至队列已满；
+	 * 虚拟线程（JDK 21 以下以不限线程数的线程池代替）由舱壁限制，virtualThreadsMaxConcurrency 个同时执行
+	 */
+	@Test
+	public void virtualThreadsRunMoreBlockedLoginsThanThePlatformPool() throws Exception {
+		SecurityDingTalkExecutorProperties properties = new SecurityDingTalkExecutorProperties();
+
+		DingTalkAuthenticationExecutor platform = new DingTalkAuthenticationExecutor(DingTalkAuthenticationExecutor.newBoundedThreadPool(properties));
+		BlockedLogins platformLogins = new BlockedLogins();
+		try {
+			assertThat(platformLogins.submitUntilRejected(platform.getExecutor()))
+					.isEqualTo(properties.getMaxPoolSize() + properties.getQueueCapacity());
+			platformLogins.awaitRunning(properties.getMaxPoolSize());
+		} finally {
+			platformLogins.release();
+			platform.destroy();
+		}
+
+		DingTalkAuthenticationExecutor virtual = DingTalkAuthenticationExecutor.isVirtualThreadsAvailable()
+				? new DingTalkAuthenticationExecutor(properties)
+				: new DingTalkAuthenticationExecutor(Executors.newCachedThreadPool(), properties.getVirtualThreadsMaxConcurrency());
+		BlockedLogins virtualLogins = new BlockedLogins();
+		try {
+			assertThat(virtualLogins.submitUntilRejected(virtual.getExecutor())).isEqualTo(properties.getVirtualThreadsMaxConcurrency());
+			virtualLogins.awaitRunning(properties.getVirtualThreadsMaxConcurrency());
+		} finally {
+			virtualLogins.release();
+			virtual.destroy();
+		}
+
+		// 64 个执行、512 个排队，对比 1000 个同时执行
+		assertThat(platformLogins.maxRunning.get()).isEqualTo(properties.getMaxPoolSize());
+		assertThat(virtualLogins.maxRunning.get()).isEqualTo(properties.getVirtualThreadsMaxConcurrency())
+				.isGreaterThan(platformLogins.maxRunning.get());
+	}
+
+	@Test
+	public void rejectionFromTheDelegateReleasesThePermit() {
+		ExecutorService delegate = Executors.newSingleThreadExecutor();
+		delegate.shutdown();
+		DingTalkAuthenticationExecutor executor = new DingTalkAuthenticationExecutor(delegate, 1);
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> executor.getExecutor().execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+		}
+		assertThat(executor.availablePermits()).isEqualTo(1);
+	}
+
+	/**
+	 * 阻塞直至 {@link #release()} 的认证任务，模拟等待 DingTalk 响应的登录
+	 */
+	private static class BlockedLogins {
+
+		private final CountDownLatch released = new CountDownLatch(1);
+		private final Semaphore started = new Semaphore(0);
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicInteger maxRunning = new AtomicInteger();
+
+		int submitUntilRejected(Executor executor) {
+			int accepted = 0;
+			while (accepted < 100000) {
+				try {
+					executor.execute(this::login);
+				} catch (RejectedExecutionException e) {
+					return accepted;
+				}
+				accepted++;
+			}
+			throw new AssertionError("No login was rejected.");
+		}
+
+		void awaitRunning(int logins) throws InterruptedException {
+			assertThat(started.tryAcquire(logins, 10, TimeUnit.SECONDS)).isTrue();
+		}
+
+		void release() {
+			released.countDown();
+		}
+
+		private void login() {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			started.release();
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				running.decrementAndGet();
+			}
+		}
+
+	}
+
+}
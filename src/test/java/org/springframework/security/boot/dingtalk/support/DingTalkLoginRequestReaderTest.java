@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaLoginRequest;
+import org.springframework.security.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class DingTalkLoginRequestReaderTest {
+
+	private static final String LOGIN_REQUEST = "{\"corpId\":\"corp\",\"key\":\"app\",\"authCode\":\"code\"}";
+	private static final String AFTERBURNER_PACKAGE = "com.fasterxml.jackson.module.afterburner.";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void readsTheLoginRequestFromTheServletRequest() throws Exception {
+		DingTalkLoginRequestReader<DingTalkMaLoginRequest> reader = new DingTalkLoginRequestReader<>(objectMapper,
+				DingTalkMaLoginRequest.class);
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login/dingtalk");
+		request.setContent(LOGIN_REQUEST.getBytes(StandardCharsets.UTF_8));
+
+		DingTalkMaLoginRequest loginRequest = reader.read(request);
+
+		assertThat(loginRequest.getCorpId()).isEqualTo("corp");
+		assertThat(loginRequest.getKey()).isEqualTo("app");
+		assertThat(loginRequest.getAuthCode()).isEqualTo("code");
+	}
+
+	@Test
+	public void declaredContentLengthOverTheLimitIsRejectedBeforeReading() throws Exception {
+		DingTalkLoginRequestReader<DingTalkMaLoginRequest> reader = new DingTalkLoginRequestReader<>(objectMapper,
+				DingTalkMaLoginRequest.class, 64, false);
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getContentLengthLong()).thenReturn(65L);
+
+		assertThatThrownBy(() -> reader.read(request)).isInstanceOf(DingTalkLoginRequestTooLargeException.class)
+				.extracting(e -> ((DingTalkLoginRequestTooLargeException) e).getMaxBodySize()).isEqualTo(64L);
+		// 未打开请求体
+		verify(request, never()).getInputStream();
+	}
+
+	@Test
+	public void undeclaredOversizedBodyIsCutOffWhileStreaming() {
+		DingTalkLoginRequestReader<DingTalkMaLoginRequest> reader = new DingTalkLoginRequestReader<>(objectMapper,
+				DingTalkMaLoginRequest.class, 64, false);
+		// 未声明 Content-Length 的 1MB 请求体：一个很长的字符串值
+		byte[] body = new byte[1024 * 1024];
+		Arrays.fill(body, (byte) 'a');
+		byte[] prefix = "{\"key\":\"".getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(prefix, 0, body, 0, prefix.length);
+		CountingInputStream input = new CountingInputStream(new ByteArrayInputStream(body));
+
+		assertThatThrownBy(() -> reader.read(input)).isInstanceOf(DingTalkLoginRequestTooLargeException.class);
+		// 超过上限后即停止读取，最多多读解析器的一个缓冲区
+		assertThat(input.count).isLessThan(16 * 1024);
+	}
+
+	@Test
+	public void bodyWithinTheLimitIsRead() throws Exception {
+		byte[] body = LOGIN_REQUEST.getBytes(StandardCharsets.UTF_8);
+		DingTalkLoginRequestReader<DingTalkMaLoginRequest> reader = new DingTalkLoginRequestReader<>(objectMapper,
+				DingTalkMaLoginRequest.class, body.length, false);
+
+		assertThat(reader.read(new ByteArrayInputStream(body)).getKey()).isEqualTo("app");
+		assertThat(reader.isTooLarge(body.length)).isFalse();
+		assertThat(reader.isTooLarge(body.length + 1)).isTrue();
+	}
+
+	@Test
+	public void acceleratorIsRegisteredOnACopyOfTheSharedMapper() throws Exception {
+		DingTalkLoginRequestReader<DingTalkMaLoginRequest> reader = new DingTalkLoginRequestReader<>(objectMapper,
+				DingTalkMaLoginRequest.class, DingTalkLoginRequestReader.DEFAULT_MAX_BODY_SIZE, true);
+
+		assertThat(reader.read(new ByteArrayInputStream(LOGIN_REQUEST.getBytes(StandardCharsets.UTF_8))).getAuthCode())
+				.isEqualTo("code");
+		// 应用共享的 ObjectMapper 不受影响
+		assertThat(objectMapper.getRegisteredModuleIds()).isEmpty();
+	}
+
+	@Test
+	public void acceleratorFallsBackToThePlainMapperWhenAfterburnerIsAbsent() throws Exception {
+		// 在隐藏 afterburner 的类加载器中加载 DingTalkLoginRequestReader
+		ClassLoader loader = new AfterburnerHidingClassLoader(getClass().getClassLoader());
+		Class<?> readerType = loader.loadClass(DingTalkLoginRequestReader.class.getName());
+		assertThat(readerType.getClassLoader()).isSameAs(loader);
+		assertThatThrownBy(() -> loader.loadClass(AFTERBURNER_PACKAGE + "AfterburnerModule"))
+				.isInstanceOf(ClassNotFoundException.class);
+
+		Object reader = readerType.getConstructor(ObjectMapper.class, Class.class, long.class, boolean.class)
+				.newInstance(objectMapper, DingTalkMaLoginRequest.class, DingTalkLoginRequestReader.DEFAULT_MAX_BODY_SIZE, true);
+		Object loginRequest;
+		try {
+			loginRequest = readerType.getMethod("read", InputStream.class).invoke(reader,
+					new ByteArrayInputStream(LOGIN_REQUEST.getBytes(StandardCharsets.UTF_8)));
+		} catch (InvocationTargetException e) {
+			throw new AssertionError(e.getCause());
+		}
+
+		assertThat(((DingTalkMaLoginRequest) loginRequest).getKey()).isEqualTo("app");
+		assertThat(objectMapper.getRegisteredModuleIds()).isEmpty();
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+	}
+
+	/**
+	 * 自行定义 DingTalkLoginRequestReader（含内部类），并对其隐藏 afterburner，其余类委托给父加载器
+	 */
+	private static class AfterburnerHidingClassLoader extends ClassLoader {
+
+		private static final String READER = DingTalkLoginRequestReader.class.getName();
+
+		AfterburnerHidingClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.startsWith(AFTERBURNER_PACKAGE)) {
+				throw new ClassNotFoundException(name);
+			}
+			if (!name.equals(READER) && !name.startsWith(READER + "$")) {
+				return super.loadClass(name, resolve);
+			}
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> type = findLoadedClass(name);
+				if (type == null) {
+					type = this.define(name);
+				}
+				if (resolve) {
+					resolveClass(type);
+				}
+				return type;
+			}
+		}
+
+		private Class<?> define(String name) throws ClassNotFoundException {
+			try (InputStream input = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+				if (input == null) {
+					throw new ClassNotFoundException(name);
+				}
+				byte[] bytes = StreamUtils.copyToByteArray(input);
+				return defineClass(name, bytes, 0, bytes.length);
+			} catch (IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class DingTalkSingleFlightTest {
+
+	private static final int THREADS = 32;
+
+	private final DingTalkSingleFlight<String, String> singleFlight = new DingTalkSingleFlight<>();
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void concurrentCallersShareOneCall() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		List<Future<String>> results = this.submitAll(() -> singleFlight.execute("app", () -> {
+			calls.incrementAndGet();
+			release.await();
+			return "token";
+		}, Duration.ofSeconds(5)));
+
+		awaitInFlight("app");
+		// 等待其余调用方进入等待
+		Thread.sleep(200);
+		release.countDown();
+
+		for (Future<String> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("token");
+		}
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+
+	@Test
+	public void failureIsRethrownToEveryWaiter() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("gettoken failed");
+		List<Future<String>> results = this.submitAll(() -> singleFlight.execute("app", () -> {
+			calls.incrementAndGet();
+			release.await();
+			throw failure;
+		}, Duration.ofSeconds(5)));
+
+		awaitInFlight("app");
+		Thread.sleep(200);
+		release.countDown();
+
+		for (Future<String> result : results) {
+			assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCause(failure);
+		}
+		assertThat(calls.get()).isEqualTo(1);
+		// 失败后不保留结果，下一次调用重新执行
+		assertThat(singleFlight.execute("app", () -> "token", Duration.ofSeconds(1))).isEqualTo("token");
+	}
+
+	@Test
+	public void waiterTimesOutWhileCallIsInFlight() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> leader = executor.submit(() -> singleFlight.execute("app", () -> {
+			release.await();
+			return "token";
+		}, Duration.ofSeconds(5)));
+		awaitInFlight("app");
+
+		assertThatThrownBy(() -> singleFlight.execute("app", () -> "other", Duration.ofMillis(50)))
+				.isInstanceOf(TimeoutException.class);
+
+		release.countDown();
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("token");
+	}
+
+	@Test
+	public void hungCallReleasesTheKeyAfterItsTimeout() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> leader = executor.submit(() -> singleFlight.execute("app", () -> {
+			release.await();
+			return "stale";
+		}, Duration.ofMillis(100)));
+		awaitInFlight("app");
+
+		// 等待方最多等到该调用的占用时长结束，之后结束该调用的结果并释放 Key
+		assertThatThrownBy(() -> singleFlight.execute("app", () -> "other", Duration.ofSeconds(5)))
+				.isInstanceOf(TimeoutException.class);
+		assertThat(singleFlight.isInFlight("app")).isFalse();
+		// 之后的调用方重新执行，不再排在未返回的调用之后
+		assertThat(singleFlight.execute("app", () -> "fresh", Duration.ofSeconds(5))).isEqualTo("fresh");
+
+		release.countDown();
+		// 未返回的调用结果只返回给发起方
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+
+	private List<Future<String>> submitAll(java.util.concurrent.Callable<String> task) {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			results.add(executor.submit(() -> {
+				start.await();
+				return task.call();
+			}));
+		}
+		start.countDown();
+		return results;
+	}
+
+	private void awaitInFlight(String key) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!singleFlight.isInFlight(key) && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(singleFlight.isInFlight(key)).isTrue();
+	}
+
+}
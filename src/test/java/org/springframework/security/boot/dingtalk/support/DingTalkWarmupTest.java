@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.biz.userdetails.UserProfilePayload;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkAuthenticationResponseWriter;
+import org.springframework.security.boot.dingtalk.authentication.DingTalkMaLoginRequest;
+import org.springframework.security.boot.dingtalk.observation.DingTalkLoginObserver;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkWarmupProperties;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class DingTalkWarmupTest {
+
+	private static final int ITERATIONS = 5;
+
+	@Test
+	public void serializationDrivesRegisteredReadersAndWriters() {
+		CountingReader reader = new CountingReader();
+		DingTalkLoginObserver loginObserver = mock(DingTalkLoginObserver.class);
+		reader.setLoginObserver(loginObserver, DingTalkLoginObserver.FLOW_MA);
+		DingTalkAuthenticationResponseWriter responseWriter = mock(DingTalkAuthenticationResponseWriter.class);
+		when(responseWriter.renderSuccess(any(), any())).thenReturn(new byte[0]);
+
+		DingTalkWarmup warmup = new DingTalkWarmup(serializationOnly(), new ObjectMapper());
+		warmup.addLoginRequestReader(reader);
+		// 重复注册同一实例只预热一次
+		warmup.addLoginRequestReader(reader);
+		warmup.addResponseWriter(responseWriter);
+		warmup.warmup();
+
+		assertThat(reader.reads.get()).isEqualTo(ITERATIONS);
+		assertThat(reader.last).isNotNull();
+		assertThat(reader.last.getAuthCode()).isEqualTo("warmup");
+		verify(responseWriter, times(ITERATIONS)).renderSuccess(eq(Locale.getDefault()), any(UserProfilePayload.class));
+		// 合成请求不计入登录观测
+		verifyNoInteractions(loginObserver);
+	}
+
+	@Test
+	public void serializationFallsBackWithoutRegisteredReaders() {
+		DingTalkWarmup warmup = new DingTalkWarmup(serializationOnly(), new ObjectMapper());
+		warmup.warmup();
+	}
+
+	private static SecurityDingTalkWarmupProperties serializationOnly() {
+		SecurityDingTalkWarmupProperties properties = new SecurityDingTalkWarmupProperties();
+		properties.setTokens(false);
+		properties.setConnections(false);
+		properties.setSerializationIterations(ITERATIONS);
+		return properties;
+	}
+
+	private static class CountingReader extends DingTalkLoginRequestReader<DingTalkMaLoginRequest> {
+
+		private final AtomicInteger reads = new AtomicInteger();
+		private volatile DingTalkMaLoginRequest last;
+
+		CountingReader() {
+			super(new ObjectMapper(), DingTalkMaLoginRequest.class);
+		}
+
+		@Override
+		protected DingTalkMaLoginRequest doRead(InputStream input) throws IOException {
+			reads.incrementAndGet();
+			last = super.doRead(input);
+			return last;
+		}
+
+	}
+
+}
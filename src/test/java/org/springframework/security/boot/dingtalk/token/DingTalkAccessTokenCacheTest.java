@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkTokenCacheProperties;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+import com.taobao.api.ApiException;
+
+public class DingTalkAccessTokenCacheTest {
+
+	private static final int THREADS = 32;
+
+	private final DingTalkTemplate dingTalkTemplate = mock(DingTalkTemplate.class);
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+	private DingTalkAccessTokenCache tokenCache;
+
+	@BeforeEach
+	public void setUp() {
+		when(dingTalkTemplate.getAppSecret("corp", "app")).thenReturn("secret");
+		tokenCache = new DingTalkAccessTokenCache(dingTalkTemplate, new SecurityDingTalkTokenCacheProperties());
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		tokenCache.destroy();
+	}
+
+	@Test
+	public void concurrentMissesFetchOnce() throws Exception {
+		when(dingTalkTemplate.getAccessToken("app", "secret")).thenAnswer(invocation -> {
+			// 模拟较慢的 gettoken 请求，让其余线程在其返回前到达
+			Thread.sleep(300);
+			return "token";
+		});
+
+		for (Future<String> result : this.getAccessTokenConcurrently()) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("token");
+		}
+		verify(dingTalkTemplate, times(1)).getAccessToken(anyString(), anyString());
+		assertThat(tokenCache.loadCount()).isEqualTo(1);
+
+		// 之后的调用命中缓存
+		assertThat(tokenCache.getAccessToken("corp", "app")).isEqualTo("token");
+		verify(dingTalkTemplate, times(1)).getAccessToken(anyString(), anyString());
+	}
+
+	@Test
+	public void concurrentMissesShareTheFailure() throws Exception {
+		ApiException failure = new ApiException("40001", "invalid credential");
+		when(dingTalkTemplate.getAccessToken("app", "secret")).thenAnswer(invocation -> {
+			Thread.sleep(300);
+			throw failure;
+		});
+
+		for (Future<String> result : this.getAccessTokenConcurrently()) {
+			assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+					.hasCause(failure);
+		}
+		verify(dingTalkTemplate, times(1)).getAccessToken(anyString(), anyString());
+		assertThat(tokenCache.size()).isZero();
+	}
+
+	private List<Future<String>> getAccessTokenConcurrently() {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			results.add(executor.submit(() -> {
+				start.await();
+				return tokenCache.getAccessToken("corp", "app");
+			}));
+		}
+		start.countDown();
+		return results;
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.token;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class DingTalkJdbcAccessTokenStoreTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private DingTalkJdbcAccessTokenStore tokenStore;
+
+	@BeforeEach
+	public void setUp() {
+		// 每个测试使用独立的内存数据库，表结构由 schema-dingtalk-access-token.sql 创建
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		tokenStore = new DingTalkJdbcAccessTokenStore(jdbcTemplate);
+		tokenStore.initializeSchema();
+	}
+
+	@Test
+	public void schemaIsCreatedOnce() {
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + DingTalkJdbcAccessTokenStore.DEFAULT_TABLE_NAME, Integer.class)).isZero();
+		// 表已存在时忽略
+		tokenStore.initializeSchema();
+	}
+
+	@Test
+	public void tokensAreSavedAndUpdated() {
+		assertThat(tokenStore.get("corp", "app")).isNull();
+
+		tokenStore.save("corp", "app", new DingTalkStoredAccessToken("token-1", 1000L, 8200000L));
+		DingTalkStoredAccessToken token = tokenStore.get("corp", "app");
+		assertThat(token.getAccessToken()).isEqualTo("token-1");
+		assertThat(token.getFetchedAt()).isEqualTo(1000L);
+		assertThat(token.getExpiresAt()).isEqualTo(8200000L);
+
+		tokenStore.save("corp", "app", new DingTalkStoredAccessToken("token-2", 2000L, 9200000L));
+		assertThat(tokenStore.get("corp", "app").getAccessToken()).isEqualTo("token-2");
+
+		// 未指定 corpId 时以空字符串存储
+		tokenStore.save(null, "app", new DingTalkStoredAccessToken("token-any", 1000L, 8200000L));
+		assertThat(tokenStore.get(null, "app").getAccessToken()).isEqualTo("token-any");
+		assertThat(tokenStore.get("corp", "app").getAccessToken()).isEqualTo("token-2");
+	}
+
+	@Test
+	public void leaseIsExclusiveUntilReleasedOrExpired() throws Exception {
+		assertThat(tokenStore.tryAcquireLease("corp", "app", "node-1", Duration.ofMinutes(1))).isTrue();
+		assertThat(tokenStore.tryAcquireLease("corp", "app", "node-2", Duration.ofMinutes(1))).isFalse();
+		// 持有者可以续约
+		assertThat(tokenStore.tryAcquireLease("corp", "app", "node-1", Duration.ofMinutes(1))).isTrue();
+
+		// 只有持有者能释放
+		tokenStore.releaseLease("corp", "app", "node-2");
+		assertThat(tokenStore.tryAcquireLease("corp", "app", "node-2", Duration.ofMinutes(1))).isFalse();
+		tokenStore.releaseLease("corp", "app", "node-1");
+		assertThat(tokenStore.tryAcquireLease("corp", "app", "node-2", Duration.ofMillis(10))).isTrue();
+
+		// 租约过期后可被其他节点获取
+		Thread.sleep(30);
+		assertThat(tokenStore.tryAcquireLease("corp", "app", "node-3", Duration.ofMinutes(1))).isTrue();
+
+		// 租约不影响已保存的 access_token
+		tokenStore.save("corp", "app", new DingTalkStoredAccessToken("token", 1000L, 8200000L));
+		assertThat(tokenStore.get("corp", "app").getAccessToken()).isEqualTo("token");
+		assertThat(tokenStore.tryAcquireLease("corp", "app", "node-1", Duration.ofMinutes(1))).isFalse();
+	}
+
+	@Test
+	public void concurrentNodesGetOneLease() throws Exception {
+		int nodes = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(nodes);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int i = 0; i < nodes; i++) {
+				String owner = "node-" + i;
+				futures.add(executor.submit((Callable<Boolean>) () -> {
+					start.await();
+					return tokenStore.tryAcquireLease("corp", "app", owner, Duration.ofMinutes(1));
+				}));
+			}
+			start.countDown();
+			int acquired = 0;
+			for (Future<Boolean> future : futures) {
+				if (future.get(10, TimeUnit.SECONDS)) {
+					acquired++;
+				}
+			}
+			assertThat(acquired).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
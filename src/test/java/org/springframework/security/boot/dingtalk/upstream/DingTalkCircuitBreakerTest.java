@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCircuitBreakerProperties;
+import org.springframework.security.boot.dingtalk.upstream.DingTalkCircuitBreaker.State;
+
+public class DingTalkCircuitBreakerTest {
+
+	private final List<String> transitions = new ArrayList<>();
+
+	private DingTalkCircuitBreaker circuitBreaker(Duration waitDurationInOpenState) {
+		SecurityDingTalkCircuitBreakerProperties properties = new SecurityDingTalkCircuitBreakerProperties();
+		properties.setSlidingWindowSize(4);
+		properties.setMinimumNumberOfCalls(4);
+		properties.setFailureRateThreshold(50);
+		properties.setSlowCallDurationThreshold(Duration.ofSeconds(1));
+		properties.setWaitDurationInOpenState(waitDurationInOpenState);
+		properties.setPermittedNumberOfCallsInHalfOpenState(2);
+		return new DingTalkCircuitBreaker("gettoken", properties, (breaker, from, to) -> transitions.add(from + "->" + to));
+	}
+
+	@Test
+	public void opensAtFailureThresholdAndClosesAfterSuccessfulProbes() {
+		// 等待时间为 0：打开后下一次申请许可即进入半开状态
+		DingTalkCircuitBreaker breaker = this.circuitBreaker(Duration.ZERO);
+
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		breaker.onError(0);
+		assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+		breaker.onError(0);
+		assertThat(breaker.getState()).isEqualTo(State.OPEN);
+
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+		// 半开状态的试探名额用完
+		assertThat(breaker.tryAcquirePermission()).isFalse();
+		assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(transitions).containsExactly("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED");
+	}
+
+	@Test
+	public void failedProbeReopens() {
+		DingTalkCircuitBreaker breaker = this.circuitBreaker(Duration.ZERO);
+		for (int i = 0; i < 4; i++) {
+			breaker.onError(0);
+		}
+
+		assertThat(breaker.tryAcquirePermission()).isTrue();
+		breaker.onError(0);
+		assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+		breaker.onSuccess(0);
+
+		assertThat(breaker.getState()).isEqualTo(State.OPEN);
+		assertThat(transitions).containsExactly("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN");
+	}
+
+	@Test
+	public void openBreakerRejectsUntilWaitDurationElapses() {
+		DingTalkCircuitBreaker breaker = this.circuitBreaker(Duration.ofMinutes(1));
+		for (int i = 0; i < 4; i++) {
+			breaker.onError(0);
+		}
+
+		assertThat(breaker.tryAcquirePermission()).isFalse();
+		assertThat(breaker.getNotPermittedCount()).isEqualTo(1);
+		assertThat(breaker.getRemainingOpenMillis()).isBetween(1L, 60_000L);
+		// 打开前已发出的请求，结果不再计入
+		breaker.onSuccess(0);
+		assertThat(breaker.getNumberOfRecordedCalls()).isZero();
+	}
+
+	@Test
+	public void slowCallsOpenTheBreakerWithinTheWindow() {
+		DingTalkCircuitBreaker breaker = this.circuitBreaker(Duration.ofMinutes(1));
+		long slow = TimeUnit.SECONDS.toNanos(1);
+
+		breaker.onSuccess(slow);
+		breaker.onSuccess(slow);
+		breaker.onSuccess(slow);
+		assertThat(breaker.getSlowCallRate()).isEqualTo(-1);
+		breaker.onSuccess(0);
+		// 慢调用比例 75% 未达到默认阈值 100%
+		assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(breaker.getSlowCallRate()).isEqualTo(75);
+
+		// 窗口已满后新结果依次挤出最早的结果，唯一的快调用被挤出时全部为慢调用
+		breaker.onSuccess(slow);
+		assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(breaker.getSlowCallRate()).isEqualTo(75);
+		breaker.onSuccess(slow);
+		assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+		breaker.onSuccess(slow);
+		breaker.onSuccess(slow);
+		assertThat(breaker.getState()).isEqualTo(State.OPEN);
+		assertThat(transitions).containsExactly("CLOSED->OPEN");
+	}
+
+}
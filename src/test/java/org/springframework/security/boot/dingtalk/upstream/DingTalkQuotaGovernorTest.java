@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkQuotaProperties;
+
+public class DingTalkQuotaGovernorTest {
+
+	@Test
+	public void ruleWildcardsShareOneQuota() {
+		SecurityDingTalkQuotaProperties properties = new SecurityDingTalkQuotaProperties();
+		properties.setMaxWait(Duration.ZERO);
+		SecurityDingTalkQuotaProperties.Rule rule = new SecurityDingTalkQuotaProperties.Rule();
+		rule.setApi("gettoken");
+		rule.setPermitsPerSecond(1);
+		rule.setBurst(2);
+		properties.getRules().add(rule);
+		DingTalkQuotaGovernor quotaGovernor = new DingTalkQuotaGovernor(properties);
+
+		// 规则只限定了接口，所有应用共用同一个配额
+		DingTalkQuotaGovernor.Quota quota = quotaGovernor.getQuota("corp-a", "app-a", "gettoken");
+		assertThat(quota.getName()).isEqualTo("*/*/gettoken");
+		assertThat(quotaGovernor.getQuota("corp-b", "app-b", "gettoken")).isSameAs(quota);
+
+		quotaGovernor.acquire("corp-a", "app-a", "gettoken");
+		quotaGovernor.acquire("corp-b", "app-b", "gettoken");
+		assertThatThrownBy(() -> quotaGovernor.acquire("corp-c", "app-c", "gettoken"))
+				.isInstanceOf(DingTalkServiceUnavailableException.class);
+
+		// 没有匹配的规则时按 (corpId, appKey, 接口) 划分
+		assertThat(quotaGovernor.getQuota("corp-a", "app-a", "user.get").getName()).isEqualTo("corp-a/app-a/user.get");
+		assertThat(quotaGovernor.getQuota("corp-b", "app-a", "user.get")).isNotSameAs(quotaGovernor.getQuota("corp-a", "app-a", "user.get"));
+	}
+
+	@Test
+	public void quotasAreBounded() {
+		SecurityDingTalkQuotaProperties properties = new SecurityDingTalkQuotaProperties();
+		properties.setMaxQuotas(16);
+		DingTalkQuotaGovernor quotaGovernor = new DingTalkQuotaGovernor(properties);
+		for (int i = 0; i < 1000; i++) {
+			quotaGovernor.acquire(null, "app-" + i, "user.get");
+		}
+		assertThat(quotaGovernor.getQuotas().size()).isLessThanOrEqualTo(16);
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkRetryProperties;
+
+import com.taobao.api.ApiException;
+
+public class DingTalkRetryTemplateTest {
+
+	@Test
+	public void retryIsOptIn() {
+		SecurityDingTalkRetryProperties properties = new SecurityDingTalkRetryProperties();
+		assertThat(properties.isEnabled()).isFalse();
+		assertThat(properties.isRetryOnIoError()).isFalse();
+	}
+
+	@Test
+	public void ioErrorsAreRetriedOnlyWhenEnabled() {
+		AtomicInteger attempts = new AtomicInteger();
+		DingTalkRetryTemplate retryTemplate = new DingTalkRetryTemplate(this.properties(false));
+
+		assertThatThrownBy(() -> retryTemplate.execute(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, () -> {
+			attempts.incrementAndGet();
+			throw new ApiException(new IOException("connect timed out"));
+		})).isInstanceOf(ApiException.class);
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void oneTimeCodeOperationsAreNeverRetriedOnIoErrors() throws Exception {
+		DingTalkRetryTemplate retryTemplate = new DingTalkRetryTemplate(this.properties(true));
+
+		AtomicInteger codeAttempts = new AtomicInteger();
+		assertThatThrownBy(() -> retryTemplate.execute(DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE, () -> {
+			codeAttempts.incrementAndGet();
+			throw new ApiException(new IOException("read timed out"));
+		})).isInstanceOf(ApiException.class);
+		assertThat(codeAttempts.get()).isEqualTo(1);
+
+		// 幂等的接口照常重试
+		AtomicInteger tokenAttempts = new AtomicInteger();
+		String token = retryTemplate.execute(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, () -> {
+			if (tokenAttempts.incrementAndGet() < 3) {
+				throw new ApiException(new IOException("read timed out"));
+			}
+			return "token";
+		});
+		assertThat(token).isEqualTo("token");
+		assertThat(tokenAttempts.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void retryableErrcodeOfOneTimeCodeOperationIsStillRetried() throws Exception {
+		DingTalkRetryTemplate retryTemplate = new DingTalkRetryTemplate(this.properties(true));
+		AtomicInteger attempts = new AtomicInteger();
+
+		Long errcode = retryTemplate.execute(DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE,
+				() -> attempts.incrementAndGet() < 2 ? 90018L : 0L, code -> code);
+
+		assertThat(errcode).isZero();
+		assertThat(attempts.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void noRetryStartsWhenTheNextAttemptWouldOverrunTheDeadline() throws Exception {
+		SecurityDingTalkRetryProperties properties = this.properties(true);
+		properties.setDeadline(Duration.ofMillis(300));
+		DingTalkRetryTemplate retryTemplate = new DingTalkRetryTemplate(properties);
+		AtomicInteger attempts = new AtomicInteger();
+
+		// 第一次请求耗时 200ms，剩余 100ms 不足以完成退避加一次同样耗时的请求
+		Long errcode = retryTemplate.execute(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, () -> {
+			attempts.incrementAndGet();
+			sleep(200);
+			return -1L;
+		}, code -> code);
+
+		assertThat(errcode).isEqualTo(-1L);
+		assertThat(attempts.get()).isEqualTo(1);
+		assertThat(retryTemplate.getStats(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN)
+				.getCount(DingTalkRetryTemplate.Outcome.DEADLINE_EXCEEDED)).isEqualTo(1);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private SecurityDingTalkRetryProperties properties(boolean retryOnIoError) {
+		SecurityDingTalkRetryProperties properties = new SecurityDingTalkRetryProperties();
+		properties.setEnabled(true);
+		properties.setRetryOnIoError(retryOnIoError);
+		properties.setInitialBackoff(Duration.ofMillis(1));
+		properties.setMaxBackoff(Duration.ofMillis(5));
+		return properties;
+	}
+
+}
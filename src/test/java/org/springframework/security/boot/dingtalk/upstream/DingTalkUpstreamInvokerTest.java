@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.boot.dingtalk.exception.DingTalkServiceUnavailableException;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkBulkheadProperties;
+import org.springframework.security.boot.dingtalk.property.SecurityDingTalkCircuitBreakerProperties;
+
+import com.taobao.api.ApiException;
+
+public class DingTalkUpstreamInvokerTest {
+
+	@Test
+	public void transientErrcodesCountAsFailuresWithoutRetry() throws Exception {
+		SecurityDingTalkCircuitBreakerProperties circuitBreaker = new SecurityDingTalkCircuitBreakerProperties();
+		circuitBreaker.setMinimumNumberOfCalls(4);
+		DingTalkUpstreamInvoker upstreamInvoker = new DingTalkUpstreamInvoker(circuitBreaker, null);
+		assertThat(upstreamInvoker.getRetryTemplate()).isNull();
+
+		for (int i = 0; i < 4; i++) {
+			upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, () -> 90018L, code -> code);
+		}
+
+		DingTalkCircuitBreaker breaker = upstreamInvoker.getCircuitBreaker(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN);
+		// 打开时统计被清空，状态即为判断依据
+		assertThat(breaker.getState()).isEqualTo(DingTalkCircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	public void businessErrcodesAreNotCircuitBreakerFailures() throws Exception {
+		SecurityDingTalkCircuitBreakerProperties circuitBreaker = new SecurityDingTalkCircuitBreakerProperties();
+		circuitBreaker.setMinimumNumberOfCalls(1);
+		DingTalkUpstreamInvoker upstreamInvoker = new DingTalkUpstreamInvoker(circuitBreaker, null);
+
+		// 40078：临时授权码不存在，属于调用方错误
+		upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE, () -> 40078L, code -> code);
+
+		DingTalkCircuitBreaker breaker = upstreamInvoker.getCircuitBreaker(DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE);
+		assertThat(breaker.getNumberOfRecordedCalls()).isEqualTo(1);
+		assertThat(breaker.getFailureRate()).isZero();
+		assertThat(breaker.getState()).isEqualTo(DingTalkCircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void credentialErrorsOfOneAppDoNotOpenTheSharedBreaker() throws Exception {
+		SecurityDingTalkCircuitBreakerProperties circuitBreaker = new SecurityDingTalkCircuitBreakerProperties();
+		circuitBreaker.setMinimumNumberOfCalls(4);
+		DingTalkUpstreamInvoker upstreamInvoker = new DingTalkUpstreamInvoker(circuitBreaker, null);
+
+		for (int i = 0; i < 10; i++) {
+			// 40089：appKey 或 appSecret 错误，只与该应用有关
+			assertThatThrownBy(() -> upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, "corp", "bad-app",
+					() -> { throw new ApiException("40089", "invalid appkey or appsecret"); }, null)).isInstanceOf(ApiException.class);
+		}
+		DingTalkCircuitBreaker breaker = upstreamInvoker.getCircuitBreaker(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN);
+		assertThat(breaker.getState()).isEqualTo(DingTalkCircuitBreaker.State.CLOSED);
+		assertThat(breaker.getFailureRate()).isZero();
+
+		// 其他应用仍可获取 access_token
+		assertThat(upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, "corp", "good-app", () -> "token", null)).isEqualTo("token");
+	}
+
+	@Test
+	public void ioErrorsAndTransientErrcodesOpenTheBreaker() throws Exception {
+		SecurityDingTalkCircuitBreakerProperties circuitBreaker = new SecurityDingTalkCircuitBreakerProperties();
+		circuitBreaker.setMinimumNumberOfCalls(4);
+		DingTalkUpstreamInvoker upstreamInvoker = new DingTalkUpstreamInvoker(circuitBreaker, null);
+		List<DingTalkCircuitBreakerEvent> events = new ArrayList<>();
+		upstreamInvoker.setApplicationEventPublisher(event -> events.add((DingTalkCircuitBreakerEvent) event));
+
+		for (int i = 0; i < 2; i++) {
+			assertThatThrownBy(() -> upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN,
+					() -> { throw new ApiException(new java.net.SocketTimeoutException("Read timed out")); })).isInstanceOf(ApiException.class);
+			assertThatThrownBy(() -> upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN,
+					() -> { throw new ApiException("-1", "system busy"); })).isInstanceOf(ApiException.class);
+		}
+
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getOperation()).isEqualTo(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN);
+		assertThat(events.get(0).getFromState()).isEqualTo(DingTalkCircuitBreaker.State.CLOSED);
+		assertThat(events.get(0).getToState()).isEqualTo(DingTalkCircuitBreaker.State.OPEN);
+
+		// 打开后快速失败，并携带允许试探前的剩余时间
+		assertThatThrownBy(() -> upstreamInvoker.invoke(DingTalkUpstreamInvoker.OPERATION_GET_TOKEN, () -> "token"))
+				.isInstanceOfSatisfying(DingTalkServiceUnavailableException.class, e -> assertThat(e.getRetryAfter())
+						.isPositive().isLessThanOrEqualTo(circuitBreaker.getWaitDurationInOpenState()));
+	}
+
+	@Test
+	public void bulkheadRejectionReleasesTheHalfOpenPermit() throws Exception {
+		SecurityDingTalkCircuitBreakerProperties circuitBreaker = new SecurityDingTalkCircuitBreakerProperties();
+		circuitBreaker.setMinimumNumberOfCalls(1);
+		circuitBreaker.setWaitDurationInOpenState(Duration.ZERO);
+		circuitBreaker.setPermittedNumberOfCallsInHalfOpenState(2);
+		SecurityDingTalkBulkheadProperties bulkhead = new SecurityDingTalkBulkheadProperties();
+		bulkhead.setMaxConcurrentCalls(1);
+		DingTalkUpstreamInvoker upstreamInvoker = new DingTalkUpstreamInvoker(circuitBreaker, bulkhead);
+		String operation = DingTalkUpstreamInvoker.OPERATION_SNS_GET_USERINFO_BYCODE;
+		upstreamInvoker.invoke(operation, () -> -1L, code -> code);
+		DingTalkCircuitBreaker breaker = upstreamInvoker.getCircuitBreaker(operation);
+		assertThat(breaker.getState()).isEqualTo(DingTalkCircuitBreaker.State.OPEN);
+
+		// 占用唯一的并发名额期间再次调用：取得第二个试探名额后被并发隔离拒绝，且不携带 Retry-After
+		String result = upstreamInvoker.invoke(operation, () -> {
+			assertThatThrownBy(() -> upstreamInvoker.invoke(operation, () -> "nested"))
+					.isInstanceOfSatisfying(DingTalkServiceUnavailableException.class, e -> assertThat(e.getRetryAfter()).isNull());
+			return "probe";
+		});
+
+		assertThat(result).isEqualTo("probe");
+		assertThat(upstreamInvoker.getBulkhead(operation).getRejectedCount()).isEqualTo(1);
+		assertThat(upstreamInvoker.getBulkhead(operation).getAvailableConcurrentCalls()).isEqualTo(1);
+		assertThat(breaker.getState()).isEqualTo(DingTalkCircuitBreaker.State.HALF_OPEN);
+		// 被拒绝的调用已归还试探名额，第二次试探仍可发出并关闭熔断器
+		assertThat(upstreamInvoker.invoke(operation, () -> "probe")).isEqualTo("probe");
+		assertThat(breaker.getState()).isEqualTo(DingTalkCircuitBreaker.State.CLOSED);
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.springframework.security.boot.dingtalk.userdetails;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+public class DingTalkUserDetailsCacheTest {
+
+	private final VersionedSharedCache sharedCache = new VersionedSharedCache();
+
+	@Test
+	public void loadStartedBeforeRemoteInvalidationIsNotShared() throws Exception {
+		DingTalkUserDetailsCache nodeA = this.node("node-a");
+		DingTalkUserDetailsCache nodeB = this.node("node-b");
+		String key = DingTalkUserDetailsCache.unionidKey("u1");
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch invalidated = new CountDownLatch(1);
+
+		// 节点 A 开始加载旧的用户信息，加载期间节点 B 使其失效
+		CompletableFuture<UserDetails> load = CompletableFuture.supplyAsync(() -> nodeA.get(key, () -> {
+			loading.countDown();
+			invalidated.await(5, TimeUnit.SECONDS);
+			return user("stale");
+		}));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread.sleep(2);
+		nodeB.invalidate(key);
+		invalidated.countDown();
+		assertThat(load.get(5, TimeUnit.SECONDS).getPassword()).isEqualTo("stale");
+
+		// 旧的结果没有写入 L2，其他节点重新加载
+		assertThat(sharedCache.get(key)).isNull();
+		assertThat(nodeB.get(key, () -> user("fresh")).getPassword()).isEqualTo("fresh");
+		assertThat(sharedCache.get(key).getUserDetails().getPassword()).isEqualTo("fresh");
+	}
+
+	@Test
+	public void entriesAreVersionedByLoadStart() throws Exception {
+		DingTalkUserDetailsCache nodeA = this.node("node-a");
+		AtomicLong startedAt = new AtomicLong();
+		String key = DingTalkUserDetailsCache.unionidKey("u1");
+		nodeA.get(key, () -> {
+			startedAt.set(System.currentTimeMillis());
+			Thread.sleep(5);
+			return user("secret");
+		});
+		assertThat(sharedCache.get(key).getLoadedAt()).isLessThanOrEqualTo(startedAt.get());
+	}
+
+	@Test
+	public void callersNeverShareTheCachedInstance() {
+		DingTalkUserDetailsCache userDetailsCache = new DingTalkUserDetailsCache(100, Duration.ofMinutes(5));
+		String key = DingTalkUserDetailsCache.unionidKey("u1");
+
+		UserDetails first = userDetailsCache.get(key, () -> user("secret"));
+		// 认证成功后 ProviderManager 清除返回结果中的密码
+		((CredentialsContainer) first).eraseCredentials();
+		UserDetails second = userDetailsCache.get(key, () -> user("reloaded"));
+
+		assertThat(second).isNotSameAs(first).isEqualTo(first);
+		assertThat(second.getPassword()).isEqualTo("secret");
+		assertThat(userDetailsCache.stats().hitCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void unserializableUserDetailsAreNotCached() {
+		DingTalkUserDetailsCache userDetailsCache = new DingTalkUserDetailsCache(100, Duration.ofMinutes(5));
+		String key = DingTalkUserDetailsCache.unionidKey("u1");
+		UserDetails unserializable = new User("user", "secret", AuthorityUtils.createAuthorityList("ROLE_USER")) {
+
+			private static final long serialVersionUID = 1L;
+			// 不可序列化的属性
+			@SuppressWarnings("unused")
+			private final Thread owner = Thread.currentThread();
+
+		};
+
+		assertThat(userDetailsCache.get(key, () -> unserializable)).isSameAs(unserializable);
+		assertThat(userDetailsCache.size()).isZero();
+	}
+
+	private DingTalkUserDetailsCache node(String nodeId) {
+		DingTalkUserDetailsCache userDetailsCache = new DingTalkUserDetailsCache(100, Duration.ofMinutes(5));
+		userDetailsCache.setNodeId(nodeId);
+		userDetailsCache.setSharedCache(sharedCache);
+		return userDetailsCache;
+	}
+
+	private static UserDetails user(String password) {
+		return User.withUsername("user").password(password).authorities("ROLE_USER").build();
+	}
+
+	/**
+	 * 按 {@link DingTalkSharedUserDetailsCache} 的约定丢弃失效之前开始加载的条目，仅处理 Key 范围的失效
+	 */
+	private static class VersionedSharedCache implements DingTalkSharedUserDetailsCache {
+
+		private final Map<String, DingTalkCachedUserDetails> entries = new ConcurrentHashMap<>();
+		private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+		@Override
+		public DingTalkCachedUserDetails get(String key) {
+			return entries.get(key);
+		}
+
+		@Override
+		public synchronized void put(String key, DingTalkCachedUserDetails userDetails, Duration ttl) {
+			Long issuedAt = invalidatedAt.get(key);
+			if (issuedAt != null && issuedAt >= userDetails.getLoadedAt()) {
+				return;
+			}
+			entries.merge(key, userDetails, (existing, loaded) -> existing.getLoadedAt() > loaded.getLoadedAt() ? existing : loaded);
+		}
+
+		@Override
+		public synchronized void invalidate(DingTalkUserDetailsInvalidation invalidation) {
+			entries.remove(invalidation.getValue());
+			invalidatedAt.merge(invalidation.getValue(), invalidation.getIssuedAt(), Math::max);
+		}
+
+	}
+
+}